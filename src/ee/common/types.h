@@ -186,6 +186,7 @@ enum PlanNodeType {
     //
     PLAN_NODE_TYPE_NESTLOOP         = 20,
     PLAN_NODE_TYPE_NESTLOOPINDEX    = 21,
+    PLAN_NODE_TYPE_HASHJOIN         = 22,
 
     //
     // Operator Nodes
@@ -398,6 +399,14 @@ enum TableStreamType {
     // was used for TABLE_STREAM_ELASTIC_INDEX_READ.
     TABLE_STREAM_ELASTIC_INDEX_CLEAR,
 
+    // Snapshot that writes every row and starts the table's incremental
+    // snapshot chain.
+    TABLE_STREAM_SNAPSHOT_INCREMENTAL_BASE,
+
+    // Snapshot that only writes the rows of blocks modified, and the rows
+    // deleted, since the last completed incremental snapshot.
+    TABLE_STREAM_SNAPSHOT_INCREMENTAL,
+
     // Table stream types that don't use predicates.
     // Add new non-predicate types below TABLE_STREAM_RECOVERY so
     // that tableStreamTypeHasPredicates() doesn't have to change.
@@ -419,14 +428,26 @@ enum TableStreamSerializationError {
 inline bool tableStreamTypeHasPredicates(TableStreamType streamType) {
     return streamType == TABLE_STREAM_SNAPSHOT
         || streamType == TABLE_STREAM_ELASTIC_INDEX
-        || streamType == TABLE_STREAM_ELASTIC_INDEX_READ;
+        || streamType == TABLE_STREAM_ELASTIC_INDEX_READ
+        || streamType == TABLE_STREAM_SNAPSHOT_INCREMENTAL_BASE
+        || streamType == TABLE_STREAM_SNAPSHOT_INCREMENTAL;
 }
 
 /**
  * Return true if the table stream type is performing a snapshot.
  */
 inline bool tableStreamTypeIsSnapshot(TableStreamType streamType) {
-    return streamType == TABLE_STREAM_SNAPSHOT;
+    return streamType == TABLE_STREAM_SNAPSHOT
+        || streamType == TABLE_STREAM_SNAPSHOT_INCREMENTAL_BASE
+        || streamType == TABLE_STREAM_SNAPSHOT_INCREMENTAL;
+}
+
+/**
+ * Return true if the table stream type is part of an incremental snapshot chain.
+ */
+inline bool tableStreamTypeIsIncremental(TableStreamType streamType) {
+    return streamType == TABLE_STREAM_SNAPSHOT_INCREMENTAL_BASE
+        || streamType == TABLE_STREAM_SNAPSHOT_INCREMENTAL;
 }
 
 /**
@@ -497,6 +518,7 @@ enum TaskType {
     TASK_TYPE_INIT_DRID_TRACKER = 8,             // not supported in EE
     TASK_TYPE_RESET_DR_APPLIED_TRACKER_SINGLE = 9, // not supported in EE
     TASK_TYPE_ELASTIC_CHANGE = 10,                 // not supported in EE
+    TASK_TYPE_DELETE_RESTORED_ROWS = 11,
 };
 
 // ------------------------------------------------------------------
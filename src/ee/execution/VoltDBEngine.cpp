@@ -2545,6 +2545,71 @@ void VoltDBEngine::dispatchValidatePartitioningTask(ReferenceSerializeInputBE &t
     }
 }
 
+/*
+ * Delete the rows of a table matching, by primary key, the rows of the serialized table
+ * that follows in the task, or every row of the table if the delete all flag is set.
+ * Used to apply the deletes of an incremental snapshot during restore.
+ */
+void VoltDBEngine::dispatchDeleteRestoredRowsTask(ReferenceSerializeInputBE &taskInfo) {
+    const int32_t tableId = taskInfo.readInt();
+    int64_t uniqueId = taskInfo.readLong();
+    int64_t lastCommittedSpHandle = taskInfo.readLong();
+    int64_t spHandle = taskInfo.readLong();
+    int64_t txnId = taskInfo.readLong();
+    int64_t undoToken = taskInfo.readLong();
+    bool deleteAll = taskInfo.readBool();
+
+    setUndoToken(undoToken);
+    m_executorContext->setupForPlanFragments(getCurrentUndoQuantum(), txnId,
+            spHandle, lastCommittedSpHandle, uniqueId, false);
+
+    PersistentTable* table = dynamic_cast<PersistentTable*>(getTableById(tableId));
+    if (table == NULL) {
+        throwFatalException("Unknown persistent table id %d", tableId);
+    }
+
+    int64_t deleted = 0;
+    ConditionalSynchronizedExecuteWithMpMemory possiblySynchronizedUseMpMemory
+            (table->isCatalogTableReplicated(), isLowestSite(), &s_loadTableException, VOLT_EE_EXCEPTION_TYPE_REPLICATED_TABLE);
+    if (possiblySynchronizedUseMpMemory.okToExecute()) {
+        Pool pool;
+        boost::scoped_ptr<TempTable> rows(TableFactory::buildCopiedTempTable("Restored deletes of " + table->name(), table));
+        rows->loadTuplesFrom(taskInfo, &pool);
+        if (deleteAll) {
+            deleted = table->activeTupleCount();
+            table->deleteAllTuples(true);
+        }
+        else if (rows->activeTupleCount() == 0) {
+            // Nothing to delete
+        }
+        else if (table->primaryKeyIndex() == NULL) {
+            s_loadTableException = VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION;
+            throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION,
+                    "Can not delete restored rows by key from table " + table->name() + " without a primary key");
+        }
+        else {
+            TableTuple row(rows->schema());
+            TableIterator iter = rows->iterator();
+            while (iter.next(row)) {
+                TableTuple target = table->primaryKeyIndex()->uniqueMatchingTuple(row);
+                if (!target.isNullTuple()) {
+                    table->deleteTuple(target, true);
+                    deleted++;
+                }
+            }
+        }
+        rows->deleteAllTempTuples();
+        s_loadTableException = VOLT_EE_EXCEPTION_TYPE_NONE;
+    }
+    else if (s_loadTableException != VOLT_EE_EXCEPTION_TYPE_NONE) {
+        throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_REPLICATED_TABLE,
+                "Deleting restored rows failed on another thread for table " + table->name());
+    }
+
+    m_resultOutput.writeInt(static_cast<int32_t>(sizeof(int64_t)));
+    m_resultOutput.writeLong(deleted);
+}
+
 void VoltDBEngine::collectDRTupleStreamStateInfo() {
     std::size_t size = 3 * sizeof(int64_t) + 4 /*drVersion*/ + 1 /*hasReplicatedStream*/;
     if (m_executorContext->drReplicatedStream()) {
@@ -2670,6 +2735,9 @@ void VoltDBEngine::executeTask(TaskType taskType, ReferenceSerializeInputBE &tas
                         spHandle, uniqueId, payloads));
         break;
     }
+    case TASK_TYPE_DELETE_RESTORED_ROWS:
+        dispatchDeleteRestoredRowsTask(taskInfo);
+        break;
     default:
         throwFatalException("Unknown task type %d", taskType);
     }
@@ -542,6 +542,8 @@ class __attribute__((visibility("default"))) VoltDBEngine {
 
         void collectDRTupleStreamStateInfo();
 
+        void dispatchDeleteRestoredRowsTask(ReferenceSerializeInputBE& taskInfo);
+
         void setCurrentUndoQuantum(voltdb::UndoQuantum* undoQuantum);
 
         // -------------------------------------------------
@@ -45,9 +45,15 @@
 
 #include "executors/aggregateexecutor.h"
 
+#include "common/executorcontext.hpp"
+#include "execution/ExecutorVector.h"
 #include "plannodes/aggregatenode.h"
 #include "plannodes/limitnode.h"
+#include "storage/LargeTempTable.h"
+#include "storage/tablefactory.h"
+#include "storage/tableiterator.h"
 #include "storage/temptable.h"
+#include "storage/TempTableLimits.h"
 
 #include "hyperloglog/hyperloglog.hpp" // for APPROX_COUNT_DISTINCT
 
@@ -757,8 +763,48 @@ void AggregateExecutorBase::p_execute_finish()
     m_memoryPool.purge();
 }
 
+namespace {
+
+// Approximate heap cost of one HashAggregateMapType entry outside the memory pool:
+// the stored pair, the node's link pointer and its share of the bucket array.
+const int HASH_ENTRY_BYTES = sizeof(TableTuple) + 3 * sizeof(void*);
+
+// The memory used by the groups is measured each time this many new groups have been added.
+const int SPILL_CHECK_INTERVAL = 1024;
+
+// Never spill before the groups use this much, however little of the temp table limit is left.
+const int64_t MIN_SPILL_BUDGET_BYTES = 4 * 1024 * 1024;
+
+/**
+ * Pick the partition of a group by key at the given spill level. The key hash is mixed
+ * so that every level takes independent bits of it, which are also uncorrelated with the
+ * bucket the key lands in when its partition is aggregated.
+ */
+inline int spillPartitionOf(const TableTuple& groupByKeyTuple, int level, int partitionBits)
+{
+    uint64_t hash = groupByKeyTuple.hashCode();
+    hash ^= hash >> 33;
+    hash *= 0xff51afd7ed558ccdULL;
+    hash ^= hash >> 33;
+    hash *= 0xc4ceb9fe1a85ec53ULL;
+    hash ^= hash >> 33;
+    return static_cast<int>((hash >> (level * partitionBits)) & ((1 << partitionBits) - 1));
+}
+
+} // namespace
+
 AggregateHashExecutor::~AggregateHashExecutor() {}
 
+bool AggregateHashExecutor::p_init(AbstractPlanNode* abstractNode, const ExecutorVector& executorVector)
+{
+    if (!AggregateExecutorBase::p_init(abstractNode, executorVector)) {
+        return false;
+    }
+    m_limits = executorVector.limits();
+    m_isLargeQuery = executorVector.isLargeQuery();
+    return true;
+}
+
 TableTuple AggregateHashExecutor::p_execute_init(const NValueArray& params,
                                                  ProgressMonitorProxy* pmp,
                                                  const TupleSchema * schema,
@@ -767,6 +813,29 @@ TableTuple AggregateHashExecutor::p_execute_init(const NValueArray& params,
 {
     VOLT_TRACE("hash aggregate executor init..");
     m_hash.clear();
+    discardSpilledPartitions();
+    m_spillLevel = 0;
+    m_newGroupsSinceCheck = 0;
+
+    m_memoryBudget = -1;
+    if (m_limits != NULL && m_limits->getMemoryLimit() > 0) {
+        // Leave half of what remains for the output table and the operators above us.
+        m_memoryBudget = std::max(MIN_SPILL_BUDGET_BYTES,
+                                  (m_limits->getMemoryLimit() - m_limits->getAllocated()) / 2);
+    }
+    else if (m_isLargeQuery) {
+        m_memoryBudget = std::max(MIN_SPILL_BUDGET_BYTES,
+                                  m_engine->getExecutorContext()->lttBlockCache()->maxCacheSizeInBytes() / 2);
+    }
+
+    // Only the partition last written to stays pinned, but with more partitions than
+    // the cache holds their blocks would be stored and reloaded between writes.
+    int cacheBlocks = m_engine->getExecutorContext()->lttBlockCache()->maxCacheSizeInBlocks();
+    m_spillPartitionBits = 1;
+    while (m_spillPartitionBits < MAX_SPILL_PARTITION_BITS &&
+           (2 << m_spillPartitionBits) <= cacheBlocks - RESERVED_CACHE_BLOCKS) {
+        ++m_spillPartitionBits;
+    }
 
     return AggregateExecutorBase::p_execute_init(params, pmp, schema, newTempTable, parentPostfilter);
 }
@@ -797,6 +866,10 @@ bool AggregateHashExecutor::p_execute(const NValueArray& params)
 
 void AggregateHashExecutor::p_execute_tuple(const TableTuple& nextTuple) {
     m_pmp->countdownProgress();
+    aggregateTuple(nextTuple);
+}
+
+void AggregateHashExecutor::aggregateTuple(const TableTuple& nextTuple) {
     initGroupByKeyTuple(nextTuple);
     AggregateRow* aggregateRow;
     TableTuple& nextGroupByKeyTuple = m_nextGroupByKeyStorage;
@@ -805,19 +878,20 @@ void AggregateHashExecutor::p_execute_tuple(const TableTuple& nextTuple) {
 
     // Group not found. Make a new entry in the hash for this new group.
     if (keyIter == m_hash.end()) {
-        VOLT_TRACE("hash aggregate: new group..");
-        aggregateRow = new (m_memoryPool, m_aggTypes.size()) AggregateRow();
-        m_hash.insert(HashAggregateMapType::value_type(nextGroupByKeyTuple, aggregateRow));
-
-        initAggInstances(aggregateRow);
+        if (!m_spillPartitions.empty()) {
+            // The groups in memory are frozen, the new group is aggregated later with its partition.
+            spillTuple(nextGroupByKeyTuple, nextTuple);
+            return;
+        }
 
-        char* storage = reinterpret_cast<char*>(m_memoryPool.allocateZeroes(m_inputSchema->tupleLength() + TUPLE_HEADER_SIZE));
-        TableTuple passThroughTupleSource = TableTuple(storage, m_inputSchema);
+        aggregateRow = addGroup(nextGroupByKeyTuple, nextTuple);
 
-        aggregateRow->recordPassThroughTuple(passThroughTupleSource, nextTuple);
-        // The map is referencing the current key tuple for use by the new group,
-        // so force a new tuple allocation to hold the next candidate key.
-        nextGroupByKeyTuple.move(NULL);
+        if (++m_newGroupsSinceCheck == SPILL_CHECK_INTERVAL) {
+            m_newGroupsSinceCheck = 0;
+            if (m_spillLevel < MAX_SPILL_LEVEL && overMemoryBudget()) {
+                startSpilling();
+            }
+        }
 
         if (m_aggTypes.size() == 0) {
             insertOutputTuple(aggregateRow);
@@ -831,9 +905,40 @@ void AggregateHashExecutor::p_execute_tuple(const TableTuple& nextTuple) {
     advanceAggs(aggregateRow, nextTuple);
 }
 
-void AggregateHashExecutor::p_execute_finish() {
-    VOLT_TRACE("finalizing..");
+AggregateRow* AggregateHashExecutor::addGroup(TableTuple& groupByKeyTuple, const TableTuple& nextTuple)
+{
+    VOLT_TRACE("hash aggregate: new group..");
+    // Tuples read back from a spilled partition refer to data in large temp table blocks,
+    // which may move once they are unpinned. Copy that data so the group can outlive the block.
+    if (groupByKeyTuple.nonInlinedDataIsVolatile()) {
+        for (int ii = 0; ii < m_groupByKeySchema->columnCount(); ii++) {
+            groupByKeyTuple.setNValueAllocateForObjectCopies(ii, groupByKeyTuple.getNValue(ii), &m_memoryPool);
+        }
+    }
+
+    AggregateRow* aggregateRow = new (m_memoryPool, m_aggTypes.size()) AggregateRow();
+    m_hash.insert(HashAggregateMapType::value_type(groupByKeyTuple, aggregateRow));
+
+    initAggInstances(aggregateRow);
+
+    char* storage = reinterpret_cast<char*>(m_memoryPool.allocateZeroes(m_inputSchema->tupleLength() + TUPLE_HEADER_SIZE));
+    TableTuple passThroughTupleSource = TableTuple(storage, m_inputSchema);
+    if (nextTuple.nonInlinedDataIsVolatile()) {
+        // Pass through values end up in the output table, so they can not live in the memory pool.
+        passThroughTupleSource.copyForPersistentInsert(nextTuple, ExecutorContext::getTempStringPool());
+        aggregateRow->m_passThroughTuple = passThroughTupleSource;
+    }
+    else {
+        aggregateRow->recordPassThroughTuple(passThroughTupleSource, nextTuple);
+    }
+    // The map is referencing the current key tuple for use by the new group,
+    // so force a new tuple allocation to hold the next candidate key.
+    groupByKeyTuple.move(NULL);
+    return aggregateRow;
+}
 
+void AggregateHashExecutor::outputGroups()
+{
     // If there is no aggregation, results are already inserted already
     if (m_aggTypes.size() != 0) {
         for (HashAggregateMapType::const_iterator iter = m_hash.begin(); iter != m_hash.end(); iter++) {
@@ -844,12 +949,114 @@ void AggregateHashExecutor::p_execute_finish() {
             delete aggregateRow;
         }
     }
+    m_hash.clear();
+}
+
+bool AggregateHashExecutor::overMemoryBudget()
+{
+    if (m_memoryBudget < 0) {
+        return false;
+    }
+    int64_t usedBytes = m_memoryPool.getAllocatedMemory() +
+            static_cast<int64_t>(m_hash.size()) * HASH_ENTRY_BYTES +
+            static_cast<int64_t>(m_hash.bucket_count()) * sizeof(void*);
+    return usedBytes > m_memoryBudget;
+}
+
+void AggregateHashExecutor::startSpilling()
+{
+    VOLT_DEBUG("Hash aggregate spilling at level %d with %d groups in memory",
+               m_spillLevel, (int)m_hash.size());
+    std::vector<std::string> columnNames;
+    for (int ii = 0; ii < m_inputSchema->columnCount(); ii++) {
+        std::ostringstream name;
+        name << "C" << ii;
+        columnNames.push_back(name.str());
+    }
+    for (int ii = 0; ii < (1 << m_spillPartitionBits); ii++) {
+        m_spillPartitions.push_back(SpillPartition(
+                TableFactory::buildLargeTempTable("hashagg spill",
+                                                  TupleSchema::createTupleSchema(m_inputSchema),
+                                                  columnNames)));
+    }
+}
+
+void AggregateHashExecutor::spillTuple(const TableTuple& groupByKeyTuple, const TableTuple& nextTuple)
+{
+    int partition = spillPartitionOf(groupByKeyTuple, m_spillLevel, m_spillPartitionBits);
+    if (partition != m_lastSpillPartition) {
+        if (m_lastSpillPartition >= 0) {
+            m_spillPartitions[m_lastSpillPartition]->unpinBlockForWriting();
+        }
+        m_lastSpillPartition = partition;
+    }
+    TableTuple spilledTuple = nextTuple;
+    m_spillPartitions[partition]->insertTuple(spilledTuple);
+}
+
+void AggregateHashExecutor::discardSpilledPartitions()
+{
+    m_spillPartitions.clear();
+    m_lastSpillPartition = -1;
+    m_pendingPartitions.clear();
+}
+
+void AggregateHashExecutor::p_execute_finish() {
+    VOLT_TRACE("finalizing..");
+    outputGroups();
+
+    // Aggregate the spilled partitions one at a time. Partitions spilled while aggregating
+    // a partition are taken next, so no more than one partition per level is waiting to be split.
+    while (true) {
+        if (!m_spillPartitions.empty()) {
+            BOOST_FOREACH(SpillPartition& partition, m_spillPartitions) {
+                partition->finishInserts();
+                if (partition->activeTupleCount() > 0) {
+                    m_pendingPartitions.push_back(std::make_pair(partition, m_spillLevel + 1));
+                }
+            }
+            m_spillPartitions.clear();
+            m_lastSpillPartition = -1;
+        }
+        if (m_pendingPartitions.empty() || !m_postfilter.isUnderLimit()) {
+            break;
+        }
+
+        SpillPartition partition = m_pendingPartitions.back().first;
+        m_spillLevel = m_pendingPartitions.back().second;
+        m_pendingPartitions.pop_back();
+        VOLT_DEBUG("Hash aggregate reading %d spilled tuples at level %d",
+                   (int)partition->activeTupleCount(), m_spillLevel);
+
+        // The groups of the previous partition have all been output, start afresh.
+        m_memoryPool.purge();
+        TableTuple& nextGroupByKeyTuple = m_nextGroupByKeyStorage;
+        nextGroupByKeyTuple.move(NULL);
+        m_newGroupsSinceCheck = 0;
+
+        TableTuple spilledTuple(partition->schema());
+        TableIterator it = partition->iteratorDeletingAsWeGo();
+        while (it.next(spilledTuple)) {
+            m_pmp->countdownProgress();
+            aggregateTuple(spilledTuple);
+        }
+        outputGroups();
+    }
 
     // Clean up
-    m_hash.clear();
+    discardSpilledPartitions();
+    m_spillLevel = 0;
     AggregateExecutorBase::p_execute_finish();
 }
 
+void AggregateHashExecutor::cleanupMemoryPool()
+{
+    m_hash.clear();
+    discardSpilledPartitions();
+    m_spillLevel = 0;
+    AggregateExecutorBase::cleanupMemoryPool();
+}
+
 AggregateSerialExecutor::~AggregateSerialExecutor() {}
 
 
@@ -56,8 +56,13 @@
 #include "execution/ProgressMonitorProxy.h"
 #include "executors/executorutil.h"
 
+#include "boost/shared_ptr.hpp"
+
 namespace voltdb {
 
+class LargeTempTable;
+class TempTableLimits;
+
 /*
  * Base class for an individual aggregate that aggregates a specific
  * column for a group
@@ -267,26 +272,75 @@ typedef boost::unordered_map<TableTuple,
 /**
  * The concrete executor class for PLAN_NODE_TYPE_HASHAGGREGATE
  * in which the input does not need to be sorted and execution will hash the group by key to aggregate the tuples.
+ *
+ * When the groups outgrow the memory budget, the groups already in the hash table keep aggregating in memory
+ * while the input tuples of any new group are spilled to large temp table partitions by the hash of their
+ * group by key. Each partition holds a disjoint part of the group space, and is aggregated on its own once
+ * the groups in memory have been output, spilling again on other bits of the hash if it is still too large.
  */
 class AggregateHashExecutor : public AggregateExecutorBase
 {
 public:
     AggregateHashExecutor(VoltDBEngine* engine, AbstractPlanNode* abstract_node) :
-        AggregateExecutorBase(engine, abstract_node) { }
+        AggregateExecutorBase(engine, abstract_node),
+        m_limits(NULL), m_isLargeQuery(false), m_memoryBudget(-1),
+        m_spillPartitionBits(MAX_SPILL_PARTITION_BITS), m_lastSpillPartition(-1),
+        m_spillLevel(0), m_newGroupsSinceCheck(0) { }
 
     // empty destructor defined in .cpp file because of it is called virtually (not inline)
     // same reason for serial and partial
     ~AggregateHashExecutor();
 
+    // Each spill splits the group space at most this many ways
+    static const int MAX_SPILL_PARTITION_BITS = 5;
+    // Large temp table cache blocks left for the input and output tables
+    // and the one partition being written
+    static const int RESERVED_CACHE_BLOCKS = 3;
+    // Groups of a partition that has been split this many times are kept in memory
+    static const int MAX_SPILL_LEVEL = 4;
+
     TableTuple p_execute_init(const NValueArray& params, ProgressMonitorProxy* pmp,
                               const TupleSchema * schema, AbstractTempTable* newTempTable  = NULL,
                               CountingPostfilter* parentPredicate = NULL);
     void p_execute_tuple(const TableTuple& nextTuple);
     void p_execute_finish();
 
+    void cleanupMemoryPool();
+
+protected:
+    bool p_init(AbstractPlanNode*, const ExecutorVector& executorVector);
+
 private:
+    typedef boost::shared_ptr<LargeTempTable> SpillPartition;
+
     virtual bool p_execute(const NValueArray& params);
+
+    void aggregateTuple(const TableTuple& nextTuple);
+    AggregateRow* addGroup(TableTuple& groupByKeyTuple, const TableTuple& nextTuple);
+    void outputGroups();
+
+    bool overMemoryBudget();
+    void startSpilling();
+    void spillTuple(const TableTuple& groupByKeyTuple, const TableTuple& nextTuple);
+    void discardSpilledPartitions();
+
     HashAggregateMapType m_hash;
+
+    TempTableLimits* m_limits;
+    bool m_isLargeQuery;
+    // Bytes the groups in memory may use before new groups spill, or -1 for no limit
+    int64_t m_memoryBudget;
+    // Each spill splits the group space 2^m_spillPartitionBits ways
+    int m_spillPartitionBits;
+    // Partitions receiving the tuples of new groups, empty until the groups spill
+    std::vector<SpillPartition> m_spillPartitions;
+    // The partition last written to, the only one whose block is kept pinned, or -1
+    int m_lastSpillPartition;
+    // Filled partitions waiting to be aggregated, with their spill level
+    std::vector<std::pair<SpillPartition, int> > m_pendingPartitions;
+    // Number of times the tuples being aggregated have been spilled
+    int m_spillLevel;
+    int m_newGroupsSinceCheck;
 };
 
 /**
@@ -0,0 +1,424 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "hashjoinexecutor.h"
+
+#include "common/executorcontext.hpp"
+#include "execution/ExecutorVector.h"
+#include "execution/ProgressMonitorProxy.h"
+#include "executors/aggregateexecutor.h"
+#include "executors/executorutil.h"
+#include "plannodes/hashjoinnode.h"
+#include "plannodes/limitnode.h"
+#include "storage/LargeTempTable.h"
+#include "storage/tablefactory.h"
+#include "storage/tableiterator.h"
+#include "storage/temptable.h"
+#include "storage/TempTableLimits.h"
+
+#include "boost/scoped_ptr.hpp"
+#include "boost/shared_ptr.hpp"
+
+#include <algorithm>
+#include <limits>
+
+using namespace std;
+using namespace voltdb;
+
+namespace {
+
+// Approximate heap cost of one BuildHashTable entry: the stored pair,
+// the node's link pointer and its share of the bucket array.
+const int HASH_ENTRY_BYTES = sizeof(std::size_t) + 3 * sizeof(void*);
+
+// Build side memory is charged to TempTableLimits in batches of this many entries.
+const int HASH_ENTRY_CHARGE_BATCH = 1024;
+
+/**
+ * Hash the values of the key expressions into seed.
+ * Return false if any key is NULL -- such a tuple can not match anything
+ * under an equality predicate.
+ */
+inline bool hashKeys(const std::vector<AbstractExpression*>& keys,
+                     const TableTuple* outerTuple,
+                     const TableTuple* innerTuple,
+                     std::size_t& seed)
+{
+    seed = 0;
+    for (size_t i = 0; i < keys.size(); ++i) {
+        NValue value = keys[i]->eval(outerTuple, innerTuple);
+        if (value.isNull()) {
+            return false;
+        }
+        value.hashCombine(seed);
+    }
+    return true;
+}
+
+// Mix the high bits in so that the partition choice is not correlated
+// with the bucket choice inside the per-partition hash table.
+inline int partitionOf(std::size_t hash, int partitionCount)
+{
+    return static_cast<int>((hash ^ (hash >> 29)) % partitionCount);
+}
+
+} // namespace
+
+/**
+ * Tracks the memory charged against TempTableLimits for a build side hash table,
+ * and gives it back when released or when the join unwinds with an exception.
+ */
+class HashJoinExecutor::BuildMemory {
+public:
+    BuildMemory(TempTableLimits* limits) : m_limits(limits), m_chargedBytes(0) { }
+    ~BuildMemory() { release(); }
+
+    void charge(int bytes)
+    {
+        // TempTableLimits counts the bytes even when it throws, so record them first.
+        m_chargedBytes += bytes;
+        if (m_limits) {
+            m_limits->increaseAllocated(bytes);
+        }
+    }
+
+    void release()
+    {
+        // TempTableLimits takes an int, so a large charge is given back in pieces.
+        while (m_limits && m_chargedBytes > 0) {
+            int bytes = static_cast<int>(std::min<int64_t>(m_chargedBytes, std::numeric_limits<int>::max()));
+            m_limits->reduceAllocated(bytes);
+            m_chargedBytes -= bytes;
+        }
+        m_chargedBytes = 0;
+    }
+
+private:
+    TempTableLimits* m_limits;
+    int64_t m_chargedBytes;
+};
+
+bool HashJoinExecutor::p_init(AbstractPlanNode* abstractNode,
+                              const ExecutorVector& executorVector)
+{
+    VOLT_TRACE("init HashJoin Executor");
+
+    HashJoinPlanNode* node = dynamic_cast<HashJoinPlanNode*>(m_abstractNode);
+    assert(node);
+
+    // Init parent first
+    if (!AbstractJoinExecutor::p_init(abstractNode, executorVector)) {
+        return false;
+    }
+
+    if (m_joinType != JOIN_TYPE_INNER && m_joinType != JOIN_TYPE_LEFT) {
+        VOLT_ERROR("HashJoin only supports INNER and LEFT joins, not %s",
+                   joinToString(m_joinType).c_str());
+        return false;
+    }
+
+    m_preJoinPredicate = node->getPreJoinPredicate();
+    m_joinPredicate = node->getJoinPredicate();
+    m_outerKeys = &node->getOuterHashExpressions();
+    m_innerKeys = &node->getInnerHashExpressions();
+    assert(m_outerKeys->size() == m_innerKeys->size());
+
+    m_limits = executorVector.limits();
+    m_isLargeQuery = executorVector.isLargeQuery();
+
+    // NULL tuples for left joins
+    p_init_null_tuples(node->getInputTable(), node->getInputTable(1));
+
+    return true;
+}
+
+int HashJoinExecutor::spillPartitionCount(Table* innerTable) const
+{
+    int64_t innerTuples = innerTable->activeTupleCount();
+    int64_t estimatedBytes = innerTuples * HASH_ENTRY_BYTES;
+    int64_t budget = -1;
+    if (m_limits != NULL && m_limits->getMemoryLimit() > 0) {
+        // Leave half of what remains for the join output and the operators above us.
+        budget = (m_limits->getMemoryLimit() - m_limits->getAllocated()) / 2;
+    }
+
+    // Tuples of a large temp table live in blocks that may be paged out,
+    // so their addresses can not be held in the hash table.
+    if (! m_isLargeQuery && (budget < 0 || estimatedBytes <= budget)) {
+        return 0;
+    }
+
+    int64_t partitions = MAX_SPILL_PARTITIONS;
+    if (budget > 0) {
+        // Each partition's copy of its inner tuples needs room as well as its hash entries.
+        estimatedBytes += innerTuples * innerTable->schema()->tupleLength();
+        partitions = std::max<int64_t>((estimatedBytes / budget) + 1, MIN_SPILL_PARTITIONS);
+        partitions = std::min<int64_t>(partitions, MAX_SPILL_PARTITIONS);
+    }
+
+    // Every partition of the side being scattered keeps the block it is written to
+    // pinned, so there can not be more of them than the block cache holds.
+    int cacheBlocks = m_engine->getExecutorContext()->lttBlockCache()->maxCacheSizeInBlocks();
+    partitions = std::min<int64_t>(partitions, cacheBlocks - RESERVED_CACHE_BLOCKS);
+    return static_cast<int>(std::max<int64_t>(partitions, 1));
+}
+
+void HashJoinExecutor::buildHashTable(Table* innerTable,
+                                      BuildHashTable& hashTable,
+                                      BuildMemory& memory,
+                                      ProgressMonitorProxy& pmp)
+{
+    hashTable.rehash(static_cast<std::size_t>(innerTable->activeTupleCount()));
+
+    TableTuple innerTuple(innerTable->schema());
+    TableIterator iterator = innerTable->iterator();
+    int uncharged = 0;
+    while (iterator.next(innerTuple)) {
+        pmp.countdownProgress();
+        std::size_t hash;
+        if ( ! hashKeys(*m_innerKeys, NULL, &innerTuple, hash)) {
+            continue;
+        }
+        hashTable.insert(BuildHashTable::value_type(hash, innerTuple.address()));
+        if (++uncharged == HASH_ENTRY_CHARGE_BATCH) {
+            memory.charge(uncharged * HASH_ENTRY_BYTES);
+            uncharged = 0;
+        }
+    }
+    memory.charge(uncharged * HASH_ENTRY_BYTES);
+}
+
+void HashJoinExecutor::joinOuterTuple(TableTuple& outerTuple,
+                                      TableTuple& innerTuple,
+                                      const BuildHashTable& hashTable,
+                                      TableTuple& joinTuple,
+                                      CountingPostfilter& postfilter,
+                                      ProgressMonitorProxy& pmp)
+{
+    // populate output table's temp tuple with outer table's values
+    joinTuple.setNValues(0, outerTuple, 0, m_outerCols);
+
+    // did the probe find at least one match for this tuple?
+    bool outerMatch = false;
+    std::size_t hash;
+    // For outer joins if outer tuple fails pre-join predicate
+    // (join expression based on the outer table only)
+    // it can't match any of inner tuples
+    if ((m_preJoinPredicate == NULL || m_preJoinPredicate->eval(&outerTuple, NULL).isTrue()) &&
+            hashKeys(*m_outerKeys, &outerTuple, NULL, hash)) {
+        std::pair<BuildHashTable::const_iterator, BuildHashTable::const_iterator> range =
+                hashTable.equal_range(hash);
+        for (BuildHashTable::const_iterator it = range.first;
+                it != range.second && postfilter.isUnderLimit(); ++it) {
+            pmp.countdownProgress();
+            innerTuple.move(it->second);
+            // Equal hashes only nominate candidates -- the join predicate,
+            // which includes the key equalities, decides.
+            if (m_joinPredicate == NULL || m_joinPredicate->eval(&outerTuple, &innerTuple).isTrue()) {
+                outerMatch = true;
+                if (postfilter.eval(&outerTuple, &innerTuple)) {
+                    joinTuple.setNValues(m_outerCols, innerTuple, 0, m_innerCols);
+                    outputTuple(postfilter, joinTuple, pmp);
+                }
+            }
+        }
+    }
+
+    //
+    // Left Outer Join
+    //
+    if (m_joinType == JOIN_TYPE_LEFT && !outerMatch && postfilter.isUnderLimit()) {
+        const TableTuple& nullInnerTuple = m_null_inner_tuple.tuple();
+        // Still needs to pass the filter
+        if (postfilter.eval(&outerTuple, &nullInnerTuple)) {
+            joinTuple.setNValues(m_outerCols, nullInnerTuple, 0, m_innerCols);
+            outputTuple(postfilter, joinTuple, pmp);
+        }
+    }
+}
+
+void HashJoinExecutor::executeInMemory(Table* outerTable,
+                                       Table* innerTable,
+                                       TableTuple& joinTuple,
+                                       CountingPostfilter& postfilter,
+                                       ProgressMonitorProxy& pmp)
+{
+    BuildHashTable hashTable;
+    BuildMemory memory(m_limits);
+    buildHashTable(innerTable, hashTable, memory, pmp);
+    VOLT_TRACE("HashJoin built %d entries in memory", (int)hashTable.size());
+
+    TableTuple outerTuple(outerTable->schema());
+    TableTuple innerTuple(innerTable->schema());
+    TableIterator iterator0 = outerTable->iteratorDeletingAsWeGo();
+    while (postfilter.isUnderLimit() && iterator0.next(outerTuple)) {
+        pmp.countdownProgress();
+        joinOuterTuple(outerTuple, innerTuple, hashTable, joinTuple, postfilter, pmp);
+    }
+}
+
+void HashJoinExecutor::executePartitioned(Table* outerTable,
+                                          Table* innerTable,
+                                          int partitionCount,
+                                          TableTuple& joinTuple,
+                                          CountingPostfilter& postfilter,
+                                          ProgressMonitorProxy& pmp)
+{
+    VOLT_DEBUG("HashJoin spilling %d inner tuples to %d partitions",
+               (int)innerTable->activeTupleCount(), partitionCount);
+
+    std::vector<boost::shared_ptr<LargeTempTable> > innerPartitions;
+    std::vector<boost::shared_ptr<LargeTempTable> > outerPartitions;
+    for (int i = 0; i < partitionCount; ++i) {
+        innerPartitions.push_back(boost::shared_ptr<LargeTempTable>(
+                TableFactory::buildCopiedLargeTempTable("hashjoin inner", innerTable)));
+        outerPartitions.push_back(boost::shared_ptr<LargeTempTable>(
+                TableFactory::buildCopiedLargeTempTable("hashjoin outer", outerTable)));
+    }
+
+    // Scatter the build side. Tuples with NULL keys can never match.
+    TableTuple innerTuple(innerTable->schema());
+    TableIterator iterator1 = innerTable->iteratorDeletingAsWeGo();
+    while (iterator1.next(innerTuple)) {
+        pmp.countdownProgress();
+        std::size_t hash;
+        if (hashKeys(*m_innerKeys, NULL, &innerTuple, hash)) {
+            innerPartitions[partitionOf(hash, partitionCount)]->insertTuple(innerTuple);
+        }
+    }
+    // Unpin the last block of each inner partition before the outer side pins its own.
+    for (int i = 0; i < partitionCount; ++i) {
+        innerPartitions[i]->finishInserts();
+    }
+
+    // Scatter the probe side. Outer tuples that can not match anything are
+    // finished right away: dropped for inner joins, null-padded for left joins.
+    const BuildHashTable noMatches;
+    TableTuple outerTuple(outerTable->schema());
+    TableIterator iterator0 = outerTable->iteratorDeletingAsWeGo();
+    while (postfilter.isUnderLimit() && iterator0.next(outerTuple)) {
+        pmp.countdownProgress();
+        std::size_t hash;
+        if ((m_preJoinPredicate == NULL || m_preJoinPredicate->eval(&outerTuple, NULL).isTrue()) &&
+                hashKeys(*m_outerKeys, &outerTuple, NULL, hash)) {
+            outerPartitions[partitionOf(hash, partitionCount)]->insertTuple(outerTuple);
+        }
+        else if (m_joinType == JOIN_TYPE_LEFT) {
+            joinOuterTuple(outerTuple, innerTuple, noMatches, joinTuple, postfilter, pmp);
+        }
+    }
+
+    for (int i = 0; i < partitionCount; ++i) {
+        outerPartitions[i]->finishInserts();
+    }
+
+    // Join each partition pair. The inner partition is copied into an in-memory
+    // temp table so that its tuple addresses stay valid while it is probed.
+    boost::scoped_ptr<TempTable> buildTable(
+            TableFactory::buildTempTable("hashjoin build",
+                                         TupleSchema::createTupleSchema(innerTable->schema()),
+                                         innerTable->getColumnNames(),
+                                         m_limits));
+    Pool* stringPool = ExecutorContext::getTempStringPool();
+    TableTuple buildTuple(buildTable->schema());
+    for (int i = 0; i < partitionCount && postfilter.isUnderLimit(); ++i) {
+        if (outerPartitions[i]->activeTupleCount() == 0 && m_joinType == JOIN_TYPE_INNER) {
+            innerPartitions[i]->deleteAllTempTuples();
+            continue;
+        }
+
+        TableIterator partitionIterator = innerPartitions[i]->iteratorDeletingAsWeGo();
+        while (partitionIterator.next(innerTuple)) {
+            pmp.countdownProgress();
+            buildTable->insertTempTupleDeepCopy(innerTuple, stringPool);
+        }
+        innerPartitions[i]->deleteAllTempTuples();
+
+        BuildHashTable hashTable;
+        BuildMemory memory(m_limits);
+        buildHashTable(buildTable.get(), hashTable, memory, pmp);
+
+        TableIterator probeIterator = outerPartitions[i]->iteratorDeletingAsWeGo();
+        while (postfilter.isUnderLimit() && probeIterator.next(outerTuple)) {
+            pmp.countdownProgress();
+            joinOuterTuple(outerTuple, buildTuple, hashTable, joinTuple, postfilter, pmp);
+        }
+        outerPartitions[i]->deleteAllTempTuples();
+
+        hashTable.clear();
+        memory.release();
+        buildTable->deleteAllTempTuples();
+    }
+}
+
+bool HashJoinExecutor::p_execute(const NValueArray &params)
+{
+    VOLT_DEBUG("executing HashJoin...");
+
+    HashJoinPlanNode* node = dynamic_cast<HashJoinPlanNode*>(m_abstractNode);
+    assert(node);
+    assert(node->getInputTableCount() == 2);
+
+    // output table must be a temp table
+    assert(m_tmpOutputTable);
+
+    Table* outerTable = node->getInputTable();
+    assert(outerTable);
+
+    Table* innerTable = node->getInputTable(1);
+    assert(innerTable);
+
+    VOLT_TRACE ("input table left:\n %s", outerTable->debug().c_str());
+    VOLT_TRACE ("input table right:\n %s", innerTable->debug().c_str());
+
+    m_outerCols = outerTable->columnCount();
+    m_innerCols = innerTable->columnCount();
+
+    LimitPlanNode* limit_node = dynamic_cast<LimitPlanNode*>(node->getInlinePlanNode(PLAN_NODE_TYPE_LIMIT));
+    int limit = CountingPostfilter::NO_LIMIT;
+    int offset = CountingPostfilter::NO_OFFSET;
+    if (limit_node) {
+        limit_node->getLimitAndOffsetByReference(params, limit, offset);
+    }
+
+    ProgressMonitorProxy pmp(m_engine->getExecutorContext(), this);
+    // Init the postfilter
+    CountingPostfilter postfilter(m_tmpOutputTable, node->getWherePredicate(), limit, offset);
+
+    TableTuple joinTuple;
+    if (m_aggExec != NULL) {
+        VOLT_TRACE("Init inline aggregate...");
+        const TupleSchema * aggInputSchema = node->getTupleSchemaPreAgg();
+        joinTuple = m_aggExec->p_execute_init(params, &pmp, aggInputSchema, m_tmpOutputTable, &postfilter);
+    } else {
+        joinTuple = m_tmpOutputTable->tempTuple();
+    }
+
+    int partitionCount = spillPartitionCount(innerTable);
+    if (partitionCount == 0) {
+        executeInMemory(outerTable, innerTable, joinTuple, postfilter, pmp);
+    }
+    else {
+        executePartitioned(outerTable, innerTable, partitionCount, joinTuple, postfilter, pmp);
+    }
+
+    if (m_aggExec != NULL) {
+        m_aggExec->p_execute_finish();
+    }
+
+    return (true);
+}
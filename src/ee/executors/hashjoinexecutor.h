@@ -0,0 +1,110 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef HSTOREHASHJOINEXECUTOR_H
+#define HSTOREHASHJOINEXECUTOR_H
+
+#include "common/common.h"
+#include "executors/abstractjoinexecutor.h"
+
+#include "boost/unordered_map.hpp"
+
+namespace voltdb {
+
+class AbstractExpression;
+class TempTableLimits;
+
+/**
+ * Executes an INNER or LEFT equi-join by hashing the inner (build) input on
+ * the plan node's inner hash expressions and probing it once per outer tuple.
+ *
+ * The build side normally stays in memory, charged against the fragment's
+ * TempTableLimits. When it would not fit in what is left of that budget, or
+ * when the inputs are large temp tables whose tuples may be paged out, both
+ * inputs are first split by key hash into LargeTempTable partitions and the
+ * join is then run one partition pair at a time.
+ */
+class HashJoinExecutor : public AbstractJoinExecutor {
+public:
+    HashJoinExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node)
+        : AbstractJoinExecutor(engine, abstract_node)
+        , m_preJoinPredicate(NULL)
+        , m_joinPredicate(NULL)
+        , m_outerKeys(NULL)
+        , m_innerKeys(NULL)
+        , m_limits(NULL)
+        , m_isLargeQuery(false)
+    { }
+
+    // Bounds on the number of partitions used when the build side spills
+    static const int MIN_SPILL_PARTITIONS = 4;
+    static const int MAX_SPILL_PARTITIONS = 256;
+
+    // Large temp table cache blocks left for the input and output tables,
+    // which stay pinned while the partitions of one side are written
+    static const int RESERVED_CACHE_BLOCKS = 3;
+
+private:
+    // Key hash -> address of the inner tuple storage
+    typedef boost::unordered_multimap<std::size_t, char*> BuildHashTable;
+    class BuildMemory;
+
+    bool p_init(AbstractPlanNode*, const ExecutorVector& executorVector);
+    bool p_execute(const NValueArray &params);
+
+    /** Return the number of partitions to spill to, or 0 to join in memory. */
+    int spillPartitionCount(Table* innerTable) const;
+
+    void buildHashTable(Table* innerTable,
+                        BuildHashTable& hashTable,
+                        BuildMemory& memory,
+                        ProgressMonitorProxy& pmp);
+
+    void joinOuterTuple(TableTuple& outerTuple,
+                        TableTuple& innerTuple,
+                        const BuildHashTable& hashTable,
+                        TableTuple& joinTuple,
+                        CountingPostfilter& postfilter,
+                        ProgressMonitorProxy& pmp);
+
+    void executeInMemory(Table* outerTable,
+                         Table* innerTable,
+                         TableTuple& joinTuple,
+                         CountingPostfilter& postfilter,
+                         ProgressMonitorProxy& pmp);
+
+    void executePartitioned(Table* outerTable,
+                            Table* innerTable,
+                            int partitionCount,
+                            TableTuple& joinTuple,
+                            CountingPostfilter& postfilter,
+                            ProgressMonitorProxy& pmp);
+
+    AbstractExpression* m_preJoinPredicate;
+    AbstractExpression* m_joinPredicate;
+    const std::vector<AbstractExpression*>* m_outerKeys;
+    const std::vector<AbstractExpression*>* m_innerKeys;
+    int m_outerCols;
+    int m_innerCols;
+
+    TempTableLimits* m_limits;
+    bool m_isLargeQuery;
+};
+
+}
+
+#endif
@@ -202,8 +202,22 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
         if (limit_node) {
             limit_node->getLimitAndOffsetByReference(params, limit, offset);
         }
-        // Initialize the postfilter
-        CountingPostfilter postfilter(m_tmpOutputTable, predicate, limit, offset);
+
+        //
+        // OPTIMIZATION: BATCHED PREDICATE
+        //
+        // Without a limit every tuple has to be tested anyway, so the
+        // predicate can be evaluated over a batch of tuples at a time.
+        // Only the tuples of a persistent table stay put while the
+        // iterator moves on, and an inline insert could be writing to
+        // the very table being scanned.
+        //
+        const bool batchPredicate = predicate != NULL && limit_node == NULL &&
+                node->isPersistentTableScan() && m_insertExec == NULL;
+
+        // Initialize the postfilter, it only has to count tuples when the
+        // predicate is evaluated in batches
+        CountingPostfilter postfilter(m_tmpOutputTable, batchPredicate ? NULL : predicate, limit, offset);
 
         ProgressMonitorProxy pmp(m_engine->getExecutorContext(), this);
         TableTuple temp_tuple;
@@ -251,7 +265,29 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
             temp_tuple = m_tmpOutputTable->tempTuple();
         }
 
-        while (postfilter.isUnderLimit() && iterator.next(tuple))
+        if (batchPredicate) {
+            std::vector<TableTuple> batch(AbstractExpression::MAX_SELECTION_SIZE, tuple);
+            int selection[AbstractExpression::MAX_SELECTION_SIZE];
+            bool moreTuples = true;
+            while (moreTuples && postfilter.isUnderLimit()) {
+                int count = 0;
+                while (count < AbstractExpression::MAX_SELECTION_SIZE &&
+                       (moreTuples = iterator.next(batch[count]))) {
+                    pmp.countdownProgress();
+                    selection[count] = count;
+                    ++count;
+                }
+                int selected = predicate->evalSelection(&batch[0], selection, count);
+                for (int i = 0; i < selected && postfilter.isUnderLimit(); ++i) {
+                    if (postfilter.eval(&batch[selection[i]], NULL)) {
+                        outputScannedTuple(batch[selection[i]], projectionNode, num_of_columns, temp_tuple);
+                        pmp.countdownProgress();
+                    }
+                }
+            }
+        }
+
+        while (!batchPredicate && postfilter.isUnderLimit() && iterator.next(tuple))
         {
 #if   defined(VOLT_TRACE_ENABLED)
             int tuple_ctr = 0;
@@ -267,26 +303,7 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
             //
             if (postfilter.eval(&tuple, NULL))
             {
-                //
-                // Nested Projection
-                // Project (or replace) values from input tuple
-                //
-                if (projectionNode != NULL)
-                {
-                    VOLT_TRACE("inline projection...");
-                    // Project the scanned table row onto
-                    // the columns of the select list in the
-                    // select statement.
-                    for (int ctr = 0; ctr < num_of_columns; ctr++) {
-                        NValue value = projectionNode->getOutputColumnExpressions()[ctr]->eval(&tuple, NULL);
-                        temp_tuple.setNValue(ctr, value);
-                    }
-                    outputTuple(temp_tuple);
-                }
-                else
-                {
-                    outputTuple(tuple);
-                }
+                outputScannedTuple(tuple, projectionNode, num_of_columns, temp_tuple);
                 pmp.countdownProgress();
             }
         } // end while we have more tuples to scan
@@ -307,6 +324,32 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
     return true;
 }
 
+void SeqScanExecutor::outputScannedTuple(TableTuple& tuple,
+                                         ProjectionPlanNode* projectionNode,
+                                         int num_of_columns,
+                                         TableTuple& temp_tuple) {
+    //
+    // Nested Projection
+    // Project (or replace) values from input tuple
+    //
+    if (projectionNode != NULL)
+    {
+        VOLT_TRACE("inline projection...");
+        // Project the scanned table row onto
+        // the columns of the select list in the
+        // select statement.
+        for (int ctr = 0; ctr < num_of_columns; ctr++) {
+            NValue value = projectionNode->getOutputColumnExpressions()[ctr]->eval(&tuple, NULL);
+            temp_tuple.setNValue(ctr, value);
+        }
+        outputTuple(temp_tuple);
+    }
+    else
+    {
+        outputTuple(tuple);
+    }
+}
+
 /*
  * We may output a tuple to an inline aggregate or
  * inline insert node.  If there is a limit or projection, this will have
@@ -56,6 +56,7 @@ namespace voltdb
     class AggregateExecutorBase;
     struct CountingPostfilter;
     class InsertExecutor;
+    class ProjectionPlanNode;
 
     class SeqScanExecutor : public AbstractExecutor {
     public:
@@ -77,6 +78,15 @@ namespace voltdb
          */
         void outputTuple(TableTuple& tuple);
 
+        /**
+         * Output a tuple that passed the predicate, applying
+         * the inline projection if there is one.
+         */
+        void outputScannedTuple(TableTuple& tuple,
+                                ProjectionPlanNode* projectionNode,
+                                int num_of_columns,
+                                TableTuple& temp_tuple);
+
         // These are logically local variables to p_execute.
         // But we need to share them between p_execute and
         // outputTuple, so we save them here.  They come out of
@@ -46,6 +46,7 @@
 #include "abstractexpression.h"
 
 #include "common/serializeio.h"
+#include "common/tabletuple.h"
 #include "expressions/expressionutil.h"
 
 namespace voltdb {
@@ -82,6 +83,18 @@ AbstractExpression::~AbstractExpression()
     delete m_right;
 }
 
+int
+AbstractExpression::evalSelection(const TableTuple *tuples, int *selection, int count) const
+{
+    int selected = 0;
+    for (int i = 0; i < count; ++i) {
+        if (eval(&tuples[selection[i]], NULL).isTrue()) {
+            selection[selected++] = selection[i];
+        }
+    }
+    return selected;
+}
+
 bool
 AbstractExpression::hasParameter() const
 {
@@ -73,6 +73,19 @@ class AbstractExpression {
 
     virtual NValue eval(const TableTuple *tuple1 = NULL, const TableTuple *tuple2 = NULL) const = 0;
 
+    /** the most tuples a selection passed to evalSelection may hold */
+    static const int MAX_SELECTION_SIZE = 1024;
+
+    /**
+     * Evaluate this expression as a predicate over a batch of tuples, each
+     * taking the place of tuple1 in eval.  selection holds count indexes into
+     * tuples in increasing order, and is compacted in place to the ones for
+     * which the predicate is true.  Returns the number left selected.
+     * Expressions that can do better than calling eval for each tuple in
+     * turn override this.
+     */
+    virtual int evalSelection(const TableTuple *tuples, int *selection, int count) const;
+
     /** return true if self or descendent should be substitute()'d */
     virtual bool hasParameter() const;
 
@@ -218,9 +218,27 @@ public:
                                   AbstractExpression *left,
                                   AbstractExpression *right)
         : AbstractExpression(type, left, right)
+        , m_column(NULL)
+        , m_constant(NULL)
+        , m_columnOnLeft(true)
     {
         m_left = left;
         m_right = right;
+
+        // A column of the scanned tuple compared to a constant or parameter
+        // can be evaluated for a whole selection without dispatching per tuple.
+        if (left != NULL && right != NULL) {
+            if ((m_column = scannedColumn(left)) != NULL && isConstant(right)) {
+                m_constant = right;
+            }
+            else if ((m_column = scannedColumn(right)) != NULL && isConstant(left)) {
+                m_constant = left;
+                m_columnOnLeft = false;
+            }
+            else {
+                m_column = NULL;
+            }
+        }
     };
 
     inline NValue eval(const TableTuple *tuple1, const TableTuple *tuple2) const
@@ -255,6 +273,32 @@ public:
         return OP::compare(lnv, rnv);
     }
 
+    int evalSelection(const TableTuple *tuples, int *selection, int count) const
+    {
+        if (m_column == NULL) {
+            return AbstractExpression::evalSelection(tuples, selection, count);
+        }
+
+        const NValue constant = m_constant->eval(NULL, NULL);
+        if (constant.isNull() && OP::isNullRejecting()) {
+            return 0;
+        }
+        const int columnId = m_column->getColumnId();
+        int selected = 0;
+        for (int i = 0; i < count; ++i) {
+            const NValue value = tuples[selection[i]].getNValue(columnId);
+            if (value.isNull() && OP::isNullRejecting()) {
+                continue;
+            }
+            const NValue result = m_columnOnLeft ?
+                    OP::compare(value, constant) : OP::compare(constant, value);
+            if (result.isTrue()) {
+                selection[selected++] = selection[i];
+            }
+        }
+        return selected;
+    }
+
     inline const char* traceEval(const TableTuple *tuple1, const TableTuple *tuple2) const
     {
         NValue lnv;
@@ -272,8 +316,27 @@ public:
     }
 
 private:
+    static const TupleValueExpression* scannedColumn(const AbstractExpression* expr)
+    {
+        if (expr->getExpressionType() != EXPRESSION_TYPE_VALUE_TUPLE) {
+            return NULL;
+        }
+        const TupleValueExpression* tve = dynamic_cast<const TupleValueExpression*>(expr);
+        return (tve != NULL && tve->getTupleId() == 0) ? tve : NULL;
+    }
+
+    static bool isConstant(const AbstractExpression* expr)
+    {
+        return expr->getExpressionType() == EXPRESSION_TYPE_VALUE_CONSTANT ||
+               expr->getExpressionType() == EXPRESSION_TYPE_VALUE_PARAMETER;
+    }
+
     AbstractExpression *m_left;
     AbstractExpression *m_right;
+    // set when evalSelection can compare the column to the constant directly
+    const TupleValueExpression *m_column;
+    const AbstractExpression *m_constant;
+    bool m_columnOnLeft;
 };
 
 template <typename C, typename L, typename R>
@@ -52,6 +52,8 @@
 
 #include "expressions/abstractexpression.h"
 
+#include <algorithm>
+#include <cassert>
 #include <string>
 
 namespace voltdb {
@@ -74,6 +76,8 @@ class ConjunctionExpression : public AbstractExpression
 
     NValue eval(const TableTuple *tuple1, const TableTuple *tuple2) const;
 
+    int evalSelection(const TableTuple *tuples, int *selection, int count) const;
+
     std::string debugInfo(const std::string &spacer) const {
         return (spacer + "ConjunctionExpression\n");
     }
@@ -130,5 +134,54 @@ ConjunctionExpression<ConjunctionOr>::eval(const TableTuple *tuple1,
     return NValue::getNullValue(VALUE_TYPE_BOOLEAN);
 }
 
+// A tuple passes AND only if it passes both sides, so the right side
+// only needs to look at what the left side selected.
+template<> inline int
+ConjunctionExpression<ConjunctionAnd>::evalSelection(const TableTuple *tuples,
+                                                     int *selection,
+                                                     int count) const
+{
+    count = m_left->evalSelection(tuples, selection, count);
+    if (count == 0) {
+        return 0;
+    }
+    return m_right->evalSelection(tuples, selection, count);
+}
+
+// A tuple passes OR if it passes either side, so the right side only
+// needs to look at what the left side rejected.
+template<> inline int
+ConjunctionExpression<ConjunctionOr>::evalSelection(const TableTuple *tuples,
+                                                    int *selection,
+                                                    int count) const
+{
+    assert(count <= MAX_SELECTION_SIZE);
+    int leftSelection[MAX_SELECTION_SIZE];
+    std::copy(selection, selection + count, leftSelection);
+    int leftCount = m_left->evalSelection(tuples, leftSelection, count);
+    if (leftCount == count) {
+        return count;
+    }
+
+    // Both selections are in increasing order, so the rejected
+    // tuples are found with a single pass.
+    int rejected[MAX_SELECTION_SIZE];
+    int rejectedCount = 0;
+    for (int i = 0, j = 0; i < count; ++i) {
+        if (j < leftCount && leftSelection[j] == selection[i]) {
+            ++j;
+        }
+        else {
+            rejected[rejectedCount++] = selection[i];
+        }
+    }
+    rejectedCount = m_right->evalSelection(tuples, rejected, rejectedCount);
+
+    std::merge(leftSelection, leftSelection + leftCount,
+               rejected, rejected + rejectedCount,
+               selection);
+    return leftCount + rejectedCount;
+}
+
 }
 #endif
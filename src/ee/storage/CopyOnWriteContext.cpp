@@ -52,7 +52,13 @@ CopyOnWriteContext::CopyOnWriteContext(
              m_updates(0),
              m_skippedDirtyRows(0),
              m_skippedInactiveRows(0),
-             m_replicated(table.isCatalogTableReplicated())
+             m_replicated(table.isCatalogTableReplicated()),
+             m_incremental(false),
+             m_writeAllRows(true),
+             m_incrementalCompleted(false),
+             m_pendingFullMarker(false),
+             m_baseEpoch(0),
+             m_snapshotEpoch(0)
 {
     if (m_replicated) {
         // There is a corner case where a replicated table is streamed from a thread other than the lowest
@@ -72,13 +78,28 @@ CopyOnWriteContext::CopyOnWriteContext(
  */
 CopyOnWriteContext::~CopyOnWriteContext()
 {
+    m_deleteIterator.reset();
     if (m_replicated) {
         ScopedReplicatedResourceLock scopedLock;
         ExecuteWithMpMemory useMpMemory;
         m_backedUpTuples.reset();
+        releaseIncrementalDeletes();
     }
     else {
         m_backedUpTuples.reset();
+        releaseIncrementalDeletes();
+    }
+}
+
+void CopyOnWriteContext::releaseIncrementalDeletes()
+{
+    if (m_incremental && !m_incrementalCompleted) {
+        // The next incremental snapshot is still relative to the same base,
+        // it must still see these deletes.
+        m_surgeon.restoreIncrementalDeletes(m_incrementalDeletes.release());
+    }
+    else {
+        m_incrementalDeletes.reset();
     }
 }
 
@@ -90,7 +111,7 @@ TableStreamerContext::ActivationReturnCode
 CopyOnWriteContext::handleActivation(TableStreamType streamType)
 {
     // Only support snapshot streams.
-    if (streamType != TABLE_STREAM_SNAPSHOT) {
+    if (!tableStreamTypeIsSnapshot(streamType)) {
         return ACTIVATION_UNSUPPORTED;
     }
 
@@ -102,6 +123,31 @@ CopyOnWriteContext::handleActivation(TableStreamType streamType)
 
     m_surgeon.activateSnapshot();
 
+    if (tableStreamTypeIsIncremental(streamType)) {
+        m_incremental = true;
+        m_baseEpoch = m_surgeon.getIncrementalBaseEpoch();
+        if (m_replicated) {
+            ScopedReplicatedResourceLock scopedLock;
+            ExecuteWithMpMemory useMpMemory;
+            m_incrementalDeletes.reset(m_surgeon.activateIncrementalSnapshot(m_snapshotEpoch));
+        }
+        else {
+            m_incrementalDeletes.reset(m_surgeon.activateIncrementalSnapshot(m_snapshotEpoch));
+        }
+        // Without a completed base, a primary key to apply the deletes by or
+        // the deletes themselves, the snapshot has to carry the whole table.
+        m_writeAllRows = streamType == TABLE_STREAM_SNAPSHOT_INCREMENTAL_BASE ||
+                m_baseEpoch == 0 ||
+                getTable().primaryKeyIndex() == NULL ||
+                (m_incrementalDeletes.get() != NULL && m_incrementalDeletes->overflowed());
+        if (m_writeAllRows) {
+            m_pendingFullMarker = true;
+        }
+        else if (m_incrementalDeletes.get() != NULL && m_incrementalDeletes->m_rows->activeTupleCount() > 0) {
+            m_deleteIterator.reset(new TableIterator(m_incrementalDeletes->m_rows->iterator()));
+        }
+    }
+
     m_iterator.reset(new CopyOnWriteIterator(&getTable(), &m_surgeon));
 
     return ACTIVATION_SUCCEEDED;
@@ -115,7 +161,7 @@ CopyOnWriteContext::handleReactivation(TableStreamType streamType)
 {
     // Not support multiple snapshot streams.
     assert(m_tuplesRemaining == 0);
-    if (streamType == TABLE_STREAM_SNAPSHOT) {
+    if (tableStreamTypeIsSnapshot(streamType)) {
      return ACTIVATION_FAILED;
     }
     return ACTIVATION_UNSUPPORTED;
@@ -138,6 +184,12 @@ int64_t CopyOnWriteContext::handleStreamMore(TupleOutputStreamProcessor &outputS
     if (outputStreams.empty()) {
         throwFatalException("serializeMore() expects at least one output stream.");
     }
+
+    // An incremental snapshot first says how to read the rows that follow.
+    if (m_pendingFullMarker || m_deleteIterator.get() != NULL) {
+        return streamIncrementalPreamble(outputStreams, retPositions);
+    }
+
     outputStreams.open(getTable(),
                        getMaxTupleLength(),
                        getPartitionId(),
@@ -169,7 +221,11 @@ int64_t CopyOnWriteContext::handleStreamMore(TupleOutputStreamProcessor &outputS
              * The returned copy count helps decide when to delete if m_doDelete is true.
              */
             bool deleteTuple = false;
-            yield = outputStreams.writeRow(tuple, &deleteTuple);
+            if (m_writeAllRows || m_finishedTableScan ||
+                    static_cast<CopyOnWriteIterator*>(m_iterator.get())->m_currentBlock->lastModifiedEpoch()
+                        >= m_baseEpoch) {
+                yield = outputStreams.writeRow(tuple, &deleteTuple);
+            }
             /*
              * May want to delete tuple if processing the actual table.
              */
@@ -315,6 +371,10 @@ int64_t CopyOnWriteContext::handleStreamMore(TupleOutputStreamProcessor &outputS
                     assert(false);
                 }
             }
+            if (m_incremental && !m_incrementalCompleted) {
+                m_surgeon.incrementalSnapshotCompleted(m_snapshotEpoch);
+                m_incrementalCompleted = true;
+            }
             yield = true;
         }
     }
@@ -343,6 +403,48 @@ int64_t CopyOnWriteContext::handleStreamMore(TupleOutputStreamProcessor &outputS
     return retValue;
 }
 
+int64_t CopyOnWriteContext::streamIncrementalPreamble(TupleOutputStreamProcessor &outputStreams,
+                                                      std::vector<int> &retPositions) {
+    PersistentTable &table = getTable();
+    if (m_pendingFullMarker) {
+        // An empty chunk, the restore clears the table before loading the rows
+        outputStreams.open(table,
+                           getMaxTupleLength(),
+                           getPartitionId() | INCREMENTAL_FULL_FLAG,
+                           getPredicates(),
+                           getPredicateDeleteFlags());
+        m_pendingFullMarker = false;
+    }
+    else {
+        outputStreams.open(table,
+                           getMaxTupleLength(),
+                           getPartitionId() | INCREMENTAL_DELETES_FLAG,
+                           getPredicates(),
+                           getPredicateDeleteFlags());
+        // Only opened with a row left to write, a chunk of deletes is never empty
+        TableTuple tuple(table.schema());
+        bool yield = false;
+        while (!yield && m_deleteIterator->next(tuple)) {
+            bool deleteTuple = false;
+            yield = outputStreams.writeRow(tuple, &deleteTuple);
+        }
+        if (!m_deleteIterator->hasNext()) {
+            m_deleteIterator.reset();
+        }
+    }
+    outputStreams.close();
+    for (size_t i = 0; i < outputStreams.size(); i++) {
+        retPositions.push_back((int)outputStreams.at(i).position());
+    }
+    m_serializationBatches++;
+
+    // The rows are still to come, even for an empty table.
+    if (m_tuplesRemaining < 0) {
+        return std::numeric_limits<int64_t>::max();
+    }
+    return m_tuplesRemaining + 1;
+}
+
 bool CopyOnWriteContext::notifyTupleDelete(TableTuple &tuple) {
     assert(m_iterator.get() != NULL);
 
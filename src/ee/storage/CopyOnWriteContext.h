@@ -31,6 +31,7 @@
 
 namespace voltdb {
 class TupleIterator;
+class TableIterator;
 class TempTable;
 class ParsedPredicate;
 class TupleOutputStreamProcessor;
@@ -89,6 +90,13 @@ public:
      */
     virtual bool notifyTupleDelete(TableTuple &tuple);
 
+    /**
+     * Flags or'ed into the partition id of the chunks written ahead of the rows of an
+     * incremental snapshot. Keep in sync with TableSaveFile.java.
+     */
+    static const int32_t INCREMENTAL_DELETES_FLAG = 1 << 30;
+    static const int32_t INCREMENTAL_FULL_FLAG = 1 << 29;
+
 private:
 
     /**
@@ -133,8 +141,33 @@ private:
     int32_t m_skippedInactiveRows;
     const bool m_replicated;
 
+    /**
+     * Incremental snapshot state. Unless m_writeAllRows is set, rows of blocks
+     * not modified since m_baseEpoch are scanned but not written.
+     */
+    bool m_incremental;
+    bool m_writeAllRows;
+    bool m_incrementalCompleted;
+    bool m_pendingFullMarker;
+    int64_t m_baseEpoch;
+    int64_t m_snapshotEpoch;
+    std::unique_ptr<IncrementalDeleteSet> m_incrementalDeletes;
+    boost::scoped_ptr<TableIterator> m_deleteIterator;
+
     void checkRemainingTuples(const std::string &label);
 
+    /**
+     * Write the chunk that an incremental snapshot puts ahead of the rows,
+     * either the full table marker or the next chunk of deleted rows.
+     */
+    int64_t streamIncrementalPreamble(TupleOutputStreamProcessor &outputStreams,
+                                      std::vector<int> &retPositions);
+
+    /**
+     * Return the delete set of an incremental snapshot that did not complete.
+     */
+    void releaseIncrementalDeletes();
+
 };
 
 }
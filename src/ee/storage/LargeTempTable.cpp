@@ -60,6 +60,13 @@ bool LargeTempTable::insertTuple(TableTuple& source) {
 
         getEmptyBlock();
     }
+    else if (! m_blockForWriting->isPinned()) {
+        // The block may have been stored since it was unpinned, and the
+        // stored copy goes stale once more tuples are added to it.
+        LargeTempTableBlockCache* lttBlockCache = ExecutorContext::getExecutorContext()->lttBlockCache();
+        m_blockForWriting = lttBlockCache->fetchBlock(m_blockForWriting->id());
+        lttBlockCache->invalidateStoredCopy(m_blockForWriting);
+    }
 
     bool success = m_blockForWriting->insertTuple(source);
     if (! success) {
@@ -94,6 +101,12 @@ void LargeTempTable::finishInserts() {
     }
 }
 
+void LargeTempTable::unpinBlockForWriting() {
+    if (m_blockForWriting != NULL && m_blockForWriting->isPinned()) {
+        m_blockForWriting->unpin();
+    }
+}
+
 TableIterator LargeTempTable::iterator() {
     if (m_blockForWriting != NULL) {
         throwSerializableEEException("Attempt to iterate over large temp table before finishInserts() is called");
@@ -84,6 +84,10 @@ public:
         complete. */
     virtual void finishInserts();
 
+    /** Unpin the block being inserted into so that it may be stored
+        to make room for other blocks.  The next insert pins it again. */
+    void unpinBlockForWriting();
+
     /**
      * Sort this table using the given compare function.  Also apply
      * the given limit and offset.
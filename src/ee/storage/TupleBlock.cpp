@@ -32,6 +32,7 @@ TupleBlock::TupleBlock(Table *table, TBBucketPtr bucket) :
         m_activeTuples(0),
         m_nextFreeTuple(0),
         m_lastCompactionOffset(0),
+        m_lastModifiedEpoch(0),
         m_bucket(bucket),
         m_bucketIndex(bucket.get() == NULL ? -1 : 0)
 {
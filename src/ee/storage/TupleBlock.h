@@ -265,6 +265,16 @@ public:
         m_lastCompactionOffset = offset;
     }
 
+    /** The incremental snapshot epoch in which a tuple in this block
+        was last inserted, updated, deleted or moved. */
+    inline int64_t lastModifiedEpoch() {
+        return m_lastModifiedEpoch;
+    }
+
+    inline void markModified(int64_t epoch) {
+        m_lastModifiedEpoch = epoch;
+    }
+
     /** A count of active tuples in this block. */
     inline uint32_t activeTuples() {
         return m_activeTuples;
@@ -292,6 +302,7 @@ private:
     uint32_t m_activeTuples;
     uint32_t m_nextFreeTuple;
     uint32_t m_lastCompactionOffset;
+    int64_t m_lastModifiedEpoch;
 
     /*
      * queue of offsets to <b>once used and then deleted</b> tuples.
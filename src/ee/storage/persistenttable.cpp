@@ -61,6 +61,7 @@
 #include "TableCatalogDelegate.hpp"
 #include "tablefactory.h"
 #include "tableiterator.h"
+#include "temptable.h"
 #include "TupleStreamException.h"
 
 #include "common/debuglog.h"
@@ -138,6 +139,9 @@ PersistentTable::PersistentTable(int partitionColumn,
     , m_blocksNotPendingSnapshot()
     , m_blocksPendingSnapshot()
     , m_blocksWithSpace()
+    , m_incrementalEpoch(0)
+    , m_incrementalBaseEpoch(0)
+    , m_incrementalDeletes()
     , m_tableStreamer()
     , m_failedCompactionCount(0)
     , m_invisibleTuplesPendingDeleteCount(0)
@@ -252,6 +256,7 @@ void PersistentTable::nextFreeTuple(TableTuple* tuple) {
             m_blocksNotPendingSnapshot.insert(block);
         }
         std::pair<char*, int> retval = block->nextFreeTuple();
+        block->markModified(m_incrementalEpoch);
 
         /**
          * Check to see if the block needs to move to a new bucket
@@ -289,6 +294,7 @@ void PersistentTable::nextFreeTuple(TableTuple* tuple) {
     assert (m_columnCount == tuple->columnCount());
 
     std::pair<char*, int> retval = block->nextFreeTuple();
+    block->markModified(m_incrementalEpoch);
 
     /**
      * Check to see if the block needs to move to a new bucket
@@ -1040,6 +1046,7 @@ void PersistentTable::updateTupleWithSpecificIndexes(TableTuple& targetTupleToUp
     if (m_tableStreamer != NULL) {
         m_tableStreamer->notifyTupleUpdate(targetTupleToUpdate);
     }
+    markBlockModified(targetTupleToUpdate);
 
     /**
      * Remove the current tuple from any indexes.
@@ -1057,6 +1064,11 @@ void PersistentTable::updateTupleWithSpecificIndexes(TableTuple& targetTupleToUp
                 }
             }
             indexRequiresUpdate[i] = true;
+            if (index == m_pkeyIndex) {
+                // The row is no longer found under its old key, an incremental
+                // snapshot must record it as deleted
+                captureIncrementalDelete(targetTupleToUpdate);
+            }
             if (!index->deleteEntry(&targetTupleToUpdate)) {
                 throwFatalException("Failed to remove tuple from index (during update) in Table: %s Index %s",
                                     m_name.c_str(), index->getName().c_str());
@@ -1249,6 +1261,9 @@ void PersistentTable::deleteTuple(TableTuple& target, bool fallible) {
         }
     }
 
+    markBlockModified(target);
+    captureIncrementalDelete(target);
+
     // Just like insert, we want to remove this tuple from all of our indexes
     deleteFromAllIndexes(&target);
 
@@ -1289,6 +1304,77 @@ void PersistentTable::deleteTuple(TableTuple& target, bool fallible) {
 }
 
 
+int64_t PersistentTable::s_incrementalDeleteFloor = 64 * 1024 * 1024;
+
+int64_t PersistentTable::allocatedTupleMemory() const {
+    int64_t memory = Table::allocatedTupleMemory();
+    if (m_incrementalDeletes.get() != NULL) {
+        memory += m_incrementalDeletes->allocatedMemory();
+    }
+    return memory;
+}
+
+void PersistentTable::captureIncrementalDelete(TableTuple& tuple) {
+    if (m_incrementalDeletes.get() == NULL || m_incrementalDeletes->overflowed()) {
+        return;
+    }
+    m_incrementalDeletes->m_rows->insertTempTupleDeepCopy(tuple, &m_incrementalDeletes->m_pool);
+    // Past the size of the table itself, writing the table in full is cheaper
+    // than holding on to and replaying its deletes.
+    int64_t bound = std::max(Table::allocatedTupleMemory(), s_incrementalDeleteFloor);
+    if (m_incrementalDeletes->allocatedMemory() > bound) {
+        VOLT_DEBUG("Dropping the incremental deletes of table %s, the next incremental snapshot writes it in full",
+                   m_name.c_str());
+        m_incrementalDeletes->overflow();
+    }
+}
+
+IncrementalDeleteSet* PersistentTable::activateIncrementalSnapshot(int64_t& snapshotEpoch) {
+    IncrementalDeleteSet* deletes = m_incrementalDeletes.release();
+    if (m_pkeyIndex != NULL) {
+        m_incrementalDeletes.reset(new IncrementalDeleteSet(this));
+    }
+    // Blocks modified from here on belong to the next incremental snapshot
+    snapshotEpoch = ++m_incrementalEpoch;
+    return deletes;
+}
+
+void PersistentTable::restoreIncrementalDeletes(IncrementalDeleteSet* deletes) {
+    std::unique_ptr<IncrementalDeleteSet> owned(deletes);
+    if (deletes == NULL || m_incrementalDeletes.get() == NULL) {
+        return;
+    }
+    if (deletes->overflowed()) {
+        m_incrementalDeletes->overflow();
+        return;
+    }
+    TableTuple tuple(m_schema);
+    TableIterator iter = deletes->m_rows->iterator();
+    while (iter.next(tuple)) {
+        captureIncrementalDelete(tuple);
+    }
+}
+
+IncrementalDeleteSet::IncrementalDeleteSet(PersistentTable* table)
+    : m_rows(TableFactory::buildCopiedTempTable("Deletes of " + table->name(), table))
+    , m_pool()
+{ }
+
+IncrementalDeleteSet::~IncrementalDeleteSet() { }
+
+int64_t IncrementalDeleteSet::allocatedMemory() {
+    int64_t memory = m_pool.getAllocatedMemory();
+    if (m_rows.get() != NULL) {
+        memory += m_rows->allocatedTupleMemory();
+    }
+    return memory;
+}
+
+void IncrementalDeleteSet::overflow() {
+    m_rows.reset();
+    m_pool.purge();
+}
+
 /**
  * This entry point is triggered by the successful release of an UndoDeleteAction.
  */
@@ -1743,6 +1829,7 @@ void PersistentTable::notifyBlockWasCompactedAway(TBPtr block) {
 // Call-back from TupleBlock::merge() for each tuple moved.
 void PersistentTable::notifyTupleMovement(TBPtr sourceBlock, TBPtr targetBlock,
                                           TableTuple& sourceTuple, TableTuple& targetTuple) {
+    targetBlock->markModified(m_incrementalEpoch);
     if (m_tableStreamer != NULL) {
         m_tableStreamer->notifyTupleMovement(sourceBlock, targetBlock, sourceTuple, targetTuple);
     }
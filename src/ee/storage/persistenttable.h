@@ -48,6 +48,7 @@
 
 #include <string>
 #include <vector>
+#include <memory>
 #include <cassert>
 #include <iostream>
 #include <boost/scoped_ptr.hpp>
@@ -69,6 +70,7 @@
 #include "storage/DRTupleStream.h"
 #include "common/UndoQuantumReleaseInterest.h"
 #include "common/ThreadLocalPool.h"
+#include "common/Pool.hpp"
 #include "common/SynchronizedThreadLock.h"
 
 class CompactionTest_BasicCompaction;
@@ -84,6 +86,29 @@ class CoveringCellIndexTest_TableCompaction;
 class MaterializedViewTriggerForWrite;
 class MaterializedViewHandler;
 class TableIndex;
+class TempTable;
+
+/**
+ * Deep copies of the primary keyed rows deleted from a table since an
+ * incremental snapshot was last activated on it.
+ */
+struct IncrementalDeleteSet {
+    IncrementalDeleteSet(PersistentTable* table);
+    ~IncrementalDeleteSet();
+
+    int64_t allocatedMemory();
+
+    /**
+     * Drop the captured rows for good, the next incremental snapshot of the
+     * table has to write it in full.
+     */
+    void overflow();
+
+    bool overflowed() const { return m_rows.get() == NULL; }
+
+    boost::scoped_ptr<TempTable> m_rows;
+    Pool m_pool;
+};
 
 /**
  * Interface used by contexts, scanners, iterators, and undo actions to access
@@ -144,6 +169,13 @@ public:
     boost::shared_ptr<ElasticIndexTupleRangeIterator>
             getIndexTupleRangeIterator(ElasticIndexHashRange const& range);
     void activateSnapshot();
+
+    // Incremental snapshot methods. Used by CopyOnWriteContext.
+    int64_t getIncrementalBaseEpoch() const;
+    IncrementalDeleteSet* activateIncrementalSnapshot(int64_t& snapshotEpoch);
+    void incrementalSnapshotCompleted(int64_t snapshotEpoch);
+    void restoreIncrementalDeletes(IncrementalDeleteSet* deletes);
+
     void printIndex(std::ostream& os, int32_t limit) const;
     ElasticHash generateTupleHash(TableTuple& tuple) const;
 
@@ -439,6 +471,12 @@ public:
 
     size_t allocatedBlockCount() const { return m_data.size(); }
 
+    // Includes the rows held for the next incremental snapshot
+    int64_t allocatedTupleMemory() const;
+
+    // This is a testability feature not intended for use in product logic.
+    static void setIncrementalDeleteFloorForTest(int64_t bytes) { s_incrementalDeleteFloor = bytes; }
+
     // This is a testability feature not intended for use in product logic.
     int visibleTupleCount() const { return m_tupleCount - m_invisibleTuplesPendingDeleteCount; }
 
@@ -583,6 +621,34 @@ private:
         return blockCnt;
     }
 
+    /**
+     * Begin a new incremental snapshot epoch, starting to track modified
+     * blocks and deleted rows if this table wasn't tracked yet. Returns the
+     * rows deleted since the previous activation, ownership passes to the caller.
+     */
+    IncrementalDeleteSet* activateIncrementalSnapshot(int64_t& snapshotEpoch);
+
+    /**
+     * Return the rows of an incremental snapshot that did not complete to
+     * the delete set, so that the next one still sees them.
+     */
+    void restoreIncrementalDeletes(IncrementalDeleteSet* deletes);
+
+    void markBlockModified(TableTuple& tuple) {
+        if (m_incrementalEpoch != 0) {
+            TBPtr block = findBlock(tuple.address(), m_data, m_tableAllocationSize);
+            if (block != NULL) {
+                block->markModified(m_incrementalEpoch);
+            }
+        }
+    }
+
+    void captureIncrementalDelete(TableTuple& tuple);
+
+    // Captured deletes beyond the size of the table's own blocks, and beyond this
+    // floor, are dropped in favour of writing the table in full
+    static int64_t s_incrementalDeleteFloor;
+
     bool blockCountConsistent() const {
         // if the table is empty, the empty cache block will not be present in m_blocksNotPendingSnapshot
         return isPersistentTableEmpty() || m_blocksNotPendingSnapshot.size() == m_data.size();
@@ -770,6 +836,19 @@ private:
     // that have never been allocated
     stx::btree_set<TBPtr > m_blocksWithSpace;
 
+    // Epoch stamped on blocks as they are modified, 0 until an incremental snapshot
+    // is first activated on this table
+    int64_t m_incrementalEpoch;
+
+    // Blocks stamped with at least this epoch changed since the last incremental
+    // snapshot that completed, 0 if none has
+    int64_t m_incrementalBaseEpoch;
+
+    // Rows deleted since the last incremental snapshot was activated, only kept
+    // for tables with a primary key. Declared ahead of the streamer so that a
+    // snapshot context being torn down can still return them.
+    std::unique_ptr<IncrementalDeleteSet> m_incrementalDeletes;
+
     // Provides access to all table streaming apparati, including COW and recovery.
     boost::shared_ptr<TableStreamerInterface> m_tableStreamer;
 
@@ -1004,6 +1083,22 @@ inline bool PersistentTableSurgeon::hasStreamType(TableStreamType streamType) co
     return m_table.m_tableStreamer->hasStreamType(streamType);
 }
 
+inline int64_t PersistentTableSurgeon::getIncrementalBaseEpoch() const {
+    return m_table.m_incrementalBaseEpoch;
+}
+
+inline IncrementalDeleteSet* PersistentTableSurgeon::activateIncrementalSnapshot(int64_t& snapshotEpoch) {
+    return m_table.activateIncrementalSnapshot(snapshotEpoch);
+}
+
+inline void PersistentTableSurgeon::incrementalSnapshotCompleted(int64_t snapshotEpoch) {
+    m_table.m_incrementalBaseEpoch = snapshotEpoch;
+}
+
+inline void PersistentTableSurgeon::restoreIncrementalDeletes(IncrementalDeleteSet* deletes) {
+    m_table.restoreIncrementalDeletes(deletes);
+}
+
 inline boost::shared_ptr<ElasticIndexTupleRangeIterator>
 PersistentTableSurgeon::getIndexTupleRangeIterator(ElasticIndexHashRange const& range) {
     assert(m_index != NULL);
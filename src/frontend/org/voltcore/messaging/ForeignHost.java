@@ -23,8 +23,12 @@ import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -73,11 +77,34 @@ public class ForeignHost {
 
     public static final int POISON_PILL = -1;
     public static final int STOPNODE_NOTICE = -2;
+    public static final int COALESCED_FRAME = -3;
 
     public static final int CRASH_ALL = 0;
     public static final int CRASH_ME = 1;
     public static final int CRASH_SPECIFIED = 2;
 
+    // Largest frame messages to the same host are coalesced into, 0 sends every message in its own frame.
+    // Off by default, hosts of versions without COALESCED_FRAME can't read coalesced frames.
+    static int s_coalesceMaxBytes = Integer.getInteger("FH_COALESCE_MAX_BYTES", 0);
+    // How long the first message of a frame waits for more messages before the frame is queued for writing
+    static final long COALESCE_LINGER_NANOS = TimeUnit.MICROSECONDS.toNanos(Long.getLong("FH_COALESCE_LINGER_US", 0));
+    // length prefix + source hsid + destination count, the header of every frame
+    static final int FRAME_HEADER_BYTES = 4 + 8 + 4;
+
+    private static class LingerHolder {
+        static final ScheduledThreadPoolExecutor SCHEDULER =
+                CoreUtils.getScheduledThreadPoolExecutor("Message Coalescing Linger", 1, CoreUtils.SMALL_STACK_SIZE);
+    }
+
+    // Messages waiting for the network thread to coalesce them into frames
+    private final ConcurrentLinkedQueue<PendingMessage> m_pendingMessages = new ConcurrentLinkedQueue<PendingMessage>();
+    // true while a CoalescedMessages is queued on the network and hasn't taken the pending messages
+    private final AtomicBoolean m_coalesceQueued = new AtomicBoolean(false);
+    private final AtomicLong m_coalescedMessages = new AtomicLong();
+    private final AtomicLong m_coalescedFrames = new AtomicLong();
+    private long m_lastCoalescedMessages = 0;
+    private long m_lastCoalescedFrames = 0;
+
     /** ForeignHost's implementation of InputHandler */
     public class FHInputHandler extends VoltProtocolHandler {
 
@@ -216,6 +243,153 @@ public class ForeignHost {
         return m_isUp;
     }
 
+    private static class PendingMessage {
+        final long m_destinations[];
+        final VoltMessage m_message;
+        int m_frameSize = 0;
+
+        PendingMessage(long destinations[], VoltMessage message) {
+            m_destinations = destinations;
+            m_message = message;
+        }
+
+        int getFrameSize() {
+            if (m_frameSize == 0) {
+                m_frameSize = FRAME_HEADER_BYTES
+                        + 8 * m_destinations.length
+                        + m_message.getSerializedSize();
+            }
+            return m_frameSize;
+        }
+
+        /*
+         * Messages expect to be flattened into a buffer of exactly their size,
+         * so each one gets its own slice of the frame.
+         */
+        void serialize(ByteBuffer buf) throws IOException {
+            final int oldLimit = buf.limit();
+            buf.limit(buf.position() + m_frameSize);
+            final ByteBuffer slice = buf.slice();
+            slice.putInt(m_frameSize - 4);
+            slice.putLong(m_message.m_sourceHSId);
+            slice.putInt(m_destinations.length);
+            for (int ii = 0; ii < m_destinations.length; ii++) {
+                slice.putLong(m_destinations[ii]);
+            }
+            m_message.flattenToBuffer(slice);
+            buf.position(buf.limit());
+            buf.limit(oldLimit);
+        }
+    }
+
+    /**
+     * Takes every message pending for this host when the network thread serializes it and
+     * writes them in order as COALESCED_FRAMEs of at most s_coalesceMaxBytes. A message too
+     * large for that, or one that is alone, is written in its own frame as usual. Nothing is
+     * left pending for a later instance, so a message is always written ahead of anything
+     * queued on the network after it was sent.
+     */
+    private class CoalescedMessages implements DeferredSerialization {
+        private final ArrayList<PendingMessage> m_messages = new ArrayList<PendingMessage>();
+        // Number of messages of each frame, in order
+        private final ArrayList<Integer> m_frameCounts = new ArrayList<Integer>();
+        private int m_size = 0;
+
+        private void take() {
+            PendingMessage pending;
+            int frameCount = 0;
+            int frameSize = 0;
+            while ((pending = m_pendingMessages.poll()) != null) {
+                final int messageSize = pending.getFrameSize();
+                if (frameCount > 0 && FRAME_HEADER_BYTES + frameSize + messageSize > s_coalesceMaxBytes) {
+                    endFrame(frameCount, frameSize);
+                    frameCount = 0;
+                    frameSize = 0;
+                }
+                m_messages.add(pending);
+                frameCount++;
+                frameSize += messageSize;
+            }
+            if (frameCount > 0) {
+                endFrame(frameCount, frameSize);
+            }
+        }
+
+        private void endFrame(int count, int size) {
+            m_frameCounts.add(count);
+            m_size += count > 1 ? FRAME_HEADER_BYTES + size : size;
+        }
+
+        @Override
+        public int getSerializedSize() {
+            // Messages queued after this point queue an instance of their own
+            m_coalesceQueued.set(false);
+            take();
+            if (m_messages.isEmpty()) {
+                return EMPTY_MESSAGE_LENGTH;
+            }
+            return m_size;
+        }
+
+        @Override
+        public void serialize(ByteBuffer buf) throws IOException {
+            int index = 0;
+            for (int count : m_frameCounts) {
+                if (count > 1) {
+                    int frameSize = 0;
+                    for (int ii = index; ii < index + count; ii++) {
+                        frameSize += m_messages.get(ii).getFrameSize();
+                    }
+                    buf.putInt(FRAME_HEADER_BYTES - 4 + frameSize);
+                    buf.putLong(-1);
+                    buf.putInt(COALESCED_FRAME);
+                }
+                for (int ii = index; ii < index + count; ii++) {
+                    m_messages.get(ii).serialize(buf);
+                }
+                index += count;
+            }
+            buf.flip();
+            m_coalescedMessages.lazySet(m_coalescedMessages.get() + m_messages.size());
+            m_coalescedFrames.lazySet(m_coalescedFrames.get() + m_frameCounts.size());
+        }
+
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public String toString() {
+            return "CoalescedMessages(" + m_messages.size() + ")";
+        }
+    }
+
+    /**
+     * Queue the messages waiting to be coalesced, including any lingering for more
+     * messages, ahead of a frame that is about to be queued directly on the network.
+     */
+    private void flushPendingMessages() {
+        if (!m_pendingMessages.isEmpty()) {
+            m_network.enqueue(new CoalescedMessages());
+        }
+    }
+
+    /**
+     * Messages sent through the coalescer and the frames they were written in,
+     * since the last interval if interval is true.
+     */
+    synchronized long[] getCoalescingStats(boolean interval) {
+        final long messages = m_coalescedMessages.get();
+        final long frames = m_coalescedFrames.get();
+        if (interval) {
+            final long stats[] = new long[] { messages - m_lastCoalescedMessages, frames - m_lastCoalescedFrames };
+            m_lastCoalescedMessages = messages;
+            m_lastCoalescedFrames = frames;
+            return stats;
+        }
+        return new long[] { messages, frames };
+    }
+
     /** Send a message to the network. This public method is re-entrant. */
     void send(final long destinations[], final VoltMessage message) {
         if (!m_isUp) {
@@ -228,7 +402,22 @@ public class ForeignHost {
         }
 
         // if this link is "gone silent" for partition tests, just drop the message on the floor
-        if (!m_linkCutForTest.get()) {
+        if (!m_linkCutForTest.get() && s_coalesceMaxBytes > 0) {
+            m_pendingMessages.offer(new PendingMessage(destinations, message));
+            if (m_coalesceQueued.compareAndSet(false, true)) {
+                if (COALESCE_LINGER_NANOS > 0) {
+                    // Give the messages that follow a chance to share the frame
+                    LingerHolder.SCHEDULER.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            m_network.enqueue(new CoalescedMessages());
+                        }
+                    }, COALESCE_LINGER_NANOS, TimeUnit.NANOSECONDS);
+                } else {
+                    m_network.enqueue(new CoalescedMessages());
+                }
+            }
+        } else if (!m_linkCutForTest.get()) {
             m_network.enqueue(
                     new DeferredSerialization() {
                         @Override
@@ -380,6 +569,20 @@ public class ForeignHost {
                 hostLog.error("Invalid Cause in poison pill: " + cause);
             }
             return;
+        } else if (destCount == COALESCED_FRAME) {
+            // several messages coalesced by the sender, each framed as if sent on its own.
+            // Messages expect a buffer of exactly their size, so each is copied into one.
+            while (in.hasRemaining()) {
+                final int length = in.getInt();
+                final ByteBuffer frame = ByteBuffer.allocate(length);
+                final int oldLimit = in.limit();
+                in.limit(in.position() + length);
+                frame.put(in);
+                in.limit(oldLimit);
+                frame.flip();
+                handleRead(frame, c);
+            }
+            return;
         } else if (destCount == STOPNODE_NOTICE) {
             int targetHostId = in.getInt();
             hostLog.info("Receive StopNode notice for host " + targetHostId);
@@ -437,6 +640,7 @@ public class ForeignHost {
         message.put(errBytes);
         message.putInt(cause);
         message.flip();
+        flushPendingMessages();
         m_network.enqueue(message);
     }
 
@@ -451,6 +655,7 @@ public class ForeignHost {
         message.putInt(STOPNODE_NOTICE);
         message.putInt(targetHostId);
         message.flip();
+        flushPendingMessages();
         return m_network.enqueueAndDrain(message);
     }
 
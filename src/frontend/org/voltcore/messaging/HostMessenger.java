@@ -1752,7 +1752,22 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
             picoNetworks.add(fh.m_network);
         }
 
-        return m_network.getIOStats(interval, picoNetworks);
+        Map<Long, Pair<String, long[]>> stats = m_network.getIOStats(interval, picoNetworks);
+        // The coalescing counters are kept by the foreign hosts, not their networks
+        final Pair<String, long[]> global = stats.get(-1L);
+        for (ForeignHost fh : fhosts.values()) {
+            final long coalescing[] = fh.getCoalescingStats(interval);
+            final Pair<String, long[]> connection = stats.get(fh.m_handler.connectionId());
+            if (connection != null) {
+                connection.getSecond()[IOStatsIntf.COALESCED_MESSAGES] += coalescing[0];
+                connection.getSecond()[IOStatsIntf.COALESCED_FRAMES] += coalescing[1];
+            }
+            if (global != null) {
+                global.getSecond()[IOStatsIntf.COALESCED_MESSAGES] += coalescing[0];
+                global.getSecond()[IOStatsIntf.COALESCED_FRAMES] += coalescing[1];
+            }
+        }
+        return stats;
     }
 
     /**
@@ -50,6 +50,12 @@ public abstract class NIOWriteStreamBase {
 
     protected long m_bytesWritten = 0;
     protected long m_messagesWritten = 0;
+    /*
+     * Number of channel writes issued and of drainTo invocations that had data to write,
+     * their ratio shows how well writes are being gathered
+     */
+    protected long m_writeCalls = 0;
+    protected long m_drains = 0;
 
     /*
      * Used to provide incremental reads of the amount of
@@ -59,7 +65,12 @@ public abstract class NIOWriteStreamBase {
      */
     private long m_lastBytesWritten = 0;
     private long m_lastMessagesWritten = 0;
+    private long m_lastWriteCalls = 0;
+    private long m_lastDrains = 0;
 
+    /**
+     * @return bytes written, messages written, channel writes issued and drains with data to write
+     */
     long[] getBytesAndMessagesWritten(boolean interval) {
         if (interval) {
             final long bytesWrittenThisTime = m_bytesWritten - m_lastBytesWritten;
@@ -67,9 +78,15 @@ public abstract class NIOWriteStreamBase {
 
             final long messagesWrittenThisTime = m_messagesWritten - m_lastMessagesWritten;
             m_lastMessagesWritten = m_messagesWritten;
-            return new long[] { bytesWrittenThisTime, messagesWrittenThisTime };
+
+            final long writeCallsThisTime = m_writeCalls - m_lastWriteCalls;
+            m_lastWriteCalls = m_writeCalls;
+
+            final long drainsThisTime = m_drains - m_lastDrains;
+            m_lastDrains = m_drains;
+            return new long[] { bytesWrittenThisTime, messagesWrittenThisTime, writeCallsThisTime, drainsThisTime };
         } else {
-            return new long[] {m_bytesWritten, m_messagesWritten};
+            return new long[] {m_bytesWritten, m_messagesWritten, m_writeCalls, m_drains};
         }
     }
 
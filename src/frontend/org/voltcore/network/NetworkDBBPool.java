@@ -17,68 +17,143 @@
 
 package org.voltcore.network;
 
+import java.util.ArrayDeque;
 import java.util.Deque;
-
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
 
+/**
+ * Pool of direct buffers for a network thread. Buffers are acquired by the network thread
+ * that owns the pool but can be discarded from any thread. The owner keeps a small magazine
+ * of buffers it can reuse without synchronization, buffers returned by other threads or that
+ * don't fit in the magazine go to a shared depot whose size is tracked by a counter so the
+ * limit can be enforced without walking the deque.
+ */
 public class NetworkDBBPool {
 
-    private final Deque<BBContainer> m_buffers = new ConcurrentLinkedDeque<BBContainer>();
     private static final int LIMIT = Integer.getInteger("NETWORK_DBB_LIMIT", 512);
     private static final int SIZE = Integer.getInteger("NETWORK_DBB_SIZE", (1024 * 32));
+    private static final int MAGAZINE_SIZE = Integer.getInteger("NETWORK_DBB_MAGAZINE_SIZE", 32);
+
+    private final ArrayDeque<BBContainer> m_magazine;
+    private final int m_magazineSize;
+    private final Deque<BBContainer> m_depot = new ConcurrentLinkedDeque<BBContainer>();
+    private final AtomicInteger m_depotCount = new AtomicInteger();
+
+    /*
+     * The thread allowed to use the magazine, the first one to acquire a buffer
+     */
+    private volatile Thread m_owner;
 
     private final int m_numBuffers;
     private final int m_allocationSize;
+
+    /*
+     * Acquisitions are counted by the acquiring thread, stats are read from the network
+     * thread as well so they may be slightly stale if buffers are acquired elsewhere.
+     */
+    private long m_acquired = 0;
+    private long m_misses = 0;
+    private final AtomicLong m_overflows = new AtomicLong();
+    private long m_lastAcquired = 0;
+    private long m_lastMisses = 0;
+    private long m_lastOverflows = 0;
+
     public NetworkDBBPool(int numBuffers) {
-        m_numBuffers = numBuffers;
-        m_allocationSize = SIZE;
+        this(numBuffers, SIZE);
     }
 
     NetworkDBBPool(int numBuffers, int allocSize) {
         m_numBuffers = numBuffers;
         m_allocationSize = allocSize;
+        m_magazineSize = Math.max(0, Math.min(MAGAZINE_SIZE, numBuffers));
+        m_magazine = new ArrayDeque<BBContainer>(m_magazineSize);
     }
 
     public NetworkDBBPool() {
-        m_numBuffers = LIMIT;
-        m_allocationSize = SIZE;
+        this(LIMIT, SIZE);
     }
 
     BBContainer acquire() {
-       final BBContainer cont = m_buffers.poll();
+        final Thread current = Thread.currentThread();
+        if (m_owner == null) {
+            m_owner = current;
+        }
+        m_acquired++;
+
+        BBContainer cont = current == m_owner ? m_magazine.poll() : null;
+        if (cont == null) {
+            cont = m_depot.poll();
+            if (cont != null) {
+                m_depotCount.decrementAndGet();
+            }
+        }
         if (cont == null) {
-           final BBContainer originContainer = DBBPool.allocateDirect(m_allocationSize);
-           return new BBContainer(originContainer.b()) {
-                @Override
-                public void discard() {
-                    checkDoubleFree();
-                    //If we had to allocate over the desired limit, start discarding
-                    if (m_buffers.size() > m_numBuffers) {
-                        originContainer.discard();
-                        return;
-                    }
-                    m_buffers.push(originContainer);
-                }
-           };
-       }
-       return new BBContainer(cont.b()) {
-           @Override
-           public void discard() {
-               checkDoubleFree();
-               if (m_buffers.size() > m_numBuffers) {
-                   cont.discard();
-                   return;
-               }
-               m_buffers.push(cont);
-           }
-       };
+            m_misses++;
+            cont = DBBPool.allocateDirect(m_allocationSize);
+        }
+
+        final BBContainer origin = cont;
+        return new BBContainer(origin.b()) {
+            @Override
+            public void discard() {
+                checkDoubleFree();
+                release(origin);
+            }
+        };
+    }
+
+    private void release(BBContainer origin) {
+        if (Thread.currentThread() == m_owner && m_magazine.size() < m_magazineSize) {
+            m_magazine.push(origin);
+            return;
+        }
+        //If we had to allocate over the desired limit, start discarding
+        if (m_depotCount.incrementAndGet() > m_numBuffers) {
+            m_depotCount.decrementAndGet();
+            m_overflows.incrementAndGet();
+            origin.discard();
+            return;
+        }
+        m_depot.push(origin);
+    }
+
+    /**
+     * @return buffers acquired, acquisitions served from the pool, acquisitions that had to
+     * allocate and discarded buffers freed because the pool was full
+     */
+    long[] getStats(boolean interval) {
+        final long acquired = m_acquired;
+        final long misses = m_misses;
+        final long overflows = m_overflows.get();
+        if (interval) {
+            final long[] stats = new long[] {
+                    acquired - m_lastAcquired,
+                    (acquired - m_lastAcquired) - (misses - m_lastMisses),
+                    misses - m_lastMisses,
+                    overflows - m_lastOverflows };
+            m_lastAcquired = acquired;
+            m_lastMisses = misses;
+            m_lastOverflows = overflows;
+            return stats;
+        } else {
+            return new long[] { acquired, acquired - misses, misses, overflows };
+        }
     }
 
     void clear() {
         BBContainer cont = null;
-        while ((cont = m_buffers.poll()) != null) {
+        if (Thread.currentThread() == m_owner) {
+            while ((cont = m_magazine.poll()) != null) {
+                cont.discard();
+            }
+        }
+        while ((cont = m_depot.poll()) != null) {
+            m_depotCount.decrementAndGet();
             cont.discard();
         }
     }
@@ -83,6 +83,9 @@ public class PicoNIOWriteStream extends NIOWriteStreamBase {
     int drainTo (final GatheringByteChannel channel) throws IOException {
         int bytesWritten = 0;
         long rc = 0;
+        if (m_currentWriteBuffer != null || !m_queuedBuffers.isEmpty()) {
+            m_drains++;
+        }
         do {
             /*
              * Nothing to write
@@ -101,6 +104,7 @@ public class PicoNIOWriteStream extends NIOWriteStreamBase {
             }
 
             rc = channel.write(buffer);
+            m_writeCalls++;
 
             //Discard the buffer back to a pool if no data remains
             if (!buffer.hasRemaining()) {
@@ -391,24 +391,22 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
             final long read = m_readStream.getBytesRead(interval);
             final long writeInfo[] = m_writeStream.getBytesAndMessagesWritten(interval);
             final long messagesRead = m_messagesRead;
-            retval.put(
-                    m_ih.connectionId(),
-                    Pair.of(
-                            getHostnameOrIP(),
-                            new long[]{
-                                    read,
-                                    messagesRead,
-                                    writeInfo[0],
-                                    writeInfo[1]}));
-            retval.put(
-                    -1L,
-                    Pair.of(
-                            "GLOBAL",
-                            new long[] {
-                                    read,
-                                    messagesRead,
-                                    writeInfo[0],
-                                    writeInfo[1] }));
+            final long poolStats[] = m_pool.getStats(interval);
+            final long counters[] = new long[STATS_COUNT];
+            counters[BYTES_READ] = read;
+            counters[MESSAGES_READ] = messagesRead;
+            counters[BYTES_WRITTEN] = writeInfo[0];
+            counters[MESSAGES_WRITTEN] = writeInfo[1];
+            counters[WRITE_CALLS] = writeInfo[2];
+            counters[WRITE_DRAINS] = writeInfo[3];
+            retval.put(m_ih.connectionId(), Pair.of(getHostnameOrIP(), counters));
+            // Only the GLOBAL entry carries the buffer pool counters
+            final long globalCounters[] = counters.clone();
+            globalCounters[POOL_ACQUIRED] = poolStats[0];
+            globalCounters[POOL_HITS] = poolStats[1];
+            globalCounters[POOL_MISSES] = poolStats[2];
+            globalCounters[POOL_OVERFLOWS] = poolStats[3];
+            retval.put(-1L, Pair.of("GLOBAL", globalCounters));
             return retval;
     }
 
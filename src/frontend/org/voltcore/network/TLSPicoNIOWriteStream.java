@@ -66,12 +66,14 @@ public class TLSPicoNIOWriteStream extends PicoNIOWriteStream {
             TLSEncryptionAdapter.EncryptLedger ledger = null;
             do {
                 ledger = m_tlsEncryptionAdapter.drainEncryptedMessages(channel);
+                m_writeCalls++;
                 totalWritten += ledger.bytesWritten;
                 m_messagesWritten += ledger.messagesWritten;
             } while (ledger.bytesWritten > 0);
         } finally {
             if (totalWritten > 0) {
                 m_bytesWritten += totalWritten;
+                m_drains++;
             }
         }
         return totalWritten;
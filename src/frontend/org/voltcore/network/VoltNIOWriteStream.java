@@ -21,8 +21,10 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.GatheringByteChannel;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 
 import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.DeferredSerialization;
 import org.voltcore.utils.EstTime;
 
@@ -69,6 +71,18 @@ public class VoltNIOWriteStream extends NIOWriteStreamBase implements WriteStrea
 
     protected final QueueMonitor m_monitor;
 
+    /**
+     * Maximum number of buffers handed to the channel in a single gathering write
+     */
+    static final int MAX_GATHERING_BUFFERS =
+            Math.max(1, Integer.getInteger("NETWORK_MAX_GATHERING_BUFFERS", 64));
+
+    /*
+     * Scratch arrays for gathering writes, allocated on first use so idle connections don't pay for them
+     */
+    private ByteBuffer[] m_gatheringBuffers;
+    private BBContainer[] m_gatheringContainers;
+
     /**
      * Set to -1 when there are no pending writes. If there is a pending write it is set to the time
      * of the last successful write or the time the oldest pending write was queued.
@@ -310,9 +324,10 @@ public class VoltNIOWriteStream extends NIOWriteStreamBase implements WriteStrea
 
     /**
      * Does the work of queueing addititional buffers that have been serialized
-     * and choosing between gathering and regular writes to the channel. Also splits up very large
-     * writes of HeapByteBuffers into many smaller writes so Java doesn't allocate a monster DirectByteBuffer
-     * that will never be freed
+     * and choosing between gathering and regular writes to the channel. Up to
+     * MAX_GATHERING_BUFFERS pool buffers are handed to each write so a backlog of
+     * responses costs one system call rather than one per buffer. Buffers are only
+     * ever allocated from the pool so there are no large HeapByteBuffers to split up.
      * @param channel
      * @return
      * @throws IOException
@@ -329,30 +344,34 @@ public class VoltNIOWriteStream extends NIOWriteStreamBase implements WriteStrea
                 if (m_currentWriteBuffer == null && m_queuedBuffers.isEmpty()) {
                     return bytesWritten;
                 }
-
-                ByteBuffer buffer = null;
-                if (m_currentWriteBuffer == null) {
-                    m_currentWriteBuffer = m_queuedBuffers.poll();
-                    buffer = m_currentWriteBuffer.b();
-                    buffer.flip();
-                } else {
-                    buffer = m_currentWriteBuffer.b();
+                if (bytesWritten == 0) {
+                    m_drains++;
                 }
 
-                rc = channel.write(buffer);
+                final int count = gatherBuffers();
+                boolean written = false;
+                try {
+                    if (count == 1) {
+                        rc = channel.write(m_gatheringBuffers[0]);
+                    } else {
+                        rc = channel.write(m_gatheringBuffers, 0, count);
+                    }
+                    written = true;
+                } finally {
+                    if (!written) {
+                        // Put the gathered buffers back in the queue so shutdown() releases them
+                        releaseGatheredBuffers(count);
+                    }
+                }
+                m_writeCalls++;
+                bytesWritten += rc;
 
-                //Discard the buffer back to a pool if no data remains
-                if (buffer.hasRemaining()) {
+                //Discard the buffers back to the pool if no data remains
+                if (releaseGatheredBuffers(count)) {
                     if (!m_hadBackPressure) {
                         backpressureStarted();
                     }
-                } else {
-                    m_currentWriteBuffer.discard();
-                    m_currentWriteBuffer = null;
-                    m_messagesWritten++;
                 }
-                bytesWritten += rc;
-
             } while (rc > 0);
         } finally {
             //We might fail after writing few bytes. make sure the ones that are written accounted for.
@@ -375,4 +394,58 @@ public class VoltNIOWriteStream extends NIOWriteStreamBase implements WriteStrea
         }
         return bytesWritten;
     }
+
+    /**
+     * Fill the gathering arrays with the partially written buffer, if any, followed
+     * by queued buffers flipped for reading.
+     * @return number of buffers gathered
+     */
+    private int gatherBuffers() {
+        if (m_gatheringBuffers == null) {
+            m_gatheringBuffers = new ByteBuffer[MAX_GATHERING_BUFFERS];
+            m_gatheringContainers = new BBContainer[MAX_GATHERING_BUFFERS];
+        }
+        int count = 0;
+        if (m_currentWriteBuffer != null) {
+            m_gatheringContainers[count] = m_currentWriteBuffer;
+            m_gatheringBuffers[count++] = m_currentWriteBuffer.b();
+            m_currentWriteBuffer = null;
+        }
+        BBContainer c;
+        while (count < MAX_GATHERING_BUFFERS && (c = m_queuedBuffers.poll()) != null) {
+            c.b().flip();
+            m_gatheringContainers[count] = c;
+            m_gatheringBuffers[count++] = c.b();
+        }
+        return count;
+    }
+
+    /**
+     * Discard the gathered buffers that were written completely. The first one with data
+     * remaining becomes the current write buffer and the ones after it, which the channel
+     * didn't get to, go back to the head of the queue in their unflipped state so
+     * serialization can keep appending to the last one.
+     * @return true if not all gathered data was written
+     */
+    private boolean releaseGatheredBuffers(final int count) {
+        int ii = 0;
+        for (; ii < count && !m_gatheringBuffers[ii].hasRemaining(); ii++) {
+            m_gatheringContainers[ii].discard();
+            m_messagesWritten++;
+        }
+        final boolean hasRemaining = ii < count;
+        if (hasRemaining) {
+            m_currentWriteBuffer = m_gatheringContainers[ii];
+            for (int jj = count - 1; jj > ii; jj--) {
+                final ByteBuffer buf = m_gatheringBuffers[jj];
+                buf.position(buf.limit());
+                buf.limit(buf.capacity());
+                m_queuedBuffers.offerFirst(m_gatheringContainers[jj]);
+            }
+        }
+        // Don't hold on to buffers that were returned to the pool
+        Arrays.fill(m_gatheringContainers, 0, count, null);
+        Arrays.fill(m_gatheringBuffers, 0, count, null);
+        return hasRemaining;
+    }
 }
@@ -505,6 +505,8 @@ class VoltNetwork implements Runnable, IOStatsIntf
         long totalMessagesRead = 0;
         long totalWritten = 0;
         long totalMessagesWritten = 0;
+        long totalWriteCalls = 0;
+        long totalDrains = 0;
         for (VoltPort p : m_ports) {
             final long read = p.readStream().getBytesRead(interval);
             final long writeInfo[] = p.writeStream().getBytesAndMessagesWritten(interval);
@@ -513,25 +515,31 @@ class VoltNetwork implements Runnable, IOStatsIntf
             totalMessagesRead += messagesRead;
             totalWritten += writeInfo[0];
             totalMessagesWritten += writeInfo[1];
-            retval.put(
-                    p.connectionId(),
-                    Pair.of(
-                            p.getHostnameOrIP(),
-                            new long[] {
-                                    read,
-                                    messagesRead,
-                                    writeInfo[0],
-                                    writeInfo[1] }));
+            totalWriteCalls += writeInfo[2];
+            totalDrains += writeInfo[3];
+            final long counters[] = new long[IOStatsIntf.STATS_COUNT];
+            counters[IOStatsIntf.BYTES_READ] = read;
+            counters[IOStatsIntf.MESSAGES_READ] = messagesRead;
+            counters[IOStatsIntf.BYTES_WRITTEN] = writeInfo[0];
+            counters[IOStatsIntf.MESSAGES_WRITTEN] = writeInfo[1];
+            counters[IOStatsIntf.WRITE_CALLS] = writeInfo[2];
+            counters[IOStatsIntf.WRITE_DRAINS] = writeInfo[3];
+            retval.put(p.connectionId(), Pair.of(p.getHostnameOrIP(), counters));
         }
-        retval.put(
-                -1L,
-                Pair.of(
-                        "GLOBAL",
-                        new long[] {
-                                totalRead,
-                                totalMessagesRead,
-                                totalWritten,
-                                totalMessagesWritten }));
+        // Buffer pool counters are only reported for the network as a whole
+        final long poolStats[] = m_pool.getStats(interval);
+        final long globalCounters[] = new long[IOStatsIntf.STATS_COUNT];
+        globalCounters[IOStatsIntf.BYTES_READ] = totalRead;
+        globalCounters[IOStatsIntf.MESSAGES_READ] = totalMessagesRead;
+        globalCounters[IOStatsIntf.BYTES_WRITTEN] = totalWritten;
+        globalCounters[IOStatsIntf.MESSAGES_WRITTEN] = totalMessagesWritten;
+        globalCounters[IOStatsIntf.WRITE_CALLS] = totalWriteCalls;
+        globalCounters[IOStatsIntf.WRITE_DRAINS] = totalDrains;
+        globalCounters[IOStatsIntf.POOL_ACQUIRED] = poolStats[0];
+        globalCounters[IOStatsIntf.POOL_HITS] = poolStats[1];
+        globalCounters[IOStatsIntf.POOL_MISSES] = poolStats[2];
+        globalCounters[IOStatsIntf.POOL_OVERFLOWS] = poolStats[3];
+        retval.put(-1L, Pair.of("GLOBAL", globalCounters));
         return retval;
     }
 
@@ -42,6 +42,24 @@ import org.voltcore.utils.Pair;
 public class VoltNetworkPool {
 
     public interface IOStatsIntf {
+        /*
+         * Layout of the counter arrays returned by getIOStats. The pool counters are
+         * only filled in for the GLOBAL (-1) entry.
+         */
+        int BYTES_READ = 0;
+        int MESSAGES_READ = 1;
+        int BYTES_WRITTEN = 2;
+        int MESSAGES_WRITTEN = 3;
+        int WRITE_CALLS = 4;
+        int WRITE_DRAINS = 5;
+        int POOL_ACQUIRED = 6;
+        int POOL_HITS = 7;
+        int POOL_MISSES = 8;
+        int POOL_OVERFLOWS = 9;
+        int COALESCED_MESSAGES = 10;
+        int COALESCED_FRAMES = 11;
+        int STATS_COUNT = 12;
+
         Future<Map<Long, Pair<String, long[]>>> getIOStats(final boolean interval);
     }
 
@@ -77,6 +77,7 @@ public class VoltTLSNIOWriteStream extends VoltNIOWriteStream {
             TLSEncryptionAdapter.EncryptLedger ledger = null;
             do {
                 ledger = m_tlsEncryptAdapter.drainEncryptedMessages(channel);
+                m_writeCalls++;
                 delta += ledger.encryptedBytesDelta;
                 totalWritten += ledger.bytesWritten;
                 m_messagesWritten += ledger.messagesWritten;
@@ -87,6 +88,9 @@ public class VoltTLSNIOWriteStream extends VoltNIOWriteStream {
                 }
             } while (ledger.bytesWritten > 0);
         } finally {
+            if (totalWritten > 0) {
+                m_drains++;
+            }
             if (m_tlsEncryptAdapter.getEncryptedMessagesBuffer().numComponents() <= 1
                  && m_hadBackPressure
                  && m_queuedWrites.size() <= m_maxQueuedWritesBeforeBackpressure
@@ -46,6 +46,17 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
     private VoltTable[] results = new VoltTable[0];
     private int[] m_hashes = null;
 
+    /*
+     * Large results are sent in columnar form when the invocation asked for it.
+     * An entry of results is null until it is materialized from its columnar
+     * form, an entry of m_columnarResults is null if the table is sent row major.
+     */
+    public static final int COLUMNAR_MIN_ROWS = Integer.getInteger("COLUMNAR_RESULT_MIN_ROWS", 1000);
+    private static final byte ROW_TABLE = 0;
+    private static final byte COLUMNAR_TABLE = 1;
+    private boolean m_columnar = false;
+    private VoltColumnarTable[] m_columnarResults = null;
+
     private int clusterRoundTripTime = 0;
     private int clientRoundTripTime = 0;
     private long clientRoundTripTimeNanos = 0;
@@ -97,6 +108,7 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
     }
 
     public Pair<Long, byte[]> getMispartitionedResult() {
+        final VoltTable[] results = getResults();
         if (results.length != 1 || !results[0].advanceRow()) {
             throw new IllegalArgumentException("No hashinator config in result");
         }
@@ -129,6 +141,7 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
 
         this.status = status;
         this.results = results;
+        m_columnarResults = null;
         this.statusString = statusString;
         this.setProperly = true;
     }
@@ -144,9 +157,58 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
 
     @Override
     public VoltTable[] getResults() {
+        if (m_columnarResults != null) {
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == null) {
+                    results[i] = m_columnarResults[i].toVoltTable();
+                }
+            }
+        }
         return results;
     }
 
+    @Override
+    public VoltColumnarTable[] getColumnarResults() {
+        if (m_columnarResults == null) {
+            m_columnarResults = new VoltColumnarTable[results.length];
+        }
+        for (int i = 0; i < results.length; i++) {
+            if (m_columnarResults[i] == null) {
+                m_columnarResults[i] = VoltColumnarTable.fromVoltTable(results[i]);
+            }
+        }
+        return m_columnarResults.clone();
+    }
+
+    /**
+     * Send results of at least {@link #COLUMNAR_MIN_ROWS} rows in columnar form.
+     * Only clients that asked for it can decode such a response.
+     */
+    public void setColumnarEncoding(boolean columnar) {
+        m_columnar = columnar;
+    }
+
+    public boolean getColumnarEncoding() {
+        return m_columnar;
+    }
+
+    /**
+     * @return the columnar form of the result table to send, null to send it row major
+     */
+    private VoltColumnarTable columnarResult(int index) {
+        if (m_columnarResults != null && m_columnarResults[index] != null) {
+            return m_columnarResults[index];
+        }
+        if (results[index].getRowCount() < COLUMNAR_MIN_ROWS || !VoltColumnarTable.isEncodable(results[index])) {
+            return null;
+        }
+        if (m_columnarResults == null) {
+            m_columnarResults = new VoltColumnarTable[results.length];
+        }
+        m_columnarResults[index] = VoltColumnarTable.fromVoltTable(results[index]);
+        return m_columnarResults[index];
+    }
+
     @Override
     public String getStatusString() {
         return statusString;
@@ -197,19 +259,29 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
         } else {
             m_hashes = null;
         }
+        m_columnar = (presentFields & (1 << 3)) != 0;
+        m_columnarResults = null;
         int tableCount = buf.getShort();
         if (tableCount < 0) {
             throw new IOException("Table count is negative: " + tableCount);
         }
         results = new VoltTable[tableCount];
         for (int i = 0; i < tableCount; i++) {
+            final boolean columnarTable = m_columnar && buf.get() == COLUMNAR_TABLE;
             int tableSize = buf.getInt();
             final int originalLimit = buf.limit();
             buf.limit(buf.position() + tableSize);
             final ByteBuffer slice = buf.slice();
             buf.position(buf.position() + tableSize);
             buf.limit(originalLimit);
-            results[i] = new VoltTable(slice, false);
+            if (columnarTable) {
+                if (m_columnarResults == null) {
+                    m_columnarResults = new VoltColumnarTable[tableCount];
+                }
+                m_columnarResults[i] = new VoltColumnarTable(slice);
+            } else {
+                results[i] = new VoltTable(slice, false);
+            }
         }
         setProperly = true;
     }
@@ -235,8 +307,16 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
             msgsize += 2; // short array len
             msgsize += m_hashes.length * 4; // array of ints
         }
-        for (VoltTable vt : results) {
-            msgsize += vt.getSerializedSize();
+        for (int i = 0; i < results.length; i++) {
+            if (m_columnar) {
+                msgsize += 1; // table format
+                final VoltColumnarTable columnar = columnarResult(i);
+                if (columnar != null) {
+                    msgsize += 4 + columnar.getSerializedSize();
+                    continue;
+                }
+            }
+            msgsize += results[i].getSerializedSize();
         }
 
         return msgsize;
@@ -259,6 +339,9 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
         if (m_hashes != null) {
             presentFields |= 1 << 4;
         }
+        if (m_columnar) {
+            presentFields |= 1 << 3;
+        }
         buf.put(presentFields);
         buf.put(status);
         if (statusString != null) {
@@ -279,9 +362,19 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
             }
         }
         buf.putShort((short) results.length);
-        for (VoltTable vt : results)
+        for (int i = 0; i < results.length; i++)
         {
-            vt.flattenToBuffer(buf);
+            if (m_columnar) {
+                final VoltColumnarTable columnar = columnarResult(i);
+                if (columnar != null) {
+                    buf.put(COLUMNAR_TABLE);
+                    buf.putInt(columnar.getSerializedSize());
+                    columnar.flattenToBuffer(buf);
+                    continue;
+                }
+                buf.put(ROW_TABLE);
+            }
+            results[i].flattenToBuffer(buf);
         }
         return buf;
     }
@@ -358,7 +451,7 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
             js.keySymbolValuePair(JSON_APPSTATUSSTRING_KEY, appStatusString);
             js.key(JSON_RESULTS_KEY);
             js.array();
-            for (VoltTable o : results) {
+            for (VoltTable o : getResults()) {
                 js.value(o);
             }
             js.endArray();
@@ -378,6 +471,7 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
     public int getHashOfTableResults() {
         try {
             long cheesyChecksum = 0;
+            final VoltTable[] results = getResults();
             for (int i = 0; i < results.length; ++i) {
                 cheesyChecksum += ClientUtils.cheesyBufferCheckSum(results[i].m_buffer);
             }
@@ -390,5 +484,6 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
 
     public void dropResultTable() {
         results = new VoltTable[] {};
+        m_columnarResults = null;
     }
 }
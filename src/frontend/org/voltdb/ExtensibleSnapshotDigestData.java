@@ -68,6 +68,13 @@ public class ExtensibleSnapshotDigestData {
      */
     private long m_terminus;
 
+    /**
+     * Whether this snapshot is part of an incremental chain, and the nonce of the
+     * snapshot it is a delta of, null for the base of the chain
+     */
+    private final boolean m_incremental;
+    private final String m_deltaOf;
+
     public ExtensibleSnapshotDigestData(
             Map<String, Map<Integer, Pair<Long, Long>>> exportSequenceNumbers,
             Map<Integer, TupleStreamStateInfo> drTupleStreamInfo,
@@ -77,6 +84,8 @@ public class ExtensibleSnapshotDigestData {
         m_drTupleStreamInfo = drTupleStreamInfo;
         m_drMixedClusterSizeConsumerState = drMixedClusterSizeConsumerState;
         m_terminus = jsData != null ? jsData.optLong(SnapshotUtil.JSON_TERMINUS, 0L) : 0L;
+        m_incremental = jsData != null && jsData.optBoolean(SnapshotUtil.JSON_INCREMENTAL, false);
+        m_deltaOf = m_incremental ? jsData.optString(SnapshotUtil.JSON_DELTA_OF, null) : null;
     }
 
     private void writeExportSequencesToSnapshot(JSONStringer stringer) throws IOException {
@@ -324,6 +333,16 @@ public class ExtensibleSnapshotDigestData {
     }
 
     public void writeToSnapshotDigest(JSONStringer stringer) throws IOException {
+        if (m_incremental) {
+            try {
+                stringer.keySymbolValuePair(SnapshotUtil.JSON_INCREMENTAL, true);
+                if (m_deltaOf != null) {
+                    stringer.keySymbolValuePair(SnapshotUtil.JSON_DELTA_OF, m_deltaOf);
+                }
+            } catch (JSONException e) {
+                throw new IOException(e);
+            }
+        }
         writeExportSequencesToSnapshot(stringer);
         writeDRStateToSnapshot(stringer);
     }
@@ -23,6 +23,7 @@ import java.util.Iterator;
 import java.util.Map;
 
 import org.voltdb.VoltTable.ColumnInfo;
+import org.voltcore.network.VoltNetworkPool.IOStatsIntf;
 import org.voltcore.utils.Pair;
 
 public class IOStats extends StatsSource {
@@ -69,6 +70,16 @@ public class IOStats extends StatsSource {
         columns.add(new ColumnInfo("MESSAGES_READ", VoltType.BIGINT));
         columns.add(new ColumnInfo("BYTES_WRITTEN", VoltType.BIGINT));
         columns.add(new ColumnInfo("MESSAGES_WRITTEN", VoltType.BIGINT));
+        columns.add(new ColumnInfo("WRITE_CALLS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("WRITE_DRAINS", VoltType.BIGINT));
+        // Network buffer pool counters, only set for the GLOBAL row
+        columns.add(new ColumnInfo("POOL_ACQUIRED", VoltType.BIGINT));
+        columns.add(new ColumnInfo("POOL_HITS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("POOL_MISSES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("POOL_OVERFLOWS", VoltType.BIGINT));
+        // Messages to other hosts and the coalesced frames they were sent in
+        columns.add(new ColumnInfo("COALESCED_MESSAGES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("COALESCED_FRAMES", VoltType.BIGINT));
 
     }
 
@@ -79,10 +90,18 @@ public class IOStats extends StatsSource {
 
         rowValues[columnNameToIndex.get("CONNECTION_ID")] = rowKey;
         rowValues[columnNameToIndex.get("CONNECTION_HOSTNAME")] = info.getFirst();
-        rowValues[columnNameToIndex.get("BYTES_READ")] = counters[0];
-        rowValues[columnNameToIndex.get("MESSAGES_READ")] = counters[1];
-        rowValues[columnNameToIndex.get("BYTES_WRITTEN")] = counters[2];
-        rowValues[columnNameToIndex.get("MESSAGES_WRITTEN")] = counters[3];
+        rowValues[columnNameToIndex.get("BYTES_READ")] = counters[IOStatsIntf.BYTES_READ];
+        rowValues[columnNameToIndex.get("MESSAGES_READ")] = counters[IOStatsIntf.MESSAGES_READ];
+        rowValues[columnNameToIndex.get("BYTES_WRITTEN")] = counters[IOStatsIntf.BYTES_WRITTEN];
+        rowValues[columnNameToIndex.get("MESSAGES_WRITTEN")] = counters[IOStatsIntf.MESSAGES_WRITTEN];
+        rowValues[columnNameToIndex.get("WRITE_CALLS")] = counters[IOStatsIntf.WRITE_CALLS];
+        rowValues[columnNameToIndex.get("WRITE_DRAINS")] = counters[IOStatsIntf.WRITE_DRAINS];
+        rowValues[columnNameToIndex.get("POOL_ACQUIRED")] = counters[IOStatsIntf.POOL_ACQUIRED];
+        rowValues[columnNameToIndex.get("POOL_HITS")] = counters[IOStatsIntf.POOL_HITS];
+        rowValues[columnNameToIndex.get("POOL_MISSES")] = counters[IOStatsIntf.POOL_MISSES];
+        rowValues[columnNameToIndex.get("POOL_OVERFLOWS")] = counters[IOStatsIntf.POOL_OVERFLOWS];
+        rowValues[columnNameToIndex.get("COALESCED_MESSAGES")] = counters[IOStatsIntf.COALESCED_MESSAGES];
+        rowValues[columnNameToIndex.get("COALESCED_FRAMES")] = counters[IOStatsIntf.COALESCED_FRAMES];
         super.updateStatsRow(rowKey, rowValues);
     }
 
@@ -405,6 +405,7 @@ public class NTProcedureService {
             m_mailbox.deliver(irm);
             return;
         }
+        runner.m_columnarResults = task.getColumnarResults();
         m_outstanding.put(runner.m_id, runner);
 
         Runnable invocationRunnable = new Runnable() {
@@ -96,9 +96,16 @@ public class PlannerStatsCollector extends StatsSource {
     long m_lastCacheMisses = 0;
 
     /**
-     * Time of last planning start
+     * Cache 1 evictions
      */
-    Long m_currentStartTime = null;
+    long m_cache1Evictions = 0;
+    long m_lastCache1Evictions = 0;
+
+    /**
+     * Cache 2 evictions
+     */
+    long m_cache2Evictions = 0;
+    long m_lastCache2Evictions = 0;
 
     /**
      * Total amount of planning time
@@ -168,7 +175,7 @@ public class PlannerStatsCollector extends StatsSource {
     /**
      * Used to update EE cache stats without changing tracked time
      */
-    public void updateEECacheStats(long eeCacheSize, long hits, long misses, int partitionId) {
+    public synchronized void updateEECacheStats(long eeCacheSize, long hits, long misses, int partitionId) {
         m_cache1Level = eeCacheSize;
         m_cache1Hits += hits;
         m_cacheMisses += misses;
@@ -179,24 +186,32 @@ public class PlannerStatsCollector extends StatsSource {
 
     /**
      * Called before doing planning. Starts timer.
+     * Planning may run on several threads at once, so the caller keeps the start time.
+     *
+     * @return  start time to pass to endStatsCollection, or null if this call is not timed
      */
-    public void startStatsCollection() {
+    public synchronized Long startStatsCollection() {
         if (getInvocations() % m_collectionFrequency == 0) {
-            m_currentStartTime = System.nanoTime();
+            return System.nanoTime();
         }
+        return null;
     }
 
     /**
      * Called after planning or failing to plan. Records timer and cache stats.
      *
-     * @param cache1Size   number of entries in level 1 cache
-     * @param cache2Size   number of entries in level 2 cache
-     * @param cacheUse     where the planned statement came from
-     * @param partitionId  partition id
+     * @param startTime        value returned by startStatsCollection
+     * @param cache1Size       number of entries in level 1 cache
+     * @param cache2Size       number of entries in level 2 cache
+     * @param cache1Evictions  total number of entries evicted from level 1 cache
+     * @param cache2Evictions  total number of entries evicted from level 2 cache
+     * @param cacheUse         where the planned statement came from
+     * @param partitionId      partition id
      */
-    public void endStatsCollection(long cache1Size, long cache2Size, CacheUse cacheUse, long partitionId) {
-        if (m_currentStartTime != null) {
-            long delta = System.nanoTime() - m_currentStartTime;
+    public synchronized void endStatsCollection(Long startTime, long cache1Size, long cache2Size,
+            long cache1Evictions, long cache2Evictions, CacheUse cacheUse, long partitionId) {
+        if (startTime != null) {
+            long delta = System.nanoTime() - startTime;
             if (delta < 0) {
                 if (Math.abs(delta) > 1000000000) {
                     log.info("Planner statistics recorded a negative planning time larger than one second: " +
@@ -210,11 +225,12 @@ public class PlannerStatsCollector extends StatsSource {
                 m_lastMinPlanningTime = Math.min(delta, m_lastMinPlanningTime);
                 m_lastMaxPlanningTime = Math.max(delta, m_lastMaxPlanningTime);
             }
-            m_currentStartTime = null;
         }
 
         m_cache1Level = cache1Size;
         m_cache2Level = cache2Size;
+        m_cache1Evictions = cache1Evictions;
+        m_cache2Evictions = cache2Evictions;
 
         switch(cacheUse) {
           case HIT1:
@@ -242,7 +258,7 @@ public class PlannerStatsCollector extends StatsSource {
      * @param values Values of each column of the row of stats. Used as output.
      */
     @Override
-    protected void updateStatsRow(Object rowKey, Object rowValues[]) {
+    protected synchronized void updateStatsRow(Object rowKey, Object rowValues[]) {
         super.updateStatsRow(rowKey, rowValues);
 
         rowValues[columnNameToIndex.get("PARTITION_ID")] = m_partitionId;
@@ -254,6 +270,8 @@ public class PlannerStatsCollector extends StatsSource {
         long cache1Hits  = m_cache1Hits;
         long cache2Hits  = m_cache2Hits;
         long cacheMisses = m_cacheMisses;
+        long cache1Evictions = m_cache1Evictions;
+        long cache2Evictions = m_cache2Evictions;
         long failureCount = m_failures;
 
         if (m_interval) {
@@ -280,6 +298,12 @@ public class PlannerStatsCollector extends StatsSource {
             cacheMisses = m_cacheMisses - m_lastCacheMisses;
             m_lastCacheMisses = m_cacheMisses;
 
+            cache1Evictions = m_cache1Evictions - m_lastCache1Evictions;
+            m_lastCache1Evictions = m_cache1Evictions;
+
+            cache2Evictions = m_cache2Evictions - m_lastCache2Evictions;
+            m_lastCache2Evictions = m_cache2Evictions;
+
             failureCount = m_failures - m_lastFailures;
             m_lastFailures = m_failures;
 
@@ -302,6 +326,8 @@ public class PlannerStatsCollector extends StatsSource {
             rowValues[columnNameToIndex.get("PLAN_TIME_AVG")] = 0L;
         }
         rowValues[columnNameToIndex.get("FAILURES")] = failureCount;
+        rowValues[columnNameToIndex.get("CACHE1_EVICTIONS")] = cache1Evictions;
+        rowValues[columnNameToIndex.get("CACHE2_EVICTIONS")] = cache2Evictions;
     }
 
     /**
@@ -322,6 +348,8 @@ public class PlannerStatsCollector extends StatsSource {
         columns.add(new ColumnInfo("PLAN_TIME_MAX", VoltType.BIGINT));
         columns.add(new ColumnInfo("PLAN_TIME_AVG", VoltType.BIGINT));
         columns.add(new ColumnInfo("FAILURES",      VoltType.BIGINT));
+        columns.add(new ColumnInfo("CACHE1_EVICTIONS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("CACHE2_EVICTIONS", VoltType.BIGINT));
     }
 
     @Override
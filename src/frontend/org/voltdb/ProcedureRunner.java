@@ -482,6 +482,11 @@ public class ProcedureRunner {
             // so always return the hashes.
             int[] hashes = m_determinismHash.get();
             retval.setHashes(hashes);
+
+            // large results go back columnar if the client asked for it
+            if (m_txnState != null && m_txnState.getInvocation() != null) {
+                retval.setColumnarEncoding(m_txnState.getInvocation().getColumnarResults());
+            }
         } finally {
             // finally at the call(..) scope to ensure params can be
             // garbage collected and that the queue will be empty for
@@ -882,6 +887,23 @@ public class ProcedureRunner {
         }
     }
 
+    /**
+     * Delete the rows of a table matching the given rows by primary key, or every row
+     * if deleteAll is set. Used by snapshot restore to apply incremental snapshots.
+     */
+    public long voltDeleteRestoredRows(int tableId, VoltTable rows, boolean deleteAll) throws VoltAbortException {
+        try {
+            return m_site.deleteRestoredRows(m_txnState.txnId, m_txnState.m_spHandle, m_txnState.uniqueId,
+                    tableId, rows, deleteAll);
+        } catch (EEException e) {
+            String msg = "Failed to delete restored rows";
+            if (e.getMessage() != null) {
+                msg += ": " + e.getMessage();
+            }
+            throw new VoltAbortException(msg);
+        }
+    }
+
     public DependencyPair executeSysProcPlanFragment(TransactionState txnState,
             Map<Integer, List<VoltTable>> dependencies, long fragmentId, ParameterSet params) {
         setupTransaction(txnState);
@@ -75,6 +75,8 @@ public class ProcedureRunnerNT {
     protected final long m_ciHandle;
     protected final long m_clientHandle;
     protected final int m_timeout;
+    // whether large results go back to the client columnar
+    protected boolean m_columnarResults = false;
     protected final String m_procedureName;
     protected final VoltNonTransactionalProcedure m_procedure;
     protected final Method m_procMethod;
@@ -347,6 +349,7 @@ public class ProcedureRunnerNT {
         // send the response to caller
         // must be done as IRM to CI mailbox for backpressure accounting
         response.setClientHandle(m_clientHandle);
+        response.setColumnarEncoding(m_columnarResults);
         InitiateResponseMessage irm = InitiateResponseMessage.messageForNTProcResponse(m_ciHandle,
                                                                                        m_ccxn.connectionId(),
                                                                                        response);
@@ -378,6 +381,7 @@ public class ProcedureRunnerNT {
         // send the response to the caller
         // must be done as IRM to CI mailbox for backpressure accounting
         response.setClientHandle(m_clientHandle);
+        response.setColumnarEncoding(m_columnarResults);
         InitiateResponseMessage irm = InitiateResponseMessage.messageForNTProcResponse(m_ciHandle,
                                                                                        m_ccxn.connectionId(),
                                                                                        response);
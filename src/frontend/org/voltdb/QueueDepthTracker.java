@@ -19,12 +19,10 @@ package org.voltdb;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.LinkedTransferQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltdb.VoltTable.ColumnInfo;
-import org.voltdb.iv2.SiteTasker;
 
 /**
  * A class to track and generate statistics regarding queue depth.
@@ -39,7 +37,13 @@ public class QueueDepthTracker extends SiteStatsSource {
     private final AtomicInteger m_depth;
     private long m_lastWaitTime;
     private final ArrayBlockingQueue<QueueStatus> m_historicalData;
-    private LinkedTransferQueue<SiteTasker> m_tasks;
+    // Offer time of the task at the head of the queue. The queue itself may
+    // only be inspected by its consumer, so the head is tracked here instead.
+    private volatile long m_headOfferTime;
+    // Tasks the consumer has drained into a local batch but not yet started.
+    // They no longer count in m_depth but are still waiting to run.
+    private volatile int m_batchDepth;
+    private volatile long m_batchHeadOfferTime;
     private long m_maxWaitTimeWindowSize = 5_000_000_000L; // window size set to 5 seconds
     private long m_maxWaitLastLogTime;
     private volatile long m_recentMaxWaitTime;
@@ -61,33 +65,89 @@ public class QueueDepthTracker extends SiteStatsSource {
         }
     }
 
-    public QueueDepthTracker(long siteId, LinkedTransferQueue<SiteTasker> tasks) {
+    public QueueDepthTracker(long siteId, int initialDepth) {
         super(siteId, false);
         m_historicalData = new ArrayBlockingQueue<>(10);
-        m_depth = new AtomicInteger(tasks.size());
+        m_depth = new AtomicInteger(initialDepth);
         m_lastWaitTime = 0;
         m_maxWaitLastLogTime = System.nanoTime();
         m_recentMaxWaitTime = 0;
         m_recentTotalWaitTime = 0;
         m_recentPollCount = 0;
-        m_tasks = tasks;
     }
 
-    public void offerUpdate() {
-        m_depth.incrementAndGet();
+    public void offerUpdate(long offerTime) {
+        if (m_depth.getAndIncrement() == 0) {
+            m_headOfferTime = offerTime;
+        }
+    }
+
+    /**
+     * Called by the consumer after it has taken tasks off the queue.
+     * @param nextOfferTime offer time of the task now at the head of the queue
+     */
+    public void headUpdate(long nextOfferTime) {
+        m_headOfferTime = nextOfferTime;
+    }
+
+    /**
+     * Called by the consumer as it works through a batch of drained tasks.
+     * @param remaining number of drained tasks that have not started running
+     * @param headOfferTime offer time of the oldest of those tasks
+     */
+    public void batchUpdate(int remaining, long headOfferTime) {
+        m_batchHeadOfferTime = headOfferTime;
+        m_batchDepth = remaining;
+    }
+
+    /**
+     * @return Number of tasks waiting to run, including drained tasks that have not started
+     */
+    public int getDepth() {
+        return m_depth.get() + m_batchDepth;
+    }
+
+    /**
+     * @return How long in nanoseconds the oldest task that has not started running has been waiting
+     */
+    public long getHeadWaitTime(long currentTime) {
+        if (m_batchDepth > 0) {
+            return Math.max(0, currentTime - m_batchHeadOfferTime);
+        }
+        if (m_depth.get() <= 0) {
+            return 0;
+        }
+        return Math.max(0, currentTime - m_headOfferTime);
     }
 
     public void pollUpdate(long offerTime) {
         m_depth.decrementAndGet();
         long currentTime = System.nanoTime();
         m_lastWaitTime = currentTime - offerTime;
+        recordWaits(currentTime, m_lastWaitTime, m_lastWaitTime, 1);
+    }
+
+    /**
+     * Account for a batch of tasks taken off the queue at once.
+     * @param count number of tasks in the batch
+     * @param oldestOfferTime offer time of the first task in the batch
+     * @param totalOfferTime sum of the offer times of all tasks in the batch
+     */
+    public void pollUpdate(int count, long oldestOfferTime, long totalOfferTime) {
+        m_depth.addAndGet(-count);
+        long currentTime = System.nanoTime();
+        m_lastWaitTime = currentTime - oldestOfferTime;
+        recordWaits(currentTime, m_lastWaitTime, count * currentTime - totalOfferTime, count);
+    }
+
+    private void recordWaits(long currentTime, long maxWait, long totalWait, long count) {
         // if max wait time was last logged less than m_recentWindowSize ago
         // keep the max wait time in m_recentMaxWaitTime
         // or log and reset the recentMaxWaitTime, update last log time
         if (currentTime - m_maxWaitLastLogTime < m_recentWindowSize) {
-            if (m_recentMaxWaitTime < m_lastWaitTime) m_recentMaxWaitTime = m_lastWaitTime;
-            m_recentTotalWaitTime += m_lastWaitTime;
-            m_recentPollCount++;
+            if (m_recentMaxWaitTime < maxWait) m_recentMaxWaitTime = maxWait;
+            m_recentTotalWaitTime += totalWait;
+            m_recentPollCount += count;
         } else {
             // remove out of date historical data
             while (!m_historicalData.isEmpty() &&
@@ -102,9 +162,9 @@ public class QueueDepthTracker extends SiteStatsSource {
                 //This should never happen...
                 s_logger.warn("Could not insert queue stats data. Current data size: " + m_historicalData.size());
             }
-            m_recentMaxWaitTime = m_lastWaitTime;
-            m_recentTotalWaitTime = m_lastWaitTime;
-            m_recentPollCount = 1;
+            m_recentMaxWaitTime = maxWait;
+            m_recentTotalWaitTime = totalWait;
+            m_recentPollCount = count;
             m_maxWaitLastLogTime = currentTime;
         }
     }
@@ -122,13 +182,7 @@ public class QueueDepthTracker extends SiteStatsSource {
     protected void updateStatsRow(Object rowKey, Object rowValues[]) {
         long currentTime = System.nanoTime();
         // check if current wait time exceeds the maxWaitTime
-        long currentWaitTime;
-        SiteTasker nextTask = m_tasks.peek();
-        if (nextTask == null) {
-            currentWaitTime = 0;
-        } else {
-            currentWaitTime = currentTime - nextTask.getQueueOfferTime();
-        }
+        long currentWaitTime = getHeadWaitTime(currentTime);
         // check historicalMaxWaitTime, report max wait time and mean wait time in window
         long maxWaitTimeInWindow = Math.max(currentWaitTime, m_recentMaxWaitTime);
         long totalWaitTimeInWindow = 0;
@@ -144,7 +198,7 @@ public class QueueDepthTracker extends SiteStatsSource {
                 }
             }
         }
-        rowValues[columnNameToIndex.get("CURRENT_DEPTH")] = m_depth;
+        rowValues[columnNameToIndex.get("CURRENT_DEPTH")] = getDepth();
         rowValues[columnNameToIndex.get("POLL_COUNT")] = totalPollCountInWindow;
         // wait times are in microseconds
         rowValues[columnNameToIndex.get("AVG_WAIT")] = (totalWaitTimeInWindow / Math.max(1, totalPollCountInWindow)) / 1000;
@@ -159,6 +159,7 @@ import org.voltdb.probe.MeshProber;
 import org.voltdb.processtools.ShellTools;
 import org.voltdb.rejoin.Iv2RejoinCoordinator;
 import org.voltdb.rejoin.JoinCoordinator;
+import org.voltdb.rejoin.RejoinStreamStats;
 import org.voltdb.settings.ClusterSettings;
 import org.voltdb.settings.ClusterSettingsRef;
 import org.voltdb.settings.DbSettings;
@@ -1310,6 +1311,10 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
             m_gcStats = new GcStats();
             getStatsAgent().registerStatsSource(StatsSelector.GC,
                     0, m_gcStats);
+            getStatsAgent().registerStatsSource(StatsSelector.SNAPSHOTRESTORE,
+                    0, new SnapshotRestoreStats());
+            getStatsAgent().registerStatsSource(StatsSelector.REJOIN,
+                    0, new RejoinStreamStats());
             // ENG-6321
             m_commandLogStats = new CommandLogStats(m_commandLog);
             getStatsAgent().registerStatsSource(StatsSelector.COMMANDLOG, 0, m_commandLogStats);
@@ -108,6 +108,19 @@ public interface SiteProcedureConnection {
             boolean shouldDRStream,
             boolean undo);
 
+    /**
+     * Delete the rows of a table with the same primary key as the given rows, or every
+     * row if deleteAll is set. Used to apply the deletes of an incremental snapshot.
+     * @return the number of rows deleted
+     */
+    public long deleteRestoredRows(
+            long txnId,
+            long spHandle,
+            long uniqueId,
+            int tableId,
+            VoltTable rows,
+            boolean deleteAll);
+
     /**
      * Execute a set of plan fragments.
      * Note: it's ok to pass null for inputDepIds if the fragments
@@ -0,0 +1,128 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when a site should next do snapshot work and how much it should do at once.
+ *
+ * The fixed quiet period derived from the snapshot priority either hurts transaction latency
+ * while a snapshot runs or makes the snapshot take far longer than it needs to. Instead the pacer
+ * watches how long transactions are waiting in the site's task queue. While they wait longer than
+ * the target it doubles the delay between units of snapshot work and drops back to one block per
+ * unit. While the queue is empty or its head has waited less than half the target it shrinks
+ * the delay a millisecond at a time, and once there is no delay it serializes more blocks per unit.
+ * The snapshot priority bounds the delay. An optional rate cap holds a site's serialization below
+ * a number of megabytes a second however idle it is.
+ *
+ * Called from the site thread and from the threads returning snapshot buffers.
+ */
+final class SnapshotPacer {
+
+    static final boolean ENABLED =
+            Boolean.valueOf(System.getProperty("SNAPSHOT_ADAPTIVE_PACING", "true"));
+    // Longest a transaction should wait in a site queue behind snapshot work
+    private static final long TARGET_QUEUE_WAIT_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Integer.getInteger("SNAPSHOT_TARGET_QUEUE_WAIT_MS", 5));
+    // Cap on the snapshot data a site serializes a second, 0 for no cap
+    private static final long TARGET_BYTES_PER_SECOND =
+            Integer.getInteger("SNAPSHOT_TARGET_MB_PER_SECOND", 0) * 1024L * 1024L;
+    private static final int MAX_BLOCKS_PER_TASK = Integer.getInteger("SNAPSHOT_MAX_BLOCKS_PER_TASK", 4);
+
+    private final long m_targetQueueWaitNanos;
+    private final long m_targetBytesPerSecond;
+    private final int m_maxBlocksPerTask;
+    private final long m_maxDelayMillis;
+
+    private long m_delayMillis;
+    private int m_blocksPerTask = 1;
+    // Work is scheduled no earlier than this, spreads out work scheduled in quick succession
+    private long m_nextWorkMillis = 0;
+
+    // Serialized bytes in the current one second window, for the rate cap
+    private long m_windowStartMillis = 0;
+    private long m_windowBytes = 0;
+
+    SnapshotPacer(int snapshotPriority) {
+        this(snapshotPriority, TARGET_QUEUE_WAIT_NANOS, TARGET_BYTES_PER_SECOND, MAX_BLOCKS_PER_TASK);
+    }
+
+    SnapshotPacer(int snapshotPriority, long targetQueueWaitNanos, long targetBytesPerSecond, int maxBlocksPerTask) {
+        m_targetQueueWaitNanos = targetQueueWaitNanos;
+        m_targetBytesPerSecond = targetBytesPerSecond;
+        m_maxBlocksPerTask = Math.max(1, maxBlocksPerTask);
+        // Start where the fixed quiet period was and allow backing off to twice that
+        m_delayMillis = 5 * snapshotPriority;
+        m_maxDelayMillis = Math.max(1, 10 * snapshotPriority);
+    }
+
+    synchronized void reset(long nowMillis) {
+        m_blocksPerTask = 1;
+        m_nextWorkMillis = nowMillis;
+        m_windowStartMillis = nowMillis;
+        m_windowBytes = 0;
+    }
+
+    /**
+     * @param queueDepth      Number of tasks waiting in the site's queue
+     * @param queueWaitNanos  How long the task at the head of the queue has been waiting
+     * @param idle            Whether the site has been idle recently
+     * @return How many milliseconds from nowMillis the next unit of snapshot work should run, 0 for right away
+     */
+    synchronized long nextDelay(int queueDepth, long queueWaitNanos, boolean idle, long nowMillis) {
+        if (queueWaitNanos > m_targetQueueWaitNanos) {
+            m_delayMillis = Math.min(m_maxDelayMillis, Math.max(1, m_delayMillis * 2));
+            m_blocksPerTask = 1;
+        } else if (idle || queueDepth == 0 || queueWaitNanos < m_targetQueueWaitNanos / 2) {
+            if (m_delayMillis > 0) {
+                m_delayMillis--;
+            } else if (m_blocksPerTask < m_maxBlocksPerTask) {
+                m_blocksPerTask++;
+            }
+        }
+
+        // An idle site does the work right away, otherwise it waits out the delay after the last unit
+        long start = (idle && queueDepth == 0) ? nowMillis : Math.max(nowMillis, m_nextWorkMillis);
+        if (m_targetBytesPerSecond > 0) {
+            // Hold off until the bytes already serialized in this window are within the cap
+            start = Math.max(start, m_windowStartMillis + (m_windowBytes * 1000) / m_targetBytesPerSecond);
+        }
+        m_nextWorkMillis = start + m_delayMillis;
+        return start - nowMillis;
+    }
+
+    /**
+     * Blocks to serialize in one unit of snapshot work
+     */
+    synchronized int blocksPerTask() {
+        return m_blocksPerTask;
+    }
+
+    synchronized void workDone(long bytes, long nowMillis) {
+        if (nowMillis - m_windowStartMillis >= 1000) {
+            m_windowStartMillis = nowMillis;
+            m_windowBytes = 0;
+        }
+        m_windowBytes += bytes;
+    }
+
+    synchronized long getDelayMillis() {
+        return m_delayMillis;
+    }
+}
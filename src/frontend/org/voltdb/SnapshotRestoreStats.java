@@ -0,0 +1,119 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltdb.VoltTable.ColumnInfo;
+
+/**
+ * Per table throughput of the most recent snapshot restore on this host. Save files
+ * report the bytes they read and decompress and the restore reports the tuples it loads,
+ * the counters are reset when a new restore starts.
+ */
+public class SnapshotRestoreStats extends StatsSource {
+
+    private static class TableProgress {
+        final long m_startTime = System.currentTimeMillis();
+        volatile long m_lastTime = m_startTime;
+        final AtomicLong m_chunks = new AtomicLong();
+        final AtomicLong m_bytesRead = new AtomicLong();
+        final AtomicLong m_bytesDecompressed = new AtomicLong();
+        final AtomicLong m_tuples = new AtomicLong();
+    }
+
+    private static final ConcurrentHashMap<String, TableProgress> s_tables =
+            new ConcurrentHashMap<String, TableProgress>();
+
+    public SnapshotRestoreStats() {
+        super(false);
+    }
+
+    public static void reset() {
+        s_tables.clear();
+    }
+
+    private static TableProgress progress(String tableName) {
+        TableProgress progress = s_tables.get(tableName);
+        if (progress == null) {
+            progress = new TableProgress();
+            TableProgress existing = s_tables.putIfAbsent(tableName, progress);
+            if (existing != null) {
+                progress = existing;
+            }
+        }
+        progress.m_lastTime = System.currentTimeMillis();
+        return progress;
+    }
+
+    public static void chunkRead(String tableName, long bytes) {
+        progress(tableName).m_bytesRead.addAndGet(bytes);
+    }
+
+    public static void chunkDecompressed(String tableName, long bytes) {
+        TableProgress progress = progress(tableName);
+        progress.m_chunks.incrementAndGet();
+        progress.m_bytesDecompressed.addAndGet(bytes);
+    }
+
+    public static void tuplesRestored(String tableName, long count) {
+        progress(tableName).m_tuples.addAndGet(count);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        return new ArrayList<Object>(s_tables.keySet()).iterator();
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new VoltTable.ColumnInfo("TABLE", VoltType.STRING));
+        columns.add(new VoltTable.ColumnInfo("CHUNKS", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("BYTES_READ", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("BYTES_DECOMPRESSED", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("TUPLES", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("DURATION", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("THROUGHPUT", VoltType.FLOAT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        final String tableName = (String)rowKey;
+        TableProgress progress = s_tables.get(tableName);
+        if (progress == null) {
+            // reset by a new restore since the keys were taken
+            progress = new TableProgress();
+        }
+        final long duration = progress.m_lastTime - progress.m_startTime;
+        final long bytesRead = progress.m_bytesRead.get();
+        rowValues[columnNameToIndex.get("TABLE")] = tableName;
+        rowValues[columnNameToIndex.get("CHUNKS")] = progress.m_chunks.get();
+        rowValues[columnNameToIndex.get("BYTES_READ")] = bytesRead;
+        rowValues[columnNameToIndex.get("BYTES_DECOMPRESSED")] = progress.m_bytesDecompressed.get();
+        rowValues[columnNameToIndex.get("TUPLES")] = progress.m_tuples.get();
+        rowValues[columnNameToIndex.get("DURATION")] = duration;
+        // megabytes read from disk a second
+        rowValues[columnNameToIndex.get("THROUGHPUT")] =
+                duration > 0 ? (bytesRead / (1024.0 * 1024.0)) / (duration / 1000.0) : 0.0;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+}
@@ -196,6 +196,12 @@ public class SnapshotSiteProcessor {
 
     private final IdlePredicate m_idlePredicate;
 
+    /*
+     * Adapts the pacing of snapshot work to how long transactions are waiting on the site,
+     * null when snapshot work isn't paced or is paced by the fixed quiet period
+     */
+    private final SnapshotPacer m_pacer;
+
     /*
      * Synchronization is handled by SnapshotSaveAPI.startSnapshotting
      * Store the export sequence numbers for every table and partition. This will
@@ -258,6 +264,7 @@ public class SnapshotSiteProcessor {
         m_siteTaskerQueue = siteQueue;
         m_snapshotPriority = snapshotPriority;
         m_idlePredicate = idlePredicate;
+        m_pacer = (SnapshotPacer.ENABLED && snapshotPriority > 0) ? new SnapshotPacer(snapshotPriority) : null;
     }
 
     public void shutdown() throws InterruptedException {
@@ -312,7 +319,28 @@ public class SnapshotSiteProcessor {
          * If snapshot priority is 0 then running the jigger immediately is the specified
          * policy anyways. 10 would be the largest delay
          */
-        if (m_snapshotPriority > 0) {
+        if (m_pacer != null) {
+            final long now = System.currentTimeMillis();
+            final long delay = m_pacer.nextDelay(m_siteTaskerQueue.getQueueDepth(),
+                                                 m_siteTaskerQueue.getHeadWaitTime(),
+                                                 m_idlePredicate.idle(now),
+                                                 now);
+            if (delay <= 0) {
+                m_siteTaskerQueue.offer(new SnapshotTask());
+            } else {
+                VoltDB.instance().schedulePriorityWork(
+                        new Runnable() {
+                            @Override
+                            public void run()
+                            {
+                                m_siteTaskerQueue.offer(new SnapshotTask());
+                            }
+                        },
+                        delay,
+                        0,
+                        TimeUnit.MILLISECONDS);
+            }
+        } else if (m_snapshotPriority > 0) {
             final long now = System.currentTimeMillis();
             //Ask if the site is idle, and if it is queue the work immediately
             if (m_idlePredicate.idle(now)) {
@@ -383,6 +411,9 @@ public class SnapshotSiteProcessor {
         ExecutionSitesCurrentlySnapshotting.add(this);
         final long now = System.currentTimeMillis();
         m_quietUntil = now + 200;
+        if (m_pacer != null) {
+            m_pacer.reset(m_quietUntil);
+        }
         m_perSiteLastSnapshotSucceded = true;
         m_lastSnapshotTxnId = txnId;
         m_isTruncation = isTruncation;
@@ -394,8 +425,14 @@ public class SnapshotSiteProcessor {
         // Table doesn't implement hashCode(), so use the table ID as key
         for (Map.Entry<Integer, byte[]> tablePredicates : makeTablesAndPredicatesToSnapshot(tasks).entrySet()) {
             int tableId = tablePredicates.getKey();
+            TableStreamType streamType = format.getStreamType();
+            for (SnapshotTableTask task : m_snapshotTableTasks.get(tableId)) {
+                if (task.m_streamType != null) {
+                    streamType = task.m_streamType;
+                }
+            }
             TableStreamer streamer =
-                    new TableStreamer(tableId, format.getStreamType(), m_snapshotTableTasks.get(tableId));
+                    new TableStreamer(tableId, streamType, m_snapshotTableTasks.get(tableId));
             if (!streamer.activate(context, tablePredicates.getValue())) {
                 VoltDB.crashLocalVoltDB("Failed to activate snapshot stream on table " +
                                         CatalogUtil.getTableNameFromId(context.getDatabase(), tableId), false, null);
@@ -571,66 +608,81 @@ public class SnapshotSiteProcessor {
          */
         Iterator<Map.Entry<Integer, Collection<SnapshotTableTask>>> taskIter =
                 m_snapshotTableTasks.asMap().entrySet().iterator();
-        while (taskIter.hasNext()) {
+        // A paced site may serialize several blocks before releasing the site thread
+        final int maxBlocks = (m_pacer == null || noSchedule) ? 1 : m_pacer.blocksPerTask();
+        int blocks = 0;
+        long serializedBytes = 0;
+        boolean yieldSite = false;
+        while (!yieldSite && taskIter.hasNext()) {
             Map.Entry<Integer, Collection<SnapshotTableTask>> taskEntry = taskIter.next();
             final int tableId = taskEntry.getKey();
             final Collection<SnapshotTableTask> tableTasks = taskEntry.getValue();
 
-            final List<BBContainer> outputBuffers = getOutputBuffers(tableTasks, noSchedule);
-            if (outputBuffers == null) {
-                // Not enough buffers available
-                if (!noSchedule) {
-                    rescheduleSnapshotWork();
+            while (true) {
+                final List<BBContainer> outputBuffers = getOutputBuffers(tableTasks, noSchedule);
+                if (outputBuffers == null) {
+                    // Not enough buffers available
+                    if (!noSchedule) {
+                        rescheduleSnapshotWork();
+                    }
+                    yieldSite = true;
+                    break;
                 }
-                break;
-            }
 
 
-            // Stream more and add a listener to handle any failures
-            Pair<ListenableFuture<?>, Boolean> streamResult =
-                    m_streamers.get(tableId).streamMore(context, outputBuffers, null);
-            if (streamResult.getFirst() != null) {
-                final ListenableFuture<?> writeFutures = streamResult.getFirst();
-                writeFutures.addListener(new Runnable() {
-                    @Override
-                    public void run()
-                    {
-                        try {
-                            writeFutures.get();
-                        } catch (Throwable t) {
-                            if (m_perSiteLastSnapshotSucceded) {
-                                if (t instanceof StreamSnapshotTimeoutException ||
-                                        t.getCause() instanceof StreamSnapshotTimeoutException) {
-                                    //This error is already logged by the watchdog when it generates the exception
-                                } else {
-                                    if (m_isTruncation) {
-                                        VoltDB.crashLocalVoltDB("Unexpected exception while attempting to create truncation snapshot",
-                                                true, t);
+                // Stream more and add a listener to handle any failures
+                final TableStreamer streamer = m_streamers.get(tableId);
+                Pair<ListenableFuture<?>, Boolean> streamResult =
+                        streamer.streamMore(context, outputBuffers, null);
+                serializedBytes += streamer.getLastSerializedBytes();
+                if (streamResult.getFirst() != null) {
+                    final ListenableFuture<?> writeFutures = streamResult.getFirst();
+                    writeFutures.addListener(new Runnable() {
+                        @Override
+                        public void run()
+                        {
+                            try {
+                                writeFutures.get();
+                            } catch (Throwable t) {
+                                if (m_perSiteLastSnapshotSucceded) {
+                                    if (t instanceof StreamSnapshotTimeoutException ||
+                                            t.getCause() instanceof StreamSnapshotTimeoutException) {
+                                        //This error is already logged by the watchdog when it generates the exception
+                                    } else {
+                                        if (m_isTruncation) {
+                                            VoltDB.crashLocalVoltDB("Unexpected exception while attempting to create truncation snapshot",
+                                                    true, t);
+                                        }
+                                        SNAP_LOG.error("Error while attempting to write snapshot data", t);
                                     }
-                                    SNAP_LOG.error("Error while attempting to write snapshot data", t);
+                                    m_perSiteLastSnapshotSucceded = false;
                                 }
-                                m_perSiteLastSnapshotSucceded = false;
                             }
                         }
-                    }
-                }, CoreUtils.SAMETHREADEXECUTOR);
-            }
+                    }, CoreUtils.SAMETHREADEXECUTOR);
+                }
 
-            /**
-             * The table streamer will return false when there is no more data left to pull from that table. The
-             * enclosing loop ensures that the next table is then addressed.
-             */
-            if (!streamResult.getSecond()) {
-                asyncTerminateReplicatedTableTasks(tableTasks);
-                // XXX: Guava's multimap will clear the tableTasks collection when the entry is
-                // removed from the containing map, so don't use the collection after removal!
-                taskIter.remove();
-                SNAP_LOG.debug("Finished snapshot tasks for table " + tableId +
-                               ": " + tableTasks);
-            } else {
-                break;
+                /**
+                 * The table streamer will return false when there is no more data left to pull from that table. The
+                 * enclosing loop ensures that the next table is then addressed.
+                 */
+                if (!streamResult.getSecond()) {
+                    asyncTerminateReplicatedTableTasks(tableTasks);
+                    // XXX: Guava's multimap will clear the tableTasks collection when the entry is
+                    // removed from the containing map, so don't use the collection after removal!
+                    taskIter.remove();
+                    SNAP_LOG.debug("Finished snapshot tasks for table " + tableId +
+                                   ": " + tableTasks);
+                    break;
+                } else if (++blocks >= maxBlocks) {
+                    yieldSite = true;
+                    break;
+                }
             }
         }
+        if (m_pacer != null) {
+            m_pacer.workDone(serializedBytes, System.currentTimeMillis());
+        }
 
         /**
          * If there are no more tasks then this particular EE is finished doing snapshot work
@@ -30,6 +30,8 @@ public class SnapshotTableTask
     public final SnapshotDataFilter m_filters[];
     public final AbstractExpression m_predicate;
     public final boolean m_deleteTuples;
+    // Stream type to activate instead of the one of the snapshot format, may be null
+    public final TableStreamType m_streamType;
 
     volatile SnapshotDataTarget m_target;
 
@@ -38,11 +40,22 @@ public class SnapshotTableTask
             final SnapshotDataFilter filters[],
             final AbstractExpression predicate,
             final boolean deleteTuples)
+    {
+        this(table, filters, predicate, deleteTuples, null);
+    }
+
+    public SnapshotTableTask(
+            final Table table,
+            final SnapshotDataFilter filters[],
+            final AbstractExpression predicate,
+            final boolean deleteTuples,
+            final TableStreamType streamType)
     {
         m_table = table;
         m_filters = filters;
         m_predicate = predicate;
         m_deleteTuples = deleteTuples;
+        m_streamType = streamType;
     }
 
     public void setTarget(SnapshotDataTarget target)
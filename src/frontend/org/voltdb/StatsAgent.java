@@ -490,6 +490,12 @@ public class StatsAgent extends OpsAgent
         case SNAPSHOTSTATUS:
             stats = collectStats(StatsSelector.SNAPSHOTSTATUS, false);
             break;
+        case SNAPSHOTRESTORE:
+            stats = collectStats(StatsSelector.SNAPSHOTRESTORE, false);
+            break;
+        case REJOIN:
+            stats = collectStats(StatsSelector.REJOIN, false);
+            break;
         case MEMORY:
             stats = collectStats(StatsSelector.MEMORY, interval);
             break;
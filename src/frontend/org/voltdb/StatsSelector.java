@@ -34,6 +34,8 @@ public enum StatsSelector {
     MANAGEMENT,       // Returns pretty much everything
     PROCEDUREPROFILE, // performs an aggregation of the procedure statistics
     SNAPSHOTSTATUS,
+    SNAPSHOTRESTORE,  // per table throughput of the last snapshot restore
+    REJOIN,           // per stream progress of the rejoin snapshot streams sent from this host
     PROCEDUREINPUT,
     PROCEDUREOUTPUT,
     PROCEDUREDETAIL,  // provides more granular statistics for procedure calls at a per-statement level.
@@ -43,6 +43,17 @@ public enum TableStreamType {
      * Activation clears the index and the referenced tuples.
      */
     ELASTIC_INDEX_CLEAR,
+    /*
+     * A snapshot stream that writes every row, like SNAPSHOT, and starts tracking the
+     * blocks modified and the rows deleted so that later SNAPSHOT_INCREMENTAL streams
+     * only have to write those.
+     */
+    SNAPSHOT_INCREMENTAL_BASE,
+    /*
+     * A snapshot stream that writes the rows deleted and the rows of the blocks modified
+     * since the last incremental snapshot of the table completed.
+     */
+    SNAPSHOT_INCREMENTAL,
     /*
      * A stream of tuple data that can be used to retrieve the latest state of a table
      * that is actively being modified. The stream starts by transporting all the tuple data
@@ -51,6 +51,8 @@ public class TableStreamer {
     private final int m_tableId;
     private final TableStreamType m_type;
     private final ImmutableList<SnapshotTableTask> m_tableTasks;
+    // Bytes of table data serialized by the last call to streamMore
+    private int m_lastSerializedBytes = 0;
 
     public TableStreamer(int tableId, TableStreamType type, List<SnapshotTableTask> tableTasks)
     {
@@ -103,6 +105,7 @@ public class TableStreamer {
                                                       int[] rowCountAccumulator)
     {
         ListenableFuture<?> writeFuture = null;
+        m_lastSerializedBytes = 0;
 
         prepareBuffers(outputBuffers);
 
@@ -120,6 +123,7 @@ public class TableStreamer {
         }
 
         if (serializeResult.getSecond()[0] > 0) {
+            m_lastSerializedBytes = serializeResult.getSecond()[0];
             if (rowCountAccumulator != null && rowCountAccumulator.length == 1) {
                 rowCountAccumulator[0] += getTupleDataRowCount(outputBuffers);
             }
@@ -152,6 +156,10 @@ public class TableStreamer {
         return accumulator;
     }
 
+    public int getLastSerializedBytes() {
+        return m_lastSerializedBytes;
+    }
+
     /**
      * Set the positions of the buffers to the start of the content, leaving some room for the headers.
      */
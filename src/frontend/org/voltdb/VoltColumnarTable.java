@@ -0,0 +1,573 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.voltdb.common.Constants;
+import org.voltdb.types.TimestampType;
+import org.voltdb.types.VoltDecimalHelper;
+
+/**
+ * <p>A read only, column major view of a result table. Each column is stored as
+ * a vector of fixed width values with an optional null bitmap, VARCHAR columns
+ * are dictionary encoded. The bulk accessors decode a whole column at a time,
+ * which is much cheaper than walking a large {@link VoltTable} row by row.</p>
+ *
+ * <p>Columnar results are requested per invocation, see
+ * {@link org.voltdb.client.Client#callProcedureColumnar(String, Object...)}, and
+ * read with {@link org.voltdb.client.ClientResponse#getColumnarResults()}.
+ * Only tables made of integer, TIMESTAMP, FLOAT, DECIMAL, VARCHAR and VARBINARY
+ * columns can be encoded this way.</p>
+ *
+ * <p>The arrays returned by the accessors are shared by all callers and must not
+ * be modified. Null values are flagged in the null bitmap, see
+ * {@link #isNull(int, int)}. Numeric vectors hold the same null sentinel values
+ * as the row format at those positions.</p>
+ */
+public class VoltColumnarTable {
+
+    /*
+     * Serialized layout, all values big endian:
+     *
+     *   int rowCount, short columnCount,
+     *   columnCount * (byte type, int nameLength, name bytes),
+     *   columnCount * (int blockLength, block)
+     *
+     * where a column block is a byte that is 1 when a null bitmap of
+     * (rowCount + 7) / 8 bytes follows, then the values:
+     *   integer types, TIMESTAMP, FLOAT and DECIMAL: rowCount fixed width values
+     *   VARCHAR: int dictionarySize, dictionarySize * (int length, bytes),
+     *            rowCount int dictionary codes, -1 for null
+     *   VARBINARY: rowCount * (int length, bytes), length -1 for null
+     */
+
+    private static final byte NO_NULLS = 0;
+    private static final byte HAS_NULLS = 1;
+    private static final int NULL_CODE = -1;
+
+    private final ByteBuffer m_buffer;
+    private final int m_rowCount;
+    private final String[] m_columnNames;
+    private final VoltType[] m_columnTypes;
+    private final int[] m_blockOffsets;
+
+    // lazily decoded columns
+    private final Object[] m_columns;
+    private final String[][] m_dictionaries;
+
+    /**
+     * Wrap a serialized columnar table. The bytes between the position and the
+     * limit of the buffer must hold exactly one table.
+     */
+    public VoltColumnarTable(ByteBuffer buf) {
+        m_buffer = buf.slice();
+        final ByteBuffer header = m_buffer.duplicate();
+        m_rowCount = header.getInt();
+        final int columnCount = header.getShort();
+        if (m_rowCount < 0 || columnCount < 0) {
+            throw new IllegalArgumentException("Corrupt columnar table header: "
+                    + m_rowCount + " rows, " + columnCount + " columns");
+        }
+        m_columnNames = new String[columnCount];
+        m_columnTypes = new VoltType[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            m_columnTypes[i] = VoltType.get(header.get());
+            final byte[] name = new byte[header.getInt()];
+            header.get(name);
+            m_columnNames[i] = new String(name, Constants.UTF8ENCODING);
+        }
+        m_blockOffsets = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            final int blockLength = header.getInt();
+            m_blockOffsets[i] = header.position();
+            header.position(header.position() + blockLength);
+        }
+        m_columns = new Object[columnCount];
+        m_dictionaries = new String[columnCount][];
+    }
+
+    /**
+     * Check whether every column of the table has a type the columnar
+     * encoding supports.
+     */
+    public static boolean isEncodable(VoltTable table) {
+        for (int i = 0; i < table.getColumnCount(); i++) {
+            switch (table.getColumnType(i)) {
+            case TINYINT:
+            case SMALLINT:
+            case INTEGER:
+            case BIGINT:
+            case TIMESTAMP:
+            case FLOAT:
+            case DECIMAL:
+            case STRING:
+            case VARBINARY:
+                break;
+            default:
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Encode a row major table.
+     * @return the columnar table, or <code>null</code> if a column type is not supported
+     */
+    public static VoltColumnarTable fromVoltTable(VoltTable table) {
+        if (!isEncodable(table)) {
+            return null;
+        }
+        final int rowCount = table.getRowCount();
+        final int columnCount = table.getColumnCount();
+        final byte[][] names = new byte[columnCount][];
+        final ByteBuffer[] blocks = new ByteBuffer[columnCount];
+        int size = 4 + 2;
+        for (int i = 0; i < columnCount; i++) {
+            names[i] = table.getColumnName(i).getBytes(Constants.UTF8ENCODING);
+            size += 1 + 4 + names[i].length;
+        }
+        for (int i = 0; i < columnCount; i++) {
+            blocks[i] = encodeColumn(table, i, rowCount);
+            size += 4 + blocks[i].remaining();
+        }
+        table.resetRowPosition();
+
+        final ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.putInt(rowCount);
+        buf.putShort((short) columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            buf.put(table.getColumnType(i).getValue());
+            buf.putInt(names[i].length);
+            buf.put(names[i]);
+        }
+        for (int i = 0; i < columnCount; i++) {
+            buf.putInt(blocks[i].remaining());
+            buf.put(blocks[i]);
+        }
+        buf.flip();
+        return new VoltColumnarTable(buf);
+    }
+
+    private static ByteBuffer encodeColumn(VoltTable table, int column, int rowCount) {
+        final VoltType type = table.getColumnType(column);
+        final byte[] nulls = new byte[(rowCount + 7) >>> 3];
+        boolean hasNulls = false;
+        ByteBuffer values;
+
+        table.resetRowPosition();
+        switch (type) {
+        case TINYINT:
+        case SMALLINT:
+        case INTEGER:
+        case BIGINT:
+        case TIMESTAMP: {
+            final int width = type.getLengthInBytesForFixedTypes();
+            values = ByteBuffer.allocate(rowCount * width);
+            for (int row = 0; table.advanceRow(); row++) {
+                final long value = type == VoltType.TIMESTAMP ?
+                        table.getTimestampAsLong(column) : table.getLong(column);
+                if (table.wasNull()) {
+                    nulls[row >>> 3] |= 1 << (row & 7);
+                    hasNulls = true;
+                }
+                switch (width) {
+                case 1: values.put((byte) value); break;
+                case 2: values.putShort((short) value); break;
+                case 4: values.putInt((int) value); break;
+                default: values.putLong(value);
+                }
+            }
+            break;
+        }
+        case FLOAT:
+            values = ByteBuffer.allocate(rowCount * 8);
+            for (int row = 0; table.advanceRow(); row++) {
+                values.putDouble(table.getDouble(column));
+                if (table.wasNull()) {
+                    nulls[row >>> 3] |= 1 << (row & 7);
+                    hasNulls = true;
+                }
+            }
+            break;
+        case DECIMAL:
+            values = ByteBuffer.allocate(rowCount * 16);
+            for (int row = 0; table.advanceRow(); row++) {
+                final BigDecimal value = table.getDecimalAsBigDecimal(column);
+                if (value == null) {
+                    nulls[row >>> 3] |= 1 << (row & 7);
+                    hasNulls = true;
+                }
+                VoltDecimalHelper.serializeBigDecimal(value, values);
+            }
+            break;
+        case STRING: {
+            final Map<ByteBuffer, Integer> codes = new HashMap<ByteBuffer, Integer>();
+            final List<byte[]> dictionary = new ArrayList<byte[]>();
+            final int[] rowCodes = new int[rowCount];
+            int dictionaryBytes = 0;
+            for (int row = 0; table.advanceRow(); row++) {
+                final byte[] value = table.getStringAsBytes(column);
+                if (value == null) {
+                    nulls[row >>> 3] |= 1 << (row & 7);
+                    hasNulls = true;
+                    rowCodes[row] = NULL_CODE;
+                    continue;
+                }
+                final ByteBuffer key = ByteBuffer.wrap(value);
+                Integer code = codes.get(key);
+                if (code == null) {
+                    code = dictionary.size();
+                    codes.put(key, code);
+                    dictionary.add(value);
+                    dictionaryBytes += 4 + value.length;
+                }
+                rowCodes[row] = code;
+            }
+            values = ByteBuffer.allocate(4 + dictionaryBytes + rowCount * 4);
+            values.putInt(dictionary.size());
+            for (byte[] entry : dictionary) {
+                values.putInt(entry.length);
+                values.put(entry);
+            }
+            values.asIntBuffer().put(rowCodes);
+            values.position(values.limit());
+            break;
+        }
+        case VARBINARY: {
+            final byte[][] rowValues = new byte[rowCount][];
+            int valueBytes = 0;
+            for (int row = 0; table.advanceRow(); row++) {
+                rowValues[row] = table.getVarbinary(column);
+                if (rowValues[row] == null) {
+                    nulls[row >>> 3] |= 1 << (row & 7);
+                    hasNulls = true;
+                } else {
+                    valueBytes += rowValues[row].length;
+                }
+            }
+            values = ByteBuffer.allocate(rowCount * 4 + valueBytes);
+            for (byte[] value : rowValues) {
+                if (value == null) {
+                    values.putInt(VoltTable.NULL_STRING_INDICATOR);
+                } else {
+                    values.putInt(value.length);
+                    values.put(value);
+                }
+            }
+            break;
+        }
+        default:
+            throw new IllegalArgumentException("Column type " + type + " can't be encoded in columnar form");
+        }
+        values.flip();
+
+        final ByteBuffer block = ByteBuffer.allocate(1 + (hasNulls ? nulls.length : 0) + values.remaining());
+        if (hasNulls) {
+            block.put(HAS_NULLS);
+            block.put(nulls);
+        } else {
+            block.put(NO_NULLS);
+        }
+        block.put(values);
+        block.flip();
+        return block;
+    }
+
+    public int getRowCount() {
+        return m_rowCount;
+    }
+
+    public int getColumnCount() {
+        return m_columnTypes.length;
+    }
+
+    public String getColumnName(int column) {
+        return m_columnNames[column];
+    }
+
+    public VoltType getColumnType(int column) {
+        return m_columnTypes[column];
+    }
+
+    /**
+     * @return the index of the column with the given name, case insensitive.
+     * @throws IllegalArgumentException if there is no such column
+     */
+    public int getColumnIndex(String name) {
+        for (int i = 0; i < m_columnNames.length; i++) {
+            if (m_columnNames[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No Column named '" + name + "'");
+    }
+
+    /**
+     * @return <code>true</code> if any value in the column is null.
+     */
+    public boolean hasNulls(int column) {
+        return m_buffer.get(m_blockOffsets[column]) == HAS_NULLS;
+    }
+
+    /**
+     * @return <code>true</code> if the value at the given row of the column is null.
+     */
+    public boolean isNull(int column, int row) {
+        if (row < 0 || row >= m_rowCount) {
+            throw new IndexOutOfBoundsException("Row index " + row + " is out of range 0 to " + m_rowCount);
+        }
+        if (!hasNulls(column)) {
+            return false;
+        }
+        return (m_buffer.get(m_blockOffsets[column] + 1 + (row >>> 3)) & (1 << (row & 7))) != 0;
+    }
+
+    private ByteBuffer values(int column) {
+        final ByteBuffer dup = m_buffer.duplicate();
+        dup.position(m_blockOffsets[column] + 1 + (hasNulls(column) ? (m_rowCount + 7) >>> 3 : 0));
+        return dup;
+    }
+
+    private void checkType(int column, String accessor, VoltType... types) {
+        for (VoltType type : types) {
+            if (m_columnTypes[column] == type) {
+                return;
+            }
+        }
+        throw new IllegalArgumentException(accessor + "() called on " + m_columnTypes[column] + " column "
+                + m_columnNames[column]);
+    }
+
+    /**
+     * Values of a TINYINT, SMALLINT, INTEGER, BIGINT or TIMESTAMP column widened to
+     * <tt>long</tt>. TIMESTAMP values are microseconds since the epoch.
+     */
+    public long[] getLongColumn(int column) {
+        checkType(column, "getLongColumn", VoltType.TINYINT, VoltType.SMALLINT, VoltType.INTEGER,
+                VoltType.BIGINT, VoltType.TIMESTAMP);
+        long[] result = (long[]) m_columns[column];
+        if (result == null) {
+            result = new long[m_rowCount];
+            final ByteBuffer values = values(column);
+            switch (m_columnTypes[column]) {
+            case TINYINT:
+                for (int i = 0; i < m_rowCount; i++) {
+                    result[i] = values.get();
+                }
+                break;
+            case SMALLINT:
+                for (int i = 0; i < m_rowCount; i++) {
+                    result[i] = values.getShort();
+                }
+                break;
+            case INTEGER:
+                for (int i = 0; i < m_rowCount; i++) {
+                    result[i] = values.getInt();
+                }
+                break;
+            default:
+                values.asLongBuffer().get(result);
+            }
+            m_columns[column] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Values of a FLOAT column.
+     */
+    public double[] getDoubleColumn(int column) {
+        checkType(column, "getDoubleColumn", VoltType.FLOAT);
+        double[] result = (double[]) m_columns[column];
+        if (result == null) {
+            result = new double[m_rowCount];
+            values(column).asDoubleBuffer().get(result);
+            m_columns[column] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Values of a DECIMAL column, <code>null</code> for null values.
+     */
+    public BigDecimal[] getDecimalColumn(int column) {
+        checkType(column, "getDecimalColumn", VoltType.DECIMAL);
+        BigDecimal[] result = (BigDecimal[]) m_columns[column];
+        if (result == null) {
+            result = new BigDecimal[m_rowCount];
+            final ByteBuffer values = values(column);
+            for (int i = 0; i < m_rowCount; i++) {
+                result[i] = VoltDecimalHelper.deserializeBigDecimal(values);
+            }
+            m_columns[column] = result;
+        }
+        return result;
+    }
+
+    /**
+     * The distinct values of a VARCHAR column, indexed by the codes returned by
+     * {@link #getStringCodes(int)}.
+     */
+    public String[] getStringDictionary(int column) {
+        checkType(column, "getStringDictionary", VoltType.STRING);
+        if (m_dictionaries[column] == null) {
+            decodeStrings(column);
+        }
+        return m_dictionaries[column];
+    }
+
+    /**
+     * Dictionary codes of a VARCHAR column, -1 for null values.
+     */
+    public int[] getStringCodes(int column) {
+        checkType(column, "getStringCodes", VoltType.STRING);
+        if (m_columns[column] == null) {
+            decodeStrings(column);
+        }
+        return (int[]) m_columns[column];
+    }
+
+    private void decodeStrings(int column) {
+        final ByteBuffer values = values(column);
+        final String[] dictionary = new String[values.getInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            final byte[] bytes = new byte[values.getInt()];
+            values.get(bytes);
+            dictionary[i] = new String(bytes, Constants.UTF8ENCODING);
+        }
+        final int[] codes = new int[m_rowCount];
+        values.asIntBuffer().get(codes);
+        m_columns[column] = codes;
+        m_dictionaries[column] = dictionary;
+    }
+
+    /**
+     * Values of a VARCHAR column expanded from the dictionary, <code>null</code>
+     * for null values. The returned array is a new copy.
+     */
+    public String[] getStringColumn(int column) {
+        final String[] dictionary = getStringDictionary(column);
+        final int[] codes = getStringCodes(column);
+        final String[] result = new String[m_rowCount];
+        for (int i = 0; i < m_rowCount; i++) {
+            result[i] = codes[i] == NULL_CODE ? null : dictionary[codes[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Values of a VARBINARY column, <code>null</code> for null values.
+     */
+    public byte[][] getVarbinaryColumn(int column) {
+        checkType(column, "getVarbinaryColumn", VoltType.VARBINARY);
+        byte[][] result = (byte[][]) m_columns[column];
+        if (result == null) {
+            result = new byte[m_rowCount][];
+            final ByteBuffer values = values(column);
+            for (int i = 0; i < m_rowCount; i++) {
+                final int length = values.getInt();
+                if (length != VoltTable.NULL_STRING_INDICATOR) {
+                    result[i] = new byte[length];
+                    values.get(result[i]);
+                }
+            }
+            m_columns[column] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Convert back to a row major {@link VoltTable}.
+     */
+    public VoltTable toVoltTable() {
+        final int columnCount = getColumnCount();
+        final VoltTable.ColumnInfo[] columns = new VoltTable.ColumnInfo[columnCount];
+        final Object[] vectors = new Object[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columns[i] = new VoltTable.ColumnInfo(m_columnNames[i], m_columnTypes[i]);
+            switch (m_columnTypes[i]) {
+            case FLOAT:
+                vectors[i] = getDoubleColumn(i);
+                break;
+            case DECIMAL:
+                vectors[i] = getDecimalColumn(i);
+                break;
+            case STRING:
+                vectors[i] = getStringColumn(i);
+                break;
+            case VARBINARY:
+                vectors[i] = getVarbinaryColumn(i);
+                break;
+            default:
+                vectors[i] = getLongColumn(i);
+            }
+        }
+
+        final VoltTable table = new VoltTable(columns);
+        final Object[] row = new Object[columnCount];
+        for (int r = 0; r < m_rowCount; r++) {
+            for (int i = 0; i < columnCount; i++) {
+                if (isNull(i, r)) {
+                    row[i] = null;
+                    continue;
+                }
+                switch (m_columnTypes[i]) {
+                case FLOAT:
+                    row[i] = ((double[]) vectors[i])[r];
+                    break;
+                case TIMESTAMP:
+                    row[i] = new TimestampType(((long[]) vectors[i])[r]);
+                    break;
+                case TINYINT:
+                case SMALLINT:
+                case INTEGER:
+                case BIGINT:
+                    row[i] = ((long[]) vectors[i])[r];
+                    break;
+                default:
+                    row[i] = ((Object[]) vectors[i])[r];
+                }
+            }
+            table.addRow(row);
+        }
+        return table;
+    }
+
+    /**
+     * @return the number of bytes this table takes on the wire.
+     */
+    int getSerializedSize() {
+        return m_buffer.remaining();
+    }
+
+    void flattenToBuffer(ByteBuffer buf) {
+        buf.put(m_buffer.duplicate());
+    }
+
+    @Override
+    public String toString() {
+        return toVoltTable().toString();
+    }
+}
@@ -153,6 +153,36 @@ public interface Client {
     public boolean callProcedureWithTimeout(ProcedureCallback callback, int queryTimeout, String procName, Object... parameters)
     throws IOException, NoConnectionsException;
 
+    /**
+     * <p>Synchronously invoke a procedure, asking for large result tables in columnar form.
+     * Tables of many rows are sent as column vectors, which the client reads with
+     * {@link ClientResponse#getColumnarResults()} much faster than row by row.
+     * {@link ClientResponse#getResults()} still works, converting the tables back to rows.</p>
+     *
+     * @param procName <code>class</code> name (not qualified by package) of the procedure to execute.
+     * @param parameters vararg list of procedure's parameter values.
+     * @return {@link ClientResponse} instance of procedure call results.
+     * @throws ProcCallException on any VoltDB specific failure.
+     * @throws NoConnectionsException if this {@link Client} instance is not connected to any servers.
+     * @throws IOException if there is a Java network or connection problem.
+     */
+    public ClientResponse callProcedureColumnar(String procName, Object... parameters)
+    throws IOException, NoConnectionsException, ProcCallException;
+
+    /**
+     * <p>Asynchronously invoke a procedure, asking for large result tables in columnar form.
+     * See {@link #callProcedureColumnar(String, Object...)}.</p>
+     *
+     * @param callback {@link ProcedureCallback} that will be invoked with procedure results.
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param parameters vararg list of procedure's parameter values.
+     * @return <code>true</code> if the procedure was queued and <code>false</code> otherwise.
+     * @throws NoConnectionsException if this {@link Client} instance is not connected to any servers.
+     * @throws IOException if there is a Java network or connection problem.
+     */
+    public boolean callProcedureColumnar(ProcedureCallback callback, String procName, Object... parameters)
+    throws IOException, NoConnectionsException;
+
     /**
      * <p>Asynchronously invoke a replicated procedure. If there is backpressure
      * this call will block until the invocation is queued. If configureBlocking(false) is invoked
@@ -44,6 +44,7 @@ public class ClientConfig {
 
     static final long DEFAULT_PROCEDURE_TIMOUT_NANOS = TimeUnit.MINUTES.toNanos(2);// default timeout is 2 minutes;
     static final long DEFAULT_CONNECTION_TIMOUT_MS = 2 * 60 * 1000; // default timeout is 2 minutes;
+    static final long DEFAULT_TIMEOUT_PRECISION_NANOS = TimeUnit.SECONDS.toNanos(1); // default precision is 1 second
     static final long DEFAULT_INITIAL_CONNECTION_RETRY_INTERVAL_MS = 1000; // default initial connection retry interval is 1 second
     static final long DEFAULT_MAX_CONNECTION_RETRY_INTERVAL_MS = 8000; // default max connection retry interval is 8 seconds
 
@@ -59,6 +60,7 @@ public class ClientConfig {
     int m_autoTuneTargetInternalLatency = 5;
     long m_procedureCallTimeoutNanos = DEFAULT_PROCEDURE_TIMOUT_NANOS;
     long m_connectionResponseTimeoutMS = DEFAULT_CONNECTION_TIMOUT_MS;
+    long m_timeoutPrecisionNanos = DEFAULT_TIMEOUT_PRECISION_NANOS;
     boolean m_useClientAffinity = true;
     Subject m_subject = null;
     boolean m_reconnectOnConnectionLoss;
@@ -229,7 +231,7 @@ public class ClientConfig {
      *
      * <p>Default value is 2 minutes if not set. Value of 0 means forever.</p>
      *
-     * <p>Note that while specified in MS, this timeout is only accurate to within a second or so.</p>
+     * <p>The timeout is accurate to within the precision set with {@link #setTimeoutPrecision(long)}.</p>
      *
      * @param ms Timeout value in milliseconds.
      */
@@ -249,7 +251,7 @@ public class ClientConfig {
      *
      * <p>Default value is 2 minutes if not set. Value of 0 means forever.</p>
      *
-     * <p>Note that while specified in MS, this timeout is only accurate to within a second or so.</p>
+     * <p>The timeout is accurate to within the precision set with {@link #setTimeoutPrecision(long)}.</p>
      *
      * @param ms Timeout value in milliseconds.
      */
@@ -261,6 +263,24 @@ public class ClientConfig {
         m_connectionResponseTimeoutMS = ms;
     }
 
+    /**
+     * <p>Set how precisely procedure call and connection response timeouts are tracked.
+     * A timeout never fires early and fires at most this long after it expires.
+     * Finer precision costs the client more frequent wakeups to check for expired timeouts.</p>
+     *
+     * <p>Default value is 1 second if not set. Procedure calls with a timeout shorter than the
+     * precision, or than a second, are timed out individually and are not delayed by it.</p>
+     *
+     * @param ms Precision in milliseconds, must be greater than 0.
+     */
+    public void setTimeoutPrecision(long ms) {
+        if (ms < 1) {
+            throw new IllegalArgumentException(
+                    "Timeout precision must be greater than 0, " + ms + " was specified");
+        }
+        m_timeoutPrecisionNanos = TimeUnit.MILLISECONDS.toNanos(ms);
+    }
+
     /**
      * <p>Set the maximum size of memory pool arenas before falling back to using heap byte buffers.</p>
      *
@@ -134,6 +134,7 @@ public final class ClientImpl implements Client {
                 config.m_heavyweight,
                 config.m_procedureCallTimeoutNanos,
                 config.m_connectionResponseTimeoutMS,
+                config.m_timeoutPrecisionNanos,
                 config.m_useClientAffinity,
                 config.m_sendReadsToReplicasBytDefaultIfCAEnabled,
                 config.m_subject,
@@ -422,6 +423,54 @@ public final class ClientImpl implements Client {
         return internalAsyncCallProcedure(callback, clientTimeoutUnit.toNanos(clientTimeout), invocation);
     }
 
+    /**
+     * Synchronously invoke a procedure call, large results are sent columnar.
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param parameters vararg list of procedure's parameter values.
+     * @return ClientResponse for execution.
+     * @throws org.voltdb.client.ProcCallException
+     * @throws NoConnectionsException
+     */
+    @Override
+    public ClientResponse callProcedureColumnar(String procName, Object... parameters)
+            throws IOException, NoConnectionsException, ProcCallException
+    {
+        long handle = m_handle.getAndIncrement();
+        ProcedureInvocation invocation = new ProcedureInvocation(handle, BatchTimeoutOverrideType.NO_TIMEOUT,
+                false, true, procName, parameters);
+        return internalSyncCallProcedure(Distributer.USE_DEFAULT_CLIENT_TIMEOUT, invocation);
+    }
+
+    /**
+     * Asynchronously invoke a procedure call, large results are sent columnar.
+     * @param callback TransactionCallback that will be invoked with procedure results.
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param parameters vararg list of procedure's parameter values.
+     * @return True if the procedure was queued and false otherwise
+     */
+    @Override
+    public boolean callProcedureColumnar(ProcedureCallback callback, String procName, Object... parameters)
+            throws IOException, NoConnectionsException
+    {
+        if (callback instanceof ProcedureArgumentCacher) {
+            ((ProcedureArgumentCacher) callback).setArgs(parameters);
+        }
+
+        long handle = m_handle.getAndIncrement();
+        ProcedureInvocation invocation = new ProcedureInvocation(handle, BatchTimeoutOverrideType.NO_TIMEOUT,
+                false, true, procName, parameters);
+
+        if (m_isShutdown) {
+            return false;
+        }
+
+        if (callback == null) {
+            callback = NULL_CALLBACK;
+        }
+
+        return internalAsyncCallProcedure(callback, Distributer.USE_DEFAULT_CLIENT_TIMEOUT, invocation);
+    }
+
     @Deprecated
     @Override
     public int calculateInvocationSerializedSize(
@@ -17,6 +17,7 @@
 
 package org.voltdb.client;
 
+import org.voltdb.VoltColumnarTable;
 import org.voltdb.VoltTable;
 
 /**
@@ -118,6 +119,15 @@ public interface ClientResponse {
      */
     public VoltTable[] getResults();
 
+    /**
+     * Get the results returned by the stored procedure as {@link org.voltdb.VoltColumnarTable}s.
+     * Results that were sent row major are converted on the first call. Entries are <code>null</code>
+     * for tables with a column type the columnar form does not support.
+     * @return An array of results. Will never be <code>null</code>, but may be length 0.
+     * @see Client#callProcedureColumnar(String, Object...)
+     */
+    public VoltColumnarTable[] getColumnarResults();
+
     /**
      * Get a <code>String</code> representation of any additional information the server may have included in
      * the response. This may be an stack trace, error message, etc.
@@ -23,10 +23,10 @@ import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -73,6 +73,7 @@ import org.voltdb.common.Constants;
 
 import com.google_voltpatches.common.base.Throwables;
 import com.google_voltpatches.common.collect.ImmutableList;
+import com.google_voltpatches.common.collect.ImmutableMap;
 import com.google_voltpatches.common.collect.ImmutableSet;
 import com.google_voltpatches.common.collect.ImmutableSortedMap;
 import com.google_voltpatches.common.collect.Maps;
@@ -85,6 +86,10 @@ import jsr166y.ThreadLocalRandom;
  *
  *   It is safe to synchronized on an individual connection and then the distributer, but it is always unsafe
  *   to synchronized on the distributer and then an individual connection.
+ *
+ *   The distributer monitor only serializes writers (connection setup and teardown, topology and
+ *   subscription updates). The connection list, listeners, and the client affinity topology are published
+ *   as immutable snapshots so that {@link #queue} never takes it.
  */
 class Distributer {
 
@@ -98,11 +103,13 @@ class Distributer {
     // handles used internally are negative and decrement for each call
     public final AtomicLong m_sysHandle = new AtomicLong(-1);
 
-    // collection of connections to the cluster
-    private final CopyOnWriteArrayList<NodeConnection> m_connections =
-            new CopyOnWriteArrayList<>();
+    // collection of connections to the cluster, replaced under the distributer monitor
+    private volatile ImmutableList<NodeConnection> m_connections = ImmutableList.of();
+
+    private final CopyOnWriteArrayList<ClientStatusListenerExt> m_listeners = new CopyOnWriteArrayList<>();
 
-    private final ArrayList<ClientStatusListenerExt> m_listeners = new ArrayList<>();
+    // Serializes reporting backpressure with the writestreams reporting that it has ended
+    private final Object m_backpressureLock = new Object();
 
     //Selector and connection handling, does all work in blocking selection thread
     private final VoltNetworkPool m_network;
@@ -110,7 +117,7 @@ class Distributer {
     private final SSLContext m_sslContext;
 
     // Temporary until a distribution/affinity algorithm is written
-    private int m_nextConnection = 0;
+    private final AtomicInteger m_nextConnection = new AtomicInteger(0);
 
     private final boolean m_useMultipleThreads;
     private final boolean m_useClientAffinity;
@@ -133,23 +140,70 @@ class Distributer {
         }
     }
 
-    private final Map<Integer, NodeConnection> m_partitionMasters = new HashMap<>();
-    private final Map<Integer, NodeConnection[]> m_partitionReplicas = new HashMap<>();
-    private final Map<Integer, NodeConnection> m_hostIdToConnection = new HashMap<>();
+    /**
+     * Immutable view of the cluster used to route invocations with client affinity.
+     * A new instance is built and published whenever the topology or the set of connections changes.
+     */
+    private static final class AffinityTopology {
+        static final AffinityTopology EMPTY =
+                new AffinityTopology(null, ImmutableMap.<Integer, NodeConnection>of(),
+                        ImmutableMap.<Integer, NodeConnection[]>of());
+
+        //This is the instance of the Hashinator we picked from TOPO used only for client affinity.
+        final HashinatorLite hashinator;
+        final ImmutableMap<Integer, NodeConnection> partitionMasters;
+        final ImmutableMap<Integer, NodeConnection[]> partitionReplicas;
+
+        private AffinityTopology(HashinatorLite hashinator,
+                ImmutableMap<Integer, NodeConnection> partitionMasters,
+                ImmutableMap<Integer, NodeConnection[]> partitionReplicas) {
+            this.hashinator = hashinator;
+            this.partitionMasters = partitionMasters;
+            this.partitionReplicas = partitionReplicas;
+        }
+
+        /**
+         * @return a copy of this topology with every reference to the connection removed
+         */
+        AffinityTopology without(NodeConnection cxn) {
+            ImmutableMap.Builder<Integer, NodeConnection> masters = ImmutableMap.builder();
+            for (Map.Entry<Integer, NodeConnection> e : partitionMasters.entrySet()) {
+                if (e.getValue() != cxn) {
+                    masters.put(e);
+                }
+            }
+            ImmutableMap.Builder<Integer, NodeConnection[]> replicas = ImmutableMap.builder();
+            for (Map.Entry<Integer, NodeConnection[]> e : partitionReplicas.entrySet()) {
+                List<NodeConnection> survivors = new ArrayList<>(e.getValue().length);
+                for (NodeConnection nc : e.getValue()) {
+                    if (nc != cxn) {
+                        survivors.add(nc);
+                    }
+                }
+                if (!survivors.isEmpty()) {
+                    replicas.put(e.getKey(), survivors.toArray(new NodeConnection[survivors.size()]));
+                }
+            }
+            return new AffinityTopology(hashinator, masters.build(), replicas.build());
+        }
+    }
+
+    private volatile AffinityTopology m_affinityTopology = AffinityTopology.EMPTY;
+    private final ConcurrentMap<Integer, NodeConnection> m_hostIdToConnection = new ConcurrentHashMap<>();
     private final AtomicReference<ImmutableSortedMap<String, Procedure>> m_procedureInfo =
                                 new AtomicReference<ImmutableSortedMap<String, Procedure>>();
     private final AtomicReference<ImmutableSet<Integer>> m_partitionKeys = new AtomicReference<ImmutableSet<Integer>>();
     private final AtomicLong m_lastPartitionKeyFetched = new AtomicLong(0);
     private final AtomicReference<ClientResponse> m_partitionUpdateStatus = new AtomicReference<ClientResponse>();
 
-    //This is the instance of the Hashinator we picked from TOPO used only for client affinity.
-    private HashinatorLite m_hashinator = null;
     //This is a global timeout that will be used if a per-procedure timeout is not provided with the procedure call.
     private final long m_procedureCallTimeoutNanos;
     private static final long MINIMUM_LONG_RUNNING_SYSTEM_CALL_TIMEOUT_MS = 30 * 60 * 1000; // 30 minutes
     private final long m_connectionResponseTimeoutNanos;
-    private final Map<Integer, ClientAffinityStats> m_clientAffinityStats =
-        new HashMap<>();
+    // Duration of a tick of the connections' timer wheels and the period of CallExpiration
+    private final long m_timeoutPrecisionNanos;
+    private final ConcurrentMap<Integer, ClientAffinityStats> m_clientAffinityStats =
+        new ConcurrentHashMap<>();
 
     public final RateLimiter m_rateLimiter = new RateLimiter();
 
@@ -319,51 +373,14 @@ class Distributer {
         @Override
         public void run() {
             try {
-                // make a threadsafe copy of all connections
-                ArrayList<NodeConnection> connections = new ArrayList<>();
-                synchronized (Distributer.this) {
-                    connections.addAll(m_connections);
-                }
-
                 final long nowNanos = System.nanoTime();
 
-                // for each connection
-                for (final NodeConnection c : connections) {
-                    // check for connection age
-                    final long sinceLastResponse = Math.max(1, nowNanos - c.m_lastResponseTimeNanos);
-
-                    // if outstanding ping and timeoutMS, close the connection
-                    if (c.m_outstandingPing && (sinceLastResponse > m_connectionResponseTimeoutNanos)) {
-                        // memoize why it's closing
-                        c.m_closeCause = DisconnectCause.TIMEOUT;
-                        // this should trigger NodeConnection.stopping(..)
-                        c.m_connection.unregister();
-                    }
-
-                    // if 1/3 of the timeoutMS since last response, send a ping
-                    if ((!c.m_outstandingPing) && (sinceLastResponse > (m_connectionResponseTimeoutNanos / 3))) {
-                        c.sendPing();
-                    }
-
-                    // for each outstanding procedure
-                    for (final Map.Entry<Long, CallbackBookeeping> e : c.m_callbacks.entrySet()) {
-                        final long handle = e.getKey();
-                        final CallbackBookeeping cb = e.getValue();
-
-                        // if the timeout is expired, call the callback and remove the
-                        // bookeeping data
-                        final long deltaNanos = Math.max(1, nowNanos - cb.timestampNanos);
-                        if (deltaNanos > cb.procedureTimeoutNanos) {
-
-                            //For expected long operations don't use the default timeout
-                            //unless it is > MINIMUM_LONG_RUNNING_SYSTEM_CALL_TIMEOUT_MS
-                            final boolean isLongOp = isLongOp(cb.name);
-                            if (isLongOp && (deltaNanos < TimeUnit.MILLISECONDS.toNanos(MINIMUM_LONG_RUNNING_SYSTEM_CALL_TIMEOUT_MS))) {
-                                continue;
-                            }
-
-                            c.handleTimedoutCallback(handle, nowNanos);
-                        }
+                // each connection turns its own timer wheel, iterating the current immutable list
+                for (final NodeConnection c : m_connections) {
+                    try {
+                        c.expireTimeouts(nowNanos);
+                    } catch (Throwable t) {
+                        t.printStackTrace();
                     }
                 }
             } catch (Throwable t) {
@@ -388,15 +405,17 @@ class Distributer {
         return false;
     }
 
-    class CallbackBookeeping {
-        public CallbackBookeeping(long timestampNanos, ProcedureCallback callback, String name, long timeoutNanos, boolean ignoreBackpressure) {
+    class CallbackBookeeping extends TimerWheel.Timeout {
+        public CallbackBookeeping(long handle, long timestampNanos, ProcedureCallback callback, String name, long timeoutNanos, boolean ignoreBackpressure) {
             assert(callback != null);
+            this.handle = handle;
             this.timestampNanos = timestampNanos;
             this.callback = callback;
             this.name = name;
             this.procedureTimeoutNanos = timeoutNanos;
             this.ignoreBackpressure = ignoreBackpressure;
         }
+        final long handle;
         long timestampNanos;
         //Timeout in ms 0 means use conenction specified procedure timeoutMS.
         final long procedureTimeoutNanos;
@@ -413,10 +432,16 @@ class Distributer {
         private volatile boolean m_isConnected = true;
 
         volatile long m_lastResponseTimeNanos = System.nanoTime();
-        boolean m_outstandingPing = false;
+        volatile boolean m_outstandingPing = false;
         ClientStatusListenerExt.DisconnectCause m_closeCause = DisconnectCause.CONNECTION_CLOSED;
 
-        public NodeConnection(long ids[]) {}
+        // Outstanding call timeouts and the connection response check, turned by CallExpiration
+        private final TimerWheel m_timeouts = new TimerWheel(m_timeoutPrecisionNanos, m_lastResponseTimeNanos);
+        private final TimerWheel.Timeout m_responseCheck = new TimerWheel.Timeout();
+
+        public NodeConnection(long ids[]) {
+            scheduleResponseCheck(m_lastResponseTimeNanos);
+        }
 
         /*
          * NodeConnection uses ignoreBackpressure to get rate limiter to not
@@ -431,9 +456,6 @@ class Distributer {
             //How long from the starting point in time to wait to get this stuff done
             timeoutNanos = (timeoutNanos == Distributer.USE_DEFAULT_CLIENT_TIMEOUT) ? m_procedureCallTimeoutNanos : timeoutNanos;
 
-            //Trigger the timeout at this point in time no matter what
-            final long timeoutTime = nowNanos + timeoutNanos;
-
             //What was the time after the rate limiter returned
             //Will be the same as timeoutNanos if it didn't block
             long afterRateLimitNanos = 0;
@@ -463,17 +485,24 @@ class Distributer {
             assert(callbacksToInvoke >= 0);
 
             //Optimistically submit the task
-            m_callbacks.put(handle, new CallbackBookeeping(nowNanos, callback, name, timeoutNanos, ignoreBackpressure));
-
-            //Schedule the timeout to fire relative to the amount of time
-            //spent getting to this point. Might fire immediately
-            //some of the time, but that is fine
-            final long timeoutRemaining = timeoutTime - afterRateLimitNanos;
+            final CallbackBookeeping cb = new CallbackBookeeping(handle, nowNanos, callback, name, timeoutNanos, ignoreBackpressure);
+            m_callbacks.put(handle, cb);
+
+            //Schedule the timeout to fire at timeoutTime, relative to the start of the call.
+            //Might fire on the next tick some of the time, but that is fine.
+            //For expected long operations don't use the default timeout
+            //unless it is > MINIMUM_LONG_RUNNING_SYSTEM_CALL_TIMEOUT_MS
+            long effectiveTimeoutNanos = timeoutNanos;
+            if (isLongOp(name)) {
+                effectiveTimeoutNanos = Math.max(timeoutNanos,
+                        TimeUnit.MILLISECONDS.toNanos(MINIMUM_LONG_RUNNING_SYSTEM_CALL_TIMEOUT_MS));
+            }
+            m_timeouts.schedule(cb, nowNanos, effectiveTimeoutNanos);
 
-            //Schedule an individual timeout if necessary
+            //Schedule an individual timeout for calls that need more precision than the wheel's tick
             //If it is a long op, don't bother scheduling a discrete timeout
-            if (timeoutNanos < TimeUnit.SECONDS.toNanos(1) && !isLongOp(name)) {
-                submitDiscreteTimeoutTask(handle, Math.max(0, timeoutRemaining));
+            if (timeoutNanos < Math.max(TimeUnit.SECONDS.toNanos(1), m_timeoutPrecisionNanos) && !isLongOp(name)) {
+                submitDiscreteTimeoutTask(cb, Math.max(0, nowNanos + timeoutNanos - afterRateLimitNanos));
             }
 
             //Check for disconnect
@@ -482,6 +511,7 @@ class Distributer {
                 if (m_callbacks.remove(handle) == null) {
                     return;
                 }
+                m_timeouts.cancel(cb);
                 final ClientResponse r = new ClientResponseImpl(
                         ClientResponse.CONNECTION_LOST, new VoltTable[0],
                         "Connection to database host (" + m_connection.getHostnameAndIPAndPort() +
@@ -512,14 +542,15 @@ class Distributer {
          * then the transaction will be timed out even if a response is received
          * at the same time.
          *
-         * This will race with the periodic task that checks lower resolution timeouts
-         * and it is fine, the concurrent map makes sure each callback is handled exactly once
+         * This will race with the timer wheel and it is fine, the concurrent map
+         * makes sure each callback is handled exactly once
          */
-        void submitDiscreteTimeoutTask(final long handle, long timeoutNanos) {
+        void submitDiscreteTimeoutTask(final CallbackBookeeping cb, long timeoutNanos) {
             m_ex.schedule(new Runnable() {
                 @Override
                 public void run() {
-                    handleTimedoutCallback(handle, System.nanoTime());
+                    m_timeouts.cancel(cb);
+                    handleTimedoutCallback(cb, System.nanoTime());
                 }
             }, timeoutNanos, TimeUnit.NANOSECONDS);
         }
@@ -528,19 +559,18 @@ class Distributer {
          * Factor out the boilerplate involved in checking whether a timed out callback
          * still exists and needs to be invoked, or has already been handled by another thread
          */
-        void handleTimedoutCallback(long handle, long nowNanos) {
+        void handleTimedoutCallback(CallbackBookeeping cb, long nowNanos) {
             //Callback doesn't have to be there, it may have already
-            //received a response or been expired by the periodic expiration task, or a discrete expiration task
-            final CallbackBookeeping cb = m_callbacks.remove(handle);
-
-            //It was handled during the race
-            if (cb == null) {
+            //received a response or been failed by the connection being lost.
+            //Winning the race to remove it means the transaction is timed out
+            //even if a response is received at the same time.
+            if (!m_callbacks.remove(cb.handle, cb)) {
                 return;
             }
 
             final long deltaNanos = Math.max(1, nowNanos - cb.timestampNanos);
 
-            invokeCallbackWithTimeout(cb.name, cb.callback, deltaNanos, nowNanos, cb.procedureTimeoutNanos, handle, cb.ignoreBackpressure);
+            invokeCallbackWithTimeout(cb.name, cb.callback, deltaNanos, nowNanos, cb.procedureTimeoutNanos, cb.handle, cb.ignoreBackpressure);
         }
 
         /*
@@ -678,6 +708,9 @@ class Distributer {
             //Race with expiration thread to be the first to remove the callback
             //from the map and process it
             final CallbackBookeeping stuff = m_callbacks.remove(response.getClientHandle());
+            if (stuff != null) {
+                m_timeouts.cancel(stuff);
+            }
 
             // presumably (hopefully) this is a response for a timed-out message
             if (stuff == null) {
@@ -729,6 +762,57 @@ class Distributer {
             return Integer.MAX_VALUE;
         }
 
+        /**
+         * Turn this connection's timer wheel, timing out the calls whose deadline has passed and
+         * pinging or closing the connection if the server has gone quiet.
+         * Only touches this connection's state.
+         */
+        void expireTimeouts(final long nowNanos) {
+            for (TimerWheel.Timeout t : m_timeouts.advance(nowNanos)) {
+                if (t == m_responseCheck) {
+                    checkResponseTimeout(nowNanos);
+                } else {
+                    handleTimedoutCallback((CallbackBookeeping)t, nowNanos);
+                }
+            }
+        }
+
+        private void checkResponseTimeout(final long nowNanos) {
+            if (!m_isConnected) {
+                return;
+            }
+            // check for connection age
+            final long sinceLastResponse = Math.max(1, nowNanos - m_lastResponseTimeNanos);
+
+            // if outstanding ping and timeoutMS, close the connection
+            if (m_outstandingPing && (sinceLastResponse > m_connectionResponseTimeoutNanos)) {
+                // memoize why it's closing
+                m_closeCause = DisconnectCause.TIMEOUT;
+                // this should trigger NodeConnection.stopping(..)
+                m_connection.unregister();
+                return;
+            }
+
+            // if 1/3 of the timeoutMS since last response, send a ping
+            if ((!m_outstandingPing) && (sinceLastResponse > (m_connectionResponseTimeoutNanos / 3))) {
+                sendPing();
+            }
+            scheduleResponseCheck(nowNanos);
+        }
+
+        /*
+         * Arm the response check for when the connection would next need a ping or be considered dead.
+         * Responses don't move it, if one arrived in the meantime the check just re-arms itself.
+         */
+        private void scheduleResponseCheck(final long nowNanos) {
+            final long sinceLastResponse = Math.max(0, nowNanos - m_lastResponseTimeNanos);
+            final long threshold = m_outstandingPing ?
+                    m_connectionResponseTimeoutNanos : m_connectionResponseTimeoutNanos / 3;
+            // a check that lands exactly on the threshold re-arms itself for the next tick
+            final long delay = Math.max(m_timeouts.getTickNanos(), threshold - sinceLastResponse);
+            m_timeouts.schedule(m_responseCheck, nowNanos, delay);
+        }
+
         public boolean hadBackPressure() {
             return m_connection.writeStream().hadBackPressure();
         }
@@ -746,54 +830,22 @@ class Distributer {
         public void stopping(Connection c) {
             super.stopping(c);
             m_isConnected = false;
+            m_timeouts.cancel(m_responseCheck);
             //Prevent queueing of new work to this connection
             synchronized (Distributer.this) {
                 /*
                  * Repair all cluster topology data with the node connection removed
                  */
-                Iterator<Map.Entry<Integer, NodeConnection>> i = m_partitionMasters.entrySet().iterator();
-                while (i.hasNext()) {
-                    Map.Entry<Integer, NodeConnection> entry = i.next();
-                    if (entry.getValue() == this) {
-                        i.remove();
-                    }
-                }
+                m_affinityTopology = m_affinityTopology.without(this);
+                m_hostIdToConnection.values().remove(this);
 
-                i = m_hostIdToConnection.entrySet().iterator();
-                while (i.hasNext()) {
-                    Map.Entry<Integer, NodeConnection> entry = i.next();
-                    if (entry.getValue() == this) {
-                        i.remove();
-                    }
-                }
-
-                Iterator<Map.Entry<Integer, NodeConnection[]>> i2 = m_partitionReplicas.entrySet().iterator();
-                List<Pair<Integer, NodeConnection[]>> entriesToRewrite = new ArrayList<>();
-                while (i2.hasNext()) {
-                    Map.Entry<Integer, NodeConnection[]> entry = i2.next();
-                    for (NodeConnection nc : entry.getValue()) {
-                        if (nc == this) {
-                            entriesToRewrite.add(Pair.of(entry.getKey(), entry.getValue()));
-                        }
-                    }
-                }
-
-                for (Pair<Integer, NodeConnection[]> entry : entriesToRewrite) {
-                    m_partitionReplicas.remove(entry.getFirst());
-                    NodeConnection survivors[] = new NodeConnection[entry.getSecond().length - 1];
-                    if (survivors.length == 0) {
-                        break;
-                    }
-                    int zz = 0;
-                    for (int ii = 0; ii < entry.getSecond().length; ii++) {
-                        if (entry.getSecond()[ii] != this) {
-                            survivors[zz++] = entry.getSecond()[ii];
-                        }
+                ImmutableList.Builder<NodeConnection> survivors = ImmutableList.builder();
+                for (NodeConnection cxn : m_connections) {
+                    if (cxn != this) {
+                        survivors.add(cxn);
                     }
-                    m_partitionReplicas.put(entry.getFirst(), survivors);
                 }
-
-                m_connections.remove(this);
+                m_connections = survivors.build();
                 //Notify listeners that a connection has been lost
                 for (ClientStatusListenerExt s : m_listeners) {
                     s.connectionLost(
@@ -842,6 +894,7 @@ class Distributer {
                     continue;
                 }
                 final CallbackBookeeping callBk = e.getValue();
+                m_timeouts.cancel(callBk);
                 try {
                     callBk.callback.clientCallback(r);
                 }
@@ -863,11 +916,11 @@ class Distributer {
                 @Override
                 public void run() {
                     /*
-                     * Synchronization on Distributer.this is critical to ensure that queue
+                     * Synchronization on m_backpressureLock is critical to ensure that queue
                      * does not report backpressure AFTER the write stream reports that backpressure
                      * has ended thus resulting in a lost wakeup.
                      */
-                    synchronized (Distributer.this) {
+                    synchronized (m_backpressureLock) {
                         for (final ClientStatusListenerExt csl : m_listeners) {
                             csl.backpressure(false);
                         }
@@ -945,6 +998,20 @@ class Distributer {
             boolean sendReadsToReplicasBytDefault,
             Subject subject,
             SSLContext sslContext) {
+        this(useMultipleThreads, procedureCallTimeoutNanos, connectionResponseTimeoutMS,
+                ClientConfig.DEFAULT_TIMEOUT_PRECISION_NANOS,
+                useClientAffinity, sendReadsToReplicasBytDefault, subject, sslContext);
+    }
+
+    Distributer(
+            boolean useMultipleThreads,
+            long procedureCallTimeoutNanos,
+            long connectionResponseTimeoutMS,
+            long timeoutPrecisionNanos,
+            boolean useClientAffinity,
+            boolean sendReadsToReplicasBytDefault,
+            Subject subject,
+            SSLContext sslContext) {
         m_useMultipleThreads = useMultipleThreads;
         m_sslContext = sslContext;
         if (m_sslContext != null) {
@@ -959,11 +1026,13 @@ class Distributer {
         m_network.start();
         m_procedureCallTimeoutNanos= procedureCallTimeoutNanos;
         m_connectionResponseTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(connectionResponseTimeoutMS);
+        m_timeoutPrecisionNanos = timeoutPrecisionNanos;
         m_useClientAffinity = useClientAffinity;
         m_sendReadsToReplicasBytDefaultIfCAEnabled = sendReadsToReplicasBytDefault;
 
         // schedule the task that looks for timed-out proc calls and connections
-        m_timeoutReaperHandle = m_ex.scheduleAtFixedRate(new CallExpiration(), 1, 1, TimeUnit.SECONDS);
+        m_timeoutReaperHandle = m_ex.scheduleAtFixedRate(new CallExpiration(),
+                m_timeoutPrecisionNanos, m_timeoutPrecisionNanos, TimeUnit.NANOSECONDS);
         m_subject = subject;
     }
 
@@ -1044,13 +1113,11 @@ class Distributer {
             }
             m_buildString = (String)socketChannelAndInstanceIdAndBuildString[2];
 
-            m_connections.add(cxn);
+            m_connections = ImmutableList.<NodeConnection>builder().addAll(m_connections).add(cxn).build();
         }
 
         if (m_useClientAffinity) {
-            synchronized (this) {
-                m_hostIdToConnection.put(hostId, cxn);
-            }
+            m_hostIdToConnection.put(hostId, cxn);
 
             if (m_subscribedConnection == null) {
                 subscribeToNewNode();
@@ -1145,122 +1212,148 @@ class Distributer {
         boolean backpressure = true;
 
         /*
-         * Synchronization is necessary to ensure that m_connections is not modified
-         * as well as to ensure that backpressure is reported correctly
+         * Read the published snapshots once so the connections and topology used for routing
+         * are consistent with each other, and so no lock is taken on this path.
          */
-        synchronized (this) {
-            final int totalConnections = m_connections.size();
+        final ImmutableList<NodeConnection> connections = m_connections;
+        final int totalConnections = connections.size();
 
-            if (totalConnections == 0) {
-                throw new NoConnectionsException("No connections.");
-            }
+        if (totalConnections == 0) {
+            throw new NoConnectionsException("No connections.");
+        }
 
-            /*
-             * Check if the master for the partition is known. No back pressure check to ensure correct
-             * routing, but backpressure will be managed anyways. This is where we guess partition based on client
-             * affinity and known topology (hashinator initialized).
-             */
-            if (m_useClientAffinity && (m_hashinator != null)) {
-                final ImmutableSortedMap<String, Procedure> procedures = m_procedureInfo.get();
-                Procedure procedureInfo = null;
-                if (procedures != null) {
-                    procedureInfo = procedures.get(invocation.getProcName());
+        // the replicas examined when load balancing a read, needed to re-check backpressure
+        NodeConnection partitionReplicas[] = null;
+        boolean usedAffinity = false;
+
+        /*
+         * Check if the master for the partition is known. No back pressure check to ensure correct
+         * routing, but backpressure will be managed anyways. This is where we guess partition based on client
+         * affinity and known topology (hashinator initialized).
+         */
+        final AffinityTopology topology = m_affinityTopology;
+        if (m_useClientAffinity && (topology.hashinator != null)) {
+            final ImmutableSortedMap<String, Procedure> procedures = m_procedureInfo.get();
+            Procedure procedureInfo = null;
+            if (procedures != null) {
+                procedureInfo = procedures.get(invocation.getProcName());
+            }
+            Integer hashedPartition = -1;
+
+            if (procedureInfo != null) {
+                hashedPartition = Constants.MP_INIT_PID;
+                if (( ! procedureInfo.multiPart) &&
+                    // User may have passed too few parameters to allow dispatching.
+                    // Avoid an indexing error here to fall through to the proper ProcCallException.
+                        (procedureInfo.partitionParameter < invocation.getPassedParamCount())) {
+                    hashedPartition = topology.hashinator.getHashedPartitionForParameter(
+                            procedureInfo.partitionParameterType,
+                            invocation.getPartitionParamValue(procedureInfo.partitionParameter));
                 }
-                Integer hashedPartition = -1;
-
-                if (procedureInfo != null) {
-                    hashedPartition = Constants.MP_INIT_PID;
-                    if (( ! procedureInfo.multiPart) &&
-                        // User may have passed too few parameters to allow dispatching.
-                        // Avoid an indexing error here to fall through to the proper ProcCallException.
-                            (procedureInfo.partitionParameter < invocation.getPassedParamCount())) {
-                        hashedPartition = m_hashinator.getHashedPartitionForParameter(
-                                procedureInfo.partitionParameterType,
-                                invocation.getPartitionParamValue(procedureInfo.partitionParameter));
-                    }
-                    /*
-                     * If the procedure is read only and single part and the user wants it, load balance across replicas
-                     * This is probably slower for SAFE consistency.
-                     */
-                    if (!procedureInfo.multiPart && procedureInfo.readOnly && m_sendReadsToReplicasBytDefaultIfCAEnabled) {
-                        NodeConnection partitionReplicas[] = m_partitionReplicas.get(hashedPartition);
-                        if (partitionReplicas != null && partitionReplicas.length > 0) {
-                            cxn = partitionReplicas[ThreadLocalRandom.current().nextInt(partitionReplicas.length)];
-                            if (cxn.hadBackPressure()) {
-                                //See if there is one without backpressure, make sure it's still connected
-                                for (NodeConnection nc : partitionReplicas) {
-                                    if (!nc.hadBackPressure() && nc.m_isConnected) {
-                                        cxn = nc;
-                                        break;
-                                    }
+                /*
+                 * If the procedure is read only and single part and the user wants it, load balance across replicas
+                 * This is probably slower for SAFE consistency.
+                 */
+                if (!procedureInfo.multiPart && procedureInfo.readOnly && m_sendReadsToReplicasBytDefaultIfCAEnabled) {
+                    partitionReplicas = topology.partitionReplicas.get(hashedPartition);
+                    if (partitionReplicas != null && partitionReplicas.length > 0) {
+                        cxn = partitionReplicas[ThreadLocalRandom.current().nextInt(partitionReplicas.length)];
+                        if (cxn.hadBackPressure()) {
+                            //See if there is one without backpressure, make sure it's still connected
+                            for (NodeConnection nc : partitionReplicas) {
+                                if (!nc.hadBackPressure() && nc.m_isConnected) {
+                                    cxn = nc;
+                                    break;
                                 }
                             }
-                            if (!cxn.hadBackPressure() || ignoreBackpressure) {
-                                backpressure = false;
-                            }
                         }
-                    } else {
-                        /*
-                         * For writes or SAFE reads, this is the best way to go
-                         */
-                        cxn = m_partitionMasters.get(hashedPartition);
-                        if (cxn != null && !cxn.hadBackPressure() || ignoreBackpressure) {
+                        if (!cxn.hadBackPressure() || ignoreBackpressure) {
                             backpressure = false;
                         }
                     }
+                } else {
+                    /*
+                     * For writes or SAFE reads, this is the best way to go
+                     */
+                    cxn = topology.partitionMasters.get(hashedPartition);
+                    if (cxn != null && !cxn.hadBackPressure() || ignoreBackpressure) {
+                        backpressure = false;
+                    }
                 }
-                if (cxn != null && !cxn.m_isConnected) {
-                    // Would be nice to log something here
-                    // Client affinity picked a connection that was actually disconnected.  Reset to null
-                    // and let the round-robin choice pick a connection
-                    cxn = null;
+            }
+            if (cxn != null && !cxn.m_isConnected) {
+                // Would be nice to log something here
+                // Client affinity picked a connection that was actually disconnected.  Reset to null
+                // and let the round-robin choice pick a connection
+                cxn = null;
+            }
+            ClientAffinityStats stats = m_clientAffinityStats.get(hashedPartition);
+            if (stats == null) {
+                stats = new ClientAffinityStats(hashedPartition, 0, 0, 0, 0);
+                ClientAffinityStats existing = m_clientAffinityStats.putIfAbsent(hashedPartition, stats);
+                if (existing != null) {
+                    stats = existing;
                 }
-                ClientAffinityStats stats = m_clientAffinityStats.get(hashedPartition);
-                if (stats == null) {
-                    stats = new ClientAffinityStats(hashedPartition, 0, 0, 0, 0);
-                    m_clientAffinityStats.put(hashedPartition, stats);
+            }
+            if (cxn != null) {
+                usedAffinity = true;
+                if (procedureInfo != null && procedureInfo.readOnly) {
+                    stats.addAffinityRead();
                 }
-                if (cxn != null) {
-                    if (procedureInfo != null && procedureInfo.readOnly) {
-                        stats.addAffinityRead();
-                    }
-                    else {
-                        stats.addAffinityWrite();
-                    }
+                else {
+                    stats.addAffinityWrite();
+                }
+            }
+            // account these here because we lose the partition ID and procedure info once we
+            // bust out of this scope.
+            else {
+                if (procedureInfo != null && procedureInfo.readOnly) {
+                    stats.addRrRead();
                 }
-                // account these here because we lose the partition ID and procedure info once we
-                // bust out of this scope.
                 else {
-                    if (procedureInfo != null && procedureInfo.readOnly) {
-                        stats.addRrRead();
-                    }
-                    else {
-                        stats.addRrWrite();
-                    }
+                    stats.addRrWrite();
                 }
             }
-            if (cxn == null) {
-                for (int i=0; i < totalConnections; ++i) {
-                    cxn = m_connections.get(Math.abs(++m_nextConnection % totalConnections));
-                    if (!cxn.hadBackPressure() || ignoreBackpressure) {
-                        // serialize and queue the invocation
-                        backpressure = false;
-                        break;
-                    }
+        }
+        if (cxn == null) {
+            final int start = m_nextConnection.incrementAndGet();
+            for (int i=0; i < totalConnections; ++i) {
+                cxn = connections.get(Math.abs((start + i) % totalConnections));
+                if (!cxn.hadBackPressure() || ignoreBackpressure) {
+                    // serialize and queue the invocation
+                    backpressure = false;
+                    break;
                 }
             }
+        }
 
-            if (backpressure) {
-                cxn = null;
-                for (ClientStatusListenerExt s : m_listeners) {
-                    s.backpressure(true);
+        if (backpressure) {
+            /*
+             * The connections were checked without a lock, so one of them may have come off backpressure
+             * since. Re-check under the lock that offBackPressure reports under so that backpressure is never
+             * reported after it has ended. Not reporting it just makes the caller retry.
+             */
+            synchronized (m_backpressureLock) {
+                boolean stillBlocked;
+                if (!usedAffinity) {
+                    stillBlocked = allHadBackPressure(connections);
+                } else if (partitionReplicas != null) {
+                    stillBlocked = allHadBackPressure(Arrays.asList(partitionReplicas));
+                } else {
+                    stillBlocked = cxn.hadBackPressure();
+                }
+                if (stillBlocked) {
+                    for (ClientStatusListenerExt s : m_listeners) {
+                        s.backpressure(true);
+                    }
                 }
             }
+            cxn = null;
         }
 
         /*
-         * Do the heavy weight serialization outside the synchronized block.
-         * createWork synchronizes on an individual connection which allows for more concurrency
+         * Do the heavy weight serialization here, createWork synchronizes on an individual
+         * connection which allows for more concurrency
          */
         if (cxn != null) {
             ByteBuffer buf = null;
@@ -1277,6 +1370,15 @@ class Distributer {
         return !backpressure;
     }
 
+    private static boolean allHadBackPressure(List<NodeConnection> connections) {
+        for (NodeConnection cxn : connections) {
+            if (!cxn.hadBackPressure()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Shutdown the VoltNetwork allowing the Ports to close and free resources
      * like memory pools
@@ -1317,13 +1419,11 @@ class Distributer {
         }
     }
 
-    synchronized void addClientStatusListener(ClientStatusListenerExt listener) {
-        if (!m_listeners.contains(listener)) {
-            m_listeners.add(listener);
-        }
+    void addClientStatusListener(ClientStatusListenerExt listener) {
+        m_listeners.addIfAbsent(listener);
     }
 
-    synchronized boolean removeClientStatusListener(ClientStatusListenerExt listener) {
+    boolean removeClientStatusListener(ClientStatusListenerExt listener) {
         return m_listeners.remove(listener);
     }
 
@@ -1364,8 +1464,8 @@ class Distributer {
                 continue;
             }
 
-            long read = perConnIOStats.getSecond()[0];
-            long write = perConnIOStats.getSecond()[2];
+            long read = perConnIOStats.getSecond()[IOStatsIntf.BYTES_READ];
+            long write = perConnIOStats.getSecond()[IOStatsIntf.BYTES_WRITTEN];
 
             ClientIOStats cios = new ClientIOStats(conn.connectionId(), read, write);
             retval.put(conn.connectionId(), cios);
@@ -1377,11 +1477,9 @@ class Distributer {
     Map<Integer, ClientAffinityStats> getAffinityStatsSnapshot()
     {
         Map<Integer, ClientAffinityStats> retval = new HashMap<>();
-        // these get modified under this lock in queue()
-        synchronized(this) {
-            for (Entry<Integer, ClientAffinityStats> e : m_clientAffinityStats.entrySet()) {
-                retval.put(e.getKey(), (ClientAffinityStats)e.getValue().clone());
-            }
+        // each entry is cloned under its own monitor, the one queue() updates it under
+        for (Entry<Integer, ClientAffinityStats> e : m_clientAffinityStats.entrySet()) {
+            retval.put(e.getKey(), (ClientAffinityStats)e.getValue().clone());
         }
         return retval;
     }
@@ -1427,11 +1525,12 @@ class Distributer {
 
         //In future let TOPO return cooked bytes when cooked and we use correct recipe
         boolean cooked = false;
+        final HashinatorLite hashinator;
         if (tables.length == 1) {
             //Just in case the new client connects to the old version of Volt that only returns 1 topology table
             // We're going to get the MPI back in this table, so subtract it out from the number of partitions.
             int numPartitions = vt.getRowCount() - 1;
-            m_hashinator = new HashinatorLite(numPartitions); // legacy only
+            hashinator = new HashinatorLite(numPartitions); // legacy only
         } else {
             //Second table contains the hash function
             boolean advanced = tables[1].advanceRow();
@@ -1440,12 +1539,12 @@ class Distributer {
                                    "performance will be lower because transactions can't be routed at this client");
                 return;
             }
-            m_hashinator = new HashinatorLite(
+            hashinator = new HashinatorLite(
                     tables[1].getVarbinary("HASHCONFIG"),
                     cooked);
         }
-        m_partitionMasters.clear();
-        m_partitionReplicas.clear();
+        Map<Integer, NodeConnection> partitionMasters = new HashMap<>();
+        Map<Integer, NodeConnection[]> partitionReplicas = new HashMap<>();
         // The MPI's partition ID is 16383 (MpInitiator.MP_INIT_PID), so we shouldn't inadvertently
         // hash to it.  Go ahead and include it in the maps, we can use it at some point to
         // route MP transactions directly to the MPI node.
@@ -1457,19 +1556,24 @@ class Distributer {
             for (String site : vt.getString("Sites").split(",")) {
                 site = site.trim();
                 Integer hostId = Integer.valueOf(site.split(":")[0]);
-                if (m_hostIdToConnection.containsKey(hostId)) {
-                    connections.add(m_hostIdToConnection.get(hostId));
+                NodeConnection cxn = m_hostIdToConnection.get(hostId);
+                if (cxn != null) {
+                    connections.add(cxn);
                 } else {
                     unconnected.add(hostId);
                }
             }
-            m_partitionReplicas.put(partition, connections.toArray(new NodeConnection[0]));
+            partitionReplicas.put(partition, connections.toArray(new NodeConnection[0]));
 
             Integer leaderHostId = Integer.valueOf(vt.getString("Leader").split(":")[0]);
-            if (m_hostIdToConnection.containsKey(leaderHostId)) {
-                m_partitionMasters.put(partition, m_hostIdToConnection.get(leaderHostId));
+            NodeConnection leader = m_hostIdToConnection.get(leaderHostId);
+            if (leader != null) {
+                partitionMasters.put(partition, leader);
             }
         }
+        // publish the new routing in one step, queue() never sees a partially updated topology
+        m_affinityTopology = new AffinityTopology(hashinator,
+                ImmutableMap.copyOf(partitionMasters), ImmutableMap.copyOf(partitionReplicas));
         if (m_topologyChangeAware) {
             m_unconnectedHosts.set(ImmutableSet.copyOf(unconnected));
         }
@@ -1524,7 +1628,7 @@ class Distributer {
      * @return
      */
     public boolean isHashinatorInitialized() {
-        return (m_hashinator != null);
+        return (m_affinityTopology.hashinator != null);
     }
 
     /**
@@ -1535,10 +1639,11 @@ class Distributer {
      * @return
      */
     public long getPartitionForParameter(byte typeValue, Object value) {
-        if (m_hashinator == null) {
+        final HashinatorLite hashinator = m_affinityTopology.hashinator;
+        if (hashinator == null) {
             return -1;
         }
-        return m_hashinator.getHashedPartitionForParameter(typeValue, value);
+        return hashinator.getHashedPartitionForParameter(typeValue, value);
     }
 
     private ByteBuffer serializeSPI(ProcedureInvocation pi) throws IOException {
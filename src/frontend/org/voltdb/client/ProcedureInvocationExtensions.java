@@ -47,6 +47,7 @@ import java.nio.ByteBuffer;
 public abstract class ProcedureInvocationExtensions {
     public static final byte BATCH_TIMEOUT = 1;  // batch timeout
     public static final byte ALL_PARTITION = 2; // whether proc is part of run-everywhere
+    public static final byte COLUMNAR_RESULTS = 3; // whether large results may be sent columnar
 
     private static final int INTEGER_SIZE = 4;
 
@@ -87,6 +88,20 @@ public abstract class ProcedureInvocationExtensions {
         return true;
     }
 
+    public static void writeColumnarResultsWithTypeByte(ByteBuffer buf) {
+        buf.put(COLUMNAR_RESULTS);
+        writeLength(buf, 0);
+    }
+
+    public static boolean readColumnarResults(ByteBuffer buf) {
+        int len = readLength(buf);
+        if (len != 0) {
+            throw new IllegalStateException(
+                    "Columnar-Results extension serialization length expected to be 0");
+        }
+        return true;
+    }
+
     public static void skipUnknownExtension(ByteBuffer buf) {
         int len = readLength(buf);
         buf.position(buf.position() + len); // skip ahead
@@ -0,0 +1,254 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel used by the client to track call and connection timeouts.
+ *
+ * Time is divided into ticks of a fixed duration, which is the precision of the wheel. Level 0 has a slot
+ * per tick for the next {@link #WHEEL_SIZE} ticks, each higher level has a slot per span of the level below.
+ * Timeouts far in the future are parked in a coarse slot and cascaded down as the wheel turns, so scheduling
+ * and cancelling are O(1) and advancing only touches the slots whose time has come.
+ *
+ * A timeout never fires before its deadline and fires at most one tick, plus however late {@link #advance}
+ * is called, after it. All methods are synchronized on the wheel. Expired timeouts are returned to the caller
+ * so they can be handled without the lock held.
+ */
+final class TimerWheel {
+
+    static final int WHEEL_BITS = 6;
+    static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    // 6 levels of 64 slots span 2^36 ticks, more than two years at one millisecond a tick
+    static final int LEVELS = 6;
+    private static final long MAX_SPAN = 1L << (WHEEL_BITS * LEVELS);
+
+    /**
+     * Something that can be scheduled on a wheel. An instance can be on at most one wheel at a time,
+     * all its state is guarded by that wheel.
+     */
+    static class Timeout {
+        private long m_deadlineTick;
+        private Bucket m_bucket;
+        private Timeout m_prev;
+        private Timeout m_next;
+    }
+
+    private static final class Bucket {
+        private final int m_level;
+        private Timeout m_head;
+
+        Bucket(int level) {
+            m_level = level;
+        }
+
+        void add(Timeout t) {
+            t.m_bucket = this;
+            t.m_prev = null;
+            t.m_next = m_head;
+            if (m_head != null) {
+                m_head.m_prev = t;
+            }
+            m_head = t;
+        }
+
+        void remove(Timeout t) {
+            if (t.m_prev != null) {
+                t.m_prev.m_next = t.m_next;
+            } else {
+                m_head = t.m_next;
+            }
+            if (t.m_next != null) {
+                t.m_next.m_prev = t.m_prev;
+            }
+            t.m_bucket = null;
+            t.m_prev = null;
+            t.m_next = null;
+        }
+
+        /**
+         * Detach every timeout in the bucket, returning the head of the chain
+         */
+        Timeout clear() {
+            Timeout head = m_head;
+            m_head = null;
+            return head;
+        }
+    }
+
+    private final long m_tickNanos;
+    private final long m_startNanos;
+    private final Bucket m_wheels[][] = new Bucket[LEVELS][WHEEL_SIZE];
+    // Number of timeouts on each level, lets advance skip the ticks where nothing can happen
+    private final int m_levelSizes[] = new int[LEVELS];
+    // Every tick up to and including this one has been processed
+    private long m_currentTick = 0;
+    private int m_size = 0;
+
+    TimerWheel(long tickNanos, long startNanos) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive, " + tickNanos + " was specified");
+        }
+        m_tickNanos = tickNanos;
+        m_startNanos = startNanos;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                m_wheels[level][i] = new Bucket(level);
+            }
+        }
+    }
+
+    long getTickNanos() {
+        return m_tickNanos;
+    }
+
+    /**
+     * Schedule a timeout to fire delayNanos after nowNanos, replacing any earlier schedule of it.
+     * Delays too long to represent, such as Long.MAX_VALUE used for no timeout, never fire.
+     */
+    synchronized void schedule(Timeout t, long nowNanos, long delayNanos) {
+        if (t.m_bucket != null) {
+            remove(t);
+        }
+        // round up so the timeout can not fire early
+        final long offsetNanos = Math.max(0, nowNanos - m_startNanos);
+        delayNanos = Math.max(0, delayNanos);
+        long deadlineTick = delayNanos >= Long.MAX_VALUE - offsetNanos ?
+                Long.MAX_VALUE : ceilTicks(offsetNanos + delayNanos);
+        if (deadlineTick <= m_currentTick) {
+            deadlineTick = m_currentTick + 1;
+        }
+        t.m_deadlineTick = deadlineTick;
+        place(t);
+    }
+
+    /**
+     * @return true if the timeout was scheduled and has now been removed from the wheel
+     */
+    synchronized boolean cancel(Timeout t) {
+        if (t.m_bucket == null) {
+            return false;
+        }
+        remove(t);
+        return true;
+    }
+
+    synchronized int size() {
+        return m_size;
+    }
+
+    /**
+     * Turn the wheel up to nowNanos and return every timeout whose deadline has passed.
+     * The returned timeouts are no longer scheduled.
+     */
+    synchronized List<Timeout> advance(long nowNanos) {
+        final long targetTick = Math.max(0, nowNanos - m_startNanos) / m_tickNanos;
+        List<Timeout> expired = null;
+        while (m_currentTick < targetTick) {
+            if (m_size == 0) {
+                // nothing to cascade or expire, jump straight to now
+                m_currentTick = targetTick;
+                break;
+            }
+            if (m_levelSizes[0] == 0) {
+                // Nothing can happen before the next cascade of the finest occupied level,
+                // skip to the tick before it
+                int level = 1;
+                while (m_levelSizes[level] == 0) {
+                    level++;
+                }
+                final long span = 1L << (WHEEL_BITS * level);
+                final long nextCascade = (m_currentTick | (span - 1)) + 1;
+                if (nextCascade > targetTick) {
+                    m_currentTick = targetTick;
+                    break;
+                }
+                m_currentTick = nextCascade - 1;
+            }
+            final long tick = ++m_currentTick;
+
+            // cascade the coarser levels whose slot just came around into the finer ones
+            for (int level = 1; level < LEVELS; level++) {
+                final int shift = WHEEL_BITS * level;
+                if ((tick & ((1L << shift) - 1)) != 0) {
+                    break;
+                }
+                Timeout t = m_wheels[level][(int)((tick >>> shift) & WHEEL_MASK)].clear();
+                while (t != null) {
+                    final Timeout next = t.m_next;
+                    t.m_bucket = null;
+                    m_levelSizes[level]--;
+                    m_size--;
+                    place(t);
+                    t = next;
+                }
+            }
+
+            Bucket bucket = m_wheels[0][(int)(tick & WHEEL_MASK)];
+            Timeout t = bucket.m_head;
+            while (t != null) {
+                final Timeout next = t.m_next;
+                if (t.m_deadlineTick <= tick) {
+                    remove(t);
+                    if (expired == null) {
+                        expired = new ArrayList<>();
+                    }
+                    expired.add(t);
+                }
+                t = next;
+            }
+        }
+        return expired == null ? Collections.<Timeout>emptyList() : expired;
+    }
+
+    private long ceilTicks(long nanos) {
+        final long ticks = nanos / m_tickNanos;
+        return (nanos % m_tickNanos) == 0 ? ticks : ticks + 1;
+    }
+
+    private void remove(Timeout t) {
+        m_levelSizes[t.m_bucket.m_level]--;
+        m_size--;
+        t.m_bucket.remove(t);
+    }
+
+    private void add(Bucket bucket, Timeout t) {
+        bucket.add(t);
+        m_levelSizes[bucket.m_level]++;
+        m_size++;
+    }
+
+    private void place(Timeout t) {
+        final long delta = t.m_deadlineTick - m_currentTick;
+        for (int level = 0; level < LEVELS; level++) {
+            final int shift = WHEEL_BITS * level;
+            if (delta < (1L << (shift + WHEEL_BITS))) {
+                add(m_wheels[level][(int)((t.m_deadlineTick >>> shift) & WHEEL_MASK)], t);
+                return;
+            }
+        }
+        // Beyond the span of the wheel, park it in the last slot of the top level and re-examine it
+        // when that slot is cascaded
+        final int shift = WHEEL_BITS * (LEVELS - 1);
+        add(m_wheels[LEVELS - 1][(int)(((m_currentTick + MAX_SPAN - 1) >>> shift) & WHEEL_MASK)], t);
+    }
+}
@@ -20,16 +20,15 @@ package org.voltdb.client.VoltBulkLoader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.CoreUtils;
@@ -45,17 +44,27 @@ import org.voltdb.client.ProcedureCallback;
 /**
  * Partition specific table potentially shared by multiple VoltBulkLoader instances,
  * provided that they are all inserting to the same table.
+ *
+ * Rows are converted and appended straight into the VoltTable of the batch currently
+ * being built. A full batch is swapped for an empty one and handed to the executor
+ * through a lock-free queue; once the batch has been acknowledged its table is cleared
+ * and the batch is kept for reuse, so that steady state loading allocates nothing per row.
  */
 public class PerPartitionTable {
     private static final VoltLogger loaderLog = new VoltLogger("LOADER");
 
+    // Number of full batches an inserting thread may queue ahead of the executor before it blocks
+    private static final int MAX_QUEUED_BATCHES = 5;
+    // Number of acknowledged batches kept around for reuse
+    private static final int MAX_FREE_BATCHES = MAX_QUEUED_BATCHES + 1;
+    // Number of buckets in the batch fill histogram, each covering an equal share of the batch size
+    static final int FILL_HISTOGRAM_BUCKETS = 10;
+
     // Client we are tied to
     final ClientImpl m_clientImpl;
     //The index in loader tables and the PartitionProcessor number
     final int m_partitionId;
     final boolean m_isMP;
-    //Queue for processing pending rows for this table
-    LinkedBlockingQueue<VoltBulkLoaderRow> m_partitionRowQueue;
 
     final ExecutorService m_es;
 
@@ -63,8 +72,6 @@ public class PerPartitionTable {
     final int m_partitionedColumnIndex;
     //Partitioned column type
     final VoltType m_partitionColumnType;
-    //Table used to build up requests to the PartitionProcessor
-    VoltTable m_table;
     //Column information
     final VoltTable.ColumnInfo m_columnInfo[];
     //Column types
@@ -82,15 +89,66 @@ public class PerPartitionTable {
     //Whether to retry insertion when the connection is lost
     final boolean m_autoReconnect;
 
-    // Callback for batch submissions to the Client. A failed request submits the entire
-    // batch of rows to m_failedQueue for row by row processing on m_failureProcessor.
-    class PartitionProcedureCallback implements ProcedureCallback {
-        final List<VoltBulkLoaderRow> m_batchRowList;
-        final Map<VoltBulkLoader, Long> m_batchSizes;
+    //Batch currently being filled by insertRowInTable, guarded by this
+    private PartitionBatch m_currentBatch;
+    //Scratch row used to convert values before they are appended, guarded by this
+    private final Object[] m_convertedRow;
+    //Full batches waiting to be submitted by m_es
+    private final ConcurrentLinkedQueue<PartitionBatch> m_fullBatches = new ConcurrentLinkedQueue<>();
+    //Acknowledged batches that can be filled again
+    private final ConcurrentLinkedQueue<PartitionBatch> m_freeBatches = new ConcurrentLinkedQueue<>();
+    //Bounds the number of full batches queued ahead of m_es
+    private final Semaphore m_batchPermits = new Semaphore(MAX_QUEUED_BATCHES);
+    //Number of submitted batches by how full they were
+    final AtomicLongArray m_batchFillHistogram = new AtomicLongArray(FILL_HISTOGRAM_BUCKETS);
+
+    private final Runnable m_loadFullBatches = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                loadFullBatches();
+            } catch (Exception e) {
+                loaderLog.error("Failed to load batch", e);
+            }
+        }
+    };
+
+    // A batch of rows bound for this partition. The row values live only in m_table, the
+    // arrays alongside it remember which loader and handle each row belongs to. The batch is
+    // also the callback of its own submission. A failed request submits the entire batch of
+    // rows to reinsertFailed() for row by row processing on m_es.
+    class PartitionBatch implements ProcedureCallback {
+        final VoltTable m_table;
+        final VoltBulkLoader[] m_loaders;
+        final Object[] m_rowHandles;
+        final Object[][] m_rowData;
+        int m_rowCount = 0;
 
-        PartitionProcedureCallback(List<VoltBulkLoaderRow> batchRowList, Map<VoltBulkLoader, Long> batchSizes) {
-            m_batchRowList = batchRowList;
-            m_batchSizes = batchSizes;
+        PartitionBatch(int capacity) {
+            m_table = new VoltTable(m_columnInfo);
+            m_loaders = new VoltBulkLoader[capacity];
+            m_rowHandles = new Object[capacity];
+            m_rowData = new Object[capacity][];
+        }
+
+        boolean hasRoom() {
+            return m_rowCount < m_minBatchTriggerSize && m_rowCount < m_loaders.length;
+        }
+
+        void append(VoltBulkLoader loader, Object rowHandle, Object[] rowData, Object[] convertedRow) {
+            m_table.addRow(convertedRow);
+            m_loaders[m_rowCount] = loader;
+            m_rowHandles[m_rowCount] = rowHandle;
+            m_rowData[m_rowCount] = rowData;
+            m_rowCount++;
+        }
+
+        void reset() {
+            m_table.clearRowData();
+            Arrays.fill(m_loaders, 0, m_rowCount, null);
+            Arrays.fill(m_rowHandles, 0, m_rowCount, null);
+            Arrays.fill(m_rowData, 0, m_rowCount, null);
+            m_rowCount = 0;
         }
 
         // Called by Client to inform us of the status of the bulk insert.
@@ -98,11 +156,16 @@ public class PerPartitionTable {
         public void clientCallback(final ClientResponse response) throws InterruptedException {
             if (response.getStatus() != ClientResponse.SUCCESS) {
                 // Queue up all rows for individual processing by originating BulkLoader's FailureProcessor.
+                final List<VoltBulkLoaderRow> failedRows = new ArrayList<VoltBulkLoaderRow>(m_rowCount);
+                for (int i = 0; i < m_rowCount; i++) {
+                    failedRows.add(new VoltBulkLoaderRow(m_loaders[i], m_rowHandles[i], m_rowData[i]));
+                }
+                recycleBatch(this);
                 m_es.execute(new Runnable() {
                     @Override
                     public void run() {
                         try {
-                            reinsertFailed(m_batchRowList);
+                            reinsertFailed(failedRows);
                         } catch (Exception e) {
                             loaderLog.error("Failed to re-insert failed batch", e);
                         }
@@ -110,6 +173,15 @@ public class PerPartitionTable {
                 });
             }
             else {
+                // Rows of one loader are usually contiguous, so update the counters per run of rows.
+                int runStart = 0;
+                for (int i = 1; i <= m_rowCount; i++) {
+                    if (i == m_rowCount || m_loaders[i] != m_loaders[runStart]) {
+                        m_loaders[runStart].m_loaderCompletedCnt.addAndGet(i - runStart);
+                        m_loaders[runStart].m_outstandingRowCount.addAndGet(runStart - i);
+                        runStart = i;
+                    }
+                }
                 // For each row in the batch, notify the caller of success, so it can do any
                 // necessary bookkeeping (like managing offsets, for example). Do this in the executor
                 // so as not to hold up the callback.
@@ -117,15 +189,15 @@ public class PerPartitionTable {
                     m_es.execute(new Runnable() {
                         @Override
                         public void run() {
-                            for (VoltBulkLoaderRow r : m_batchRowList) {
-                                m_successCallback.success(r.m_rowHandle, response);
+                            for (int i = 0; i < m_rowCount; i++) {
+                                m_successCallback.success(m_rowHandles[i], response);
                             }
+                            recycleBatch(PartitionBatch.this);
                         }
                     });
                 }
-                for (Map.Entry<VoltBulkLoader, Long> e : m_batchSizes.entrySet()) {
-                    e.getKey().m_loaderCompletedCnt.addAndGet(e.getValue());
-                    e.getKey().m_outstandingRowCount.addAndGet(-1 * e.getValue());
+                else {
+                    recycleBatch(this);
                 }
             }
         }
@@ -138,7 +210,6 @@ public class PerPartitionTable {
         m_isMP = isMP;
         m_procName = firstLoader.m_procName;
         m_upsert = (byte) (firstLoader.m_upsert ? 1:0);
-        m_partitionRowQueue = new LinkedBlockingQueue<VoltBulkLoaderRow>(minBatchTriggerSize*5);
         m_minBatchTriggerSize = minBatchTriggerSize;
         m_columnInfo = firstLoader.m_colInfo;
         m_partitionedColumnIndex = firstLoader.m_partitionedColumnIndex;
@@ -146,7 +217,8 @@ public class PerPartitionTable {
         m_partitionColumnType = firstLoader.m_partitionColumnType;
         m_tableName = tableName;
         m_successCallback = successCallback;
-        m_table = new VoltTable(m_columnInfo);
+        m_convertedRow = new Object[m_columnTypes.length];
+        m_currentBatch = new PartitionBatch(minBatchTriggerSize);
         m_autoReconnect = m_clientImpl.isAutoReconnectEnabled();
 
         m_es = CoreUtils.getSingleThreadExecutor(tableName + "-" + partitionId);
@@ -164,24 +236,42 @@ public class PerPartitionTable {
      }
 
     /**
-     * Synchronized so that when the a single batch is filled up, we only queue one task to
-     * drain the queue. The task will drain the queue until it doesn't contain a single batch.
+     * Convert the row to the column types and append it to the batch being built. Rows that
+     * cannot be converted are reported to the loader's failure callback right away, outside
+     * of the lock, and are never counted as outstanding. Synchronized so that the batch is swapped out exactly once
+     * when it fills up; the full batch is then handed to m_es, and the inserting thread only
+     * blocks, outside of the lock, when too many full batches are already waiting.
      */
-    synchronized void insertRowInTable(final VoltBulkLoaderRow nextRow) throws InterruptedException {
-        m_partitionRowQueue.put(nextRow);
-        if (m_partitionRowQueue.size() == m_minBatchTriggerSize) {
-            m_es.execute(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        while (m_partitionRowQueue.size() >= m_minBatchTriggerSize) {
-                            loadTable(buildTable(), m_table);
-                        }
-                    } catch (Exception e) {
-                        loaderLog.error("Failed to load batch", e);
-                    }
+    void insertRowInTable(VoltBulkLoader loader, Object rowHandle, Object[] rowData)
+            throws InterruptedException {
+        Exception conversionError = null;
+        boolean handedOff = false;
+        synchronized (this) {
+            try {
+                for (int i = 0; i < m_convertedRow.length; i++) {
+                    final VoltType type = m_columnTypes[i];
+                    m_convertedRow[i] = ParameterConverter.tryToMakeCompatible(type.classFromType(), rowData[i]);
                 }
-            });
+                m_currentBatch.append(loader, rowHandle, rowData, m_convertedRow);
+                loader.m_outstandingRowCount.incrementAndGet();
+            } catch (Exception e) {
+                conversionError = e;
+            } finally {
+                Arrays.fill(m_convertedRow, null);
+            }
+
+            if (conversionError == null && !m_currentBatch.hasRoom()) {
+                m_fullBatches.offer(m_currentBatch);
+                m_currentBatch = takeFreeBatch();
+                handedOff = true;
+            }
+        }
+        if (conversionError != null) {
+            loader.generateError(rowHandle, rowData, conversionError.getMessage());
+        }
+        else if (handedOff) {
+            m_es.execute(m_loadFullBatches);
+            m_batchPermits.acquire();
         }
     }
 
@@ -194,7 +284,18 @@ public class PerPartitionTable {
         return m_es.submit(new Callable<Boolean>() {
             @Override
             public Boolean call() throws Exception {
-                loadTable(buildTable(), m_table);
+                PartitionBatch partialBatch = null;
+                synchronized (PerPartitionTable.this) {
+                    if (m_currentBatch.m_rowCount > 0) {
+                        partialBatch = m_currentBatch;
+                        m_currentBatch = takeFreeBatch();
+                    }
+                }
+                // Rows appended before the partial batch must be submitted first
+                loadFullBatches();
+                if (partialBatch != null) {
+                    loadBatch(partialBatch);
+                }
                 return true;
             }
         });
@@ -210,6 +311,55 @@ public class PerPartitionTable {
         m_es.awaitTermination(365, TimeUnit.DAYS);
     }
 
+    /**
+     * @return A copy of the number of batches submitted by this table, bucketed by how full
+     * they were relative to the batch size in effect when they were submitted
+     */
+    long[] getBatchFillHistogram() {
+        long[] histogram = new long[FILL_HISTOGRAM_BUCKETS];
+        for (int i = 0; i < FILL_HISTOGRAM_BUCKETS; i++) {
+            histogram[i] = m_batchFillHistogram.get(i);
+        }
+        return histogram;
+    }
+
+    // Must be called while holding the lock on this
+    private PartitionBatch takeFreeBatch() {
+        PartitionBatch batch = m_freeBatches.poll();
+        if (batch == null || batch.m_loaders.length < m_minBatchTriggerSize) {
+            batch = new PartitionBatch(m_minBatchTriggerSize);
+        }
+        return batch;
+    }
+
+    private void recycleBatch(PartitionBatch batch) {
+        batch.reset();
+        if (m_freeBatches.size() < MAX_FREE_BATCHES) {
+            m_freeBatches.offer(batch);
+        }
+    }
+
+    private void loadFullBatches() throws Exception {
+        PartitionBatch batch;
+        while ((batch = m_fullBatches.poll()) != null) {
+            try {
+                loadBatch(batch);
+            } finally {
+                m_batchPermits.release();
+            }
+        }
+    }
+
+    private void loadBatch(PartitionBatch batch) throws Exception {
+        if (batch.m_rowCount <= 0) {
+            recycleBatch(batch);
+            return;
+        }
+        int bucket = (int) ((long) batch.m_rowCount * FILL_HISTOGRAM_BUCKETS / Math.max(1, m_minBatchTriggerSize));
+        m_batchFillHistogram.incrementAndGet(Math.min(bucket, FILL_HISTOGRAM_BUCKETS - 1));
+        loadTable(batch, batch.m_table);
+    }
+
     private void reinsertFailed(List<VoltBulkLoaderRow> rows) throws Exception {
         VoltTable tmpTable = new VoltTable(m_columnInfo);
         for (final VoltBulkLoaderRow row : rows) {
@@ -224,7 +374,7 @@ public class PerPartitionTable {
                 }
                 tmpTable.addRow(row_args);
             } catch (VoltTypeException ex) {
-                // Should never happened because the bulk conversion in PerPartitionProcessor
+                // Should never happened because the conversion in insertRowInTable
                 // should have caught this.
                 loaderLog.error("Type conversion exception", ex);
                 assert false: "Type conversion exception" + ex.getMessage();
@@ -257,43 +407,10 @@ public class PerPartitionTable {
                 }
             };
             loadTable(callback, tmpTable);
+            tmpTable.clearRowData();
         }
     }
 
-    private PartitionProcedureCallback buildTable() {
-        ArrayList<VoltBulkLoaderRow> buf = new ArrayList<VoltBulkLoaderRow>(m_minBatchTriggerSize);
-        m_partitionRowQueue.drainTo(buf, m_minBatchTriggerSize);
-
-        Map<VoltBulkLoader, Long> batchSizes = new HashMap<>();
-        ListIterator<VoltBulkLoaderRow> it = buf.listIterator();
-        while (it.hasNext()) {
-            VoltBulkLoaderRow currRow = it.next();
-            VoltBulkLoader loader = currRow.m_loader;
-            Object row_args[];
-            row_args = new Object[currRow.m_rowData.length];
-            try {
-                for (int i = 0; i < row_args.length; i++) {
-                    final VoltType type = m_columnTypes[i];
-                    row_args[i] = ParameterConverter.tryToMakeCompatible(type.classFromType(),
-                            currRow.m_rowData[i]);
-                }
-            } catch (Exception e) {
-                loader.generateError(currRow.m_rowHandle, currRow.m_rowData, e.getMessage());
-                loader.m_outstandingRowCount.decrementAndGet();
-                it.remove();
-                continue;
-            }
-            m_table.addRow(row_args);
-
-            Long prevValue;
-            if ((prevValue = batchSizes.put(loader, 1L)) != null) {
-                batchSizes.put(loader, prevValue + 1);
-            }
-        }
-
-        return new PartitionProcedureCallback(buf, batchSizes);
-    }
-
     private void loadTable(ProcedureCallback callback, VoltTable toSend) throws Exception {
         if (toSend.getRowCount() <= 0) {
             return;
@@ -322,7 +439,6 @@ public class PerPartitionTable {
                 callback.clientCallback(r);
             }
         }
-        toSend.clearRowData();
     }
 
     private void load(ProcedureCallback callback, VoltTable toSend) throws Exception {
@@ -107,6 +107,8 @@ public class VoltBulkLoader {
     final AtomicLong m_outstandingRowCount = new AtomicLong(0);
     //Number of rows for which we have received a definitive success or failure.
     final AtomicLong m_loaderCompletedCnt = new AtomicLong(0);
+    //Creation time used to compute the row rate
+    private final long m_startNanos = System.nanoTime();
 
     // Constructor allocated through the Client to ensure consistency of VoltBulkLoaderGlobals
     public VoltBulkLoader(BulkLoaderState vblGlobals, String tableName, int maxBatchSize,
@@ -330,21 +332,19 @@ public class VoltBulkLoader {
             generateError(rowHandle, fieldList, errMsg);
             return;
         }
-        VoltBulkLoaderRow newRow = new VoltBulkLoaderRow(this, rowHandle, fieldList);
         if (m_isMP) {
-            m_partitionTable[m_firstPartitionTable].insertRowInTable(newRow);
+            m_partitionTable[m_firstPartitionTable].insertRowInTable(this, rowHandle, fieldList);
         }
         else {
             try {
                 partitionId = (int)m_clientImpl.getPartitionForParameter(
                         m_partitionColumnType.getValue(), fieldList[m_partitionedColumnIndex]);
-                m_partitionTable[partitionId].insertRowInTable(newRow);
             } catch (VoltTypeException e) {
                 generateError(rowHandle, fieldList, e.getMessage());
                 return;
             }
+            m_partitionTable[partitionId].insertRowInTable(this, rowHandle, fieldList);
         }
-        m_outstandingRowCount.incrementAndGet();
     }
 
     /**
@@ -462,6 +462,35 @@ public class VoltBulkLoader {
         return m_loaderCompletedCnt.get();
     }
 
+    /**
+     * @return The average number of rows per second for which this instance of VoltBulkLoader
+     *  has received a definitive success or failure since it was created
+     */
+    public double getRowsPerSecond() {
+        long elapsedNanos = Math.max(1, System.nanoTime() - m_startNanos);
+        return m_loaderCompletedCnt.get() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * The batch fill histogram counts the batches submitted for this table by how full they
+     * were, in ten equal buckets of the batch size; the last bucket counts full batches.
+     * Mostly partial batches mean that rows are being flushed, or are spread over more
+     * partitions, faster than they fill a batch. As with getMaxBatchSize(), batches include
+     * rows from all instances of VoltBulkLoader inserting into the same table.
+     *
+     * @return The number of batches submitted in each bucket, from emptiest to fullest
+     */
+    public long[] getBatchFillHistogram() {
+        long[] histogram = new long[PerPartitionTable.FILL_HISTOGRAM_BUCKETS];
+        for (int i = m_firstPartitionTable; i <= m_lastPartitionTable; i++) {
+            long[] partitionHistogram = m_partitionTable[i].getBatchFillHistogram();
+            for (int j = 0; j < histogram.length; j++) {
+                histogram[j] += partitionHistogram[j];
+            }
+        }
+        return histogram;
+    }
+
     public VoltType[] getColumnTypes() {
         return m_mappedColumnTypes.values().toArray(new VoltType[m_mappedColumnTypes.size()]);
     }
@@ -18,12 +18,10 @@
 package org.voltdb.compiler;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.voltdb.common.Constants;
 import org.voltdb.planner.BoundPlan;
@@ -82,23 +80,15 @@ public class AdHocCompilerCache implements Serializable {
     // max cache size for parameterized plans
     final long MAX_LITERAL_MEM  = Long.getLong("ADHOC_COMPILER_CACHE_MAX_LITERAL_MEM_BYTES", 32*1024*1024);
     final int MAX_CORE_ENTRIES;
+    final long MAX_CORE_MEM  = Long.getLong("ADHOC_COMPILER_CACHE_MAX_CORE_MEM_BYTES", 32*1024*1024);
 
     /** cache of literals to full plans */
-    final Map<String, AdHocPlannedStatement> m_literalCache;
+    final PlanCache<AdHocPlannedStatement> m_literalCache;
     /** cache of parameterized plan descriptions to one or more core parameterized plans,
      *  each plan optionally has its own requirements for which parameters need to be bound
-     *  to what values to enable its specialized (expression-indexed) plan. */
-    final Map<String, List<BoundPlan> > m_coreCache;
-
-    // placeholder stats used during development that may/may not survive
-    long m_literalHits = 0;
-    long m_literalQueries = 0;
-    long m_literalInsertions = 0;
-    long m_literalEvictions = 0;
-    long m_planHits = 0;
-    long m_planQueries = 0;
-    long m_planInsertions = 0;
-    long m_planEvictions = 0;
+     *  to what values to enable its specialized (expression-indexed) plan.
+     *  The variant lists are copy-on-write so they can be scanned without a lock. */
+    final PlanCache<List<BoundPlan>> m_coreCache;
 
     /** {@see this#startPeriodicStatsPrinting() } */
     Timer m_statsTimer = null;
@@ -114,129 +104,55 @@ public class AdHocCompilerCache implements Serializable {
      * Constructor with specific cache sizes is only called directly for testing.
      *
      * @param maxLiteralEntries cache size for literals
-     * @param maxLiteralMem cache memory for literals
+     * @param maxCoreEntries cache size for parameterized plans
      */
     AdHocCompilerCache(int maxLiteralEntries, int maxCoreEntries) {
         MAX_LITERAL_ENTRIES = maxLiteralEntries;
         MAX_CORE_ENTRIES = maxCoreEntries;
 
-        // an LRU cache map
-        m_literalCache = new AdHocStatementCache(MAX_LITERAL_ENTRIES, MAX_LITERAL_MEM);
-
-        // an LRU cache map
-        m_coreCache = new LinkedHashMap<String, List<BoundPlan> >(MAX_CORE_ENTRIES * 2, .75f, true) {
-            private static final long serialVersionUID = 1L;
-
-            // This method is called just after a new entry has been added
-            @Override
-            public boolean removeEldestEntry(Map.Entry<String, List<BoundPlan> > eldest) {
-                if (size() > MAX_CORE_ENTRIES) {
-                    ++m_planEvictions;
-                    return true;
-                }
-                return false;
-            }
-
-        };
-    }
-
-    // define a LinkedHashMap based LRU cache bounds by both entry number and entry value on-heap size
-    // without changing Map.Entry, only works for value of type AdHocPlannedStatement
-    // only extend put, remove,clear and removeEldestEntry methods to account weight
-    public class AdHocStatementCache extends LinkedHashMap<String, AdHocPlannedStatement>{
-       private static final long serialVersionUID = 2988383448026641836L;
-        private final int maxEntries;
-        private final long maxMemory; // in bytes
-        private long currentMemory;   // in bytes
-
-        public AdHocStatementCache() {
-            // default max entry of 1000
-            // default max value size of 32MB
-            this(1000, 32 * 1024 * 1024);
-        }
-
-        public AdHocStatementCache(final int maxEntries) {
-            this(maxEntries, 32 * 1024 * 1024);
-        }
-
-        public AdHocStatementCache(final int maxEntries, final long maxMemory) {
-            // set accessOrder to true for LRU
-            super(maxEntries * 2, .75f, true);
-            this.maxEntries = maxEntries;
-            this.maxMemory = maxMemory;
-            this.currentMemory = 0;
-        }
-
-        // This method is called just after a new entry has been added
-        @Override
-        public boolean removeEldestEntry(final Map.Entry<String, AdHocPlannedStatement> eldest) {
-            if ((size() > maxEntries) || (this.currentMemory > this.maxMemory))  {
-                ++m_literalEvictions;
-                this.currentMemory -= eldest.getValue().getSerializedSize();
-                return true;
-            }
-            return false;
-        }
-
-        @Override
-        public AdHocPlannedStatement put(String key, AdHocPlannedStatement value) {
-            this.currentMemory += value.getSerializedSize();
-            return super.put(key,value);
-        }
-
-        @Override
-        public AdHocPlannedStatement remove(Object key) {
-            AdHocPlannedStatement value = super.remove(key);
-            if (value != null) {
-                this.currentMemory -= value.getSerializedSize();
-            }
-            return value;
-        }
-
-        @Override
-        public void clear() {
-            super.clear();
-            this.currentMemory = 0;
-        }
+        m_literalCache = new PlanCache<>(MAX_LITERAL_ENTRIES, MAX_LITERAL_MEM,
+                new PlanCache.Weigher<AdHocPlannedStatement>() {
+                    @Override
+                    public long weigh(AdHocPlannedStatement plan) {
+                        return plan.getSerializedSize();
+                    }
+                });
+
+        // The variants of a parameterized plan share its shape, so the first one
+        // stands in for the weight of the entry.
+        m_coreCache = new PlanCache<>(MAX_CORE_ENTRIES, MAX_CORE_MEM,
+                new PlanCache.Weigher<List<BoundPlan>>() {
+                    @Override
+                    public long weigh(List<BoundPlan> boundVariants) {
+                        return boundVariants.get(0).m_core.getSerializedSize();
+                    }
+                });
     }
 
     /**
      * Stats printing method used during development.
      * Probably shouldn't live past real stats integration.
      */
-    synchronized void printStats() {
+    void printStats() {
+        long literalQueries = m_literalCache.getHits() + m_literalCache.getMisses();
+        long planQueries = m_coreCache.getHits() + m_coreCache.getMisses();
         String line1 = String.format("CACHE STATS - Literals: Hits %d/%d (%.1f%%), Inserts %d Evictions %d\n",
-                m_literalHits, m_literalQueries, (m_literalHits * 100.0) / m_literalQueries,
-                m_literalInsertions, m_literalEvictions);
+                m_literalCache.getHits(), literalQueries, (m_literalCache.getHits() * 100.0) / literalQueries,
+                m_literalCache.getInsertions(), m_literalCache.getEvictions());
         String line2 = String.format("CACHE STATS - Plans:    Hits %d/%d (%.1f%%), Inserts %d Evictions %d\n",
-                m_planHits, m_planQueries, (m_planHits * 100.0) /m_planQueries,
-                m_planInsertions, m_planEvictions);
+                m_coreCache.getHits(), planQueries, (m_coreCache.getHits() * 100.0) / planQueries,
+                m_coreCache.getInsertions(), m_coreCache.getEvictions());
 
         System.out.print(line1 + line2);
         System.out.flush();
-
-        // reset these
-        m_literalHits = 0;
-        m_literalQueries = 0;
-        m_literalInsertions = 0;
-        m_literalEvictions = 0;
-        m_planHits = 0;
-        m_planQueries = 0;
-        m_planInsertions = 0;
-        m_planEvictions = 0;
     }
 
     /**
      * @param sql SQL literal
      * @return full, ready-to-go plan
      */
-    public synchronized AdHocPlannedStatement getWithSQL(String sql) {
-        ++m_literalQueries;
-        AdHocPlannedStatement retval = m_literalCache.get(sql);
-        if (retval != null) {
-            ++m_literalHits;
-        }
-        return retval;
+    public AdHocPlannedStatement getWithSQL(String sql) {
+        return m_literalCache.get(sql);
     }
 
     /**
@@ -244,13 +160,8 @@ public class AdHocCompilerCache implements Serializable {
      * SQL statement
      * @return A CorePlan that needs parameter values to run.
      */
-    public synchronized List<BoundPlan> getWithParsedToken(String parsedToken) {
-        ++m_planQueries;
-        List<BoundPlan> retval = m_coreCache.get(parsedToken);
-        if (retval != null) {
-            ++m_planHits;
-        }
-        return retval;
+    public List<BoundPlan> getWithParsedToken(String parsedToken) {
+        return m_coreCache.get(parsedToken);
     }
 
     /**
@@ -270,13 +181,15 @@ public class AdHocCompilerCache implements Serializable {
      * @param extractedLiterals the basis values for any "bound parameter" restrictions to plan re-use
      * @param hasUserQuestionMarkParameters is user provided parameterized query
      * @param hasAutoParameterizedException is the auto parameterized query has parameter exception
+     * @param planningCost      nanoseconds spent producing the plan, favors keeping costly plans
      */
-    public synchronized void put(String sql,
-                                 String parsedToken,
-                                 AdHocPlannedStatement planIn,
-                                 String[] extractedLiterals,
-                                 boolean hasUserQuestionMarkParameters,
-                                 boolean hasAutoParameterizedException)
+    public void put(String sql,
+                    String parsedToken,
+                    AdHocPlannedStatement planIn,
+                    String[] extractedLiterals,
+                    boolean hasUserQuestionMarkParameters,
+                    boolean hasAutoParameterizedException,
+                    long planningCost)
     {
         assert(sql != null);
         assert(parsedToken != null);
@@ -293,25 +206,27 @@ public class AdHocCompilerCache implements Serializable {
 
         // deal with L2 cache
         if (! hasAutoParameterizedException) {
-            BoundPlan matched = null;
             BoundPlan unmatched = new BoundPlan(planIn.core, planIn.parameterBindings(extractedLiterals));
-            // deal with the parameterized plan cache first
-            List<BoundPlan> boundVariants = m_coreCache.get(parsedToken);
-            if (boundVariants == null) {
-                boundVariants = new ArrayList<BoundPlan>();
-                m_coreCache.put(parsedToken, boundVariants);
-                // Note that there is an edge case in which more than one plan is getting counted as one
-                // "plan insertion". This only happens when two different plans arose from the same parameterized
-                // query (token) because one invocation used the correct constants to trigger an expression index and
-                // another invocation did not.  These are not counted separately (which would have to happen below
-                // after each call to boundVariants.add) because they are not evicted separately.
-                // It seems saner to use consistent units when counting insertions vs. evictions.
-                ++m_planInsertions;
-            } else {
-                for (BoundPlan boundPlan : boundVariants) {
-                    if (boundPlan.equals(unmatched)) {
-                        matched = boundPlan;
-                        break;
+            List<BoundPlan> newVariants = new CopyOnWriteArrayList<BoundPlan>();
+            newVariants.add(unmatched);
+            // Note that there is an edge case in which more than one plan is getting counted as one
+            // "plan insertion". This only happens when two different plans arose from the same parameterized
+            // query (token) because one invocation used the correct constants to trigger an expression index and
+            // another invocation did not.  These are not counted separately because they are not evicted separately.
+            // It seems saner to use consistent units when counting insertions vs. evictions.
+            List<BoundPlan> boundVariants = m_coreCache.putIfAbsent(parsedToken, newVariants, planningCost);
+            if (boundVariants != null) {
+                BoundPlan matched = null;
+                // serialize concurrent additions of variants for the same token
+                synchronized (boundVariants) {
+                    for (BoundPlan boundPlan : boundVariants) {
+                        if (boundPlan.equals(unmatched)) {
+                            matched = boundPlan;
+                            break;
+                        }
+                    }
+                    if (matched == null) {
+                        boundVariants.add(unmatched);
                     }
                 }
                 if (matched != null) {
@@ -323,24 +238,13 @@ public class AdHocCompilerCache implements Serializable {
                     }
                 }
             }
-            if (matched == null) {
-                // Don't count insertions (of possibly repeated tokens) here
-                //  -- see the comment above where only UNIQUE token insertions are being counted, instead.
-                boundVariants.add(unmatched);
-            }
         }
 
         // then deal with the L1 cache
         if (! hasUserQuestionMarkParameters) {
-            AdHocPlannedStatement cachedPlan = m_literalCache.get(sql);
-            if (cachedPlan == null) {
-                //* enable to debug */ System.out.println("DEBUG: Caching literal '" + sql + "'");
-                m_literalCache.put(sql, plan);
-                ++m_literalInsertions;
-            }
-            else {
-                assert(cachedPlan.equals(plan));
-            }
+            //* enable to debug */ System.out.println("DEBUG: Caching literal '" + sql + "'");
+            AdHocPlannedStatement cachedPlan = m_literalCache.putIfAbsent(sql, plan, planningCost);
+            assert(cachedPlan == null || cachedPlan.equals(plan));
         }
     }
 
@@ -375,4 +279,18 @@ public class AdHocCompilerCache implements Serializable {
     public int getCoreCacheSize() {
         return m_coreCache.size();
     }
+
+    /**
+     * @return  number of plans dropped from the literal cache to make room
+     */
+    public long getLiteralCacheEvictions() {
+        return m_literalCache.getEvictions();
+    }
+
+    /**
+     * @return  number of plans dropped from the core (parameterized) cache to make room
+     */
+    public long getCoreCacheEvictions() {
+        return m_coreCache.getEvictions();
+    }
 }
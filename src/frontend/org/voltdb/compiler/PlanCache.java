@@ -0,0 +1,413 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.compiler;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A concurrent cache of planner output, bounded both by entry count and by
+ * the total weight (usually the on-heap size in bytes) of the cached values.
+ *
+ * The cache is split into independently locked segments by key hash so that
+ * lookups from many threads do not all serialize on one monitor. Each segment
+ * follows the W-TinyLFU design: new entries go to a small LRU admission window,
+ * and entries leaving the window only displace an entry of the main SLRU region
+ * (probation + protected) if they are likely to be more valuable. Value is
+ * estimated as the recent access frequency, taken from a count-min sketch,
+ * scaled by how expensive the entry was to produce.
+ */
+public class PlanCache<V> {
+
+    /** Computes the weight of a cached value. */
+    public interface Weigher<V> {
+        long weigh(V value);
+    }
+
+    private static final int MAX_SEGMENTS = 16;
+    // Entries per segment below which splitting the cache further is not worth it.
+    private static final int MIN_SEGMENT_ENTRIES = 64;
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final Weigher<V> m_weigher;
+    private final Segment<V>[] m_segments;
+    private final int m_segmentMask;
+
+    private final AtomicLong m_hits = new AtomicLong();
+    private final AtomicLong m_misses = new AtomicLong();
+    private final AtomicLong m_insertions = new AtomicLong();
+    private final AtomicLong m_evictions = new AtomicLong();
+
+    /**
+     * @param maxEntries  the most entries the cache holds
+     * @param maxWeight   the largest total weight of the values the cache holds
+     * @param weigher     computes the weight of each value
+     */
+    public PlanCache(int maxEntries, long maxWeight, Weigher<V> weigher) {
+        assert(maxEntries > 0 && maxWeight > 0);
+        m_weigher = weigher;
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && segmentCount * 2 * MIN_SEGMENT_ENTRIES <= maxEntries) {
+            segmentCount *= 2;
+        }
+        m_segments = newSegments(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            // spread any remainder over the first segments
+            int entries = maxEntries / segmentCount + (i < maxEntries % segmentCount ? 1 : 0);
+            m_segments[i] = new Segment<V>(this, entries, maxWeight / segmentCount);
+        }
+        m_segmentMask = segmentCount - 1;
+    }
+
+    // Java can't create an array of a generic type, the raw array only ever holds Segment<V>
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <V> Segment<V>[] newSegments(int count) {
+        return new Segment[count];
+    }
+
+    private static int spread(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        h *= 0x45d9f3b;
+        h ^= (h >>> 16);
+        return h;
+    }
+
+    private Segment<V> segmentFor(int hash) {
+        // use the high bits, the sketch and the hash maps consume the low ones
+        return m_segments[(hash >>> 24) & m_segmentMask];
+    }
+
+    /**
+     * @return the cached value, or null if there is none
+     */
+    public V get(String key) {
+        int hash = spread(key);
+        V value = segmentFor(hash).get(key, hash);
+        if (value == null) {
+            m_misses.incrementAndGet();
+        }
+        else {
+            m_hits.incrementAndGet();
+        }
+        return value;
+    }
+
+    /**
+     * Cache a value unless the key already has one.
+     *
+     * @param key    the key
+     * @param value  the value to cache
+     * @param cost   what it cost to produce the value, in nanoseconds.
+     *               More costly values are preferred when the cache is full.
+     * @return the value already cached for the key, or null if there was none
+     */
+    public V putIfAbsent(String key, V value, long cost) {
+        assert(value != null);
+        int hash = spread(key);
+        return segmentFor(hash).putIfAbsent(key, hash, value, m_weigher.weigh(value), cost);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : m_segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long weight() {
+        long weight = 0;
+        for (Segment<V> segment : m_segments) {
+            weight += segment.weight();
+        }
+        return weight;
+    }
+
+    public void clear() {
+        for (Segment<V> segment : m_segments) {
+            segment.clear();
+        }
+    }
+
+    public long getHits() {
+        return m_hits.get();
+    }
+
+    public long getMisses() {
+        return m_misses.get();
+    }
+
+    public long getInsertions() {
+        return m_insertions.get();
+    }
+
+    /**
+     * @return the number of entries dropped to make room, including new entries
+     *         that were not admitted past the admission window
+     */
+    public long getEvictions() {
+        return m_evictions.get();
+    }
+
+    private static final class Node<V> {
+        final String m_key;
+        final int m_hash;
+        final V m_value;
+        final long m_weight;
+        // A coarse, logarithmic measure of the cost of producing the value.
+        final int m_costFactor;
+
+        Node(String key, int hash, V value, long weight, long cost) {
+            m_key = key;
+            m_hash = hash;
+            m_value = value;
+            m_weight = weight;
+            // 1 for anything under 100us, then one more per doubling.
+            m_costFactor = 65 - Long.numberOfLeadingZeros(Math.max(0, cost) / 100_000);
+        }
+    }
+
+    /**
+     * One lock-protected part of the cache. Each region is an access ordered
+     * LinkedHashMap, so its iteration order starts with the LRU entry.
+     */
+    private static final class Segment<V> {
+        private final PlanCache<V> m_cache;
+        private final LinkedHashMap<String, Node<V>> m_window = new LinkedHashMap<>(16, .75f, true);
+        private final LinkedHashMap<String, Node<V>> m_probation = new LinkedHashMap<>(16, .75f, true);
+        private final LinkedHashMap<String, Node<V>> m_protected = new LinkedHashMap<>(16, .75f, true);
+        private final FrequencySketch m_sketch;
+
+        private final int m_maxWindowEntries;
+        private final int m_maxMainEntries;
+        private final int m_maxProtectedEntries;
+        private final long m_maxWindowWeight;
+        private final long m_maxMainWeight;
+        private final long m_maxProtectedWeight;
+
+        private long m_windowWeight = 0;
+        private long m_probationWeight = 0;
+        private long m_protectedWeight = 0;
+
+        Segment(PlanCache<V> cache, int maxEntries, long maxWeight) {
+            m_cache = cache;
+            m_maxWindowEntries = Math.max(1, maxEntries * WINDOW_PERCENT / 100);
+            m_maxMainEntries = Math.max(1, maxEntries - m_maxWindowEntries);
+            m_maxProtectedEntries = m_maxMainEntries * PROTECTED_PERCENT / 100;
+            m_maxWindowWeight = Math.max(1, maxWeight * WINDOW_PERCENT / 100);
+            m_maxMainWeight = Math.max(1, maxWeight - m_maxWindowWeight);
+            m_maxProtectedWeight = m_maxMainWeight * PROTECTED_PERCENT / 100;
+            m_sketch = new FrequencySketch(maxEntries);
+        }
+
+        synchronized V get(String key, int hash) {
+            m_sketch.increment(hash);
+            Node<V> node = m_window.get(key);
+            if (node == null) {
+                node = m_protected.get(key);
+                if (node == null) {
+                    node = m_probation.remove(key);
+                    if (node == null) {
+                        return null;
+                    }
+                    // a second use promotes a probation entry
+                    m_probationWeight -= node.m_weight;
+                    m_protected.put(key, node);
+                    m_protectedWeight += node.m_weight;
+                    demoteProtected();
+                }
+            }
+            return node.m_value;
+        }
+
+        synchronized V putIfAbsent(String key, int hash, V value, long weight, long cost) {
+            m_sketch.increment(hash);
+            Node<V> existing = m_window.get(key);
+            if (existing == null) {
+                existing = m_protected.get(key);
+            }
+            if (existing == null) {
+                existing = m_probation.get(key);
+            }
+            if (existing != null) {
+                return existing.m_value;
+            }
+            m_cache.m_insertions.incrementAndGet();
+            if (weight > m_maxMainWeight) {
+                // could never be admitted
+                m_cache.m_evictions.incrementAndGet();
+                return null;
+            }
+            m_window.put(key, new Node<V>(key, hash, value, weight, cost));
+            m_windowWeight += weight;
+            evictFromWindow();
+            return null;
+        }
+
+        synchronized int size() {
+            return m_window.size() + m_probation.size() + m_protected.size();
+        }
+
+        synchronized long weight() {
+            return m_windowWeight + m_probationWeight + m_protectedWeight;
+        }
+
+        synchronized void clear() {
+            m_window.clear();
+            m_probation.clear();
+            m_protected.clear();
+            m_windowWeight = m_probationWeight = m_protectedWeight = 0;
+        }
+
+        private int score(Node<V> node) {
+            return m_sketch.frequency(node.m_hash) * node.m_costFactor;
+        }
+
+        // Keep the protected region within its share by moving its LRU
+        // entries to the MRU end of probation.
+        private void demoteProtected() {
+            Iterator<Node<V>> it = m_protected.values().iterator();
+            while (it.hasNext() && (m_protected.size() > m_maxProtectedEntries ||
+                                    m_protectedWeight > m_maxProtectedWeight)) {
+                Node<V> node = it.next();
+                it.remove();
+                m_protectedWeight -= node.m_weight;
+                m_probation.put(node.m_key, node);
+                m_probationWeight += node.m_weight;
+            }
+        }
+
+        private boolean mainHasRoomFor(Node<V> node) {
+            return m_probation.size() + m_protected.size() < m_maxMainEntries &&
+                   m_probationWeight + m_protectedWeight + node.m_weight <= m_maxMainWeight;
+        }
+
+        // Move entries that overflow the admission window into the main region,
+        // provided they are worth more than what they would displace.
+        private void evictFromWindow() {
+            Iterator<Node<V>> windowIt = m_window.values().iterator();
+            while (m_window.size() > m_maxWindowEntries || m_windowWeight > m_maxWindowWeight) {
+                Node<V> candidate = windowIt.next();
+                windowIt.remove();
+                m_windowWeight -= candidate.m_weight;
+                if (!mainHasRoomFor(candidate)) {
+                    if (!admit(candidate)) {
+                        m_cache.m_evictions.incrementAndGet();
+                        continue;
+                    }
+                    while (!mainHasRoomFor(candidate)) {
+                        evictFromMain();
+                    }
+                }
+                m_probation.put(candidate.m_key, candidate);
+                m_probationWeight += candidate.m_weight;
+            }
+        }
+
+        private Node<V> mainVictim() {
+            LinkedHashMap<String, Node<V>> region = m_probation.isEmpty() ? m_protected : m_probation;
+            return region.values().iterator().next();
+        }
+
+        private boolean admit(Node<V> candidate) {
+            return score(candidate) > score(mainVictim());
+        }
+
+        private void evictFromMain() {
+            if (m_probation.isEmpty()) {
+                Iterator<Node<V>> it = m_protected.values().iterator();
+                m_protectedWeight -= it.next().m_weight;
+                it.remove();
+            }
+            else {
+                Iterator<Node<V>> it = m_probation.values().iterator();
+                m_probationWeight -= it.next().m_weight;
+                it.remove();
+            }
+            m_cache.m_evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * A count-min sketch of 4-bit counters estimating how often each key has been
+     * used recently. All counters are halved once enough uses have been recorded,
+     * so that the estimates follow changes in the workload.
+     */
+    static final class FrequencySketch {
+        private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+        private static final long HALF_MASK = 0x7777777777777777L;
+
+        // each long holds sixteen 4-bit counters
+        private final long[] m_table;
+        private final int m_tableMask;
+        private final int m_sampleSize;
+        private int m_additions = 0;
+
+        FrequencySketch(int maxEntries) {
+            int length = Integer.highestOneBit(Math.max(8, maxEntries) - 1) << 1;
+            m_table = new long[length];
+            m_tableMask = length - 1;
+            m_sampleSize = 10 * Math.max(8, maxEntries);
+        }
+
+        private int indexOf(int hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return (int) h;
+        }
+
+        int frequency(int hash) {
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int index = indexOf(hash, i);
+                int shift = (index & 15) << 2;
+                int count = (int) ((m_table[(index >>> 4) & m_tableMask] >>> shift) & 0xfL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int index = indexOf(hash, i);
+                int slot = (index >>> 4) & m_tableMask;
+                int shift = (index & 15) << 2;
+                if (((m_table[slot] >>> shift) & 0xfL) != 0xfL) {
+                    m_table[slot] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++m_additions >= m_sampleSize) {
+                reset();
+            }
+        }
+
+        private void reset() {
+            for (int i = 0; i < m_table.length; i++) {
+                m_table[i] = (m_table[i] >>> 1) & HALF_MASK;
+            }
+            m_additions /= 2;
+        }
+    }
+}
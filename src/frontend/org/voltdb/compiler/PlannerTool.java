@@ -53,7 +53,8 @@ public class PlannerTool {
 
     private Database m_database;
     private byte[] m_catalogHash;
-    private AdHocCompilerCache m_cache;
+    // Literal cache lookups read this without holding the planner's lock.
+    private volatile AdHocCompilerCache m_cache;
 
     private final HSQLInterface m_hsql;
 
@@ -163,12 +164,13 @@ public class PlannerTool {
         return plan;
     }
 
-    public synchronized AdHocPlannedStatement planSql(String sqlIn, StatementPartitioning partitioning,
+    public AdHocPlannedStatement planSql(String sqlIn, StatementPartitioning partitioning,
             boolean isExplainMode, final Object[] userParams, boolean isSwapTables, boolean isLargeQuery) {
 
         CacheUse cacheUse = CacheUse.FAIL;
+        Long statsStartTime = null;
         if (m_plannerStats != null) {
-            m_plannerStats.startStatsCollection();
+            statsStartTime = m_plannerStats.startStatsCollection();
         }
         boolean hasUserQuestionMark = false;
         boolean wrongNumberParameters = false;
@@ -202,145 +204,156 @@ public class PlannerTool {
                 }
             }
 
-            //////////////////////
-            // PLAN THE STMT
-            //////////////////////
-
-            CompiledPlan plan = null;
-            boolean planHasExceptionsWhenParameterized = false;
-            String[] extractedLiterals = null;
-            String parsedToken = null;
-
-            TrivialCostModel costModel = new TrivialCostModel();
-            DatabaseEstimates estimates = new DatabaseEstimates();
-            // This try-with-resources block acquires a global lock on all planning
-            // This is required until we figure out how to do parallel planning.
-            try (QueryPlanner planner = new QueryPlanner(
-                    sql,
-                    "PlannerTool",
-                    "PlannerToolProc",
-                    m_database,
-                    partitioning,
-                    m_hsql,
-                    estimates,
-                    !VoltCompiler.DEBUG_MODE,
-                    costModel,
-                    null,
-                    null,
-                    DeterminismMode.FASTER,
-                    isLargeQuery)) {
-
-                if (isSwapTables) {
-                    planner.planSwapTables();
-                } else {
-                    planner.parse();
-                }
-                parsedToken = planner.parameterize();
-
-                // check the parameters count
-                // check user input question marks with input parameters
-                int inputParamsLengh = userParams == null ? 0: userParams.length;
-                if (planner.getAdhocUserParamsCount() != inputParamsLengh) {
-                    wrongNumberParameters = true;
-                    if (!isExplainMode) {
-                        throw new PlanningErrorException(String.format(
-                                "Incorrect number of parameters passed: expected %d, passed %d",
-                                planner.getAdhocUserParamsCount(), inputParamsLengh));
+            // Everything past the literal cache needs this planner's HSQL session.
+            synchronized (this) {
+                // What a cache hit saves, for weighing cache entries against each other.
+                final long startTime = System.nanoTime();
+
+                //////////////////////
+                // PLAN THE STMT
+                //////////////////////
+
+                CompiledPlan plan = null;
+                boolean planHasExceptionsWhenParameterized = false;
+                String[] extractedLiterals = null;
+                String parsedToken = null;
+
+                TrivialCostModel costModel = new TrivialCostModel();
+                DatabaseEstimates estimates = new DatabaseEstimates();
+                // This try-with-resources block acquires a global lock on all planning
+                // This is required until we figure out how to do parallel planning.
+                try (QueryPlanner planner = new QueryPlanner(
+                        sql,
+                        "PlannerTool",
+                        "PlannerToolProc",
+                        m_database,
+                        partitioning,
+                        m_hsql,
+                        estimates,
+                        !VoltCompiler.DEBUG_MODE,
+                        costModel,
+                        null,
+                        null,
+                        DeterminismMode.FASTER,
+                        isLargeQuery)) {
+
+                    if (isSwapTables) {
+                        planner.planSwapTables();
+                    } else {
+                        planner.parse();
                     }
-                }
-                hasUserQuestionMark  = planner.getAdhocUserParamsCount() > 0;
-
-                // do not put wrong parameter explain query into cache
-                if (!wrongNumberParameters && partitioning.isInferred() && !isLargeQuery) {
-                    // if cacheable, check the cache for a matching pre-parameterized plan
-                    // if plan found, build the full plan using the parameter data in the
-                    // QueryPlanner.
-                    assert(parsedToken != null);
-                    extractedLiterals = planner.extractedParamLiteralValues();
-                    List<BoundPlan> boundVariants = m_cache.getWithParsedToken(parsedToken);
-                    if (boundVariants != null) {
-                        assert( ! boundVariants.isEmpty());
-                        BoundPlan matched = null;
-                        for (BoundPlan boundPlan : boundVariants) {
-                            if (boundPlan.allowsParams(extractedLiterals)) {
-                                matched = boundPlan;
-                                break;
-                            }
+                    parsedToken = planner.parameterize();
+
+                    // check the parameters count
+                    // check user input question marks with input parameters
+                    int inputParamsLengh = userParams == null ? 0: userParams.length;
+                    if (planner.getAdhocUserParamsCount() != inputParamsLengh) {
+                        wrongNumberParameters = true;
+                        if (!isExplainMode) {
+                            throw new PlanningErrorException(String.format(
+                                    "Incorrect number of parameters passed: expected %d, passed %d",
+                                    planner.getAdhocUserParamsCount(), inputParamsLengh));
                         }
-                        if (matched != null) {
-                            CorePlan core = matched.m_core;
-                            ParameterSet params = null;
-                            if (planner.compiledAsParameterizedPlan()) {
-                                params = planner.extractedParamValues(core.parameterTypes);
-                            } else if (hasUserQuestionMark) {
-                                params = ParameterSet.fromArrayNoCopy(userParams);
-                            } else {
-                                // No constants AdHoc queries
-                                params = ParameterSet.emptyParameterSet();
+                    }
+                    hasUserQuestionMark  = planner.getAdhocUserParamsCount() > 0;
+
+                    // do not put wrong parameter explain query into cache
+                    if (!wrongNumberParameters && partitioning.isInferred() && !isLargeQuery) {
+                        // if cacheable, check the cache for a matching pre-parameterized plan
+                        // if plan found, build the full plan using the parameter data in the
+                        // QueryPlanner.
+                        assert(parsedToken != null);
+                        extractedLiterals = planner.extractedParamLiteralValues();
+                        List<BoundPlan> boundVariants = m_cache.getWithParsedToken(parsedToken);
+                        if (boundVariants != null) {
+                            assert( ! boundVariants.isEmpty());
+                            BoundPlan matched = null;
+                            for (BoundPlan boundPlan : boundVariants) {
+                                if (boundPlan.allowsParams(extractedLiterals)) {
+                                    matched = boundPlan;
+                                    break;
+                                }
+                            }
+                            if (matched != null) {
+                                CorePlan core = matched.m_core;
+                                ParameterSet params = null;
+                                if (planner.compiledAsParameterizedPlan()) {
+                                    params = planner.extractedParamValues(core.parameterTypes);
+                                } else if (hasUserQuestionMark) {
+                                    params = ParameterSet.fromArrayNoCopy(userParams);
+                                } else {
+                                    // No constants AdHoc queries
+                                    params = ParameterSet.emptyParameterSet();
+                                }
+
+                                AdHocPlannedStatement ahps = new AdHocPlannedStatement(sql.getBytes(Constants.UTF8ENCODING),
+                                                                                       core,
+                                                                                       params,
+                                                                                       null);
+                                ahps.setBoundConstants(matched.m_constants);
+                                // parameterized plan from the cache does not have exception
+                                m_cache.put(sql, parsedToken, ahps, extractedLiterals, hasUserQuestionMark, false,
+                                        System.nanoTime() - startTime);
+                                cacheUse = CacheUse.HIT2;
+                                return ahps;
                             }
-
-                            AdHocPlannedStatement ahps = new AdHocPlannedStatement(sql.getBytes(Constants.UTF8ENCODING),
-                                                                                   core,
-                                                                                   params,
-                                                                                   null);
-                            ahps.setBoundConstants(matched.m_constants);
-                            // parameterized plan from the cache does not have exception
-                            m_cache.put(sql, parsedToken, ahps, extractedLiterals, hasUserQuestionMark, false);
-                            cacheUse = CacheUse.HIT2;
-                            return ahps;
                         }
                     }
-                }
 
-                // If not caching or there was no cache hit, do the expensive full planning.
-                plan = planner.plan();
-                if (plan.getStatementPartitioning() != null) {
-                    partitioning = plan.getStatementPartitioning();
-                }
+                    // If not caching or there was no cache hit, do the expensive full planning.
+                    plan = planner.plan();
+                    if (plan.getStatementPartitioning() != null) {
+                        partitioning = plan.getStatementPartitioning();
+                    }
 
-                planHasExceptionsWhenParameterized = planner.wasBadPameterized();
-            }
-            catch (Exception e) {
-                /*
-                 * Don't log PlanningErrorExceptions or HSQLParseExceptions, as
-                 * they are at least somewhat expected.
-                 */
-                String loggedMsg = "";
-                if (!((e instanceof PlanningErrorException) || (e instanceof HSQLParseException))) {
-                    logException(e, "Error compiling query");
-                    loggedMsg = " (Stack trace has been written to the log.)";
+                    planHasExceptionsWhenParameterized = planner.wasBadPameterized();
+                }
+                catch (Exception e) {
+                    /*
+                     * Don't log PlanningErrorExceptions or HSQLParseExceptions, as
+                     * they are at least somewhat expected.
+                     */
+                    String loggedMsg = "";
+                    if (!((e instanceof PlanningErrorException) || (e instanceof HSQLParseException))) {
+                        logException(e, "Error compiling query");
+                        loggedMsg = " (Stack trace has been written to the log.)";
+                    }
+                    throw new RuntimeException("Error compiling query: " + e.toString() + loggedMsg,
+                                               e);
                 }
-                throw new RuntimeException("Error compiling query: " + e.toString() + loggedMsg,
-                                           e);
-            }
 
-            //////////////////////
-            // OUTPUT THE RESULT
-            //////////////////////
-            CorePlan core = new CorePlan(plan, m_catalogHash);
-            AdHocPlannedStatement ahps = new AdHocPlannedStatement(plan, core);
+                //////////////////////
+                // OUTPUT THE RESULT
+                //////////////////////
+                CorePlan core = new CorePlan(plan, m_catalogHash);
+                AdHocPlannedStatement ahps = new AdHocPlannedStatement(plan, core);
 
-            // Do not put wrong parameter explain query into cache.
-            // Also, do not put large query plans into the cache.
-            if (!wrongNumberParameters && partitioning.isInferred() && !isLargeQuery) {
+                // Do not put wrong parameter explain query into cache.
+                // Also, do not put large query plans into the cache.
+                if (!wrongNumberParameters && partitioning.isInferred() && !isLargeQuery) {
 
-                // Note either the parameter index (per force to a user-provided parameter) or
-                // the actual constant value of the partitioning key inferred from the plan.
-                // Either or both of these two values may simply default
-                // to -1 and to null, respectively.
-                core.setPartitioningParamIndex(partitioning.getInferredParameterIndex());
-                core.setPartitioningParamValue(partitioning.getInferredPartitioningValue());
+                    // Note either the parameter index (per force to a user-provided parameter) or
+                    // the actual constant value of the partitioning key inferred from the plan.
+                    // Either or both of these two values may simply default
+                    // to -1 and to null, respectively.
+                    core.setPartitioningParamIndex(partitioning.getInferredParameterIndex());
+                    core.setPartitioningParamValue(partitioning.getInferredPartitioningValue());
 
 
-                assert(parsedToken != null);
-                // Again, plans with inferred partitioning are the only ones supported in the cache.
-                m_cache.put(sqlIn, parsedToken, ahps, extractedLiterals, hasUserQuestionMark, planHasExceptionsWhenParameterized);
+                    assert(parsedToken != null);
+                    // Again, plans with inferred partitioning are the only ones supported in the cache.
+                    m_cache.put(sqlIn, parsedToken, ahps, extractedLiterals, hasUserQuestionMark,
+                            planHasExceptionsWhenParameterized, System.nanoTime() - startTime);
+                }
+                return ahps;
             }
-            return ahps;
         }
         finally {
             if (m_plannerStats != null) {
-                m_plannerStats.endStatsCollection(m_cache.getLiteralCacheSize(), m_cache.getCoreCacheSize(), cacheUse, -1);
+                m_plannerStats.endStatsCollection(statsStartTime,
+                        m_cache.getLiteralCacheSize(), m_cache.getCoreCacheSize(),
+                        m_cache.getLiteralCacheEvictions(), m_cache.getCoreCacheEvictions(),
+                        cacheUse, -1);
             }
         }
     }
@@ -24,9 +24,11 @@ import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -96,7 +98,10 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
     private volatile boolean m_closed = false;
     private volatile AtomicBoolean m_mastershipAccepted = new AtomicBoolean(false);
     private volatile ListeningExecutorService m_es;
-    private final AtomicReference<BBContainer> m_pendingContainer = new AtomicReference<>();
+    //Containers handed back by a processor that shut down, polled again in the order they were handed back
+    private final ConcurrentLinkedQueue<BBContainer> m_pendingContainers = new ConcurrentLinkedQueue<>();
+    //Polled containers in poll order that have not been acked yet, guarded by this
+    private final ArrayDeque<AckingContainer> m_unackedContainers = new ArrayDeque<>();
     private volatile boolean m_isInCatalog;
     private volatile boolean m_eos;
     private final Generation m_generation;
@@ -634,8 +639,8 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
     }
 
     public void setPendingContainer(BBContainer container) {
-        Preconditions.checkNotNull(m_pendingContainer.get() != null, "Pending container must be null.");
-        m_pendingContainer.set(container);
+        Preconditions.checkNotNull(container, "Pending container must not be null.");
+        m_pendingContainers.offer(container);
     }
 
     public ListenableFuture<BBContainer> poll() {
@@ -646,8 +651,9 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
                 public void run() {
                     try {
                         //If we have anything pending set that before moving to next block.
-                        if (m_pendingContainer.get() != null) {
-                            fut.set(m_pendingContainer.getAndSet(null));
+                        BBContainer pending = m_pendingContainers.poll();
+                        if (pending != null) {
+                            fut.set(pending);
                             if (m_pollFuture != null) {
                                 if (exportLog.isDebugEnabled()) {
                                     exportLog.debug("picked up work from pending container, set poll future to null");
@@ -749,6 +755,7 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
             } else {
                 final AckingContainer ackingContainer = new AckingContainer(first_unpolled_block.unreleasedContainer(),
                                                                             first_unpolled_block.uso() + first_unpolled_block.totalSize() - 1);
+                m_unackedContainers.add(ackingContainer);
                 try {
                     fut.set(ackingContainer);
                 } catch (RejectedExecutionException reex) {
@@ -764,6 +771,8 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
     class AckingContainer extends BBContainer {
         final long m_uso;
         final BBContainer m_backingCont;
+        //Set once discarded, guarded by ExportDataSource.this
+        boolean m_acked = false;
         public AckingContainer(BBContainer cont, long uso) {
             super(cont.b());
             m_uso = uso;
@@ -782,12 +791,17 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
                         }
                         try {
                             m_backingCont.discard();
+                            final long releaseUso = releasableUso(AckingContainer.this);
+                            if (releaseUso < 0) {
+                                // A container polled earlier is still being processed
+                                return;
+                            }
                             try {
                                 if (!m_es.isShutdown()) {
-                                    ackImpl(m_uso);
+                                    ackImpl(releaseUso);
                                 }
                             } finally {
-                                forwardAckToOtherReplicas(m_uso);
+                                forwardAckToOtherReplicas(releaseUso);
                             }
                         } catch (Exception e) {
                             exportLog.error("Error acking export buffer", e);
@@ -804,6 +818,31 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
         }
     }
 
+    /**
+     * Processors may finish polled containers out of order, but export bytes must only be
+     * released, and acks forwarded, up to the end of the oldest container still unacked.
+     * Mark the container acked and return the highest USO that is now safe to release, or
+     * -1 if a container polled before it is still outstanding.
+     */
+    private synchronized long releasableUso(AckingContainer acked) {
+        acked.m_acked = true;
+        if (!m_unackedContainers.contains(acked)) {
+            // Already released by an ack from another replica
+            return acked.m_uso;
+        }
+        long releaseUso = -1;
+        AckingContainer head;
+        while ((head = m_unackedContainers.peek()) != null) {
+            if (head.m_acked) {
+                releaseUso = head.m_uso;
+            } else if (head.m_uso > m_lastReleaseOffset) {
+                break;
+            }
+            m_unackedContainers.poll();
+        }
+        return releaseUso;
+    }
+
     private void forwardAckToOtherReplicas(long uso) {
         if (m_runEveryWhere && m_replicaRunning) {
            //we dont forward if we are running as replica in replicated export
@@ -890,7 +929,7 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
         // For case where the previous export processor had only row of the first block to process
         // and it completed processing it, poll future is not set to null still. Set it to null to
         // prepare for the new processor polling
-        if ((m_pollFuture != null) && (m_pendingContainer.get() == null)) {
+        if ((m_pollFuture != null) && m_pendingContainers.isEmpty()) {
             m_pollFuture = null;
         }
     }
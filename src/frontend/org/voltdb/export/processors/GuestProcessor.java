@@ -20,6 +20,7 @@ package org.voltdb.export.processors;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -27,10 +28,12 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadLocalRandom;
 
 import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.Pair;
 import org.voltdb.VoltDB;
@@ -42,9 +45,11 @@ import org.voltdb.exportclient.ExportClientBase;
 import org.voltdb.exportclient.ExportDecoderBase;
 import org.voltdb.exportclient.ExportDecoderBase.RestartBlockException;
 import org.voltdb.exportclient.ExportRow;
+import org.voltdb.exportclient.ExportRowBatch;
 
 import com.google_voltpatches.common.base.Preconditions;
 import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
 import java.lang.reflect.Method;
 import org.voltdb.VoltType;
 
@@ -52,6 +57,18 @@ public class GuestProcessor implements ExportDataProcessor {
 
     public static final String EXPORT_TO_TYPE = "__EXPORT_TO_TYPE__";
 
+    // Number of blocks of one data source decoded in parallel, and threads in the shared
+    // decoder pool. At 1, blocks are decoded one at a time on the decoder's executor.
+    static final int EXPORT_DECODE_PARALLELISM = Integer.getInteger("EXPORT_DECODE_PARALLELISM", 1);
+    // Offset of the has-schema flag in a row: generation, partition column index and column count
+    private static final int ROW_HAS_SCHEMA_OFFSET = 8 + 4 + 4;
+
+    // Decoder threads shared by all data sources, created on first use
+    private static class DecoderPoolHolder {
+        static final ListeningExecutorService POOL =
+                CoreUtils.getListeningExecutorService("Export Decoder", EXPORT_DECODE_PARALLELISM);
+    }
+
     // FIXME - replace with fixed list of ExportDataSource. That is all we need from m_generation.
     private ExportGeneration m_generation;
     private volatile boolean m_shutdown = false;
@@ -209,6 +226,17 @@ public class GuestProcessor implements ExportDataProcessor {
                     m_logger.debug("Found Modern export client: " + client.getClass().getCanonicalName());
                 }
             }
+            try {
+                Method m = edb.getClass().getMethod("processBatch", ExportRowBatch.class);
+                if (m.getDeclaringClass() != ExportDecoderBase.class && !edb.isLegacy()) {
+                    if (m_logger.isDebugEnabled()) {
+                        m_logger.debug("Found batch export client: " + client.getClass().getCanonicalName());
+                    }
+                    edb.setBatched(true);
+                }
+            } catch (NoSuchMethodException ex) {
+                // Not reached, processBatch is public on ExportDecoderBase
+            }
         }
 
         //Utility method to build and add listener.
@@ -219,8 +247,12 @@ public class GuestProcessor implements ExportDataProcessor {
             detectDecoder(m_client, edb);
             Pair<ExportDecoderBase, AdvertisedDataSource> pair = Pair.of(edb, ads);
             m_decoders.add(pair);
-            final ListenableFuture<BBContainer> fut = m_source.poll();
-            addBlockListener(m_source, fut, edb);
+            if (EXPORT_DECODE_PARALLELISM > 1 && !edb.isLegacy()) {
+                new ParallelBlockDecoder(m_source, edb).pollNext();
+            } else {
+                final ListenableFuture<BBContainer> fut = m_source.poll();
+                addBlockListener(m_source, fut, edb);
+            }
         }
 
         private void runDataSource() {
@@ -322,108 +354,321 @@ public class GuestProcessor implements ExportDataProcessor {
                     if (cont == null) {
                         return;
                     }
-                    try {
-                        //Position to restart at on error
-                        final int startPosition = cont.b().position();
-
-                        //Track the amount of backoff to use next time, will be updated on repeated failure
-                        int backoffQuantity = 10 + (int)(10 * ThreadLocalRandom.current().nextDouble());
-
-                        /*
-                         * If there is an error processing the block the decoder thinks is recoverable
-                         * start the block from the beginning and repeat until it is processed.
-                         * Also allow the decoder to request exponential backoff
-                         */
-                        while (!m_shutdown) {
+                    processBlock(source, cont, edb, null);
+                } catch (Exception e) {
+                    m_logger.error("Error processing export block", e);
+                }
+                if (!m_shutdown) {
+                    addBlockListener(source, source.poll(), edb);
+                }
+            }
+        }, edb.getExecutor());
+    }
+
+    /**
+     * Keeps up to EXPORT_DECODE_PARALLELISM polled blocks of one data source in flight. Rows of
+     * each block are decoded on the shared decoder pool as soon as the block is polled, but
+     * blocks are handed to the decoder one at a time and in poll order, so they are still
+     * discarded, and therefore acked, in order. Decoders are stateful, so only decoding rows
+     * runs in parallel; processRow() is called from a single thread as before.
+     */
+    private class ParallelBlockDecoder {
+        final ExportDataSource m_source;
+        final ExportDecoderBase m_edb;
+        final Executor m_deliveryExecutor;
+        //Polled blocks in poll order, guarded by this
+        final ArrayDeque<PolledBlock> m_blocks = new ArrayDeque<>();
+        //Whether a poll is outstanding, guarded by this
+        boolean m_polling = false;
+        //Whether blocks are being handed to the decoder, guarded by this
+        boolean m_delivering = false;
+        //Whether the source returned end of stream, guarded by this
+        boolean m_endOfStream = false;
+
+        private final Runnable m_deliverBlocks = new Runnable() {
+            @Override
+            public void run() {
+                deliverBlocks();
+            }
+        };
+
+        ParallelBlockDecoder(ExportDataSource source, ExportDecoderBase edb) {
+            m_source = source;
+            m_edb = edb;
+            // Decoders without an executor of their own process blocks on the data source thread
+            m_deliveryExecutor = edb.getExecutor() == CoreUtils.LISTENINGSAMETHREADEXECUTOR ?
+                    source.getExecutorService() : edb.getExecutor();
+        }
+
+        void pollNext() {
+            synchronized (this) {
+                if (m_shutdown || m_polling || m_endOfStream || m_blocks.size() >= EXPORT_DECODE_PARALLELISM) {
+                    return;
+                }
+                m_polling = true;
+            }
+            final ListenableFuture<BBContainer> fut = m_source.poll();
+            fut.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    onPolled(fut);
+                }
+            }, DecoderPoolHolder.POOL);
+        }
+
+        private void onPolled(ListenableFuture<BBContainer> fut) {
+            final BBContainer cont;
+            try {
+                cont = fut.get();
+            } catch (Exception e) {
+                m_logger.error("Error processing export block", e);
+                synchronized (this) {
+                    m_polling = false;
+                }
+                pollNext();
+                return;
+            }
+            if (cont == null) {
+                synchronized (this) {
+                    m_polling = false;
+                    m_endOfStream = true;
+                }
+                return;
+            }
+            final PolledBlock block = new PolledBlock(cont);
+            synchronized (this) {
+                m_polling = false;
+                m_blocks.add(block);
+            }
+            // Poll the next block while this one is decoded
+            pollNext();
+            // Batch decoders read the block in place, only prefetch it for them
+            final List<ExportRow> rows = (m_shutdown || m_edb.isBatched()) ?
+                    null : decodeBlock(cont.b(), m_source.getPartitionId());
+            synchronized (this) {
+                block.m_rows = rows;
+                block.m_decoded = true;
+            }
+            scheduleDelivery();
+        }
+
+        private void scheduleDelivery() {
+            synchronized (this) {
+                PolledBlock head = m_blocks.peek();
+                if (m_delivering || head == null || !(head.m_decoded || m_shutdown)) {
+                    return;
+                }
+                m_delivering = true;
+            }
+            try {
+                m_deliveryExecutor.execute(m_deliverBlocks);
+            } catch (RejectedExecutionException e) {
+                if (m_shutdown) {
+                    deliverBlocks();
+                } else {
+                    m_logger.warn("Export block delivery rejected for partition " + m_source.getPartitionId()
+                            + ", the data source is closed");
+                    synchronized (this) {
+                        m_delivering = false;
+                    }
+                }
+            }
+        }
+
+        private void deliverBlocks() {
+            while (true) {
+                final PolledBlock head;
+                synchronized (this) {
+                    head = m_blocks.peek();
+                    if (head == null || !(head.m_decoded || m_shutdown)) {
+                        m_delivering = false;
+                        return;
+                    }
+                    if (m_shutdown) {
+                        // Hand undelivered blocks back to the source in poll order
+                        m_blocks.poll();
+                        m_source.setPendingContainer(head.m_cont);
+                        continue;
+                    }
+                }
+                try {
+                    processBlock(m_source, head.m_cont, m_edb, head.m_rows);
+                } catch (Exception e) {
+                    m_logger.error("Error processing export block", e);
+                }
+                synchronized (this) {
+                    m_blocks.poll();
+                }
+                pollNext();
+            }
+        }
+    }
+
+    private static class PolledBlock {
+        final BBContainer m_cont;
+        //Rows decoded ahead of time, null when the block has to be decoded row by row
+        List<ExportRow> m_rows;
+        boolean m_decoded = false;
+
+        PolledBlock(BBContainer cont) {
+            m_cont = cont;
+        }
+    }
+
+    /**
+     * Decode all rows of a block without touching the decoder. The first row of a block
+     * normally carries the schema; if it does not, or the block does not decode cleanly,
+     * return null so that the block is decoded row by row while it is processed.
+     */
+    private List<ExportRow> decodeBlock(ByteBuffer block, int partitionId) {
+        final ByteBuffer buf = block.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        final List<ExportRow> rows = new ArrayList<>();
+        ExportRow row = null;
+        try {
+            while (buf.hasRemaining()) {
+                int length = buf.getInt();
+                byte[] rowdata = new byte[length];
+                buf.get(rowdata, 0, length);
+                if (row == null && (length <= ROW_HAS_SCHEMA_OFFSET || rowdata[ROW_HAS_SCHEMA_OFFSET] != 1)) {
+                    return null;
+                }
+                row = ExportRow.decodeRow(row, partitionId, m_startTS, rowdata);
+                rows.add(row);
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+        return rows;
+    }
+
+    /**
+     * Hand every row of the block to the decoder, restarting the block when the decoder asks
+     * for it, and discard (ack) the block once it has been processed. On shutdown the block is
+     * handed back to the source instead.
+     *
+     * @param decodedRows rows of the block decoded ahead of time, or null to decode them here
+     */
+    private void processBlock(
+            final ExportDataSource source,
+            BBContainer cont,
+            final ExportDecoderBase edb,
+            final List<ExportRow> decodedRows) throws Exception {
+        try {
+            //Position to restart at on error
+            final int startPosition = cont.b().position();
+
+            //Track the amount of backoff to use next time, will be updated on repeated failure
+            int backoffQuantity = 10 + (int)(10 * ThreadLocalRandom.current().nextDouble());
+
+            //Batch decoders get the whole block at once when it can be read as a batch
+            final ExportRowBatch batch = (decodedRows == null && edb.isBatched()) ?
+                    ExportRowBatch.wrap(cont.b(), edb.getPreviousRow(), source.getPartitionId()) : null;
+            final ExportRow firstRow = (batch == null) ? null : batch.getRow(0);
+            final ExportRow lastRow = (batch == null) ? null : batch.getRow(batch.getRowCount() - 1);
+
+            /*
+             * If there is an error processing the block the decoder thinks is recoverable
+             * start the block from the beginning and repeat until it is processed.
+             * Also allow the decoder to request exponential backoff
+             */
+            while (!m_shutdown) {
+                try {
+                    if (batch != null) {
+                        edb.onBlockStart(firstRow);
+                        edb.processBatch(batch);
+                        edb.setPreviousRow(lastRow);
+                        edb.onBlockCompletion(lastRow);
+                        cont.discard();
+                        cont = null;
+                        break;
+                    }
+                    final ByteBuffer buf = cont.b();
+                    buf.position(startPosition);
+                    buf.order(ByteOrder.LITTLE_ENDIAN);
+                    long generation = -1L;
+                    ExportRow row = null;
+                    int rowIndex = 0;
+                    while ((decodedRows == null ? buf.hasRemaining() : rowIndex < decodedRows.size()) && !m_shutdown) {
+                        if (decodedRows != null) {
+                            //Rows were decoded ahead of time on the decoder pool.
+                            row = decodedRows.get(rowIndex++);
+                            edb.setPreviousRow(row);
+                        } else {
+                            int length = buf.getInt();
+                            byte[] rowdata = new byte[length];
+                            buf.get(rowdata, 0, length);
+                            if (edb.isLegacy()) {
+                                edb.onBlockStart();
+                                edb.processRow(length, rowdata);
+                                continue;
+                            }
+                            //New style connector.
                             try {
-                                final ByteBuffer buf = cont.b();
-                                buf.position(startPosition);
-                                buf.order(ByteOrder.LITTLE_ENDIAN);
-                                long generation = -1L;
-                                ExportRow row = null;
-                                while (buf.hasRemaining() && !m_shutdown) {
-                                    int length = buf.getInt();
-                                    byte[] rowdata = new byte[length];
-                                    buf.get(rowdata, 0, length);
-                                    if (edb.isLegacy()) {
-                                        edb.onBlockStart();
-                                        edb.processRow(length, rowdata);
-                                    } else {
-                                        //New style connector.
-                                        try {
-                                            row = ExportRow.decodeRow(edb.getPreviousRow(), source.getPartitionId(), m_startTS, rowdata);
-                                            edb.setPreviousRow(row);
-                                        } catch (IOException ioe) {
-                                            m_logger.warn("Failed decoding row for partition" + source.getPartitionId() + ". " + ioe.getMessage());
-                                            cont.discard();
-                                            cont = null;
-                                            break;
-                                        }
-                                        if (generation == -1L) {
-                                            edb.onBlockStart(row);
-                                        }
-                                        edb.processRow(row);
-                                        if (generation != -1L && row.generation != generation) {
-                                            edb.onBlockCompletion(row);
-                                            edb.onBlockStart(row);
-                                        }
-                                        generation = row.generation;
-                                    }
-                                }
-                                if (edb.isLegacy()) {
-                                    edb.onBlockCompletion();
-                                }
-                                if (row != null) {
-                                    edb.onBlockCompletion(row);
-                                }
-                                //Make sure to discard after onBlockCompletion so that if completion wants to retry we dont lose block.
-                                if (cont != null) {
-                                    cont.discard();
-                                    cont = null;
-                                }
+                                row = ExportRow.decodeRow(edb.getPreviousRow(), source.getPartitionId(), m_startTS, rowdata);
+                                edb.setPreviousRow(row);
+                            } catch (IOException ioe) {
+                                m_logger.warn("Failed decoding row for partition" + source.getPartitionId() + ". " + ioe.getMessage());
+                                cont.discard();
+                                cont = null;
                                 break;
-                            } catch (RestartBlockException e) {
-                                if (m_shutdown) {
-                                    if (m_logger.isDebugEnabled()) {
-                                        // log message for debugging.
-                                        m_logger.debug("Shutdown detected, ignore restart exception. " + e);
-                                    }
-                                    break;
-                                }
-                                if (e.requestBackoff) {
-                                    Thread.sleep(backoffQuantity);
-                                    //Cap backoff to 8 seconds, then double modulo some randomness
-                                    if (backoffQuantity < 8000) {
-                                        backoffQuantity += (backoffQuantity * .5);
-                                        backoffQuantity +=
-                                                (backoffQuantity * .5 * ThreadLocalRandom.current().nextDouble());
-                                    }
-                                }
                             }
                         }
-                        //Dont discard the block also set the start position to the begining.
-                        if (m_shutdown && cont != null) {
-                            if (m_logger.isDebugEnabled()) {
-                                // log message for debugging.
-                                m_logger.debug("Shutdown detected, queue block to pending");
-                            }
-                            cont.b().position(startPosition);
-                            source.setPendingContainer(cont);
-                            cont = null;
+                        if (generation == -1L) {
+                            edb.onBlockStart(row);
                         }
-                    } finally {
-                        if (cont != null) {
-                            cont.discard();
+                        edb.processRow(row);
+                        if (generation != -1L && row.generation != generation) {
+                            edb.onBlockCompletion(row);
+                            edb.onBlockStart(row);
+                        }
+                        generation = row.generation;
+                    }
+                    if (edb.isLegacy()) {
+                        edb.onBlockCompletion();
+                    }
+                    if (row != null) {
+                        edb.onBlockCompletion(row);
+                    }
+                    //Make sure to discard after onBlockCompletion so that if completion wants to retry we dont lose block.
+                    if (cont != null) {
+                        cont.discard();
+                        cont = null;
+                    }
+                    break;
+                } catch (RestartBlockException e) {
+                    if (m_shutdown) {
+                        if (m_logger.isDebugEnabled()) {
+                            // log message for debugging.
+                            m_logger.debug("Shutdown detected, ignore restart exception. " + e);
+                        }
+                        break;
+                    }
+                    if (e.requestBackoff) {
+                        Thread.sleep(backoffQuantity);
+                        //Cap backoff to 8 seconds, then double modulo some randomness
+                        if (backoffQuantity < 8000) {
+                            backoffQuantity += (backoffQuantity * .5);
+                            backoffQuantity +=
+                                    (backoffQuantity * .5 * ThreadLocalRandom.current().nextDouble());
                         }
                     }
-                } catch (Exception e) {
-                    m_logger.error("Error processing export block", e);
                 }
-                if (!m_shutdown) {
-                    addBlockListener(source, source.poll(), edb);
+            }
+            //Dont discard the block also set the start position to the begining.
+            if (m_shutdown && cont != null) {
+                if (m_logger.isDebugEnabled()) {
+                    // log message for debugging.
+                    m_logger.debug("Shutdown detected, queue block to pending");
                 }
+                cont.b().position(startPosition);
+                source.setPendingContainer(cont);
+                cont = null;
             }
-        }, edb.getExecutor());
+        } finally {
+            if (cont != null) {
+                cont.discard();
+            }
+        }
     }
 
     @Override
@@ -72,6 +72,8 @@ public abstract class ExportDecoderBase {
     protected final long m_startTS;
     //If true we have detected an old style connector.
     private boolean m_legacy = false;
+    //If true we have detected a connector that processes whole blocks.
+    private boolean m_batched = false;
     //Only used for legacy connector which picks up schema from ADS
     protected final ArrayList<VoltType> m_tableSchema = new ArrayList<>();
     //Only used for legacy connector which picks up schema from ADS
@@ -223,6 +225,21 @@ public abstract class ExportDecoderBase {
         throw new UnsupportedOperationException("processRow must be implemented.");
     }
 
+    /**
+     * Process all rows of a block at once. Subclasses that override this get each block
+     * that can be read as a batch in a single call, between onBlockStart(ExportRow) and
+     * onBlockCompletion(ExportRow), instead of one processRow(ExportRow) call per row.
+     * Other blocks are still passed row by row.
+     *
+     * @param batch Rows of the block, decoded as they are read
+     * @throws org.voltdb.exportclient.ExportDecoderBase.RestartBlockException to restart the whole block
+     */
+    public void processBatch(ExportRowBatch batch) throws RestartBlockException {
+        for (int i = 0; i < batch.getRowCount(); i++) {
+            processRow(batch.getRow(i));
+        }
+    }
+
     abstract public void sourceNoLongerAdvertised(AdvertisedDataSource source);
 
     /**
@@ -275,6 +292,14 @@ public abstract class ExportDecoderBase {
         return m_legacy;
     }
 
+    public void setBatched(boolean batched) {
+        m_batched = batched;
+    }
+
+    public boolean isBatched() {
+        return m_batched;
+    }
+
     public void setPreviousRow(ExportRow row) {
         //We do keep the values of previous row but they are not used.
         m_previousRow = row;
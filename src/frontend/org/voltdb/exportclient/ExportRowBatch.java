@@ -0,0 +1,437 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.exportclient;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.voltdb.VoltType;
+import org.voltdb.types.GeographyPointValue;
+import org.voltdb.types.GeographyValue;
+import org.voltdb.types.TimestampType;
+
+import com.google_voltpatches.common.base.Charsets;
+
+/**
+ * All rows of one export block, read in place from the block's buffer. Row boundaries are
+ * found when the batch is wrapped, but a value is only decoded when it is read, so clients
+ * that look at a few columns do not pay for the others. Row and column indexes are zero
+ * based and columns include the internal export fields, as in {@link ExportRow#values}.
+ *
+ * A batch is only valid while the block is being processed and must not be kept, or used
+ * from several threads, once {@link ExportDecoderBase#processBatch(ExportRowBatch)} returns.
+ */
+public class ExportRowBatch {
+
+    // Row header: generation, partition column index, column count and has-schema flag
+    private static final int ROW_HEADER_SIZE = 8 + 4 + 4 + 1;
+    private static final int[] NOT_INDEXED = new int[0];
+
+    private final ByteBuffer m_buf;
+    private final int m_partitionId;
+    private final long m_generation;
+    private final int m_partitionColIndex;
+    private final String m_tableName;
+    private final List<String> m_names;
+    private final List<VoltType> m_types;
+    private final List<Integer> m_lengths;
+    private final int m_columnCount;
+    private final int m_rowCount;
+    // Offset of the null flags, and of the first value, of each row
+    private final int[] m_nullFlagsOffsets;
+    private final int[] m_valuesOffsets;
+    // Offset of each value of a row, computed the first time a value of the row is read
+    private final int[][] m_columnOffsets;
+
+    private ExportRowBatch(ByteBuffer buf, int partitionId, long generation, int partitionColIndex,
+            String tableName, List<String> names, List<VoltType> types, List<Integer> lengths,
+            int[] nullFlagsOffsets, int[] valuesOffsets, int rowCount) {
+        m_buf = buf;
+        m_partitionId = partitionId;
+        m_generation = generation;
+        m_partitionColIndex = partitionColIndex;
+        m_tableName = tableName;
+        m_names = names;
+        m_types = types;
+        m_lengths = lengths;
+        m_columnCount = types.size();
+        m_nullFlagsOffsets = nullFlagsOffsets;
+        m_valuesOffsets = valuesOffsets;
+        m_rowCount = rowCount;
+        m_columnOffsets = new int[rowCount][];
+        Arrays.fill(m_columnOffsets, NOT_INDEXED);
+    }
+
+    /**
+     * Find the rows of an export block, each of which is prefixed with its length.
+     *
+     * @param block the block, from its current position to its limit; it is not modified
+     * @param previous the last row of the previous block, for its schema, or null
+     * @param partitionId partition of this data
+     * @return the batch, or null if the block is empty, has rows from more than one
+     * generation, or has no schema for its rows; such blocks must be decoded row by row.
+     */
+    public static ExportRowBatch wrap(ByteBuffer block, ExportRow previous, int partitionId) {
+        final ByteBuffer buf = block.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int rowCapacity = 16;
+        int[] nullFlagsOffsets = new int[rowCapacity];
+        int[] valuesOffsets = new int[rowCapacity];
+        int rowCount = 0;
+
+        long generation = -1L;
+        int partitionColIndex = -1;
+        int columnCount = -1;
+        String tableName = null;
+        List<String> names = null;
+        List<VoltType> types = null;
+        List<Integer> lengths = null;
+
+        try {
+            while (buf.hasRemaining()) {
+                final int length = buf.getInt();
+                final int rowStart = buf.position();
+                final int rowEnd = rowStart + length;
+                final long rowGeneration = buf.getLong(rowStart);
+                final int rowColumnCount = buf.getInt(rowStart + 12);
+                final boolean hasSchema = buf.get(rowStart + 16) == 1;
+                final int nullArrayLength = ((rowColumnCount + 7) & -8) >> 3;
+                buf.position(rowStart + ROW_HEADER_SIZE + nullArrayLength);
+
+                if (rowCount == 0) {
+                    generation = rowGeneration;
+                    partitionColIndex = buf.getInt(rowStart + 8);
+                    columnCount = rowColumnCount;
+                    if (hasSchema) {
+                        tableName = readString(buf);
+                        names = new ArrayList<>(columnCount);
+                        types = new ArrayList<>(columnCount);
+                        lengths = new ArrayList<>(columnCount);
+                        for (int i = 0; i < columnCount; i++) {
+                            names.add(readString(buf));
+                            types.add(VoltType.get(buf.get()));
+                            lengths.add(buf.getInt());
+                        }
+                    } else if (previous != null && previous.types.size() == columnCount) {
+                        tableName = previous.tableName;
+                        names = previous.names;
+                        types = previous.types;
+                        lengths = previous.lengths;
+                    } else {
+                        return null;
+                    }
+                } else {
+                    if (rowGeneration != generation || rowColumnCount != columnCount) {
+                        return null;
+                    }
+                    if (hasSchema) {
+                        // Skip a repeated schema
+                        skipString(buf);
+                        for (int i = 0; i < columnCount; i++) {
+                            skipString(buf);
+                            buf.position(buf.position() + 1 + 4);
+                        }
+                    }
+                }
+
+                if (rowCount == rowCapacity) {
+                    rowCapacity *= 2;
+                    nullFlagsOffsets = Arrays.copyOf(nullFlagsOffsets, rowCapacity);
+                    valuesOffsets = Arrays.copyOf(valuesOffsets, rowCapacity);
+                }
+                nullFlagsOffsets[rowCount] = rowStart + ROW_HEADER_SIZE;
+                valuesOffsets[rowCount] = buf.position();
+                rowCount++;
+                buf.position(rowEnd);
+            }
+        } catch (RuntimeException e) {
+            // Truncated or malformed block, let the row by row path report it
+            return null;
+        }
+        if (rowCount == 0) {
+            return null;
+        }
+        return new ExportRowBatch(buf, partitionId, generation, partitionColIndex,
+                tableName, Collections.unmodifiableList(names), Collections.unmodifiableList(types),
+                Collections.unmodifiableList(lengths), nullFlagsOffsets, valuesOffsets, rowCount);
+    }
+
+    public int getRowCount() {
+        return m_rowCount;
+    }
+
+    public int getColumnCount() {
+        return m_columnCount;
+    }
+
+    public String getTableName() {
+        return m_tableName;
+    }
+
+    public List<String> getColumnNames() {
+        return m_names;
+    }
+
+    public List<VoltType> getColumnTypes() {
+        return m_types;
+    }
+
+    public List<Integer> getColumnLengths() {
+        return m_lengths;
+    }
+
+    public VoltType getColumnType(int column) {
+        return m_types.get(column);
+    }
+
+    public long getGeneration() {
+        return m_generation;
+    }
+
+    public int getPartitionId() {
+        return m_partitionId;
+    }
+
+    public int getPartitionColumnIndex() {
+        return m_partitionColIndex;
+    }
+
+    public boolean isNull(int row, int column) {
+        final byte flags = m_buf.get(m_nullFlagsOffsets[row] + (column >> 3));
+        return (flags & (0x80 >>> (column & 7))) != 0;
+    }
+
+    /**
+     * @return the value of a TINYINT, SMALLINT, INTEGER, BIGINT or TIMESTAMP column,
+     * timestamps in microseconds, or 0 if the value is null
+     */
+    public long getLong(int row, int column) {
+        if (isNull(row, column)) {
+            return 0;
+        }
+        final int offset = offset(row, column);
+        switch (m_types.get(column)) {
+        case TINYINT:
+            return m_buf.get(offset);
+        case SMALLINT:
+            return m_buf.getShort(offset);
+        case INTEGER:
+            return m_buf.getInt(offset);
+        case BIGINT:
+        case TIMESTAMP:
+            return m_buf.getLong(offset);
+        default:
+            throw new IllegalArgumentException("Column " + column + " of type " + m_types.get(column)
+                    + " is not an integer column");
+        }
+    }
+
+    /**
+     * @return the value of a FLOAT column, or 0 if the value is null
+     */
+    public double getDouble(int row, int column) {
+        checkType(column, VoltType.FLOAT);
+        return isNull(row, column) ? 0 : m_buf.getDouble(offset(row, column));
+    }
+
+    public String getString(int row, int column) {
+        checkType(column, VoltType.STRING);
+        if (isNull(row, column)) {
+            return null;
+        }
+        m_buf.position(offset(row, column));
+        return readString(m_buf);
+    }
+
+    public byte[] getVarbinary(int row, int column) {
+        checkType(column, VoltType.VARBINARY);
+        if (isNull(row, column)) {
+            return null;
+        }
+        m_buf.position(offset(row, column));
+        final byte[] data = new byte[m_buf.getInt()];
+        m_buf.get(data);
+        return data;
+    }
+
+    public TimestampType getTimestamp(int row, int column) {
+        checkType(column, VoltType.TIMESTAMP);
+        return isNull(row, column) ? null : new TimestampType(m_buf.getLong(offset(row, column)));
+    }
+
+    public BigDecimal getDecimal(int row, int column) {
+        checkType(column, VoltType.DECIMAL);
+        if (isNull(row, column)) {
+            return null;
+        }
+        final int offset = offset(row, column);
+        final int scale = m_buf.get(offset);
+        final byte[] bytes = new byte[m_buf.get(offset + 1)];
+        m_buf.position(offset + 2);
+        m_buf.get(bytes);
+        return new BigDecimal(new BigInteger(bytes), scale);
+    }
+
+    public GeographyPointValue getGeographyPoint(int row, int column) {
+        checkType(column, VoltType.GEOGRAPHY_POINT);
+        return isNull(row, column) ? null : GeographyPointValue.unflattenFromBuffer(m_buf, offset(row, column));
+    }
+
+    public GeographyValue getGeography(int row, int column) {
+        checkType(column, VoltType.GEOGRAPHY);
+        if (isNull(row, column)) {
+            return null;
+        }
+        m_buf.position(offset(row, column) + 4);
+        return GeographyValue.unflattenFromBuffer(m_buf);
+    }
+
+    /**
+     * @return the value boxed as in {@link ExportRow#values}
+     */
+    public Object getObject(int row, int column) {
+        if (isNull(row, column)) {
+            return null;
+        }
+        switch (m_types.get(column)) {
+        case TINYINT:
+            return (byte) getLong(row, column);
+        case SMALLINT:
+            return (short) getLong(row, column);
+        case INTEGER:
+            return (int) getLong(row, column);
+        case BIGINT:
+            return getLong(row, column);
+        case FLOAT:
+            return getDouble(row, column);
+        case TIMESTAMP:
+            return getTimestamp(row, column);
+        case STRING:
+            return getString(row, column);
+        case VARBINARY:
+            return getVarbinary(row, column);
+        case DECIMAL:
+            return getDecimal(row, column);
+        case GEOGRAPHY_POINT:
+            return getGeographyPoint(row, column);
+        case GEOGRAPHY:
+            return getGeography(row, column);
+        default:
+            throw new IllegalArgumentException("Invalid column type: " + m_types.get(column));
+        }
+    }
+
+    /**
+     * @return the value of the partition column of the row, or the partition id if there
+     * is no partition column or its value is null
+     */
+    public Object getPartitionValue(int row) {
+        Object pval = null;
+        if (m_partitionColIndex >= 0 && m_partitionColIndex < m_columnCount) {
+            pval = getObject(row, m_partitionColIndex);
+        }
+        return pval == null ? m_partitionId : pval;
+    }
+
+    /**
+     * Decode every column of a row, for clients that need an {@link ExportRow}.
+     */
+    public ExportRow getRow(int row) {
+        final Object[] values = new Object[m_columnCount];
+        for (int i = 0; i < m_columnCount; i++) {
+            values[i] = getObject(row, i);
+        }
+        return new ExportRow(m_tableName, m_names, m_types, m_lengths, values, getPartitionValue(row),
+                m_partitionColIndex, m_partitionId, m_generation);
+    }
+
+    private void checkType(int column, VoltType type) {
+        if (m_types.get(column) != type) {
+            throw new IllegalArgumentException("Column " + column + " is of type " + m_types.get(column)
+                    + ", not " + type);
+        }
+    }
+
+    private int offset(int row, int column) {
+        int[] offsets = m_columnOffsets[row];
+        if (offsets == NOT_INDEXED) {
+            offsets = indexRow(row);
+            m_columnOffsets[row] = offsets;
+        }
+        return offsets[column];
+    }
+
+    // Walk the values of a row once, recording where each one starts without decoding it
+    private int[] indexRow(int row) {
+        final int[] offsets = new int[m_columnCount];
+        int offset = m_valuesOffsets[row];
+        for (int i = 0; i < m_columnCount; i++) {
+            offsets[i] = offset;
+            if (isNull(row, i)) {
+                continue;
+            }
+            final VoltType type = m_types.get(i);
+            switch (type) {
+            case TINYINT:
+                offset += 1;
+                break;
+            case SMALLINT:
+                offset += 2;
+                break;
+            case INTEGER:
+                offset += 4;
+                break;
+            case BIGINT:
+            case FLOAT:
+            case TIMESTAMP:
+                offset += 8;
+                break;
+            case STRING:
+            case VARBINARY:
+            case GEOGRAPHY:
+                offset += 4 + m_buf.getInt(offset);
+                break;
+            case DECIMAL:
+                offset += 2 + m_buf.get(offset + 1);
+                break;
+            case GEOGRAPHY_POINT:
+                offset += GeographyPointValue.getLengthInBytes();
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid column type: " + type);
+            }
+        }
+        return offsets;
+    }
+
+    private static String readString(ByteBuffer buf) {
+        final byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+
+    private static void skipString(ByteBuffer buf) {
+        final int length = buf.getInt();
+        buf.position(buf.position() + length);
+    }
+}
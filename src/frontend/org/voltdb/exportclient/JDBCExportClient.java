@@ -158,6 +158,8 @@ public class JDBCExportClient extends ExportClientBase {
         private final RefCountedDS m_ds;
 
         private final List<BatchRow> m_dataRows =  new ArrayList<>();
+        //Block being inserted by processBatch(), rows are not copied to m_dataRows
+        private ExportRowBatch m_batch = null;
         private class BatchRow {
             private final ExportRow m_row;
             public BatchRow(ExportRow r) {
@@ -489,6 +491,7 @@ public class JDBCExportClient extends ExportClientBase {
         @Override
         public void onBlockStart(ExportRow row) throws RestartBlockException {
             m_dataRows.clear();
+            m_batch = null;
             if (conn == null) {
                 if (pstmt != null) {
                     try {
@@ -524,6 +527,7 @@ public class JDBCExportClient extends ExportClientBase {
                 throw new RestartBlockException(true);
             } finally{
                 m_dataRows.clear();
+                m_batch = null;
                 closeConnection();
             }
         }
@@ -534,7 +538,7 @@ public class JDBCExportClient extends ExportClientBase {
            StringBuilder builder = new StringBuilder();
            for(int i = 0; i < results.length; i++){
                 if(results[i] == Statement.EXECUTE_FAILED){
-                    ExportRow rowi = m_dataRows.get(i).m_row;
+                    ExportRow rowi = (m_batch != null) ? m_batch.getRow(i) : m_dataRows.get(i).m_row;
                     Object row[] = rowi.values;
                     for (int j = firstField; j < rowi.types.size(); j++) {
                         builder.append((j == firstField) ? "":", ");
@@ -574,11 +578,11 @@ public class JDBCExportClient extends ExportClientBase {
             }
         }
 
-        @Override
-        public boolean processRow(ExportRow rowinst) throws RestartBlockException {
+        private void prepareInsert(long generation, String tableName, List<String> columnNames,
+                List<VoltType> columnTypes, List<Integer> columnLengths) throws RestartBlockException {
             if (pstmtString == null) {
                 try {
-                    initialize(rowinst.generation, rowinst.tableName, rowinst.names, rowinst.types, rowinst.lengths);
+                    initialize(generation, tableName, columnNames, columnTypes, columnLengths);
                 } catch (Exception e) {
                     m_logger.warn("JDBC export unable to initialize jdbc target database", e);
                     closeConnection();
@@ -600,6 +604,11 @@ public class JDBCExportClient extends ExportClientBase {
                     throw new RestartBlockException(true);
                 }
             }
+        }
+
+        @Override
+        public boolean processRow(ExportRow rowinst) throws RestartBlockException {
+            prepareInsert(rowinst.generation, rowinst.tableName, rowinst.names, rowinst.types, rowinst.lengths);
 
             Object[] row = rowinst.values;
             List<VoltType> columnTypes = rowinst.types;
@@ -662,6 +671,90 @@ public class JDBCExportClient extends ExportClientBase {
             return true;
         }
 
+        /*
+         * Bind each row straight from the block and send the whole block with a single
+         * executeBatch() at block completion, without building an ExportRow per row.
+         */
+        @Override
+        public void processBatch(ExportRowBatch batch) throws RestartBlockException {
+            prepareInsert(batch.getGeneration(), batch.getTableName(), batch.getColumnNames(),
+                    batch.getColumnTypes(), batch.getColumnLengths());
+
+            List<VoltType> columnTypes = batch.getColumnTypes();
+            boolean restartBlock = false;
+            m_batch = batch;
+            try {
+                for (int row = 0; row < batch.getRowCount() && !restartBlock; row++) {
+                    for (int i = firstField; i < columnTypes.size(); i++) {
+                        setParameter(batch, row, i, i + 1 - firstField);
+                    }
+
+                    try {
+                        if (supportsBatchUpdates) {
+                            pstmt.addBatch();
+                        } else {
+                            pstmt.executeUpdate();
+                        }
+                    } catch (SQLException e) {
+                        rateLimitedLogError(m_logger, "executeUpdate() failed in processBatch() for table %s %s", batch.getTableName(), Throwables.getStackTraceAsString(e));
+                        restartBlock = true;
+                    }
+                }
+            } catch (Exception e) {
+                rateLimitedLogError(m_logger, "processBatch() failed in table %s, %s", batch.getTableName(), Throwables.getStackTraceAsString(e));
+                restartBlock = true;
+            }
+
+            if (restartBlock) {
+                closeConnection();
+                throw new RestartBlockException(true);
+            }
+        }
+
+        private void setParameter(ExportRowBatch batch, int row, int column, int pstmtIndex) throws SQLException {
+            if (batch.isNull(row, column)) {
+                pstmt.setNull(pstmtIndex, Types.NULL);
+                return;
+            }
+            switch (batch.getColumnType(column)) {
+            case DECIMAL:
+                pstmt.setBigDecimal(pstmtIndex, batch.getDecimal(row, column));
+                break;
+            case TINYINT:
+                pstmt.setByte(pstmtIndex, (byte) batch.getLong(row, column));
+                break;
+            case SMALLINT:
+                pstmt.setShort(pstmtIndex, (short) batch.getLong(row, column));
+                break;
+            case INTEGER:
+                pstmt.setInt(pstmtIndex, (int) batch.getLong(row, column));
+                break;
+            case BIGINT:
+                pstmt.setLong(pstmtIndex, batch.getLong(row, column));
+                break;
+            case FLOAT:
+                pstmt.setDouble(pstmtIndex, batch.getDouble(row, column));
+                break;
+            case STRING:
+                pstmt.setString(pstmtIndex, batch.getString(row, column));
+                break;
+            case TIMESTAMP:
+                pstmt.setTimestamp(pstmtIndex, batch.getTimestamp(row, column).asJavaTimestamp());
+                break;
+            case GEOGRAPHY_POINT:
+                pstmt.setString(pstmtIndex, batch.getGeographyPoint(row, column).toWKT());
+                break;
+            case GEOGRAPHY:
+                pstmt.setString(pstmtIndex, batch.getGeography(row, column).toWKT());
+                break;
+            case VARBINARY:
+                pstmt.setBytes(pstmtIndex, batch.getVarbinary(row, column));
+                break;
+            default:
+                break;
+            }
+        }
+
         /*
          * If there is any kind of exception from the DB call this to get a clean slate
          * and retry will recreate the connection and prepared statement.
@@ -46,6 +46,7 @@ import org.voltdb.exportclient.ExportClientLogger;
 import org.voltdb.exportclient.ExportDecoderBase;
 import org.voltdb.exportclient.ExportDecoderBase.BinaryEncoding;
 import org.voltdb.exportclient.ExportRow;
+import org.voltdb.exportclient.ExportRowBatch;
 import org.voltdb.exportclient.decode.CSVStringDecoder;
 
 import com.google_voltpatches.common.base.Splitter;
@@ -290,6 +291,17 @@ public class KafkaExportClient extends ExportClientBase {
         final CSVStringDecoder m_decoder;
         final List<Future<RecordMetadata>> m_futures = new ArrayList<>();
         private final AtomicBoolean m_failure = new AtomicBoolean(false);
+        // Shared by all sends, a failed send makes block completion wait on the outstanding sends
+        private final Callback m_sendCallback = new Callback() {
+            @Override
+            public void onCompletion(RecordMetadata metadata, Exception e) {
+                if (e != null){
+                    LOG.warn("Failed to send data. Verify if the kafka server matches bootstrap.servers %s", e,
+                            m_producerConfig.getProperty(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG));
+                    m_failure.compareAndSet(false, true);
+                }
+            }
+        };
         final ListeningExecutorService m_es;
 
         public KafkaExportDecoder(AdvertisedDataSource source) {
@@ -370,18 +382,36 @@ public class KafkaExportClient extends ExportClientBase {
             //Use partition value by default if its null use partition id.
             //partition value will be null only if partition column is overridden table.column and is nullable
             String pval = (rd.partitionValue == null) ? String.valueOf(rd.partitionId) : rd.partitionValue.toString();
-            ProducerRecord<String, String> krec = new ProducerRecord<String, String>(m_topic, pval, decoded);
+            send(new ProducerRecord<String, String>(m_topic, pval, decoded));
+            return true;
+        }
+
+        /*
+         * Decode only the columns that end up in the message and hand all records of the block
+         * to the producer, which batches them per topic partition. Block completion then waits
+         * on the sends of the whole block, as it does for rows.
+         */
+        @Override
+        public void processBatch(ExportRowBatch batch) throws RestartBlockException {
+            if (!m_primed) checkOnFirstRow();
+
+            final int firstField = ExportRow.getFirstField(m_skipInternals);
+            final Object[] values = new Object[batch.getColumnCount()];
+            for (int row = 0; row < batch.getRowCount(); row++) {
+                for (int i = firstField; i < values.length; i++) {
+                    values[i] = batch.getObject(row, i);
+                }
+                String decoded = m_decoder.decode(batch.getGeneration(), batch.getTableName(),
+                        batch.getColumnTypes(), batch.getColumnNames(), null, values);
+                //getPartitionValue() falls back to the partition id when the partition value is null
+                String pval = batch.getPartitionValue(row).toString();
+                send(new ProducerRecord<String, String>(m_topic, pval, decoded));
+            }
+        }
+
+        private void send(ProducerRecord<String, String> krec) throws RestartBlockException {
             try {
-                m_futures.add(m_producer.send(krec, new Callback() {
-                    @Override
-                    public void onCompletion(RecordMetadata metadata, Exception e) {
-                        if (e != null){
-                            LOG.warn("Failed to send data. Verify if the kafka server matches bootstrap.servers %s", e,
-                                    m_producerConfig.getProperty(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG));
-                            m_failure.compareAndSet(false, true);
-                        }
-                    }
-                }));
+                m_futures.add(m_producer.send(krec, m_sendCallback));
             } catch (KafkaException e) {
                 LOG.warn("Unable to send %s", e, krec);
                 throw new RestartBlockException("Unable to send message", e, true);
@@ -391,7 +421,6 @@ public class KafkaExportClient extends ExportClientBase {
                 m_primed = false;
                 throw new RestartBlockException("Unable to send message", e, true);
             }
-            return true;
         }
 
         @Override
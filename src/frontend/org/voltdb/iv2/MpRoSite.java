@@ -474,6 +474,13 @@ public class MpRoSite implements Runnable, SiteProcedureConnection
         throw new RuntimeException("RO MP Site doesn't do this, shouldn't be here.");
     }
 
+    @Override
+    public long deleteRestoredRows(long txnId, long spHandle, long uniqueId, int tableId, VoltTable rows,
+            boolean deleteAll)
+    {
+        throw new RuntimeException("RO MP Site doesn't do this, shouldn't be here.");
+    }
+
     @Override
     public void updateBackendLogLevels()
     {
@@ -20,6 +20,7 @@ package org.voltdb.iv2;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.HashMap;
@@ -54,6 +55,7 @@ import org.voltdb.ParameterSet;
 import org.voltdb.PartitionDRGateway;
 import org.voltdb.PostGISBackend;
 import org.voltdb.PostgreSQLBackend;
+import org.voltdb.PrivateVoltTableFactory;
 import org.voltdb.ProcedureRunner;
 import org.voltdb.SiteProcedureConnection;
 import org.voltdb.SiteSnapshotConnection;
@@ -149,6 +151,11 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
     // Manages pending tasks.
     final SiteTaskerQueue m_scheduler;
 
+    // Tasks taken off the scheduler in one go while running normally.
+    // A batch size of 1 takes one task per wakeup.
+    private static final int TASK_BATCH_SIZE = Math.max(1, Integer.getInteger("SITE_TASK_BATCH_SIZE", 32));
+    private final ArrayDeque<SiteTasker> m_taskBatch = new ArrayDeque<>(TASK_BATCH_SIZE);
+
     /*
      * There is really no legitimate reason to touch the initiator mailbox from the site,
      * but it turns out to be necessary at startup when restoring a snapshot. The snapshot
@@ -813,13 +820,22 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         try {
             while (m_shouldContinue) {
                 if (m_rejoinState == kStateRunning) {
-                    // Normal operation blocks the site thread on the sitetasker queue.
-                    SiteTasker task = m_scheduler.take();
-                    if (task instanceof TransactionTask) {
-                        m_currentTxnId = ((TransactionTask)task).getTxnId();
-                        m_lastTxnTime = EstTime.currentTimeMillis();
+                    // Normal operation blocks the site thread on the sitetasker queue,
+                    // then runs whatever queued up in the meantime as one batch.
+                    m_scheduler.drainTo(m_taskBatch, TASK_BATCH_SIZE);
+                    SiteTasker task;
+                    while (m_shouldContinue && (task = m_taskBatch.poll()) != null) {
+                        m_scheduler.batchTaskStarted(m_taskBatch);
+                        if (task instanceof TransactionTask) {
+                            m_currentTxnId = ((TransactionTask)task).getTxnId();
+                            m_lastTxnTime = EstTime.currentTimeMillis();
+                        }
+                        task.run(getSiteProcedureConnection());
+                    }
+                    if (!m_taskBatch.isEmpty()) {
+                        m_taskBatch.clear();
+                        m_scheduler.batchTaskStarted(m_taskBatch);
                     }
-                    task.run(getSiteProcedureConnection());
                 } else if (m_rejoinState == kStateReplayingRejoin) {
                     // Rejoin operation poll and try to do some catchup work. Tasks
                     // are responsible for logging any rejoin work they might have.
@@ -1108,6 +1124,24 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                 undo ? getNextUndoToken(m_currentTxnId) : Long.MAX_VALUE);
     }
 
+    @Override
+    public long deleteRestoredRows(long txnId, long spHandle, long uniqueId, int tableId, VoltTable rows,
+            boolean deleteAll)
+    {
+        byte[] serializedRows = PrivateVoltTableFactory.getTableDataReference(rows).array();
+        ByteBuffer paramBuffer = m_ee.getParamBufferForExecuteTask(4 + 40 + 1 + serializedRows.length);
+        paramBuffer.putInt(tableId);
+        paramBuffer.putLong(uniqueId);
+        paramBuffer.putLong(m_lastCommittedSpHandle);
+        paramBuffer.putLong(spHandle);
+        paramBuffer.putLong(txnId);
+        // Long.MAX_VALUE is a no-op don't track undo token
+        paramBuffer.putLong(Long.MAX_VALUE);
+        paramBuffer.put((byte) (deleteAll ? 1 : 0));
+        paramBuffer.put(serializedRows);
+        return ByteBuffer.wrap(m_ee.executeTask(TaskType.DELETE_RESTORED_ROWS, paramBuffer)).getLong();
+    }
+
     @Override
     public void updateBackendLogLevels()
     {
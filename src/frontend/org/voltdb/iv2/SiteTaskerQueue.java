@@ -17,8 +17,13 @@
 
 package org.voltdb.iv2;
 
+import java.util.Collection;
+import java.util.Queue;
 import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.locks.LockSupport;
 
+import org.jctools_voltpatches.queues.MpscChunkedArrayQueue;
+import org.jctools_voltpatches.util.Pow2;
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.QueueDepthTracker;
 import org.voltdb.StarvationTracker;
@@ -26,13 +31,34 @@ import org.voltdb.StarvationTracker;
 /** SiteTaskerScheduler orders SiteTaskers for execution. */
 public class SiteTaskerQueue
 {
-    private final LinkedTransferQueue<SiteTasker> m_tasks = new LinkedTransferQueue<SiteTasker>();
+    // Back site queues with a chunked multi-producer/single-consumer ring buffer
+    // instead of a LinkedTransferQueue. Offering to the ring buffer does not
+    // allocate a queue node per task.
+    private static final boolean USE_RING_BUFFER = Boolean.getBoolean("SITE_TASKER_RING_BUFFER");
+    private static final int RING_BUFFER_CHUNK_SIZE = 1024;
+
+    private final Queue<SiteTasker> m_tasks;
+    // Only set when backed by the ring buffer, which has no blocking take.
+    private final MpscChunkedArrayQueue<SiteTasker> m_ringBuffer;
+    // The consumer thread parked waiting for the ring buffer, if any.
+    private volatile Thread m_waiter;
     private StarvationTracker m_starvationTracker;
     private QueueDepthTracker m_queueDepthTracker;
     private int m_partitionId;
 
     public SiteTaskerQueue(int partitionId) {
+        this(partitionId, USE_RING_BUFFER);
+    }
+
+    SiteTaskerQueue(int partitionId, boolean useRingBuffer) {
         m_partitionId = partitionId;
+        if (useRingBuffer) {
+            m_ringBuffer = new MpscChunkedArrayQueue<SiteTasker>(RING_BUFFER_CHUNK_SIZE, Pow2.MAX_POW2, true);
+            m_tasks = m_ringBuffer;
+        } else {
+            m_ringBuffer = null;
+            m_tasks = new LinkedTransferQueue<SiteTasker>();
+        }
     }
 
     public int getPartitionId() {
@@ -46,8 +72,17 @@ public class SiteTaskerQueue
         // prevent another thread from polling a task and decrementing
         // the queue depth before it is incremented
         // i.e. avoid queueDepth < 0
-        m_queueDepthTracker.offerUpdate();
-        return m_tasks.offer(task);
+        m_queueDepthTracker.offerUpdate(task.getQueueOfferTime());
+        boolean offered = m_tasks.offer(task);
+        if (m_ringBuffer != null) {
+            // The offer is a full fence, so either the waiter is visible here
+            // or the waiter sees the task when it re-polls before parking.
+            Thread waiter = m_waiter;
+            if (waiter != null) {
+                LockSupport.unpark(waiter);
+            }
+        }
+        return offered;
     }
 
     // Block on the site tasker queue.
@@ -59,29 +94,132 @@ public class SiteTaskerQueue
             m_starvationTracker.beginStarvation();
         } else {
             m_queueDepthTracker.pollUpdate(task.getQueueOfferTime());
+            updateHead();
             return task;
         }
         try {
-            task = CoreUtils.queueSpinTake(m_tasks);
+            task = blockingTake();
             // task is never null
             m_queueDepthTracker.pollUpdate(task.getQueueOfferTime());
+            updateHead();
             return task;
         } finally {
             m_starvationTracker.endStarvation();
         }
     }
 
+    /**
+     * Block until at least one task is available, then move as many as
+     * <code>maxTasks</code> queued tasks into the empty <code>batch</code> in
+     * queue order. The starvation and queue depth trackers are updated once
+     * for the whole batch rather than once per task. Drained tasks still count
+     * in the reported depth and head wait time until the consumer starts them,
+     * see {@link #batchTaskStarted(Queue)}.
+     * @return the number of tasks added to the batch
+     */
+    public int drainTo(Collection<SiteTasker> batch, int maxTasks) throws InterruptedException
+    {
+        assert(batch.isEmpty() && maxTasks > 0);
+        int count = drainAvailable(batch, maxTasks);
+        if (count == 0) {
+            m_starvationTracker.beginStarvation();
+            try {
+                batch.add(blockingTake());
+                count = 1 + drainAvailable(batch, maxTasks - 1);
+            } finally {
+                m_starvationTracker.endStarvation();
+            }
+        }
+        // The sum may wrap around, but the total wait derived from it does not.
+        long oldestOfferTime = batch.iterator().next().getQueueOfferTime();
+        long totalOfferTime = 0;
+        for (SiteTasker task : batch) {
+            totalOfferTime += task.getQueueOfferTime();
+        }
+        // Account for the batch before the tasks leave the depth so the
+        // reported depth never drops below what is still waiting to run.
+        m_queueDepthTracker.batchUpdate(count, oldestOfferTime);
+        m_queueDepthTracker.pollUpdate(count, oldestOfferTime, totalOfferTime);
+        updateHead();
+        return count;
+    }
+
+    /**
+     * Called by the consumer each time it takes a task out of a batch filled
+     * by {@link #drainTo(Collection, int)}, and with an empty batch once it
+     * abandons the rest.
+     * @param batch the tasks from the batch that have not started running
+     */
+    public void batchTaskStarted(Queue<SiteTasker> batch) {
+        SiteTasker next = batch.peek();
+        m_queueDepthTracker.batchUpdate(batch.size(), next == null ? 0 : next.getQueueOfferTime());
+    }
+
+    // Let the depth tracker know how long the next task has been waiting.
+    private void updateHead() {
+        SiteTasker next = m_tasks.peek();
+        if (next != null) {
+            m_queueDepthTracker.headUpdate(next.getQueueOfferTime());
+        }
+    }
+
+    private int drainAvailable(Collection<SiteTasker> batch, int maxTasks) {
+        if (maxTasks <= 0) {
+            return 0;
+        }
+        if (m_ringBuffer != null) {
+            return m_ringBuffer.drain(batch::add, maxTasks);
+        }
+        return ((LinkedTransferQueue<SiteTasker>) m_tasks).drainTo(batch, maxTasks);
+    }
+
+    private SiteTasker blockingTake() throws InterruptedException
+    {
+        if (m_ringBuffer == null) {
+            return CoreUtils.queueSpinTake((LinkedTransferQueue<SiteTasker>) m_tasks);
+        }
+        SiteTasker task;
+        long nanos = -1;
+        while ((task = m_ringBuffer.poll()) == null) {
+            if (CoreUtils.QUEUE_SPIN_MICROSECONDS > 0) {
+                if (nanos == -1) {
+                    nanos = System.nanoTime();
+                    continue;
+                } else if (System.nanoTime() - nanos <= CoreUtils.QUEUE_SPIN_MICROSECONDS) {
+                    continue;
+                }
+            }
+            // Publish the waiter before the final check so that a concurrent
+            // offer either is seen here or unparks this thread.
+            m_waiter = Thread.currentThread();
+            try {
+                if ((task = m_ringBuffer.poll()) != null) {
+                    break;
+                }
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            } finally {
+                m_waiter = null;
+            }
+        }
+        return task;
+    }
+
     // Non-blocking poll on the site tasker queue.
     public SiteTasker poll()
     {
         SiteTasker task = m_tasks.poll();
         if (task != null) {
             m_queueDepthTracker.pollUpdate(task.getQueueOfferTime());
+            updateHead();
         }
         return task;
     }
 
     // Non-blocking peek on the site tasker queue.
+    // Only safe from the thread that consumes the queue.
     public SiteTasker peek()
     {
         return m_tasks.peek();
@@ -96,11 +234,22 @@ public class SiteTaskerQueue
     }
 
     public QueueDepthTracker setupQueueDepthTracker(long siteId) {
-        m_queueDepthTracker = new QueueDepthTracker(siteId, m_tasks);
+        m_queueDepthTracker = new QueueDepthTracker(siteId, m_tasks.size());
         return m_queueDepthTracker;
     }
 
     public int size() {
         return m_tasks.size();
     }
+
+    // Depth as tracked for statistics, cheap to read from any thread.
+    // Includes drained tasks that have not started yet.
+    public int getQueueDepth() {
+        return m_queueDepthTracker.getDepth();
+    }
+
+    // Nanoseconds the oldest task that has not started running has been waiting
+    public long getHeadWaitTime() {
+        return m_queueDepthTracker.getHeadWaitTime(System.nanoTime());
+    }
 }
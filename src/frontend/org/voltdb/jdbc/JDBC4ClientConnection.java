@@ -426,6 +426,41 @@ public class JDBC4ClientConnection implements Closeable {
         }
     }
 
+    /**
+     * Executes a procedure asynchronously with a timeout, then calls the provided user callback
+     * with the server response upon completion.
+     *
+     * @param callback
+     *            the user-specified callback to call with the server response upon execution
+     *            completion.
+     * @param procedure
+     *            the name of the procedure to call.
+     * @param timeout
+     *            the timeout of the call, the callback gets a CONNECTION_TIMEOUT response after it.
+     * @param unit
+     *            the unit of the timeout.
+     * @param parameters
+     *            the list of parameters to pass to the procedure.
+     * @return false if the request could not be queued, true otherwise.
+     */
+    public boolean executeAsyncWithTimeout(ProcedureCallback callback, String procedure, long timeout,
+            TimeUnit unit, Object... parameters)
+            throws NoConnectionsException, IOException
+    {
+        ClientImpl currentClient = this.getClient();
+        if (unit == null) {
+            unit = TimeUnit.SECONDS;
+        }
+        try {
+            return currentClient.callProcedureWithClientTimeout(new TrackingCallback(this, procedure, callback),
+                    BatchTimeoutOverrideType.NO_TIMEOUT, false, procedure, timeout, unit, parameters);
+        }
+        catch (NoConnectionsException e) {
+            this.dropClient(currentClient);
+            throw e;
+        }
+    }
+
     /**
      * Executes a procedure asynchronously, returning a Future that can be used by the caller to
      * wait upon completion before processing the server response.
@@ -463,6 +498,22 @@ public class JDBC4ClientConnection implements Closeable {
     }
 
 
+    /**
+     * @return true if the client knows how values hash to partitions.
+     * @see ClientImpl#isHashinatorInitialized()
+     */
+    public boolean isHashinatorInitialized() throws IOException {
+        return this.getClient().isHashinatorInitialized();
+    }
+
+    /**
+     * @return the partition a value of the partitioning column hashes to, or -1 if not known.
+     * @see ClientImpl#getPartitionForParameter(byte, Object)
+     */
+    public long getPartitionForParameter(byte typeValue, Object value) throws IOException {
+        return this.getClient().getPartitionForParameter(typeValue, value);
+    }
+
     /**
      * Gets the new version of the performance statistics for this connection only.
      * @return A {@link ClientStatsContext} that correctly represents the client statistics.
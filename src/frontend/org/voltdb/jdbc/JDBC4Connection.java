@@ -45,10 +45,14 @@ public class JDBC4Connection implements java.sql.Connection, IVoltDBConnection
     public static final String COMMIT_THROW_EXCEPTION = "jdbc.committhrowexception";
     public static final String ROLLBACK_THROW_EXCEPTION = "jdbc.rollbackthrowexception";
     public static final String QUERYTIMEOUT_UNIT = "jdbc.querytimeout.unit";
+    // true makes executeBatch send all the statements before waiting for responses, so they may
+    // run out of order. By default they run one at a time, as JDBC expects.
+    public static final String PIPELINED_BATCH = "jdbc.pipelinedbatch";
 
     protected final JDBC4ClientConnection NativeConnection;
     protected final String User;
     protected TimeUnit queryTimeOutUnit = TimeUnit.SECONDS;
+    protected boolean pipelinedBatch = false;
     private boolean isClosed = false;
     private Properties props;
     private boolean autoCommit = true;
@@ -61,6 +65,7 @@ public class JDBC4Connection implements java.sql.Connection, IVoltDBConnection
         if (this.props.getProperty(JDBC4Connection.QUERYTIMEOUT_UNIT, "Seconds").equalsIgnoreCase("milliseconds")) {
             this.queryTimeOutUnit = TimeUnit.MILLISECONDS;
         }
+        this.pipelinedBatch = this.props.getProperty(JDBC4Connection.PIPELINED_BATCH, "false").equalsIgnoreCase("true");
     }
 
     private void checkClosed() throws SQLException
@@ -17,11 +17,13 @@
 
 package org.voltdb.jdbc;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.math.BigDecimal;
 import java.net.URL;
 import java.sql.Array;
+import java.sql.BatchUpdateException;
 import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.Date;
@@ -36,15 +38,55 @@ import java.sql.SQLXML;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Calendar;
-
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.voltdb.VoltTable;
 import org.voltdb.VoltType;
+import org.voltdb.client.ClientResponse;
 
 public class JDBC4PreparedStatement extends JDBC4Statement implements java.sql.PreparedStatement
 {
     private final VoltSQL Query;
     private Object[] parameters;
     private final JDBC4ParameterMetaData parameterMetaData;
+
+    // An insert or upsert of a value for every column of a table, in column order
+    private static final Pattern WHOLE_ROW_INSERT = Pattern.compile(
+            "^\\s*(INSERT|UPSERT)\\s+INTO\\s+([A-Za-z_][A-Za-z0-9_]*)\\s+VALUES\\s*\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)\\s*;*\\s*$",
+            Pattern.CASE_INSENSITIVE);
+
+    /*
+     * Partitioned table a whole row insert goes to. A batch of such inserts is sent as
+     * one @LoadSinglepartitionTable call per partition instead of one call per row.
+     */
+    private static class LoadTarget
+    {
+        final String tableName;
+        final boolean upsert;
+        final VoltTable.ColumnInfo[] columns;
+        final int partitionColumn;
+        final VoltType partitionType;
+
+        LoadTarget(String tableName, boolean upsert, VoltTable.ColumnInfo[] columns,
+                int partitionColumn, VoltType partitionType)
+        {
+            this.tableName = tableName;
+            this.upsert = upsert;
+            this.columns = columns;
+            this.partitionColumn = partitionColumn;
+            this.partitionType = partitionType;
+        }
+    }
+
+    private LoadTarget loadTarget = null;
+    private boolean loadTargetChecked = false;
     JDBC4PreparedStatement(JDBC4Connection connection, String sql) throws SQLException
     {
         super(connection);
@@ -138,6 +180,158 @@ public class JDBC4PreparedStatement extends JDBC4Statement implements java.sql.P
         return result;
     }
 
+    @Override
+    protected int[] executeBatch(List<VoltSQL> queries) throws SQLException
+    {
+        if (queries.size() > 1 && this.sourceConnection.pipelinedBatch) {
+            LoadTarget target = getLoadTarget();
+            if (target != null) {
+                int[] updateCounts = loadBatch(target, queries);
+                if (updateCounts != null) {
+                    return updateCounts;
+                }
+            }
+        }
+        return super.executeBatch(queries);
+    }
+
+    /*
+     * Look up the table of a whole row insert into a partitioned table, null for any other query.
+     */
+    private LoadTarget getLoadTarget() throws SQLException
+    {
+        if (this.loadTargetChecked) {
+            return this.loadTarget;
+        }
+        Matcher matcher = WHOLE_ROW_INSERT.matcher(this.Query.toSqlString());
+        if (!matcher.matches()) {
+            this.loadTargetChecked = true;
+            return null;
+        }
+        JDBC4ClientConnection connection = this.sourceConnection.NativeConnection;
+        try {
+            if (!connection.isHashinatorInitialized()) {
+                // try again with the next batch
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        this.loadTargetChecked = true;
+
+        String tableName = matcher.group(2);
+        VoltTable columnInfo = VoltSQL.procedureCall("@SystemCatalog", "COLUMNS").execute(
+                connection, getQueryTimeout(), this.sourceConnection.queryTimeOutUnit)[0];
+        Map<Integer, VoltTable.ColumnInfo> columns = new TreeMap<Integer, VoltTable.ColumnInfo>();
+        int partitionColumn = -1;
+        VoltType partitionType = VoltType.NULL;
+        while (columnInfo.advanceRow()) {
+            if (!tableName.equalsIgnoreCase(columnInfo.getString("TABLE_NAME"))) {
+                continue;
+            }
+            tableName = columnInfo.getString("TABLE_NAME");
+            VoltType type = VoltType.typeFromString(columnInfo.getString("TYPE_NAME"));
+            int index = (int) columnInfo.getLong("ORDINAL_POSITION") - 1;
+            columns.put(index, new VoltTable.ColumnInfo(columnInfo.getString("COLUMN_NAME"), type));
+            String remarks = columnInfo.getString("REMARKS");
+            if (remarks != null && remarks.equalsIgnoreCase("PARTITION_COLUMN")) {
+                partitionColumn = index;
+                partitionType = type;
+            }
+        }
+        if (partitionColumn == -1 || columns.size() != this.Query.getParameterCount()) {
+            // replicated or unknown table, or the statement will fail anyway
+            return null;
+        }
+        this.loadTarget = new LoadTarget(tableName, matcher.group(1).equalsIgnoreCase("UPSERT"),
+                columns.values().toArray(new VoltTable.ColumnInfo[columns.size()]),
+                partitionColumn, partitionType);
+        return this.loadTarget;
+    }
+
+    /*
+     * Group the rows of a batch of whole row inserts by partition and load each group with
+     * one call, the groups are sent without waiting for each other. Returns null if the rows
+     * cannot be grouped on the client, the batch is then sent statement by statement.
+     */
+    private int[] loadBatch(LoadTarget target, List<VoltSQL> queries) throws SQLException
+    {
+        JDBC4ClientConnection connection = this.sourceConnection.NativeConnection;
+        Map<Long, VoltTable> partitionRows = new HashMap<Long, VoltTable>();
+        Map<Long, List<Integer>> partitionQueries = new HashMap<Long, List<Integer>>();
+        Map<Long, Object> partitionKeys = new HashMap<Long, Object>();
+        VoltTable row = new VoltTable(target.columns);
+        try {
+            for (int i = 0; i < queries.size(); i++) {
+                VoltSQL query = queries.get(i);
+                if (!query.isBindingOf(this.Query)) {
+                    return null;
+                }
+                Object[] values = query.getBoundParameters().clone();
+                for (int c = 0; c < values.length; c++) {
+                    if (VoltType.isVoltNullValue(values[c])) {
+                        values[c] = null;
+                    }
+                }
+                if (values[target.partitionColumn] == null) {
+                    return null;
+                }
+                // let VoltTable convert the values to the column types
+                row.clearRowData();
+                row.addRow(values);
+                row.advanceToRow(0);
+                Object key = row.get(target.partitionColumn, target.partitionType);
+                long partition = connection.getPartitionForParameter(target.partitionType.getValue(), key);
+                if (partition < 0) {
+                    return null;
+                }
+                VoltTable rows = partitionRows.get(partition);
+                if (rows == null) {
+                    rows = row.clone(0);
+                    partitionRows.put(partition, rows);
+                    partitionQueries.put(partition, new ArrayList<Integer>());
+                    partitionKeys.put(partition, key);
+                }
+                rows.add(row);
+                partitionQueries.get(partition).add(i);
+            }
+        } catch (RuntimeException e) {
+            // a value the server may still be able to convert
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+
+        List<VoltSQL> loads = new ArrayList<VoltSQL>();
+        List<List<Integer>> loadQueries = new ArrayList<List<Integer>>();
+        for (Map.Entry<Long, VoltTable> entry : partitionRows.entrySet()) {
+            loads.add(VoltSQL.procedureCall("@LoadSinglepartitionTable",
+                    VoltType.valueToBytes(partitionKeys.get(entry.getKey())),
+                    target.tableName, (byte) (target.upsert ? 1 : 0), entry.getValue()));
+            loadQueries.add(partitionQueries.get(entry.getKey()));
+        }
+
+        ClientResponse[] responses = executePipelined(loads);
+        int[] updateCounts = new int[queries.size()];
+        SQLException firstError = null;
+        int firstErrorQuery = Integer.MAX_VALUE;
+        for (int i = 0; i < responses.length; i++) {
+            // a load is atomic, all its rows are inserted or none is
+            boolean success = responses[i].getStatus() == ClientResponse.SUCCESS;
+            for (int query : loadQueries.get(i)) {
+                updateCounts[query] = success ? 1 : EXECUTE_FAILED;
+            }
+            if (!success && loadQueries.get(i).get(0) < firstErrorQuery) {
+                firstErrorQuery = loadQueries.get(i).get(0);
+                firstError = VoltSQL.getResponseError(responses[i], responses[i].getStatusString(), null);
+            }
+        }
+        if (firstError != null) {
+            throw new BatchUpdateException(updateCounts, firstError);
+        }
+        return updateCounts;
+    }
+
     // Retrieves a ResultSetMetaData object that contains information about the columns of the ResultSet object that will be returned when this PreparedStatement object is executed.
     @Override
     public ResultSetMetaData getMetaData() throws SQLException
@@ -28,13 +28,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
+import org.voltdb.ClientResponseImpl;
 import org.voltdb.VoltTable;
 import org.voltdb.VoltType;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ProcCallException;
+import org.voltdb.client.ProcedureCallback;
 import org.voltdb.parser.JDBCParser;
 import org.voltdb.parser.SQLLexer;
 import org.voltdb.parser.JDBCParser.ParsedCall;
@@ -113,6 +117,35 @@ public class JDBC4Statement implements java.sql.Statement
             return false;
         }
 
+        /**
+         * Build a query calling a procedure, used to send a batch in another form.
+         */
+        static VoltSQL procedureCall(String procName, Object... parameters)
+        {
+            return new VoltSQL(new String[] {procName}, parameters.length, TYPE_EXEC, parameters);
+        }
+
+        /**
+         * @return the parameter values bound to this executable query, without the SQL text
+         * of the @AdHoc call it is sent as.
+         */
+        Object[] getBoundParameters()
+        {
+            if (this.queryType != TYPE_EXEC) {
+                return Arrays.copyOfRange(this.parameters, 1, this.parameters.length);
+            }
+            return this.parameters;
+        }
+
+        /**
+         * @return true if this is the executable form of the given SQL query, with its parameters bound.
+         */
+        boolean isBindingOf(VoltSQL query)
+        {
+            return this.parameters != null && query.type != TYPE_EXEC && this.queryType == query.type &&
+                    query.sql[0].equals(this.parameters[0]);
+        }
+
         protected VoltTable[] execute(JDBC4ClientConnection connection, long timeout, TimeUnit queryTimeOutUnit) throws SQLException {
             try
             {
@@ -126,24 +159,7 @@ public class JDBC4Statement implements java.sql.Statement
             {
                 ClientResponse response = e.getClientResponse();
                 if (response != null) {
-                    // Map response status to specific JDBC exception, mostly GENERAL_ERROR except
-                    // for connection problems.
-                    switch (response.getStatus()) {
-                    case ClientResponse.CONNECTION_LOST:
-                        throw SQLError.get(e, SQLError.CONNECTION_CLOSED, "CONNECTION_LOST", e.getMessage());
-                    case ClientResponse.CONNECTION_TIMEOUT:
-                        throw SQLError.get(e, SQLError.CONNECTION_FAILURE, "CONNECTION_TIMEOUT", e.getMessage());
-                    case ClientResponse.SERVER_UNAVAILABLE:
-                        throw SQLError.get(e, SQLError.CONNECTION_FAILURE, "CONNECTION_UNAVAILABLE", e.getMessage());
-                    case ClientResponse.USER_ABORT:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, "USER_ABORT", e.getMessage());
-                    case ClientResponse.UNEXPECTED_FAILURE:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, "UNEXPECTED_FAILURE", e.getMessage());
-                    case ClientResponse.GRACEFUL_FAILURE:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, "GRACEFUL_FAILURE", e.getMessage());
-                    default:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, String.format("status=%d", (int)response.getStatus()), e.getMessage());
-                    }
+                    throw getResponseError(response, e.getMessage(), e);
                 } else {
                     throw SQLError.get(e, SQLError.GENERAL_ERROR, e.getMessage());
                 }
@@ -154,6 +170,48 @@ public class JDBC4Statement implements java.sql.Statement
             }
         }
 
+        /**
+         * Send this query without waiting for its response, the callback gets it.
+         * @return false if the query could not be queued
+         */
+        protected boolean executeAsync(JDBC4ClientConnection connection, ProcedureCallback callback,
+                long timeout, TimeUnit queryTimeOutUnit) throws SQLException {
+            try
+            {
+                if (this.type == TYPE_EXEC) {
+                    return connection.executeAsyncWithTimeout(callback, this.sql[0], timeout, queryTimeOutUnit, this.parameters);
+                } else {
+                    return connection.executeAsyncWithTimeout(callback, "@AdHoc", timeout, queryTimeOutUnit, this.sql[0]);
+                }
+            }
+            catch(IOException e)
+            {
+                throw SQLError.get(e, SQLError.CONNECTION_FAILURE, e.getMessage());
+            }
+        }
+
+        static SQLException getResponseError(ClientResponse response, String message, Exception cause)
+        {
+            // Map response status to specific JDBC exception, mostly GENERAL_ERROR except
+            // for connection problems.
+            switch (response.getStatus()) {
+            case ClientResponse.CONNECTION_LOST:
+                return SQLError.get(cause, SQLError.CONNECTION_CLOSED, "CONNECTION_LOST", message);
+            case ClientResponse.CONNECTION_TIMEOUT:
+                return SQLError.get(cause, SQLError.CONNECTION_FAILURE, "CONNECTION_TIMEOUT", message);
+            case ClientResponse.SERVER_UNAVAILABLE:
+                return SQLError.get(cause, SQLError.CONNECTION_FAILURE, "CONNECTION_UNAVAILABLE", message);
+            case ClientResponse.USER_ABORT:
+                return SQLError.get(cause, SQLError.GENERAL_ERROR, "USER_ABORT", message);
+            case ClientResponse.UNEXPECTED_FAILURE:
+                return SQLError.get(cause, SQLError.GENERAL_ERROR, "UNEXPECTED_FAILURE", message);
+            case ClientResponse.GRACEFUL_FAILURE:
+                return SQLError.get(cause, SQLError.GENERAL_ERROR, "GRACEFUL_FAILURE", message);
+            default:
+                return SQLError.get(cause, SQLError.GENERAL_ERROR, String.format("status=%d", (int)response.getStatus()), message);
+            }
+        }
+
         public static boolean isUpdateResult(VoltTable table)
         {
             return ((table.getColumnName(0).length() == 0 || table.getColumnName(0).equals("modified_tuples"))&& table.getRowCount() == 1 && table.getColumnCount() == 1 && table.getColumnType(0) == VoltType.BIGINT);
@@ -421,38 +479,123 @@ public class JDBC4Statement implements java.sql.Statement
             return new int[0];
         }
 
-        int[] updateCounts = new int[batch.size()];
-        // keep a running total of update counts
+        int[] updateCounts;
+        try {
+            updateCounts = executeBatch(batch);
+        } finally {
+            clearBatch();
+        }
+        // replace the update count from the last statement with the update count
+        // from the last batch.
         int runningUpdateCount = 0;
+        for (int updateCount : updateCounts) {
+            if (updateCount > 0) {
+                runningUpdateCount += updateCount;
+            }
+        }
+        this.lastUpdateCount = runningUpdateCount;
 
+        return updateCounts;
+    }
+
+    /**
+     * Execute the queries of a batch and return their update counts in order. If any fails
+     * a BatchUpdateException is thrown, it holds an update count for every query when they
+     * were pipelined and only up to the failed one when they were run one at a time.
+     */
+    protected int[] executeBatch(List<VoltSQL> queries) throws SQLException
+    {
+        if (!sourceConnection.pipelinedBatch) {
+            return executeBatchSerially(queries);
+        }
+
+        final ClientResponse[] responses = executePipelined(queries);
+        final int[] updateCounts = new int[queries.size()];
+        SQLException firstError = null;
+        for (int i = 0; i < responses.length; i++) {
+            if (responses[i].getStatus() != ClientResponse.SUCCESS) {
+                updateCounts[i] = EXECUTE_FAILED;
+                if (firstError == null) {
+                    firstError = VoltSQL.getResponseError(responses[i], responses[i].getStatusString(), null);
+                }
+                continue;
+            }
+            final VoltTable[] results = responses[i].getResults();
+            if (results.length == 0 || results[0].getRowCount() == 0) {
+                updateCounts[i] = SUCCESS_NO_INFO;
+            } else {
+                updateCounts[i] = (int) results[0].fetchRow(0).getLong(0);
+            }
+        }
+        if (firstError != null) {
+            throw new BatchUpdateException(updateCounts, firstError);
+        }
+        return updateCounts;
+    }
+
+    private int[] executeBatchSerially(List<VoltSQL> queries) throws SQLException
+    {
+        int[] updateCounts = new int[queries.size()];
         int i = 0;
         try {
-            for (; i < batch.size(); i++) {
-
-                setCurrentResult(
-                        null,
-                        (int) batch.get(i).execute(
-                                sourceConnection.NativeConnection,
-                                this.m_timeout,
-                                sourceConnection.queryTimeOutUnit)[0].fetchRow(
-                                0).getLong(0));
-                updateCounts[i] = this.lastUpdateCount;
-                runningUpdateCount += this.lastUpdateCount;
+            for (; i < queries.size(); i++) {
+                updateCounts[i] = (int) queries.get(i).execute(
+                        sourceConnection.NativeConnection,
+                        this.m_timeout,
+                        sourceConnection.queryTimeOutUnit)[0].fetchRow(0).getLong(0);
             }
         } catch (SQLException x) {
             updateCounts[i] = EXECUTE_FAILED;
             throw new BatchUpdateException(Arrays.copyOf(updateCounts, i + 1),
                     x);
-        } finally {
-            clearBatch();
         }
-        // replace the update count from the last statement with the update count
-        // from the last batch.
-        this.lastUpdateCount = runningUpdateCount;
-
         return updateCounts;
     }
 
+    /**
+     * Send all the queries without waiting for responses, then wait for all the responses.
+     * A query that could not be sent gets a CONNECTION_LOST response, as do the queries after it.
+     * @return the responses in the order of the queries.
+     */
+    protected ClientResponse[] executePipelined(List<VoltSQL> queries) throws SQLException
+    {
+        final ClientResponse[] responses = new ClientResponse[queries.size()];
+        final CountDownLatch latch = new CountDownLatch(queries.size());
+        String sendFailure = null;
+        for (int i = 0; i < queries.size(); i++) {
+            final int index = i;
+            if (sendFailure == null) {
+                try {
+                    boolean queued = queries.get(i).executeAsync(
+                            sourceConnection.NativeConnection,
+                            new ProcedureCallback() {
+                                @Override
+                                public void clientCallback(ClientResponse response) {
+                                    responses[index] = response;
+                                    latch.countDown();
+                                }
+                            },
+                            this.m_timeout,
+                            sourceConnection.queryTimeOutUnit);
+                    if (queued) {
+                        continue;
+                    }
+                    sendFailure = "Unable to queue client request.";
+                } catch (SQLException x) {
+                    sendFailure = x.getMessage();
+                }
+            }
+            responses[i] = new ClientResponseImpl(ClientResponse.CONNECTION_LOST, new VoltTable[0], sendFailure);
+            latch.countDown();
+        }
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw SQLError.get(e, SQLError.GENERAL_ERROR, "Interrupted while waiting for the batch to execute");
+        }
+        return responses;
+    }
+
     protected ResultSet executeQuery(VoltSQL query) throws SQLException
     {
         setCurrentResult(query.execute(this.sourceConnection.NativeConnection, this.m_timeout, this.sourceConnection.queryTimeOutUnit), -1);
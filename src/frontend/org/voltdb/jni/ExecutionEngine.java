@@ -73,7 +73,8 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
         SET_MERGED_DRID_TRACKER(7),
         INIT_DRID_TRACKER(8),
         RESET_DR_APPLIED_TRACKER_SINGLE(9),
-        ELASTIC_CHANGE(10);
+        ELASTIC_CHANGE(10),
+        DELETE_RESTORED_ROWS(11);
 
         private TaskType(int taskId) {
             this.taskId = taskId;
@@ -132,6 +133,7 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
 
     /** Statistics collector (provided later) */
     private PlannerStatsCollector m_plannerStats = null;
+    private Long m_statsStartTime = null;
 
     // used for tracking statistics about the plan cache in the EE
     private int m_cacheMisses = 0;
@@ -407,6 +409,51 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
         }
     }
 
+    // Dependencies up to this size are copied into a buffer from the DBBPool that is kept
+    // between batches. Larger ones get a buffer of their own, freed once the batch has run.
+    static final int DEPENDENCY_BUFFER_RETAIN_BYTES = Integer.getInteger("DEPENDENCY_BUFFER_RETAIN_BYTES", 1024 * 1024);
+
+    // direct copy of a heap backed dependency, reused by the next dependency
+    private DBBPool.BBContainer m_dependencyBuffer = null;
+
+    /**
+     * Called from the ExecutionEngine to request serialized dependencies without
+     * copying them into a byte array. Dependencies already in direct memory are
+     * returned as is and the EE reads them in place. Heap backed ones are copied
+     * once into a reusable direct buffer.
+     * The returned buffer starts at the table and its capacity is the table length.
+     */
+    public ByteBuffer nextDependencyAsBuffer(final int dependencyId) {
+        final VoltTable vt =  m_dependencyTracker.nextDependency(dependencyId);
+        if (vt == null) {
+            return null;
+        }
+        final ByteBuffer buf2 = PrivateVoltTableFactory.getTableDataReference(vt);
+        if (buf2.isDirect()) {
+            return buf2.slice();
+        }
+        final int length = buf2.remaining();
+        if (m_dependencyBuffer != null && m_dependencyBuffer.b().capacity() < length) {
+            releaseDependencyBuffer();
+        }
+        if (m_dependencyBuffer == null) {
+            m_dependencyBuffer = (length <= DEPENDENCY_BUFFER_RETAIN_BYTES) ?
+                    DBBPool.allocateDirectAndPool(length) : DBBPool.allocateDirect(length);
+        }
+        final ByteBuffer dependency = m_dependencyBuffer.b();
+        dependency.clear();
+        dependency.put(buf2.duplicate());
+        dependency.flip();
+        return dependency.slice();
+    }
+
+    protected void releaseDependencyBuffer() {
+        if (m_dependencyBuffer != null) {
+            m_dependencyBuffer.discard();
+            m_dependencyBuffer = null;
+        }
+    }
+
     public void traceLog(boolean isBegin, String name, String args)
     {
         if (isBegin) {
@@ -697,6 +744,10 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
             m_sqlTexts = null;
 
             m_fragmentContext = FragmentContext.UNKNOWN;
+
+            if (m_dependencyBuffer != null && m_dependencyBuffer.b().capacity() > DEPENDENCY_BUFFER_RETAIN_BYTES) {
+                releaseDependencyBuffer();
+            }
         }
     }
 
@@ -1190,7 +1241,7 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      */
     protected void startStatsCollection() {
         if (m_plannerStats != null) {
-            m_plannerStats.startStatsCollection();
+            m_statsStartTime = m_plannerStats.startStatsCollection();
         }
     }
 
@@ -1202,7 +1253,8 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      */
     protected void endStatsCollection(long cacheSize, CacheUse cacheUse) {
         if (m_plannerStats != null) {
-            m_plannerStats.endStatsCollection(cacheSize, 0, cacheUse, m_partitionId);
+            m_plannerStats.endStatsCollection(m_statsStartTime, cacheSize, 0, 0, 0, cacheUse, m_partitionId);
+            m_statsStartTime = null;
         }
     }
 
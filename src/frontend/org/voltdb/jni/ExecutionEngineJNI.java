@@ -324,6 +324,7 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         m_perFragmentStatsBuffer = null;
         m_udfBufferC.discard();
         m_udfBuffer = null;
+        releaseDependencyBuffer();
         LOG.trace("Released Execution Engine.");
     }
 
@@ -38,11 +38,13 @@ import org.voltdb.planner.parseinfo.SubqueryLeafNode;
 import org.voltdb.plannodes.AbstractJoinPlanNode;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AbstractReceivePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.IndexUseForOrderBy;
 import org.voltdb.plannodes.MaterializedScanPlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
 import org.voltdb.plannodes.NestLoopPlanNode;
+import org.voltdb.types.ExpressionType;
 import org.voltdb.types.JoinType;
 import org.voltdb.utils.PermutationGenerator;
 
@@ -63,6 +65,12 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
     /** The list of all possible join orders, assembled by queueAllJoinOrders */
     private ArrayDeque<JoinNode> m_joinOrders = new ArrayDeque<>();
 
+    /** Whether the plan being built should use hash joins where they apply */
+    private boolean m_useHashJoins = false;
+
+    /** Set when a join of the plan being built could have been a hash join */
+    private boolean m_hashJoinApplies = false;
+
     /**
      *
      * @param db The catalog's Database object.
@@ -529,11 +537,7 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
         if (nodes.size() == nextNode + 1) {
             for (AccessPath path : joinNode.m_accessPaths) {
                 joinNode.m_currentAccessPath = path;
-                AbstractPlanNode plan = getSelectSubPlanForJoinNode(rootNode);
-                if (plan == null) {
-                    continue;
-                }
-                m_plans.add(plan);
+                generateSubPlansForAccessPaths(rootNode);
             }
             return;
         }
@@ -544,6 +548,33 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
         }
     }
 
+    /**
+     * Generate the plans for the current access paths of all nodes of the tree.
+     * Every join is first planned as a nested loop join. If any of the joins
+     * could be a hash join instead, the plan that uses hash joins wherever they
+     * apply is generated too, and the cost model picks the cheaper of the two.
+     *
+     * @param rootNode The root node for the whole join tree.
+     */
+    private void generateSubPlansForAccessPaths(JoinNode rootNode) {
+        m_useHashJoins = false;
+        m_hashJoinApplies = false;
+        AbstractPlanNode plan = getSelectSubPlanForJoinNode(rootNode);
+        if (plan == null) {
+            return;
+        }
+        m_plans.add(plan);
+        if ( ! m_hashJoinApplies) {
+            return;
+        }
+        m_useHashJoins = true;
+        plan = getSelectSubPlanForJoinNode(rootNode);
+        m_useHashJoins = false;
+        if (plan != null) {
+            m_plans.add(plan);
+        }
+    }
+
     /**
      * Given a specific join node and access path set for inner and outer tables, construct the plan
      * that gives the right tuples.
@@ -722,7 +753,6 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
 
         AbstractJoinPlanNode ajNode = null;
         if (canHaveNLJ) {
-            NestLoopPlanNode nljNode = new NestLoopPlanNode();
             // get all the clauses that join the applicable two tables
             // Copy innerAccessPath.joinExprs to leave it unchanged,
             // avoiding accumulation of redundant expressions when
@@ -763,6 +793,20 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
                 // the inner node ONLY, that can not be pushed down.
                 joinClauses.addAll(innerAccessPath.otherExprs);
             }
+            AbstractJoinPlanNode nljNode = null;
+            if ( ! needInnerSendReceive) {
+                HashJoinPlanNode hjNode = getHashJoinNode(innerJoinNode,
+                        joinNode.getJoinType(), joinClauses);
+                if (hjNode != null) {
+                    m_hashJoinApplies = true;
+                    if (m_useHashJoins) {
+                        nljNode = hjNode;
+                    }
+                }
+            }
+            if (nljNode == null) {
+                nljNode = new NestLoopPlanNode();
+            }
             nljNode.setJoinPredicate(ExpressionUtil.combinePredicates(joinClauses));
 
             // combine the tails plan graph with the new head node
@@ -810,6 +854,76 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
         return ajNode;
     }
 
+    /**
+     * Try to build a hash join for the given join clauses. This requires a scan
+     * of a single inner table or subquery that does not depend on the outer tables,
+     * and at least one equality between an expression of the inner table alone
+     * and an expression of the outer tables.
+     * The join clauses are left intact so the join predicate still gets checked
+     * against every inner tuple whose hash key matches.
+     *
+     * @return a HashJoinPlanNode with its hash keys set, or null if a hash join does not apply.
+     */
+    private static HashJoinPlanNode getHashJoinNode(JoinNode innerJoinNode,
+            JoinType joinType, List<AbstractExpression> joinClauses) {
+        String innerTableAlias = innerJoinNode.getTableAlias();
+        if (innerTableAlias == null ||
+                (joinType != JoinType.INNER && joinType != JoinType.LEFT)) {
+            return null;
+        }
+        HashJoinPlanNode hjNode = null;
+        for (AbstractExpression clause : joinClauses) {
+            if (clause.getExpressionType() != ExpressionType.COMPARE_EQUAL ||
+                    clause.hasSubquerySubexpression()) {
+                continue;
+            }
+            AbstractExpression left = clause.getLeft();
+            AbstractExpression right = clause.getRight();
+            // Keys of different types may hash differently even when they compare equal.
+            if (left.getValueType() != right.getValueType()) {
+                continue;
+            }
+            AbstractExpression innerExpr = null;
+            AbstractExpression outerExpr = null;
+            if (isOnlyDependentOnTable(left, innerTableAlias) &&
+                    isOnlyDependentOnOtherTables(right, innerTableAlias)) {
+                innerExpr = left;
+                outerExpr = right;
+            }
+            else if (isOnlyDependentOnTable(right, innerTableAlias) &&
+                    isOnlyDependentOnOtherTables(left, innerTableAlias)) {
+                innerExpr = right;
+                outerExpr = left;
+            }
+            else {
+                continue;
+            }
+            if (hjNode == null) {
+                hjNode = new HashJoinPlanNode();
+            }
+            hjNode.addHashKey(outerExpr, innerExpr);
+        }
+        return hjNode;
+    }
+
+    private static boolean isOnlyDependentOnTable(AbstractExpression expr, String tableAlias) {
+        List<TupleValueExpression> tves = ExpressionUtil.getTupleValueExpressions(expr);
+        if (tves.isEmpty()) {
+            return false;
+        }
+        for (TupleValueExpression tve : tves) {
+            if ( ! tableAlias.equals(tve.getTableAlias())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isOnlyDependentOnOtherTables(AbstractExpression expr, String tableAlias) {
+        return expr.hasAnySubexpressionOfClass(TupleValueExpression.class) &&
+                ! TupleValueExpression.isOperandDependentOnTable(expr, tableAlias);
+    }
+
     /**
      * A method to filter out single-TVE expressions.
      *
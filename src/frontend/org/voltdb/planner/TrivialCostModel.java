@@ -30,15 +30,20 @@ public class TrivialCostModel extends AbstractCostModel {
     public double getPlanCost(PlanStatistics stats) {
         double cost = 0;
 
-        // just add up the total tuples read for the plan
+        // just add up the total tuples read for the plan,
+        // plus the tuples that hash joins have to hash and keep in memory
         for (int i = 0; i < stats.getLevelCount(); i++) {
             HashMap<StatsField, Long> level = stats.getStatisticsForLevel(i);
-            Long levelValueObj = level.get(StatsField.TUPLES_READ);
-            long levelValue = (levelValueObj == null) ? 0 : levelValueObj.longValue();
-            cost += levelValue;
+            cost += getStatistic(level, StatsField.TUPLES_READ);
+            cost += getStatistic(level, StatsField.HASH_VALUES_COMPUTED);
         }
 
         return cost;
     }
 
+    private static long getStatistic(HashMap<StatsField, Long> level, StatsField field) {
+        Long valueObj = level.get(field);
+        return (valueObj == null) ? 0 : valueObj.longValue();
+    }
+
 }
@@ -77,7 +77,8 @@ public class InlineAggregation extends MicroOptimization {
         if (child.getPlanNodeType() != PlanNodeType.SEQSCAN &&
             child.getPlanNodeType() != PlanNodeType.INDEXSCAN &&
             child.getPlanNodeType() != PlanNodeType.NESTLOOP &&
-            child.getPlanNodeType() != PlanNodeType.NESTLOOPINDEX) {
+            child.getPlanNodeType() != PlanNodeType.NESTLOOPINDEX &&
+            child.getPlanNodeType() != PlanNodeType.HASHJOIN) {
             return plan;
         }
 
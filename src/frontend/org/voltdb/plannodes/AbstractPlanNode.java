@@ -436,6 +436,14 @@ public abstract class AbstractPlanNode implements JSONString, Comparable<Abstrac
 
         computeCostEstimates(childOutputTupleCountEstimate, estimates, paramHints);
         stats.incrementStatistic(0, StatsField.TUPLES_READ, m_estimatedProcessedTupleCount);
+        recordAdditionalStatistics(stats);
+    }
+
+    /**
+     * Record any cost beyond the tuples read that this node adds to the plan.
+     * Called after {@link #computeCostEstimates} has updated this node's estimates.
+     */
+    protected void recordAdditionalStatistics(PlanStatistics stats) {
     }
 
     /**
@@ -0,0 +1,200 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.plannodes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+import org.voltdb.catalog.Database;
+import org.voltdb.compiler.DatabaseEstimates;
+import org.voltdb.compiler.ScalarValueHints;
+import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.expressions.ExpressionUtil;
+import org.voltdb.expressions.TupleValueExpression;
+import org.voltdb.planner.PlanStatistics;
+import org.voltdb.planner.StatsField;
+import org.voltdb.types.JoinType;
+import org.voltdb.types.PlanNodeType;
+import org.voltdb.types.SortDirectionType;
+
+/**
+ * An equi-join that hashes the output of its inner (second) child and probes
+ * the hash table with each tuple of its outer (first) child. It applies when
+ * the inner side has no usable index, where a NestLoopPlanNode would rescan
+ * the whole inner input once per outer tuple.
+ *
+ * The hash keys only nominate candidate inner tuples. The key equalities stay
+ * part of the join predicate, which is still evaluated on every candidate.
+ */
+public class HashJoinPlanNode extends AbstractJoinPlanNode {
+
+    public enum Members {
+        OUTER_HASH_EXPRESSIONS,
+        INNER_HASH_EXPRESSIONS;
+    }
+
+    // Pair-wise equal key expressions. The outer ones only reference columns
+    // of the outer child and the inner ones only columns of the inner child.
+    private final List<AbstractExpression> m_outerHashExpressions = new ArrayList<>();
+    private final List<AbstractExpression> m_innerHashExpressions = new ArrayList<>();
+
+    public HashJoinPlanNode() {
+        super();
+    }
+
+    @Override
+    public PlanNodeType getPlanNodeType() {
+        return PlanNodeType.HASHJOIN;
+    }
+
+    /**
+     * Add a pair of key expressions that must be equal for an outer
+     * and an inner tuple to match.
+     * @param outerExpr key expression over the outer child's columns
+     * @param innerExpr key expression over the inner child's columns
+     */
+    public void addHashKey(AbstractExpression outerExpr, AbstractExpression innerExpr) {
+        assert(outerExpr != null && innerExpr != null);
+        m_outerHashExpressions.add(outerExpr.clone());
+        m_innerHashExpressions.add(innerExpr.clone());
+    }
+
+    public List<AbstractExpression> getOuterHashExpressions() {
+        return Collections.unmodifiableList(m_outerHashExpressions);
+    }
+
+    public List<AbstractExpression> getInnerHashExpressions() {
+        return Collections.unmodifiableList(m_innerHashExpressions);
+    }
+
+    @Override
+    public void validate() throws Exception {
+        super.validate();
+
+        if (m_outerHashExpressions.isEmpty() ||
+                m_outerHashExpressions.size() != m_innerHashExpressions.size()) {
+            throw new Exception("ERROR: Hash join " + this + " has mismatched hash keys");
+        }
+        if (m_joinType != JoinType.INNER && m_joinType != JoinType.LEFT) {
+            throw new Exception("ERROR: Hash join " + this + " does not support " + m_joinType + " joins");
+        }
+        for (AbstractExpression expr : m_outerHashExpressions) {
+            expr.validate();
+        }
+        for (AbstractExpression expr : m_innerHashExpressions) {
+            expr.validate();
+        }
+    }
+
+    @Override
+    public void resolveColumnIndexes() {
+        super.resolveColumnIndexes();
+
+        // Unlike the join predicates, each key list is evaluated against
+        // a single child's tuples, so resolve it against that child only.
+        resolveHashKeys(m_outerHashExpressions, m_children.get(0).getOutputSchema(), 0);
+        resolveHashKeys(m_innerHashExpressions, m_children.get(1).getOutputSchema(), 1);
+    }
+
+    private static void resolveHashKeys(List<AbstractExpression> keys, NodeSchema schema, int tableIdx) {
+        for (AbstractExpression key : keys) {
+            for (TupleValueExpression tve : ExpressionUtil.getTupleValueExpressions(key)) {
+                int index = tve.setColumnIndexUsingSchema(schema);
+                if (index == -1) {
+                    throw new RuntimeException(
+                            "Unable to resolve column index for hash join key TVE: " +
+                            tve.toString());
+                }
+                tve.setTableIndex(tableIdx);
+            }
+        }
+    }
+
+    @Override
+    public void resolveSortDirection() {
+        // A build side that spills is joined partition by partition,
+        // so the outer child's order is not preserved.
+        m_sortDirection = SortDirectionType.INVALID;
+    }
+
+    @Override
+    public boolean isOutputOrdered (List<AbstractExpression> sortExpressions, List<SortDirectionType> sortDirections) {
+        return false;
+    }
+
+    @Override
+    public void computeCostEstimates(long childOutputTupleCountEstimate,
+                                     DatabaseEstimates estimates,
+                                     ScalarValueHints[] paramHints)
+    {
+        m_estimatedOutputTupleCount = childOutputTupleCountEstimate;
+        // Each input is read once: the inner one to build, the outer one to probe.
+        assert(m_children.size() == 2);
+        m_estimatedProcessedTupleCount = discountEstimatedProcessedTupleCount(m_children.get(0)) +
+                m_children.get(1).m_estimatedProcessedTupleCount;
+    }
+
+    @Override
+    protected void recordAdditionalStatistics(PlanStatistics stats) {
+        // Every build side tuple is hashed and kept in memory,
+        // so prefer the join order that builds on the smaller input.
+        stats.incrementStatistic(0, StatsField.HASH_VALUES_COMPUTED,
+                m_children.get(1).getEstimatedOutputTupleCount());
+    }
+
+    @Override
+    public void toJSONString(JSONStringer stringer) throws JSONException {
+        super.toJSONString(stringer);
+        AbstractExpression.toJSONArray(stringer, Members.OUTER_HASH_EXPRESSIONS.name(), m_outerHashExpressions);
+        AbstractExpression.toJSONArray(stringer, Members.INNER_HASH_EXPRESSIONS.name(), m_innerHashExpressions);
+    }
+
+    @Override
+    public void loadFromJSONObject(JSONObject jobj, Database db) throws JSONException {
+        super.loadFromJSONObject(jobj, db);
+        m_outerHashExpressions.clear();
+        m_innerHashExpressions.clear();
+        AbstractExpression.loadFromJSONArrayChild(m_outerHashExpressions, jobj,
+                Members.OUTER_HASH_EXPRESSIONS.name(), null);
+        AbstractExpression.loadFromJSONArrayChild(m_innerHashExpressions, jobj,
+                Members.INNER_HASH_EXPRESSIONS.name(), null);
+    }
+
+    @Override
+    public void findAllExpressionsOfClass(Class< ? extends AbstractExpression> aeClass, Set<AbstractExpression> collected) {
+        super.findAllExpressionsOfClass(aeClass, collected);
+        for (AbstractExpression expr : m_outerHashExpressions) {
+            collected.addAll(expr.findAllSubexpressionsOfClass(aeClass));
+        }
+        for (AbstractExpression expr : m_innerHashExpressions) {
+            collected.addAll(expr.findAllSubexpressionsOfClass(aeClass));
+        }
+    }
+
+    @Override
+    protected String explainPlanForNode(String indent) {
+        return "HASH " + this.m_joinType.toString() + " JOIN" +
+                explainFilters(indent);
+    }
+
+}
@@ -19,11 +19,19 @@ package org.voltdb.plannodes;
 
 import org.voltdb.compiler.DatabaseEstimates;
 import org.voltdb.compiler.ScalarValueHints;
+import org.voltdb.planner.PlanStatistics;
+import org.voltdb.planner.StatsField;
 import org.voltdb.types.PlanNodeType;
 import org.voltdb.types.SortDirectionType;
 
 public class NestLoopPlanNode extends AbstractJoinPlanNode {
 
+    // Caps the rescan estimate so that deeply nested loops can't overflow the plan statistics.
+    private static final long MAX_RESCANNED_TUPLE_COUNT = Long.MAX_VALUE / 1024;
+
+    // Tuples read by repeated scans of the inner child, see recordAdditionalStatistics
+    private long m_estimatedRescannedTupleCount = 0;
+
     public NestLoopPlanNode() {
         super();
     }
@@ -46,6 +54,37 @@ public class NestLoopPlanNode extends AbstractJoinPlanNode {
                 m_children.get(1).m_estimatedProcessedTupleCount;
     }
 
+    @Override
+    protected void recordAdditionalStatistics(PlanStatistics stats) {
+        // The inner child is read again for every outer tuple after the first,
+        // which is what a hash join on the same inputs avoids.
+        long innerTupleCount = estimateSubtreeTupleCount(m_children.get(1));
+        long outerTupleCount = m_children.get(0).getEstimatedOutputTupleCount();
+        m_estimatedRescannedTupleCount = 0;
+        if (outerTupleCount > 1) {
+            try {
+                m_estimatedRescannedTupleCount = Math.min(MAX_RESCANNED_TUPLE_COUNT,
+                        Math.multiplyExact(outerTupleCount - 1, innerTupleCount));
+            }
+            catch (ArithmeticException overflow) {
+                m_estimatedRescannedTupleCount = MAX_RESCANNED_TUPLE_COUNT;
+            }
+        }
+        stats.incrementStatistic(0, StatsField.TUPLES_READ, m_estimatedRescannedTupleCount);
+    }
+
+    // Rescanning a child that is itself a join repeats the work of its whole subtree.
+    private static long estimateSubtreeTupleCount(AbstractPlanNode node) {
+        long tupleCount = node.m_estimatedProcessedTupleCount;
+        if (node instanceof NestLoopPlanNode) {
+            tupleCount += ((NestLoopPlanNode) node).m_estimatedRescannedTupleCount;
+        }
+        for (AbstractPlanNode child : node.m_children) {
+            tupleCount += estimateSubtreeTupleCount(child);
+        }
+        return Math.min(tupleCount, MAX_RESCANNED_TUPLE_COUNT);
+    }
+
     @Override
     protected String explainPlanForNode(String indent) {
         return "NEST LOOP " + this.m_joinType.toString() + " JOIN" +
@@ -0,0 +1,132 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.rejoin;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltcore.utils.CoreUtils;
+import org.voltdb.StatsSource;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.VoltTable.ColumnInfo;
+
+/**
+ * Per stream progress of the rejoin snapshot streams sent from this host. Each
+ * {@link StreamSnapshotDataTarget} reports the blocks it compresses and sends,
+ * the counters are reset when a new stream snapshot starts.
+ */
+public class RejoinStreamStats extends StatsSource {
+
+    static class StreamProgress {
+        final long m_destHSId;
+        final AtomicInteger m_outstanding;
+        final long m_startTime = System.currentTimeMillis();
+        volatile long m_lastTime = m_startTime;
+        final AtomicLong m_blocksSent = new AtomicLong();
+        final AtomicLong m_bytesUncompressed = new AtomicLong();
+        final AtomicLong m_bytesSent = new AtomicLong();
+        final AtomicLong m_compressionBacklog = new AtomicLong();
+
+        private StreamProgress(long destHSId, AtomicInteger outstanding) {
+            m_destHSId = destHSId;
+            m_outstanding = outstanding;
+        }
+
+        void compressionQueued() {
+            m_compressionBacklog.incrementAndGet();
+        }
+
+        void compressionDone() {
+            m_compressionBacklog.decrementAndGet();
+        }
+
+        void compressed(long uncompressedBytes) {
+            m_bytesUncompressed.addAndGet(uncompressedBytes);
+        }
+
+        void sent(long bytes) {
+            m_blocksSent.incrementAndGet();
+            m_bytesSent.addAndGet(bytes);
+            m_lastTime = System.currentTimeMillis();
+        }
+    }
+
+    private static final ConcurrentHashMap<Long, StreamProgress> s_streams =
+            new ConcurrentHashMap<Long, StreamProgress>();
+
+    public RejoinStreamStats() {
+        super(false);
+    }
+
+    public static void reset() {
+        s_streams.clear();
+    }
+
+    static StreamProgress register(long targetId, long destHSId, AtomicInteger outstanding) {
+        StreamProgress progress = new StreamProgress(destHSId, outstanding);
+        s_streams.put(targetId, progress);
+        return progress;
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        return new ArrayList<Object>(s_streams.keySet()).iterator();
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new VoltTable.ColumnInfo("TARGET_ID", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("DESTINATION", VoltType.STRING));
+        columns.add(new VoltTable.ColumnInfo("BLOCKS_SENT", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("BYTES_UNCOMPRESSED", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("BYTES_SENT", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("BLOCKS_OUTSTANDING", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("COMPRESSION_BACKLOG", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("DURATION", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("THROUGHPUT", VoltType.FLOAT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        final Long targetId = (Long)rowKey;
+        StreamProgress progress = s_streams.get(targetId);
+        if (progress == null) {
+            // reset by a new stream snapshot since the keys were taken
+            progress = new StreamProgress(-1, new AtomicInteger());
+        }
+        final long duration = progress.m_lastTime - progress.m_startTime;
+        final long bytesSent = progress.m_bytesSent.get();
+        rowValues[columnNameToIndex.get("TARGET_ID")] = targetId;
+        rowValues[columnNameToIndex.get("DESTINATION")] = CoreUtils.hsIdToString(progress.m_destHSId);
+        rowValues[columnNameToIndex.get("BLOCKS_SENT")] = progress.m_blocksSent.get();
+        rowValues[columnNameToIndex.get("BYTES_UNCOMPRESSED")] = progress.m_bytesUncompressed.get();
+        rowValues[columnNameToIndex.get("BYTES_SENT")] = bytesSent;
+        rowValues[columnNameToIndex.get("BLOCKS_OUTSTANDING")] = (long)progress.m_outstanding.get();
+        rowValues[columnNameToIndex.get("COMPRESSION_BACKLOG")] = progress.m_compressionBacklog.get();
+        rowValues[columnNameToIndex.get("DURATION")] = duration;
+        // compressed megabytes sent a second
+        rowValues[columnNameToIndex.get("THROUGHPUT")] =
+                duration > 0 ? (bytesSent / (1024.0 * 1024.0)) / (duration / 1000.0) : 0.0;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+}
@@ -19,15 +19,22 @@ package org.voltdb.rejoin;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -72,6 +79,9 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
     public final static long DEFAULT_WRITE_TIMEOUT_MS = m_rejoinDeathTestMode ? 10000 : Long.getLong("REJOIN_WRITE_TIMEOUT_MS", 60000);
     final static long WATCHDOG_PERIOS_S = 5;
 
+    // Blocks a target may have sent but not yet acked before the sender waits for acks
+    final static int SEND_WINDOW = Integer.getInteger("REJOIN_SEND_WINDOW", 32);
+
     // Number of bytes in the fixed header of a table data Block Type(1) + BlockIndex(4) + TableId(4) + partition id(4) + row count(4)
     final static int ROW_COUNT_OFFSET = contentOffset + 4;
     final static int DATA_HEADER_BYTES = contentOffset + 4 + 4;
@@ -99,6 +109,10 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
     // map of sent, but un-acked buffers, packaged up a bit
     private final TreeMap<Integer, SendWork> m_outstandingWork = new TreeMap<Integer, SendWork>();
 
+    // send credits, one is taken for each block sent and returned when it is acked
+    private final Semaphore m_sendCredits = new Semaphore(SEND_WINDOW);
+    private final RejoinStreamStats.StreamProgress m_progress;
+
     int m_blockIndex = 0;
     private final AtomicReference<Runnable> m_onCloseHandler = new AtomicReference<Runnable>(null);
 
@@ -126,6 +140,7 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
         m_sender.registerDataTarget(m_targetId);
         m_ackReceiver = ackReceiver;
         m_ackReceiver.setCallback(m_targetId, this, m_replicatedTableTarget ? allDestHostHSIds.size() : 1);
+        m_progress = RejoinStreamStats.register(m_targetId, m_destHSId, m_outstandingWorkCount);
 
         rejoinLog.debug(String.format("Initializing snapshot stream processor " +
                 "for source site id: %s, and with processorid: %d%s" ,
@@ -146,7 +161,10 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
 
     /**
      * Packages up a pending write into a piece of work that can be tracked
-     * and can be scheduled.
+     * and can be scheduled. The block is compressed by the sender's compression
+     * pool as soon as it is queued. The sender thread hands it to the mailbox once
+     * it has a send credit and the compressed bytes, blocks without a credit are
+     * held back by the sender so other data targets keep sending.
      */
     public static class SendWork {
         BBContainer m_message;
@@ -162,6 +180,16 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
         // A listenable future used to notify a listener when this buffer is discarded
         final SettableFuture<Boolean> m_future;
 
+        // Send window of the data target, a credit is held from send until the block is acked
+        final Semaphore m_credits;
+        private boolean m_holdsCredit = false;
+        final RejoinStreamStats.StreamProgress m_progress;
+
+        // Compressed block for the destination and for the other sites of a replicated table
+        private byte[] m_data;
+        private byte[] m_otherData;
+        volatile Future<?> m_compression;
+
         /**
          * Creates an empty send work to terminate the sender thread
          */
@@ -173,11 +201,14 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
             m_otherDestHSIds = null;
             m_ts = -1;
             m_future = null;
+            m_credits = null;
+            m_progress = null;
         }
 
         SendWork (StreamSnapshotMessageType type, long targetId, long destHSId,
                   Set<Long> otherDestIds, BBContainer message,
-                  SettableFuture<Boolean> future) {
+                  SettableFuture<Boolean> future, Semaphore credits,
+                  RejoinStreamStats.StreamProgress progress) {
             m_isEmpty = false;
             m_type = type;
             m_targetId = targetId;
@@ -186,6 +217,8 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
             m_message = message;
             m_ts = System.currentTimeMillis();
             m_future = future;
+            m_credits = credits;
+            m_progress = progress;
         }
 
         /**
@@ -198,88 +231,124 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
                 m_message.discard();
                 m_message = null;
             }
+            m_data = null;
+            m_otherData = null;
+            if (m_holdsCredit) {
+                m_holdsCredit = false;
+                m_credits.release();
+            }
+        }
+
+        private static byte[] compress(ByteBuffer buffer, int offset, int length) throws IOException {
+            if (buffer.isDirect()) {
+                return CompressionService.compressBuffer(buffer);
+            } else {
+                return CompressionService.compressBytes(buffer.array(), offset, length);
+            }
         }
 
         /**
-         * Compress the data in the BBContainer provided, then package it up in
-         * a RejoinDataMessage instance, and finally hand it off to the messaging
-         * subsystem.
+         * Compress the data in the BBContainer, and the copy for the non-lowest sites
+         * if this is a replicated table block. Runs on the compression pool, or inline
+         * on the sender thread if the block wasn't handed to the pool. A no-op if the
+         * block was already compressed or discarded.
          */
-        protected int send(Mailbox mb, MessageFactory msgFactory, BBContainer message) throws IOException {
-            final ByteBuffer messageBuffer = message.b();
-            if (messageBuffer.isDirect()) {
-                byte[] data = CompressionService.compressBuffer(messageBuffer);
-                mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, data));
-                return data.length;
-            } else {
-                byte compressedBytes[] =
-                    CompressionService.compressBytes(
-                            messageBuffer.array(), messageBuffer.position(),
-                            messageBuffer.remaining());
+        synchronized void compress() throws IOException {
+            if (m_message == null || m_data != null) {
+                return;
+            }
 
-                mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, compressedBytes));
-                return compressedBytes.length;
+            final ByteBuffer messageBuffer = m_message.b();
+            m_data = compress(messageBuffer, messageBuffer.position(), messageBuffer.remaining());
+            if (m_otherDestHSIds != null) {
+                if (m_type == StreamSnapshotMessageType.DATA) {
+                    // Copy the header from the real buffer and add a dummy table that the other non-lowest site can parse
+                    ByteBuffer dummyBuffer = ByteBuffer.allocate(DATA_HEADER_BYTES);
+                    messageBuffer.get(dummyBuffer.array(), 0, ROW_COUNT_OFFSET);
+                    messageBuffer.position(0);
+                    dummyBuffer.position(ROW_COUNT_OFFSET);
+                    dummyBuffer.putInt(0);  // Row Count
+                    dummyBuffer.position(0);
+                    m_otherData = compress(dummyBuffer, 0, DATA_HEADER_BYTES);
+                }
+                else if (m_type == StreamSnapshotMessageType.END) {
+                    // Special case for sending END messages to Non-Leader sites from the site that sent the replicated
+                    // Tables. We do this because replicated tables can race with partitioned tables so the sending 2
+                    // ENDs (one from the Replicated Table data target and one from the Partitioned tables data target)
+                    // means that the sink can be deallocated.
+                    m_otherData = compress(messageBuffer, 0, messageBuffer.limit());
+                }
+                else {
+                    // Special case for sending schema for replicated table to all sites of host
+                    m_otherData = compress(messageBuffer, 0, messageBuffer.remaining());
+                }
             }
+            m_progress.compressed(messageBuffer.remaining());
         }
 
-        private void sendReplicatedDataToNonLowestSites(Mailbox mb, MessageFactory msgFactory, ByteBuffer message, int len) throws IOException {
-            byte[] compressedBytes;
-            if (message.isDirect()) {
-                compressedBytes = CompressionService.compressBuffer(message);
-            }
-            else {
-                compressedBytes =
-                    CompressionService.compressBytes(message.array(), 0, len);
+        /**
+         * Wait for the compression pool to finish with this block. Done without
+         * holding the lock so acks and discards of earlier blocks aren't held up.
+         */
+        private void awaitCompression() throws InterruptedException {
+            final Future<?> compression = m_compression;
+            if (compression != null) {
+                try {
+                    compression.get();
+                } catch (ExecutionException e) {
+                    // the block is compressed again inline and the failure is thrown from there
+                }
             }
-            mb.send(Longs.toArray(m_otherDestHSIds), msgFactory.makeDataMessage(m_targetId, compressedBytes));
         }
 
-        public synchronized int doWork(Mailbox mb, MessageFactory msgFactory) throws Exception {
-            // this work has already been discarded
-            if (m_message == null) {
-                m_ackCounter = new AtomicInteger(1);
-                return 0;
+        /**
+         * Take a credit from the send window of the data target without waiting.
+         * Returns false if the window is full. Work without a window, or work that
+         * was already discarded, can be sent without a credit.
+         */
+        synchronized boolean tryAcquireCredit() {
+            if (m_credits == null || m_message == null || m_holdsCredit) {
+                return true;
             }
+            m_holdsCredit = m_credits.tryAcquire();
+            return m_holdsCredit;
+        }
 
-            try {
-                int sentBytes;
-                if (m_otherDestHSIds != null) {
-                    m_ackCounter = new AtomicInteger(m_otherDestHSIds.size()+1);
-                    sentBytes = send(mb, msgFactory, m_message);
-                    if (m_type == StreamSnapshotMessageType.DATA) {
-                        // Copy the header from the real buffer and add a dummy table that the other non-lowest site can parse
-                        ByteBuffer dummyBuffer = ByteBuffer.allocate(DATA_HEADER_BYTES);
-                        m_message.b().get(dummyBuffer.array(), 0, ROW_COUNT_OFFSET);
-                        m_message.b().position(0);
-                        dummyBuffer.position(ROW_COUNT_OFFSET);
-                        dummyBuffer.putInt(0);  // Row Count
-                        dummyBuffer.position(0);
-                        sendReplicatedDataToNonLowestSites(mb, msgFactory, dummyBuffer, DATA_HEADER_BYTES);
-                    }
-                    else if (m_type == StreamSnapshotMessageType.END) {
-                        // Special case for sending END messages to Non-Leader sites from the site that sent the replicated
-                        // Tables. We do this because replicated tables can race with partitioned tables so the sending 2
-                        // ENDs (one from the Replicated Table data target and one from the Partitioned tables data target)
-                        // means that the sink can be deallocated.
-                        sendReplicatedDataToNonLowestSites(mb, msgFactory, m_message.b(), m_message.b().limit());
+        public int doWork(Mailbox mb, MessageFactory msgFactory) throws Exception {
+            awaitCompression();
+
+            synchronized (this) {
+                // this work has already been discarded
+                if (m_message == null) {
+                    m_ackCounter = new AtomicInteger(1);
+                    return 0;
+                }
+
+                try {
+                    compress();
+                    int sentBytes = m_data.length;
+                    if (m_otherDestHSIds != null) {
+                        m_ackCounter = new AtomicInteger(m_otherDestHSIds.size()+1);
+                        mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, m_data));
+                        mb.send(Longs.toArray(m_otherDestHSIds), msgFactory.makeDataMessage(m_targetId, m_otherData));
                     }
                     else {
-                        // Special case for sending schema for replicated table to all sites of host
-                        sendReplicatedDataToNonLowestSites(mb, msgFactory, m_message.b(), m_message.b().remaining());
+                        m_ackCounter = new AtomicInteger(1);
+                        mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, m_data));
                     }
+                    // the compressed bytes are held by the messages now
+                    m_data = null;
+                    m_otherData = null;
+                    m_progress.sent(sentBytes);
+                    rejoinLog.trace("Sent " + m_type.name() + " from " + m_targetId +
+                            " expected ackCounter " + m_ackCounter +
+                            " otherDestHSIds " + m_otherDestHSIds);
+                    return sentBytes;
+                } finally {
+                    // Buffers are only discarded after they are acked. Discarding them here would cause the sender to
+                    // generate too much work for the receiver.
+                    m_future.set(true);
                 }
-                else {
-                    m_ackCounter = new AtomicInteger(1);
-                    sentBytes = send(mb, msgFactory, m_message);
-                }
-                rejoinLog.trace("Sent " + m_type.name() + " from " + m_targetId +
-                        " expected ackCounter " + m_ackCounter +
-                        " otherDestHSIds " + m_otherDestHSIds);
-                return sentBytes;
-            } finally {
-                // Buffers are only discarded after they are acked. Discarding them here would cause the sender to
-                // generate too much work for the receiver.
-                m_future.set(true);
             }
         }
 
@@ -380,6 +449,7 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
         }
         m_outstandingWork.clear();
         m_outstandingWorkCount.set(0);
+        m_sender.creditsReturned();
     }
 
     /**
@@ -403,6 +473,7 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
             m_outstandingWorkCount.decrementAndGet();
             m_outstandingWork.remove(blockIndex);
             work.discard();
+            m_sender.creditsReturned();
         }
         else {
             rejoinLog.trace("Received ack for targetId " + m_targetId +
@@ -411,14 +482,29 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
     }
 
     /**
-     * Thread that runs send work (sending snapshot blocks). One per node
+     * Thread that runs send work (sending snapshot blocks). One per node. Blocks
+     * are compressed on a small pool as they are queued so the thread only has to
+     * hand the compressed bytes to the mailbox, in the order they were queued.
+     * A data target with a full send window doesn't hold up the others, its blocks
+     * are set aside in order until acks return credits.
      */
     public static class SnapshotSender implements Runnable {
+        static final int COMPRESSION_THREADS = Integer.getInteger("REJOIN_COMPRESSION_THREADS",
+                Math.max(1, Math.min(4, CoreUtils.availableProcessors() / 2)));
+
         private final Mailbox m_mb;
         private final MessageFactory m_msgFactory;
         private final LinkedBlockingQueue<SendWork> m_workQueue;
+        private final ExecutorService m_compressionPool;
         private final AtomicInteger m_expectedEOFs;
 
+        // Queued by data targets when acks return send credits, wakes the thread to
+        // retry the blocks that are waiting for credits
+        private static final SendWork CREDITS_RETURNED = new SendWork();
+        private final AtomicBoolean m_creditsReturnedQueued = new AtomicBoolean(false);
+        // Blocks waiting for a send credit by data target, only used by the sender thread
+        private final Map<Long, ArrayDeque<SendWork>> m_waitingForCredits = new HashMap<Long, ArrayDeque<SendWork>>();
+
         final Map<Long, AtomicLong> m_bytesSent;
         final Map<Long, AtomicLong> m_worksSent;
         volatile Exception m_lastException = null;
@@ -437,6 +523,8 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
             m_expectedEOFs = new AtomicInteger();
             m_bytesSent = Collections.synchronizedMap(new HashMap<Long, AtomicLong>());
             m_worksSent = Collections.synchronizedMap(new HashMap<Long, AtomicLong>());
+            m_compressionPool = CoreUtils.getListeningExecutorService("Stream Snapshot Compression", COMPRESSION_THREADS);
+            RejoinStreamStats.reset();
         }
 
         public void registerDataTarget(long targetId)
@@ -446,11 +534,84 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
             m_worksSent.put(targetId, new AtomicLong());
         }
 
-        public void offer(SendWork work)
+        public void offer(final SendWork work)
         {
+            if (!work.m_isEmpty) {
+                work.m_progress.compressionQueued();
+                try {
+                    work.m_compression = m_compressionPool.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws IOException {
+                            try {
+                                work.compress();
+                                return null;
+                            } finally {
+                                work.m_progress.compressionDone();
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // the sender has exited, the block is compressed inline if it is ever sent
+                    work.m_progress.compressionDone();
+                }
+            }
             m_workQueue.offer(work);
         }
 
+        /**
+         * Called by a data target after acks returned send credits.
+         */
+        void creditsReturned()
+        {
+            if (m_creditsReturnedQueued.compareAndSet(false, true)) {
+                m_workQueue.offer(CREDITS_RETURNED);
+            }
+        }
+
+        private void send(SendWork work)
+        {
+            try {
+                m_bytesSent.get(work.m_targetId).addAndGet(work.doWork(m_mb, m_msgFactory));
+                m_worksSent.get(work.m_targetId).incrementAndGet();
+            }
+            catch (Exception e) {
+                m_lastException = e;
+                rejoinLog.error("Error sending a recovery stream message", e);
+            }
+        }
+
+        /**
+         * Send the block now if its data target has a send credit, otherwise set it
+         * aside behind the other blocks of the target that wait for credits.
+         */
+        private void sendOrWait(SendWork work)
+        {
+            ArrayDeque<SendWork> waiting = m_waitingForCredits.get(work.m_targetId);
+            if (waiting == null && work.tryAcquireCredit()) {
+                send(work);
+                return;
+            }
+            if (waiting == null) {
+                waiting = new ArrayDeque<SendWork>();
+                m_waitingForCredits.put(work.m_targetId, waiting);
+            }
+            waiting.add(work);
+        }
+
+        private void sendWaitingWork()
+        {
+            Iterator<ArrayDeque<SendWork>> iter = m_waitingForCredits.values().iterator();
+            while (iter.hasNext()) {
+                ArrayDeque<SendWork> waiting = iter.next();
+                while (!waiting.isEmpty() && waiting.peek().tryAcquireCredit()) {
+                    send(waiting.poll());
+                }
+                if (waiting.isEmpty()) {
+                    iter.remove();
+                }
+            }
+        }
+
         @Override
         public void run() {
             rejoinLog.trace("Starting stream sender thread");
@@ -465,6 +626,10 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
                     if (work == null) {
                         rejoinLog.warn("No stream snapshot send work was produced in the past 10 minutes");
                         break;
+                    } else if (work == CREDITS_RETURNED) {
+                        m_creditsReturnedQueued.set(false);
+                        sendWaitingWork();
+                        continue;
                     } else if (work.m_isEmpty) {
                         // Empty work indicates the end of the queue.
                         // The sender is shared by multiple data targets, each of them will
@@ -477,14 +642,22 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
                         }
                     }
 
-                    m_bytesSent.get(work.m_targetId).addAndGet(work.doWork(m_mb, m_msgFactory));
-                    m_worksSent.get(work.m_targetId).incrementAndGet();
+                    sendOrWait(work);
                 }
                 catch (Exception e) {
                     m_lastException = e;
                     rejoinLog.error("Error sending a recovery stream message", e);
                 }
             }
+            // data targets only close once their blocks are acked or cleared, anything
+            // still waiting for credits here was discarded
+            for (ArrayDeque<SendWork> waiting : m_waitingForCredits.values()) {
+                for (SendWork work : waiting) {
+                    work.discard();
+                }
+            }
+            m_waitingForCredits.clear();
+            m_compressionPool.shutdown();
             CompressionService.releaseThreadLocal();
             rejoinLog.trace("Stream sender thread exiting");
         }
@@ -588,7 +761,7 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
                 " from targetId " + m_targetId + " to " + CoreUtils.hsIdToString(m_destHSId) +
                 (replicatedTable?", " + CoreUtils.hsIdCollectionToString(m_otherDestHostHSIds):""));
         SendWork sendWork = new SendWork(type, m_targetId, m_destHSId,
-                replicatedTable?m_otherDestHostHSIds:null, chunk, sendFuture);
+                replicatedTable?m_otherDestHostHSIds:null, chunk, sendFuture, m_sendCredits, m_progress);
         m_outstandingWork.put(blockIndex, sendWork);
         m_outstandingWorkCount.incrementAndGet();
         m_sender.offer(sendWork);
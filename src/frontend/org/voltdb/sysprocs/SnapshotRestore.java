@@ -74,6 +74,7 @@ import org.voltdb.DeprecatedProcedureAPIAccess;
 import org.voltdb.ExtensibleSnapshotDigestData;
 import org.voltdb.ParameterSet;
 import org.voltdb.PrivateVoltTableFactory;
+import org.voltdb.SnapshotRestoreStats;
 import org.voltdb.StartAction;
 import org.voltdb.StoredProcedureInvocation;
 import org.voltdb.SystemProcedureExecutionContext;
@@ -87,6 +88,7 @@ import org.voltdb.VoltType;
 import org.voltdb.VoltTypeException;
 import org.voltdb.VoltZK;
 import org.voltdb.catalog.Column;
+import org.voltdb.catalog.Constraint;
 import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Table;
 import org.voltdb.compiler.deploymentfile.DrRoleType;
@@ -102,11 +104,13 @@ import org.voltdb.sysprocs.SnapshotRestoreResultSet.RestoreResultKey;
 import org.voltdb.sysprocs.saverestore.ClusterSaveFileState;
 import org.voltdb.sysprocs.saverestore.DuplicateRowHandler;
 import org.voltdb.sysprocs.saverestore.HashinatorSnapshotData;
+import org.voltdb.sysprocs.saverestore.RestoreReadPool;
 import org.voltdb.sysprocs.saverestore.SavedTableConverter;
 import org.voltdb.sysprocs.saverestore.SnapshotPathType;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil;
 import org.voltdb.sysprocs.saverestore.TableSaveFile;
 import org.voltdb.sysprocs.saverestore.TableSaveFileState;
+import org.voltdb.types.ConstraintType;
 import org.voltdb.utils.CatalogUtil;
 import org.voltdb.utils.CompressionService;
 import org.voltdb.utils.VoltFile;
@@ -130,6 +134,16 @@ public class SnapshotRestore extends VoltSystemProcedure {
      */
     public static final int K_CHECK_UNIQUE_VIOLATIONS_REPLICATED = 1;
 
+    /*
+     * Passes made over the files of a snapshot. A regular snapshot, or the base of
+     * an incremental chain, is loaded in a single pass. The deltas on top of it are
+     * applied in two, first the rows deleted since the previous snapshot of the chain
+     * then the rows inserted or updated since.
+     */
+    static final int INCREMENTAL_NONE = 0;
+    static final int INCREMENTAL_DELETES = 1;
+    static final int INCREMENTAL_UPSERTS = 2;
+
     private static final int DEP_restoreScan = (int)
             SysProcFragmentId.PF_restoreScan | DtxnConstants.MULTIPARTITION_DEPENDENCY;
     private static final int DEP_restoreScanResults = (int)
@@ -193,6 +207,8 @@ public class SnapshotRestore extends VoltSystemProcedure {
 
     private static HashSet<String>  m_initializedTableSaveFileNames = new HashSet<String>();
     private static ArrayDeque<TableSaveFile> m_saveFiles = new ArrayDeque<TableSaveFile>();
+    // Reads m_saveFiles, shut down when they are closed
+    private static RestoreReadPool m_readPool = null;
 
     private static volatile DuplicateRowHandler m_duplicateRowHandler = null;
 
@@ -237,6 +253,9 @@ public class SnapshotRestore extends VoltSystemProcedure {
             relevantPartitionSet.add(part_id);
         }
 
+        if (m_readPool == null) {
+            m_readPool = new RestoreReadPool();
+        }
         for (int originalHostId : originalHostIds) {
             final File f = getSaveFileForPartitionedTable(filePath, fileNonce,
                     tableName,
@@ -244,9 +263,12 @@ public class SnapshotRestore extends VoltSystemProcedure {
             TableSaveFile savefile = getTableSaveFile(
                     f,
                     st.getLocalSites().length * 2,
-                    relevantPartitionSet.toArray(new Integer[relevantPartitionSet.size()]));
+                    relevantPartitionSet.toArray(new Integer[relevantPartitionSet.size()]),
+                    m_readPool);
 
             m_saveFiles.offer(savefile);
+            // Read the files for all the original hosts at once, getNextChunk takes chunks from whichever is ready
+            savefile.startReading();
             for (int part_id : savefile.getPartitionIds())
             {
                 relevantPartitionSet.remove(part_id);
@@ -259,6 +281,21 @@ public class SnapshotRestore extends VoltSystemProcedure {
         }
     }
 
+    private static synchronized void closeSaveFiles() {
+        TableSaveFile tsf = null;
+        while ((tsf = m_saveFiles.poll()) != null) {
+            try {
+                tsf.close();
+            } catch (Exception e) {
+                SNAP_LOG.warn("Error closing save files on failure", e);
+            }
+        }
+        if (m_readPool != null) {
+            m_readPool.shutdown();
+            m_readPool = null;
+        }
+    }
+
     private static synchronized boolean hasMoreChunks() throws IOException {
         boolean hasMoreChunks = false;
         while (!hasMoreChunks && m_saveFiles.peek() != null) {
@@ -276,7 +313,22 @@ public class SnapshotRestore extends VoltSystemProcedure {
     }
 
     private static synchronized BBContainer getNextChunk() throws IOException {
+        BBContainer c;
+        while ((c = nextChunk()) != null && !isChunkForPhase(c)) {
+            c.discard();
+        }
+        return c;
+    }
+
+    private static synchronized BBContainer nextChunk() throws IOException {
         BBContainer c = null;
+        // Chunks from any of the files will do, take one that has already been read before waiting on the first
+        for (TableSaveFile f : m_saveFiles) {
+            c = f.pollChunk();
+            if (c != null) {
+                return c;
+            }
+        }
         while (c == null && m_saveFiles.peek() != null) {
             TableSaveFile f = m_saveFiles.peek();
             c = f.getNextChunk();
@@ -288,6 +340,19 @@ public class SnapshotRestore extends VoltSystemProcedure {
         return c;
     }
 
+    /*
+     * The chunks an incremental snapshot writes ahead of the rows (deleted rows and
+     * the marker of a partition written in full) only belong to the deletes pass.
+     */
+    private static boolean isChunkForPhase(BBContainer c) {
+        boolean isPreamble = false;
+        if (c instanceof TableSaveFile.Container) {
+            TableSaveFile.Container container = (TableSaveFile.Container) c;
+            isPreamble = container.isIncrementalDeletes() || container.isIncrementalFull();
+        }
+        return isPreamble == (m_incrementalPhase == INCREMENTAL_DELETES);
+    }
+
     @Override
     public long[] getPlanFragmentIds()
     {
@@ -535,12 +600,14 @@ public class SnapshotRestore extends VoltSystemProcedure {
                 // distribution fragments, so two sites on the same node
                 // can't be attempting to set and clear this HashSet simultaneously
                 m_initializedTableSaveFileNames.clear();
-                m_saveFiles.clear();//Tests will reused a VoltDB process that fails a restore
+                closeSaveFiles();//Tests will reused a VoltDB process that fails a restore
+                SnapshotRestoreStats.reset();
 
                 m_filePath = (String) params.toArray()[0];
                 m_filePathType = (String) params.toArray()[1];
                 m_filePath = SnapshotUtil.getRealPath(SnapshotPathType.valueOf(m_filePathType), m_filePath);
                 m_fileNonce = (String) params.toArray()[2];
+                m_incrementalPhase = paramsArray.length > 4 ? (Integer) paramsArray[4] : INCREMENTAL_NONE;
                 /*
                  * Initialize a duplicate row handling policy for this restore.
                  * if path type is not SNAP_PATH use local path specified by type
@@ -582,7 +649,7 @@ public class SnapshotRestore extends VoltSystemProcedure {
                     TableSaveFile savefile = null;
                     try
                     {
-                        savefile = getTableSaveFile(file, 1, null);
+                        savefile = getTableSaveFile(file, 1, null, null);
                         try {
 
                             if (!savefile.getCompleted()) {
@@ -757,6 +824,7 @@ public class SnapshotRestore extends VoltSystemProcedure {
             int checkUniqueViolations = (Integer) params.toArray()[3];
             int[] partition_ids = (int[]) params.toArray()[4];
             boolean isRecover = "true".equals(params.toArray()[5]);
+            boolean deleteAll = params.size() > 6 && "true".equals(params.toArray()[6]);
 
             if(checkUniqueViolations == K_CHECK_UNIQUE_VIOLATIONS_PARTITIONED) {
                 assert(partition_ids != null && partition_ids.length == 1);
@@ -771,16 +839,7 @@ public class SnapshotRestore extends VoltSystemProcedure {
             try {
                 VoltTable table = PrivateVoltTableFactory.createVoltTableFromBuffer(
                                 ByteBuffer.wrap(CompressionService.decompressBytes(compressedTable)), true);
-                @SuppressWarnings("deprecation")
-                byte uniqueViolations[] =
-                        DeprecatedProcedureAPIAccess.voltLoadTable(
-                                this,
-                                context.getCluster().getTypeName(),
-                                context.getDatabase().getTypeName(),
-                                table_name,
-                                table,
-                                m_duplicateRowHandler != null,
-                                false);
+                byte uniqueViolations[] = loadRestoredTable(context, table_name, table, deleteAll);
                 if(uniqueViolations != null && !isRecover){
                     result_str = "FAILURE";
                     error_msg = "Constraint violations in table " + table_name;
@@ -869,7 +928,7 @@ public class SnapshotRestore extends VoltSystemProcedure {
             try
             {
                 savefile =
-                        getTableSaveFile(getSaveFileForReplicatedTable(table_name), 3, null);
+                        getTableSaveFile(getSaveFileForReplicatedTable(table_name), 3, null, null);
                 assert(savefile.getCompleted());
             }
             catch (IOException e)
@@ -896,6 +955,11 @@ public class SnapshotRestore extends VoltSystemProcedure {
                     if (c == null) {
                         continue;//Should be equivalent to break
                     }
+                    if (!isChunkForPhase(c)) {
+                        c.discard();
+                        continue;
+                    }
+                    final boolean deleteAll = isIncrementalFullMarker(c);
                     try {
                         if (needsConversion == null) {
                             VoltTable old_table =
@@ -921,15 +985,7 @@ public class SnapshotRestore extends VoltSystemProcedure {
 
                     try
                     {
-                        @SuppressWarnings("deprecation")
-                        byte uniqueViolations[] = DeprecatedProcedureAPIAccess.voltLoadTable(
-                                this,
-                                context.getCluster().getTypeName(),
-                                context.getDatabase().getTypeName(),
-                                table_name,
-                                table,
-                                m_duplicateRowHandler != null,
-                                false);
+                        byte uniqueViolations[] = loadRestoredTable(context, table_name, table, deleteAll);
 
                         if(uniqueViolations != null && !isRecover){
                             result_str = "FAILURE";
@@ -1117,9 +1173,18 @@ public class SnapshotRestore extends VoltSystemProcedure {
         final long startTime = System.currentTimeMillis();
         CONSOLE_LOG.info("Restoring from path: " + path + " with nonce: " + nonce);
 
+        // An incremental snapshot is restored by loading the base of its chain
+        // and then applying each delta on top of it, oldest first
+        final List<String> deltaNonces = getIncrementalChain(path, nonce);
+        final String baseNonce = deltaNonces.remove(0);
+        if (!deltaNonces.isEmpty()) {
+            CONSOLE_LOG.info("Restoring incremental snapshot " + nonce + " from base " + baseNonce +
+                    " and " + deltaNonces.size() + " deltas");
+        }
+
         // Fetch all the savefile metadata from the cluster
         VoltTable[] savefile_data;
-        savefile_data = performRestoreScanWork(path, pathType, nonce, dupsPath);
+        savefile_data = performRestoreScanWork(path, pathType, baseNonce, dupsPath, INCREMENTAL_NONE);
 
         while (savefile_data[0].advanceRow()) {
             long originalHostId = savefile_data[0].getLong("ORIGINAL_HOST_ID");
@@ -1355,6 +1420,13 @@ public class SnapshotRestore extends VoltSystemProcedure {
         }
 
         results = performTableRestoreWork(savefile_state, ctx.getSiteTrackerForSnapshot(), isRecover);
+        for (String deltaNonce : deltaNonces) {
+            if (hasRestoreFailure(results)) {
+                break;
+            }
+            results = performIncrementalRestoreWork(path, pathType, deltaNonce, dupsPath,
+                    ctx.getSiteTrackerForSnapshot(), isRecover);
+        }
 
         final long endTime = System.currentTimeMillis();
         final double duration = (endTime - startTime) / 1000.0;
@@ -1627,14 +1699,17 @@ public class SnapshotRestore extends VoltSystemProcedure {
     private static TableSaveFile getTableSaveFile(
             File saveFile,
             int readAheadChunks,
-            Integer relevantPartitionIds[]) throws IOException
+            Integer relevantPartitionIds[],
+            RestoreReadPool readPool) throws IOException
             {
         FileInputStream savefile_input = new FileInputStream(saveFile);
         TableSaveFile savefile =
                 new TableSaveFile(
                         savefile_input,
                         readAheadChunks,
-                        relevantPartitionIds);
+                        relevantPartitionIds,
+                        false,
+                        readPool);
         return savefile;
             }
 
@@ -1668,7 +1743,8 @@ public class SnapshotRestore extends VoltSystemProcedure {
 
     private final VoltTable[] performRestoreScanWork(String filePath, String pathType,
             String fileNonce,
-            String dupsPath)
+            String dupsPath,
+            int incrementalPhase)
     {
         SynthesizedPlanFragment[] pfs = new SynthesizedPlanFragment[2];
 
@@ -1679,7 +1755,7 @@ public class SnapshotRestore extends VoltSystemProcedure {
         pfs[0].outputDepId = DEP_restoreScan;
         pfs[0].inputDepIds = new int[] {};
         pfs[0].multipartition = true;
-        pfs[0].parameters = ParameterSet.fromArrayNoCopy(filePath, pathType, fileNonce, dupsPath);
+        pfs[0].parameters = ParameterSet.fromArrayNoCopy(filePath, pathType, fileNonce, dupsPath, incrementalPhase);
 
         // This fragment aggregates the save-to-disk sanity check results
         pfs[1] = new SynthesizedPlanFragment();
@@ -1694,6 +1770,61 @@ public class SnapshotRestore extends VoltSystemProcedure {
         return results;
     }
 
+    /**
+     * Follow the deltaOf links of the digests from the requested snapshot back to the
+     * base of its incremental chain.
+     *
+     * @return the nonces of the chain, base first. Just the requested nonce if it is not
+     * an incremental snapshot or its digests can't be read, the scans report the latter.
+     */
+    private static List<String> getIncrementalChain(String path, String nonce) {
+        ArrayList<String> chain = new ArrayList<String>();
+        String current = nonce;
+        while (current != null && !chain.contains(current)) {
+            chain.add(0, current);
+            String deltaOf = null;
+            try {
+                List<JSONObject> digests = SnapshotUtil.retrieveDigests(path, current, SNAP_LOG);
+                if (!digests.isEmpty() && digests.get(0).optBoolean(SnapshotUtil.JSON_INCREMENTAL, false)) {
+                    deltaOf = digests.get(0).optString(SnapshotUtil.JSON_DELTA_OF, null);
+                }
+            } catch (Exception e) {
+                SNAP_LOG.warn("Unable to read the digests of snapshot " + current, e);
+            }
+            current = deltaOf;
+        }
+        return chain;
+    }
+
+    /*
+     * Apply a delta of an incremental snapshot, the deleted rows first then the rest
+     */
+    private VoltTable[] performIncrementalRestoreWork(String path, String pathType, String deltaNonce,
+            String dupsPath, SiteTracker tracker, boolean isRecover) throws Exception
+    {
+        CONSOLE_LOG.info("Applying incremental snapshot " + deltaNonce);
+        VoltTable[] results = null;
+        for (int phase : new int[] { INCREMENTAL_DELETES, INCREMENTAL_UPSERTS }) {
+            VoltTable[] savefile_data = performRestoreScanWork(path, pathType, deltaNonce, dupsPath, phase);
+            results = performTableRestoreWork(new ClusterSaveFileState(savefile_data[0]), tracker, isRecover);
+            if (hasRestoreFailure(results)) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    private static boolean hasRestoreFailure(VoltTable[] results) {
+        boolean failed = false;
+        while (results[0].advanceRow()) {
+            if ("FAILURE".equals(results[0].getString("RESULT"))) {
+                failed = true;
+            }
+        }
+        results[0].resetRowPosition();
+        return failed;
+    }
+
     //Keep track of count per table and if replicated take value from first partition result that arrives.
     //Display counts every 1 minute.
     public void reportProgress(String tableName, long count, boolean replicated, int partitionId) {
@@ -1717,6 +1848,7 @@ public class SnapshotRestore extends VoltSystemProcedure {
             }
         }
         if (count != 0) {
+            SnapshotRestoreStats.tuplesRestored(tableName, count);
             //we add regardless of displaying....final count is displayed at the end.
             count = counter.addAndGet(count);
             long curTime = System.currentTimeMillis();
@@ -2244,7 +2376,7 @@ public class SnapshotRestore extends VoltSystemProcedure {
         try
         {
             savefile =
-                    getTableSaveFile(getSaveFileForReplicatedTable(tableName), 3, null);
+                    getTableSaveFile(getSaveFileForReplicatedTable(tableName), 3, null, null);
             assert(savefile.getCompleted());
         }
         catch (IOException e)
@@ -2288,6 +2420,11 @@ public class SnapshotRestore extends VoltSystemProcedure {
                 if (c == null) {
                     continue;   // Should be equivalent to break
                 }
+                if (!isChunkForPhase(c)) {
+                    c.discard();
+                    continue;
+                }
+                final boolean deleteAll = isIncrementalFullMarker(c);
                 try {
                     if (needsConversion == null) {
                         VoltTable old_table =
@@ -2311,7 +2448,14 @@ public class SnapshotRestore extends VoltSystemProcedure {
                         partitioned_tables = createPartitionedTables(
                                 tableName, table, partitionCount, partitioned_table_cache);
                         if (partitioned_tables.isEmpty()) {
-                            continue;
+                            if (!deleteAll) {
+                                continue;
+                            }
+                            // The replicated table was written in full, clear every partition
+                            byte compressedMarker[] = TableCompressor.getCompressedTableBytes(table);
+                            for (int pid = 0; pid < partitionCount; pid++) {
+                                partitioned_tables.put(pid, compressedMarker);
+                            }
                         }
                         int depIdCnt = 0;
                         for (int pid : partitioned_tables.keySet()) {
@@ -2339,7 +2483,8 @@ public class SnapshotRestore extends VoltSystemProcedure {
                                         tableBytes,
                                         K_CHECK_UNIQUE_VIOLATIONS_PARTITIONED,
                                         new int[] {partition_id},
-                                        Boolean.toString(isRecover));
+                                        Boolean.toString(isRecover),
+                                        Boolean.toString(deleteAll));
 
                                 pfs[pfs_index++] = loadFragment;
                             }
@@ -2369,7 +2514,8 @@ public class SnapshotRestore extends VoltSystemProcedure {
                         pfs[0].multipartition = false;
                         pfs[0].parameters = ParameterSet.fromArrayNoCopy(
                                 tableName, result_dependency_id, compressedTable,
-                                K_CHECK_UNIQUE_VIOLATIONS_REPLICATED, null, Boolean.toString(isRecover));
+                                K_CHECK_UNIQUE_VIOLATIONS_REPLICATED, null, Boolean.toString(isRecover),
+                                Boolean.toString(deleteAll));
 
                         int final_dependency_id = TableSaveFileState.getNextDependencyId();
                         pfs[1] = new SynthesizedPlanFragment();
@@ -2449,16 +2595,7 @@ public class SnapshotRestore extends VoltSystemProcedure {
         }
         catch (IOException e)
         {
-            synchronized (SnapshotRestore.class) {
-                TableSaveFile tsf = null;
-                while ((tsf = m_saveFiles.poll()) != null) {
-                    try {
-                        tsf.close();
-                    } catch (Exception ex) {
-                        SNAP_LOG.warn("Error closing save files on failure", ex);
-                    }
-                }
-            }
+            closeSaveFiles();
             VoltTable result = constructResultsTable();
             result.addRow(m_hostId, hostname, CoreUtils.getSiteIdFromHSId(m_siteId), tableName, relevantPartitionIds[0],
                     "FAILURE", "Unable to load table: " + tableName + " error:\n" + CoreUtils.throwableToString(e));
@@ -2483,6 +2620,7 @@ public class SnapshotRestore extends VoltSystemProcedure {
                 if (c == null) {
                     continue;//Should be equivalent to break
                 }
+                final boolean deleteAll = isIncrementalFullMarker(c);
 
                 // use if will load as partitioned table
                 Map<Integer, byte[]> partitioned_tables = null;
@@ -2512,7 +2650,16 @@ public class SnapshotRestore extends VoltSystemProcedure {
                     } else {
                         partitioned_tables = createPartitionedTables(tableName, table, partitionCount, partitioned_table_cache);
                         if (partitioned_tables.isEmpty()) {
-                            continue;
+                            if (!deleteAll) {
+                                continue;
+                            }
+                            // Only the partition that was written in full is cleared, deltas
+                            // are restored onto the partition layout they were taken with
+                            int pid = ((TableSaveFile.Container) c).partitionId;
+                            if (!partition_to_siteCount.containsKey(pid)) {
+                                continue;
+                            }
+                            partitioned_tables.put(pid, TableCompressor.getCompressedTableBytes(table));
                         }
                         int depIdCnt = 0;
                         for (int pid : partitioned_tables.keySet()) {
@@ -2542,7 +2689,8 @@ public class SnapshotRestore extends VoltSystemProcedure {
                                 compressedTable,
                                 K_CHECK_UNIQUE_VIOLATIONS_REPLICATED,
                                 relevantPartitionIds,
-                                Boolean.toString(isRecover));
+                                Boolean.toString(isRecover),
+                                Boolean.toString(deleteAll));
                         pfs[pfs_index++] = loadFragment;
                     } else {
                         int partition_id = sites_to_partitions.get(site_id);
@@ -2561,7 +2709,8 @@ public class SnapshotRestore extends VoltSystemProcedure {
                                     tableBytes,
                                     K_CHECK_UNIQUE_VIOLATIONS_PARTITIONED,
                                     new int[] {partition_id},
-                                    Boolean.toString(isRecover));
+                                    Boolean.toString(isRecover),
+                                    Boolean.toString(deleteAll));
                             pfs[pfs_index++] = loadFragment;
                         }
                     }
@@ -2601,16 +2750,7 @@ public class SnapshotRestore extends VoltSystemProcedure {
                     "Unable to load table: " + tableName + " error:\n" + CoreUtils.throwableToString(e));
             return result;
         } finally {
-            synchronized (SnapshotRestore.class) {
-                TableSaveFile tsf = null;
-                while ((tsf = m_saveFiles.poll()) != null) {
-                    try {
-                        tsf.close();
-                    } catch (Exception e) {
-                        SNAP_LOG.warn("Error closing save files on failure", e);
-                    }
-                }
-            }
+            closeSaveFiles();
         }
 
         VoltTable result = null;
@@ -2629,6 +2769,60 @@ public class SnapshotRestore extends VoltSystemProcedure {
         return result;
     }
 
+    /*
+     * The chunk an incremental snapshot writes ahead of a table, or partition, written in
+     * full. Decided by its flag alone, an empty chunk of deleted rows deletes nothing.
+     */
+    private static boolean isIncrementalFullMarker(BBContainer c) {
+        return m_incrementalPhase == INCREMENTAL_DELETES &&
+                c instanceof TableSaveFile.Container &&
+                ((TableSaveFile.Container) c).isIncrementalFull();
+    }
+
+    /**
+     * Apply a chunk of restored rows according to the pass being made. Rows are loaded
+     * as they are, except for the passes applying a delta of an incremental snapshot: the
+     * deletes pass removes the rows by primary key (or every row when deleteAll is set for the
+     * marker of a table written in full), the upserts pass replaces the restored version of
+     * updated rows.
+     *
+     * @return the unique violations reported by the load, if any
+     */
+    @SuppressWarnings("deprecation")
+    private byte[] loadRestoredTable(SystemProcedureExecutionContext context, String tableName,
+            VoltTable table, boolean deleteAll)
+    {
+        if (m_incrementalPhase != INCREMENTAL_NONE) {
+            final Table catalogTable = getCatalogTable(tableName);
+            if (m_incrementalPhase == INCREMENTAL_DELETES) {
+                if (deleteAll || table.getRowCount() > 0) {
+                    m_runner.voltDeleteRestoredRows(catalogTable.getRelativeIndex(), table, deleteAll);
+                }
+                return null;
+            }
+            if (table.getRowCount() > 0 && hasPrimaryKey(catalogTable)) {
+                m_runner.voltDeleteRestoredRows(catalogTable.getRelativeIndex(), table, false);
+            }
+        }
+        return DeprecatedProcedureAPIAccess.voltLoadTable(
+                this,
+                context.getCluster().getTypeName(),
+                context.getDatabase().getTypeName(),
+                tableName,
+                table,
+                m_duplicateRowHandler != null,
+                false);
+    }
+
+    private static boolean hasPrimaryKey(Table catalogTable) {
+        for (Constraint constraint : catalogTable.getConstraints()) {
+            if (constraint.getType() == ConstraintType.PRIMARY_KEY.getValue()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private HashMap<Integer, byte[]> createPartitionedTables(String tableName, VoltTable loadedTable,
             int number_of_partitions, TreeMap<Integer, VoltTable> partitioned_table_cache) throws Exception
     {
@@ -2939,4 +3133,5 @@ public class SnapshotRestore extends VoltSystemProcedure {
     private static volatile String m_filePath;
     private static volatile String m_filePathType;
     private static volatile String m_fileNonce;
+    private static volatile int m_incrementalPhase = INCREMENTAL_NONE;
 }
@@ -19,6 +19,9 @@ package org.voltdb.sysprocs.saverestore;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -37,6 +40,7 @@ import org.voltdb.SnapshotFormat;
 import org.voltdb.SnapshotSiteProcessor;
 import org.voltdb.SnapshotTableTask;
 import org.voltdb.SystemProcedureExecutionContext;
+import org.voltdb.TableStreamType;
 import org.voltdb.TheHashinator;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltTable;
@@ -46,6 +50,7 @@ import org.voltdb.dtxn.SiteTracker;
 import org.voltdb.export.ExportManager;
 import org.voltdb.sysprocs.SnapshotRegistry;
 import org.voltdb.utils.CatalogUtil;
+import org.voltdb.utils.VoltFile;
 
 import com.google_voltpatches.common.collect.Maps;
 
@@ -56,9 +61,64 @@ import com.google_voltpatches.common.collect.Maps;
  * responsibility for writing them is spread round-robin across the sites on a
  * node.  Partitioned tables are written to the same target per table by every
  * site on a node.
+ *
+ * An incremental snapshot either starts a chain, writing every row, or is a delta
+ * of the previous incremental snapshot, writing only the rows deleted and the rows
+ * of the tuple blocks modified since that one completed.
  */
 public class NativeSnapshotWritePlan extends SnapshotWritePlan
 {
+    // Nonce of the last incremental snapshot that completed on this host, the only
+    // snapshot the next delta can be taken against. Also kept in a chain file next
+    // to the snapshot, so that the chain survives a restart of the host.
+    private static String s_lastIncrementalNonce = null;
+
+    static synchronized String getLastIncrementalNonce(String path, int hostId) {
+        if (s_lastIncrementalNonce == null) {
+            s_lastIncrementalNonce = readIncrementalChain(path, hostId);
+        }
+        return s_lastIncrementalNonce;
+    }
+
+    static synchronized void setLastIncrementalNonce(String path, int hostId, String nonce) throws IOException {
+        s_lastIncrementalNonce = null;
+        writeIncrementalChain(path, hostId, nonce);
+        s_lastIncrementalNonce = nonce;
+    }
+
+    /**
+     * @return the nonce recorded in the chain file at the path, null if there is none
+     */
+    static String readIncrementalChain(String path, int hostId) {
+        File chain = new VoltFile(path, SnapshotUtil.constructIncrementalChainFilename(hostId));
+        if (!chain.exists()) {
+            return null;
+        }
+        try {
+            String nonce = new String(Files.readAllBytes(chain.toPath()), StandardCharsets.UTF_8).trim();
+            return nonce.isEmpty() ? null : nonce;
+        } catch (IOException e) {
+            SNAP_LOG.warn("Unable to read incremental snapshot chain file " + chain, e);
+            return null;
+        }
+    }
+
+    /**
+     * Record the nonce in the chain file at the path, or remove the file if the nonce is null.
+     * The file is replaced atomically, a crash leaves either the old nonce or the new one.
+     */
+    static void writeIncrementalChain(String path, int hostId, String nonce) throws IOException {
+        File chain = new VoltFile(path, SnapshotUtil.constructIncrementalChainFilename(hostId));
+        if (nonce == null) {
+            Files.deleteIfExists(chain.toPath());
+            return;
+        }
+        File temp = new VoltFile(path, chain.getName() + ".tmp");
+        Files.write(temp.toPath(), nonce.getBytes(StandardCharsets.UTF_8));
+        Files.move(temp.toPath(), chain.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
     @Override
     public Callable<Boolean> createSetup(String file_path, String pathType,
                                             String file_nonce,
@@ -97,6 +157,7 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
         }
 
         final SnapshotRequestConfig config = new SnapshotRequestConfig(jsData, context.getDatabase());
+        final TableStreamType streamType = getIncrementalStreamType(jsData, file_path, context.getHostId());
         final Table[] tableArray;
         if (config.tables.length == 0 && (jsData == null || !jsData.has("tables"))) {
             tableArray = SnapshotUtil.getTablesToSave(context.getDatabase()).toArray(new Table[0]);
@@ -123,7 +184,8 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                             table,
                             new SnapshotDataFilter[0],
                             null,
-                            false);
+                            false,
+                            streamType);
 
             SNAP_LOG.debug("ADDING TASK for nativeSnapshot: " + task);
 
@@ -154,6 +216,36 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
             isTruncationSnapshot = jsData.has("truncReqId");
         }
 
+        if (streamType != null) {
+            // Until this one completes there is no snapshot to take a delta of
+            try {
+                setLastIncrementalNonce(file_path, context.getHostId(), null);
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to reset the incremental snapshot chain in " + file_path, e);
+            }
+            final int hostId = context.getHostId();
+            SnapshotSiteProcessor.m_tasksOnSnapshotCompletion.offer(new Runnable() {
+                @Override
+                public void run()
+                {
+                    if (m_targets.isEmpty() && tableArray.length > 0) {
+                        return;
+                    }
+                    for (SnapshotDataTarget target : m_targets) {
+                        if (target.getLastWriteException() != null) {
+                            return;
+                        }
+                    }
+                    try {
+                        setLastIncrementalNonce(file_path, hostId, file_nonce);
+                    } catch (IOException e) {
+                        SNAP_LOG.warn("Unable to record incremental snapshot " + file_nonce +
+                                ", the next incremental snapshot must be a new base", e);
+                    }
+                }
+            });
+        }
+
         // All IO work will be deferred and be run on the dedicated snapshot IO thread
         return createDeferredSetup(file_path, pathType, file_nonce, txnId, partitionTransactionIds,
                 context, extraSnapshotData, tracker, hashinatorData, timestamp,
@@ -161,6 +253,29 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                 replicatedSnapshotTasks, isTruncationSnapshot);
     }
 
+    /**
+     * @return the stream type of an incremental snapshot request, null for a regular snapshot
+     * @throws IllegalArgumentException if the delta is not of the last incremental snapshot
+     */
+    private static TableStreamType getIncrementalStreamType(JSONObject jsData, String path, int hostId)
+    {
+        if (jsData == null || !jsData.optBoolean(SnapshotUtil.JSON_INCREMENTAL, false)) {
+            return null;
+        }
+        String deltaOf = jsData.optString(SnapshotUtil.JSON_DELTA_OF, null);
+        if (deltaOf == null) {
+            return TableStreamType.SNAPSHOT_INCREMENTAL_BASE;
+        }
+        // After a restart the tables track no changes yet, the delta then writes them in full
+        String lastNonce = getLastIncrementalNonce(path, hostId);
+        if (!deltaOf.equals(lastNonce)) {
+            throw new IllegalArgumentException("Incremental snapshot " + deltaOf +
+                    " is not the last incremental snapshot completed on this host" +
+                    (lastNonce == null ? ", a new base snapshot is required" : " (" + lastNonce + ")"));
+        }
+        return TableStreamType.SNAPSHOT_INCREMENTAL;
+    }
+
     private Callable<Boolean> createDeferredSetup(final String file_path,
                                                   final String pathType,
                                                   final String file_nonce,
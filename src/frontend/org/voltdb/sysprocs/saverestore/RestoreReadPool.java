@@ -0,0 +1,89 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.sysprocs.saverestore;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+import org.voltcore.utils.CoreUtils;
+
+/**
+ * Threads and memory shared by every {@link TableSaveFile} being read for a restore.
+ * Save files are read off disk on a small I/O pool and their chunks are checksummed and
+ * decompressed on a separate pool, so several files can be read at once without
+ * one slow disk or one large file holding up the rest.
+ *
+ * Read ahead is bounded across all files by a memory budget. Each chunk between being read
+ * and being handed to a site holds a permit, a file with no chunks in flight may always read one
+ * so every file can make progress even when the budget is used up by the others.
+ *
+ * A pool is created for the files being read together and shut down once they are closed, so its
+ * threads and any read ahead permits a failed read didn't give back never outlive them.
+ */
+public final class RestoreReadPool {
+
+    private static final int IO_THREADS = Integer.getInteger("SNAPSHOT_RESTORE_IO_THREADS", 4);
+    private static final int DECOMPRESSION_THREADS = Integer.getInteger("SNAPSHOT_RESTORE_DECOMPRESSION_THREADS",
+            Math.max(1, CoreUtils.availableProcessors() / 2));
+    private static final long READ_AHEAD_BYTES =
+            Integer.getInteger("SNAPSHOT_RESTORE_READ_AHEAD_MB", 256) * 1024L * 1024L;
+
+    // A chunk in flight holds its compressed input and its decompressed output
+    private static final long CHUNK_BYTES = TableSaveFile.DEFAULT_CHUNKSIZE * 2L;
+
+    // Threads are only started as work is submitted
+    private final ExecutorService m_io =
+            CoreUtils.getListeningExecutorService("Snapshot Restore IO", Math.max(1, IO_THREADS));
+    private final ExecutorService m_decompression =
+            CoreUtils.getListeningExecutorService("Snapshot Restore Decompression", Math.max(1, DECOMPRESSION_THREADS));
+    private final Semaphore m_readAhead =
+            new Semaphore((int)Math.max(2, Math.min(Integer.MAX_VALUE, READ_AHEAD_BYTES / CHUNK_BYTES)));
+
+    public RestoreReadPool() {}
+
+    void read(Runnable r) {
+        m_io.execute(r);
+    }
+
+    void decompress(Runnable r) {
+        m_decompression.execute(r);
+    }
+
+    boolean tryAcquireReadAhead() {
+        return m_readAhead.tryAcquire();
+    }
+
+    void releaseReadAhead(int permits) {
+        if (permits > 0) {
+            m_readAhead.release(permits);
+        }
+    }
+
+    // For tests
+    int availableReadAhead() {
+        return m_readAhead.availablePermits();
+    }
+
+    /**
+     * Stop the pool threads. Every file using the pool must have been closed first.
+     */
+    public void shutdown() {
+        m_io.shutdownNow();
+        m_decompression.shutdownNow();
+    }
+}
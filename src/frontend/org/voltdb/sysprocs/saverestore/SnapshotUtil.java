@@ -113,6 +113,8 @@ public class SnapshotUtil {
      * milestone used to mark a shutdown save snapshot
      */
     public static final String JSON_TERMINUS = "terminus";
+    public static final String JSON_INCREMENTAL = "incremental";
+    public static final String JSON_DELTA_OF = "deltaOf";
 
     public static final ColumnInfo nodeResultsColumns[] =
     new ColumnInfo[] {
@@ -1253,6 +1255,14 @@ public class SnapshotUtil {
         return (nonce + "-host_" + hostId + COMPLETION_EXTENSION);
     }
 
+    /**
+     * Generates the filename recording the last incremental snapshot of a host.
+     * @param hostId
+     */
+    public static final String constructIncrementalChainFilename(int hostId) {
+        return ("incremental-host_" + hostId + ".chain");
+    }
+
     /**
      * Generates the catalog filename for the given nonce.
      * @param nonce
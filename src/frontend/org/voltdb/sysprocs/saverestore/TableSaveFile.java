@@ -26,10 +26,13 @@ import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.Checksum;
 
@@ -44,6 +47,7 @@ import org.voltcore.utils.Bits;
 import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltdb.EELibraryLoader;
+import org.voltdb.SnapshotRestoreStats;
 import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.utils.CompressionService;
 import org.voltdb.utils.PosixAdvise;
@@ -62,13 +66,39 @@ public class TableSaveFile
         CRC32, CRC32C
     }
 
+    /*
+     * Flags the EE ors into the partition id of the chunks an incremental snapshot
+     * writes ahead of the rows. Keep in sync with CopyOnWriteContext.h.
+     */
+    public static final int INCREMENTAL_DELETES_FLAG = 1 << 30;
+    public static final int INCREMENTAL_FULL_FLAG = 1 << 29;
+    static final int PARTITION_ID_MASK = INCREMENTAL_FULL_FLAG - 1;
+
     public class Container extends BBContainer {
         public final int partitionId;
+        private final int m_flags;
         private final BBContainer m_origin;
         Container(ByteBuffer b, BBContainer origin, int partitionId) {
             super(b);
             m_origin = origin;
-            this.partitionId = partitionId;
+            this.partitionId = partitionId & PARTITION_ID_MASK;
+            m_flags = partitionId & ~PARTITION_ID_MASK;
+        }
+
+        /**
+         * @return true if the rows of this chunk were deleted since the snapshot
+         * the incremental snapshot is a delta of
+         */
+        public boolean isIncrementalDeletes() {
+            return (m_flags & INCREMENTAL_DELETES_FLAG) != 0;
+        }
+
+        /**
+         * @return true if this is the empty chunk marking that the incremental snapshot
+         * has every row of the partition, which replace the ones restored so far
+         */
+        public boolean isIncrementalFull() {
+            return (m_flags & INCREMENTAL_FULL_FLAG) != 0;
         }
 
         @Override
@@ -87,7 +117,7 @@ public class TableSaveFile
      * It is actually possible to make a bigger chunk than this if the table header is
      * big enough...
      */
-    private static final int DEFAULT_CHUNKSIZE =
+    static final int DEFAULT_CHUNKSIZE =
             org.voltdb.SnapshotSiteProcessor.m_snapshotBufferLength + (1024 * 256);
 
     public TableSaveFile(
@@ -97,12 +127,25 @@ public class TableSaveFile
         this(fis, readAheadChunks, relevantPartitionIds, false);
     }
 
+    public TableSaveFile(
+            FileInputStream fis,
+            int readAheadChunks,
+            Integer[] relevantPartitionIds,
+            boolean continueOnCorruptedChunk) throws IOException {
+        this(fis, readAheadChunks, relevantPartitionIds, continueOnCorruptedChunk, null);
+    }
+
+    /**
+     * @param readPool Pool to read the file on, shared with the other files of a restore.
+     * If null the file reads on a pool of its own that is shut down when the file is closed.
+     */
     // XXX maybe consider an IOException subclass at some point
     public TableSaveFile(
             FileInputStream fis,
             int readAheadChunks,
             Integer[] relevantPartitionIds,
-            boolean continueOnCorruptedChunk) throws IOException
+            boolean continueOnCorruptedChunk,
+            RestoreReadPool readPool) throws IOException
             {
                 m_fd = fis.getFD();
                 FileChannel dataIn = fis.getChannel();
@@ -116,7 +159,8 @@ public class TableSaveFile
                     m_relevantPartitionIds.add(i);
                 }
             }
-            m_chunkReads = new Semaphore(readAheadChunks);
+            m_readAheadChunks = readAheadChunks;
+            m_readPool = readPool;
             m_saveFile = dataIn;
             m_continueOnCorruptedChunk = continueOnCorruptedChunk;
 
@@ -388,6 +432,7 @@ public class TableSaveFile
         Thread chunkReader;
         synchronized (this) {
             m_hasMoreChunks.set(false);
+            m_readerParked = false;
             chunkReader = m_chunkReaderThread;
         }
 
@@ -401,11 +446,29 @@ public class TableSaveFile
         }
 
         synchronized (this) {
+            /*
+             * Wait for a pooled reader and any chunks still being decompressed
+             * to notice the file is closed
+             */
+            while (m_readerScheduled || m_pendingChunks > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
             while (!m_availableChunks.isEmpty()) {
                 m_availableChunks.poll().discard();
             }
+            // Give back the share of the restore read ahead held by chunks that were never consumed
+            if (m_readPool != null) {
+                m_readPool.releaseReadAhead(m_sharedReadAhead);
+            }
+            m_sharedReadAhead = 0;
+            m_outstandingChunks = 0;
             notifyAll();
         }
+        m_saveFile.close();
 
         /*
          * Free buffers used to pull snapshot data in process
@@ -414,6 +477,13 @@ public class TableSaveFile
         while ((cont = m_buffers.poll()) != null) {
             cont.discard();
         }
+        while ((cont = m_compressedBuffers.poll()) != null) {
+            cont.discard();
+        }
+
+        if (m_ownsReadPool) {
+            m_readPool.shutdown();
+        }
     }
 
     public Set<Integer> getCorruptedPartitionIds() {
@@ -424,6 +494,27 @@ public class TableSaveFile
         return m_tableHeader;
     }
 
+    /**
+     * Start reading chunks ahead of them being asked for. Reading starts on the
+     * first call to {@link #getNextChunk()} if this isn't called.
+     */
+    public synchronized void startReading() {
+        if (m_chunkReader != null) {
+            return;
+        }
+        if (m_readPool == null) {
+            m_readPool = new RestoreReadPool();
+            m_ownsReadPool = true;
+        }
+        m_chunkReader = new ChunkReader();
+        if (m_hasVersion2FormatChunks) {
+            scheduleReader();
+        } else {
+            m_chunkReaderThread = new Thread(m_chunkReader, "ChunkReader");
+            m_chunkReaderThread.start();
+        }
+    }
+
     // Will get the next chunk of the table that is just over the chunk size
     public synchronized BBContainer getNextChunk() throws IOException
     {
@@ -432,14 +523,13 @@ public class TableSaveFile
         }
         if (!m_hasMoreChunks.get()) {
             final Container c = m_availableChunks.poll();
+            if (c != null) {
+                releaseReadAhead();
+            }
             return c;
         }
 
-        if (m_chunkReader == null) {
-            m_chunkReader = new ChunkReader();
-            m_chunkReaderThread = new Thread(m_chunkReader, "ChunkReader");
-            m_chunkReaderThread.start();
-        }
+        startReading();
 
         Container c = null;
         while (c == null && (m_hasMoreChunks.get() || !m_availableChunks.isEmpty())) {
@@ -453,7 +543,7 @@ public class TableSaveFile
             }
         }
         if (c != null) {
-            m_chunkReads.release();
+            releaseReadAhead();
         } else {
             if (m_chunkReaderException != null) {
                 throw m_chunkReaderException;
@@ -462,6 +552,23 @@ public class TableSaveFile
         return c;
     }
 
+    /**
+     * Get a chunk if one has already been read, without waiting for one
+     * @return The chunk or null if none is ready
+     */
+    public synchronized BBContainer pollChunk() throws IOException
+    {
+        if (m_chunkReaderException != null) {
+            throw m_chunkReaderException;
+        }
+        startReading();
+        final Container c = m_availableChunks.poll();
+        if (c != null) {
+            releaseReadAhead();
+        }
+        return c;
+    }
+
     public synchronized boolean hasMoreChunks() throws IOException
     {
         if (m_chunkReaderException != null) {
@@ -470,6 +577,101 @@ public class TableSaveFile
         return m_hasMoreChunks.get() || !m_availableChunks.isEmpty();
     }
 
+    /*
+     * Read ahead is limited to m_readAheadChunks chunks for this file and to the memory budget
+     * of the restore as a whole. A file with nothing in flight may overdraw the shared budget
+     * by one chunk so it can't be starved by the others.
+     */
+    private synchronized boolean tryAcquireReadAhead() {
+        if (m_outstandingChunks >= m_readAheadChunks) {
+            return false;
+        }
+        if (m_readPool.tryAcquireReadAhead()) {
+            m_sharedReadAhead++;
+        } else if (m_outstandingChunks > 0) {
+            return false;
+        }
+        m_outstandingChunks++;
+        return true;
+    }
+
+    /*
+     * Used by the pooled reader, which gives up its thread rather than wait for read ahead
+     */
+    private synchronized boolean acquireReadAheadOrPark() {
+        if (tryAcquireReadAhead()) {
+            return true;
+        }
+        m_readerParked = true;
+        m_readerScheduled = false;
+        notifyAll();
+        return false;
+    }
+
+    /*
+     * Used by the version 1 reader, which has a thread of its own
+     */
+    private synchronized void acquireReadAhead() throws InterruptedException {
+        while (!tryAcquireReadAhead()) {
+            wait();
+        }
+    }
+
+    /*
+     * A chunk was consumed or dropped, let the reader have another
+     */
+    private synchronized void releaseReadAhead() {
+        if (m_outstandingChunks == 0) {
+            return;
+        }
+        m_outstandingChunks--;
+        if (m_sharedReadAhead > m_outstandingChunks) {
+            m_sharedReadAhead--;
+            m_readPool.releaseReadAhead(1);
+        }
+        if (m_readerParked && m_hasMoreChunks.get()) {
+            m_readerParked = false;
+            scheduleReader();
+        }
+        notifyAll();
+    }
+
+    private synchronized void scheduleReader() {
+        m_readerScheduled = true;
+        m_readPool.read(m_chunkReader);
+    }
+
+    private synchronized void failReading(IOException e) {
+        m_hasMoreChunks.set(false);
+        m_chunkReaderException = e;
+        notifyAll();
+    }
+
+    private Container getOutputBuffer(final int nextChunkPartitionId) {
+        BBContainer c = m_buffers.poll();
+        if (c == null) {
+            final BBContainer originContainer = DBBPool.allocateDirect(DEFAULT_CHUNKSIZE);
+            final ByteBuffer b = originContainer.b();
+            final Container retcont = new Container(b, originContainer, nextChunkPartitionId);
+            return retcont;
+        }
+        /*
+         * Need to reconstruct the container with the partition id of the next
+         * chunk so it can be a final public field. The buffer, address, and origin
+         * container remain the same.
+         */
+        final Container retcont = new Container(c.b(), c, nextChunkPartitionId);
+        return retcont;
+    }
+
+    private BBContainer getCompressedBuffer() {
+        BBContainer c = m_compressedBuffers.poll();
+        if (c == null) {
+            c = DBBPool.allocateDirect(CompressionService.maxCompressedLength(DEFAULT_CHUNKSIZE));
+        }
+        return c;
+    }
+
     // thread safe file channels
     private final FileChannel m_saveFile;
     private final FileDescriptor m_fd;
@@ -489,6 +691,7 @@ public class TableSaveFile
     private final long m_timestamp;
     private AtomicBoolean m_hasMoreChunks = new AtomicBoolean(true);
     private ConcurrentLinkedQueue<BBContainer> m_buffers = new ConcurrentLinkedQueue<BBContainer>();
+    private final ConcurrentLinkedQueue<BBContainer> m_compressedBuffers = new ConcurrentLinkedQueue<BBContainer>();
     private final ArrayDeque<Container> m_availableChunks = new ArrayDeque<Container>();
     private final HashSet<Integer> m_relevantPartitionIds;
     private final ChecksumType m_checksumType;
@@ -504,7 +707,8 @@ public class TableSaveFile
      * Maintain a list of corrupted partitions. It is possible for uncorrupted partitions
      * to be recovered from a save file in the future
      */
-    private final HashSet<Integer> m_corruptedPartitions = new HashSet<Integer>();
+    private final Set<Integer> m_corruptedPartitions =
+            Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
 
     /**
      * Ignore corrupted chunks and continue validation of the rest of the chunks.
@@ -512,34 +716,61 @@ public class TableSaveFile
     private final boolean m_continueOnCorruptedChunk;
 
     /**
-     * The thread reading chunks will read at most this number of chunks
+     * The reader will read at most this number of chunks ahead of them being consumed.
+     * m_outstandingChunks have been read and not yet consumed or dropped, m_sharedReadAhead
+     * of them hold a share of the restore's read ahead budget.
      */
-    private final Semaphore m_chunkReads;
+    private final int m_readAheadChunks;
+    private int m_outstandingChunks = 0;
+    private int m_sharedReadAhead = 0;
+
+    // Created when reading starts if the file wasn't given the pool of a restore
+    private RestoreReadPool m_readPool;
+    private boolean m_ownsReadPool = false;
 
     private ChunkReader m_chunkReader = null;
     private Thread m_chunkReaderThread = null;
     private IOException m_chunkReaderException = null;
 
+    /*
+     * State of a pooled reader. It is scheduled while queued or running on the I/O pool, parked
+     * while waiting for read ahead and done once it stops reading. Chunks it has read that are
+     * still being decompressed are pending, there are no more chunks once it is done and
+     * none are pending.
+     */
+    private boolean m_readerScheduled = false;
+    private boolean m_readerParked = false;
+    private boolean m_readerDone = false;
+    private int m_pendingChunks = 0;
+    private final Map<Long, Container> m_decompressedChunks = new HashMap<Long, Container>();
+    private long m_nextChunkToDeliver = 0;
+
     /**
-     * Thread to read chunks from the disk
+     * Reads chunks from the disk. Version 2 files are read on the shared restore I/O pool and
+     * their chunks are decompressed on the restore decompression pool, older files are read
+     * on a thread of their own.
      */
     private class ChunkReader implements Runnable {
 
+        /*
+         * Kept across runs of the reader so parking it for read ahead doesn't disturb the fadvise window
+         */
+        private long m_sinceLastFAdvise = Long.MAX_VALUE;
+        private long m_positionAtLastFAdvise = 0;
+        private long m_nextChunkSequence = 0;
+
         /*
          * The old method was out of hand. Going to start a new one with a different format
          * that should be easier to understand and validate.
+         *
+         * Reads compressed chunks and hands them to the decompression pool. Returns false if the
+         * read ahead ran out and the reader was parked, it is rescheduled when one of its
+         * chunks is consumed.
          */
-        private void readChunksV2() {
-            //For reading the compressed input.
-            final BBContainer fileInputBufferC =
-                    DBBPool.allocateDirect(CompressionService.maxCompressedLength(DEFAULT_CHUNKSIZE));
-            final ByteBuffer fileInputBuffer = fileInputBufferC.b();
-            long sinceLastFAdvise = Long.MAX_VALUE;
-            long positionAtLastFAdvise = 0;
-
+        private boolean readChunksV2() {
             while (m_hasMoreChunks.get()) {
-                if (sinceLastFAdvise > 1024 * 1024 * 48) {
-                    sinceLastFAdvise = 0;
+                if (m_sinceLastFAdvise > 1024 * 1024 * 48) {
+                    m_sinceLastFAdvise = 0;
                     VoltLogger log = new VoltLogger("SNAPSHOT");
                     try {
                         final long position = m_saveFile.position();
@@ -553,11 +784,11 @@ public class TableSaveFile
                         }
 
                         //Get aligned start and end position
-                        final long fadviseStart = positionAtLastFAdvise;
+                        final long fadviseStart = m_positionAtLastFAdvise;
                         //-1 because we don't want to drop the last page because
                         //We will be reading it soon
-                        positionAtLastFAdvise = ((position / Bits.pageSize()) - 1) * Bits.pageSize();
-                        final long length = positionAtLastFAdvise - fadviseStart;
+                        m_positionAtLastFAdvise = ((position / Bits.pageSize()) - 1) * Bits.pageSize();
+                        final long length = m_positionAtLastFAdvise - fadviseStart;
                         if (length > 0) {
                             retval = PosixAdvise.fadvise(
                                     m_fd,
@@ -568,7 +799,7 @@ public class TableSaveFile
                         if (retval != 0) {
                             log.info("Failed to fadvise in TableSaveFile, this is harmless: " + retval);
                         }
-                        positionAtLastFAdvise = position;
+                        m_positionAtLastFAdvise = position;
                     } catch (Throwable t) {
                         log.info("Exception attempting fadvise", t);
                     }
@@ -577,14 +808,12 @@ public class TableSaveFile
                 /*
                  * Limit the number of chunk materialized into memory at one time
                  */
-                try {
-                    m_chunkReads.acquire();
-                } catch (InterruptedException e) {
-                    fileInputBufferC.discard();
-                    return;
+                if (!acquireReadAheadOrPark()) {
+                    return false;
                 }
                 boolean expectedAnotherChunk = false;
-                Container c = null;
+                boolean handedOff = false;
+                BBContainer compressedC = null;
                 try {
 
                     /*
@@ -597,7 +826,7 @@ public class TableSaveFile
                         if (read == -1) {
                             throw new EOFException();
                         }
-                        sinceLastFAdvise += read;
+                        m_sinceLastFAdvise += read;
                     }
                     int nextChunkLength = chunkLengthB.getInt(0);
                     expectedAnotherChunk = true;
@@ -637,16 +866,16 @@ public class TableSaveFile
                         throw new IOException("Corrupted TableSaveFile chunk has negative chunk length");
                     }
 
+                    compressedC = getCompressedBuffer();
+                    final ByteBuffer fileInputBuffer = compressedC.b();
                     if (nextChunkLength > fileInputBuffer.capacity()) {
                         throw new IOException("Corrupted TableSaveFile chunk has unreasonable length " +
                                 "> DEFAULT_CHUNKSIZE bytes");
                     }
 
                     /*
-                     * Go fetch the compressed data so that the uncompressed size is known
-                     * and use that to set nextChunkLength to be the uncompressed length,
-                     * the code ahead that constructs the volt table is expecting
-                     * the uncompressed size/data since it is producing an uncompressed table
+                     * Go fetch the compressed data, the CRC check and decompression
+                     * happen on the decompression pool while the next chunk is read
                      */
                     fileInputBuffer.clear();
                     fileInputBuffer.limit(nextChunkLength);
@@ -655,131 +884,37 @@ public class TableSaveFile
                         if (read == -1) {
                             throw new EOFException();
                         }
-                        sinceLastFAdvise += read;
+                        m_sinceLastFAdvise += read;
                     }
                     fileInputBuffer.flip();
-                    nextChunkLength = CompressionService.uncompressedLength(fileInputBuffer);
-
-                    /*
-                     * Validate the rest of the chunk. This can fail if the data is corrupted
-                     * or the length value was corrupted.
-                     */
-                    final int calculatedCRC =
-                            DBBPool.getBufferCRC32C(fileInputBuffer, 0, fileInputBuffer.remaining());
-                    if (calculatedCRC != nextChunkCRC) {
-                        m_corruptedPartitions.add(nextChunkPartitionId);
-                        if (m_continueOnCorruptedChunk) {
-                            m_chunkReads.release();
-                            continue;
-                        } else {
-                            throw new IOException("CRC mismatch in saved table chunk");
-                        }
-                    }
-
-                    /*
-                     * Now allocate space to store the chunk using the VoltTable serialization representation.
-                     * The chunk will contain an integer row count preceding it so it can
-                     * be sucked straight in. There is a little funny business to overwrite the
-                     * partition id that is not part of the serialization format
-                     */
-                    c = getOutputBuffer(nextChunkPartitionId);
-
-                    /*
-                     * If the length value is wrong or not all data made it to disk this read will
-                     * not complete correctly. There could be overflow, underflow etc.
-                     * so use a try finally block to indicate that all partitions are now corrupt.
-                     * The enclosing exception handlers will do the right thing WRT to
-                     * propagating the error and closing the file.
-                     */
-                    boolean completedRead = false;
-                    try {
-                        final ByteBuffer buf = c.b();
-                        /*
-                         * Assemble a VoltTable out of the chunk of tuples.
-                         * Put in the header that was cached in the constructor,
-                         * then copy the tuple data.
-                         */
-                        buf.clear();
-                        buf.limit(nextChunkLength  + m_tableHeader.capacity());
-                        m_tableHeader.position(0);
-                        buf.put(m_tableHeader);
-                        //Doesn't move buffer position, does change the limit
-                        CompressionService.decompressBuffer(fileInputBuffer, buf);
-                        completedRead = true;
-                    } finally {
-                        if (!completedRead) {
-                            for (int partitionId : m_partitionIds) {
-                                m_corruptedPartitions.add(partitionId);
-                            }
-                            if (m_continueOnCorruptedChunk) {
-                                m_chunkReads.release();
-                                continue;
-                            } else {
-                                throw new IOException("Failed decompression of saved table chunk");
-                            }
-                        }
-                    }
-
-                    /*
-                     * Skip irrelevant chunks after CRC is calculated. Always calulate the CRC
-                     * in case it is the length value that is corrupted
-                     */
-                    if (m_relevantPartitionIds != null) {
-                        if (!m_relevantPartitionIds.contains(nextChunkPartitionId)) {
-                            m_chunkReads.release();
-                            continue;
-                        }
-                    }
-
-                    /*
-                     * VoltTable wants the buffer at the home position 0
-                     */
-                    c.b().position(0);
+                    SnapshotRestoreStats.chunkRead(m_tableName, nextChunkLength + chunkLengthB.capacity());
 
                     synchronized (TableSaveFile.this) {
-                        m_availableChunks.offer(c);
-                        c = null;
-                        TableSaveFile.this.notifyAll();
+                        m_pendingChunks++;
                     }
+                    handedOff = true;
+                    m_readPool.decompress(
+                            new ChunkDecompressor(m_nextChunkSequence++, compressedC, nextChunkPartitionId, nextChunkCRC));
                 } catch (EOFException eof) {
-                    synchronized (TableSaveFile.this) {
-                        m_hasMoreChunks.set(false);
-                        if (expectedAnotherChunk) {
-                            m_chunkReaderException = new IOException(
-                                    "Expected to find another chunk but reached end of file instead");
-                        }
-                        TableSaveFile.this.notifyAll();
+                    if (expectedAnotherChunk) {
+                        failReading(new IOException("Expected to find another chunk but reached end of file instead"));
                     }
+                    return true;
                 } catch (IOException e) {
                     e.printStackTrace();
-                    synchronized (TableSaveFile.this) {
-                        m_hasMoreChunks.set(false);
-                        m_chunkReaderException = e;
-                        TableSaveFile.this.notifyAll();
-                    }
-                } catch (BufferUnderflowException e) {
-                    synchronized (TableSaveFile.this) {
-                        m_hasMoreChunks.set(false);
-                        m_chunkReaderException = new IOException(e);
-                        TableSaveFile.this.notifyAll();
-                    }
-                } catch (BufferOverflowException e) {
-                    synchronized (TableSaveFile.this) {
-                        m_hasMoreChunks.set(false);
-                        m_chunkReaderException = new IOException(e);
-                        TableSaveFile.this.notifyAll();
-                    }
-                } catch (IndexOutOfBoundsException e) {
-                    synchronized (TableSaveFile.this) {
-                        m_hasMoreChunks.set(false);
-                        m_chunkReaderException = new IOException(e);
-                        TableSaveFile.this.notifyAll();
-                    }
+                    failReading(e);
+                } catch (BufferUnderflowException | BufferOverflowException | IndexOutOfBoundsException e) {
+                    failReading(new IOException(e));
                 } finally {
-                    if (c != null) c.discard();
+                    if (!handedOff) {
+                        if (compressedC != null) {
+                            m_compressedBuffers.offer(compressedC);
+                        }
+                        releaseReadAhead();
+                    }
                 }
             }
-            fileInputBufferC.discard();
+            return true;
         }
 
         private void readChunks() {
@@ -792,7 +927,7 @@ public class TableSaveFile
                  * Limit the number of chunk materialized into memory at one time
                  */
                 try {
-                    m_chunkReads.acquire();
+                    acquireReadAhead();
                 } catch (InterruptedException e) {
                     return;
                 }
@@ -957,9 +1092,9 @@ public class TableSaveFile
                                     DBBPool.getCRC32C(c.address(), c.b().position(), c.b().remaining()) :
                                         DBBPool.getCRC32(c.address(), c.b().position(), c.b().remaining());
                     if (calculatedCRC != nextChunkCRC) {
-                        m_corruptedPartitions.add(nextChunkPartitionId);
+                        m_corruptedPartitions.add(nextChunkPartitionId & PARTITION_ID_MASK);
                         if (m_continueOnCorruptedChunk) {
-                            m_chunkReads.release();
+                            releaseReadAhead();
                             continue;
                         } else {
                             throw new IOException("CRC mismatch in saved table chunk");
@@ -971,8 +1106,8 @@ public class TableSaveFile
                      * in case it is the length value that is corrupted
                      */
                     if (m_relevantPartitionIds != null) {
-                        if (!m_relevantPartitionIds.contains(nextChunkPartitionId)) {
-                            m_chunkReads.release();
+                        if (!m_relevantPartitionIds.contains(nextChunkPartitionId & PARTITION_ID_MASK)) {
+                            releaseReadAhead();
                             continue;
                         }
                     }
@@ -1044,42 +1179,160 @@ public class TableSaveFile
             }
             fileInputBufferC.discard();
         }
-        private Container getOutputBuffer(final int nextChunkPartitionId) {
-            BBContainer c = m_buffers.poll();
-            if (c == null) {
-                final BBContainer originContainer = DBBPool.allocateDirect(DEFAULT_CHUNKSIZE);
-                final ByteBuffer b = originContainer.b();
-                final Container retcont = new Container(b, originContainer, nextChunkPartitionId);
-                return retcont;
-            }
-            /*
-             * Need to reconstruct the container with the partition id of the next
-             * chunk so it can be a final public field. The buffer, address, and origin
-             * container remain the same.
-             */
-            final Container retcont = new Container(c.b(), c, nextChunkPartitionId);
-            return retcont;
-        }
-
         @Override
         public void run() {
+            boolean parked = false;
             try {
                 if (m_hasVersion2FormatChunks) {
-                    readChunksV2();
+                    parked = !readChunksV2();
                 } else {
                     readChunks();
                 }
             } finally {
-                synchronized (TableSaveFile.this) {
-                    m_hasMoreChunks.set(false);
-                    TableSaveFile.this.notifyAll();
-                    try {
-                        m_saveFile.close();
-                    } catch (IOException e) {
+                if (!parked) {
+                    synchronized (TableSaveFile.this) {
+                        m_readerScheduled = false;
+                        m_readerDone = true;
+                        if (m_pendingChunks == 0) {
+                            m_hasMoreChunks.set(false);
+                        }
+                        TableSaveFile.this.notifyAll();
+                        try {
+                            m_saveFile.close();
+                        } catch (IOException e) {
+                        }
                     }
                 }
             }
         }
 
     }
+
+    /**
+     * Validates and decompresses one chunk read by a version 2 reader. Chunks are decompressed
+     * in parallel but made available in the order they are in the file.
+     */
+    private class ChunkDecompressor implements Runnable {
+        private final long m_sequence;
+        private final BBContainer m_compressed;
+        private final int m_partitionId;
+        private final int m_crc;
+
+        ChunkDecompressor(long sequence, BBContainer compressed, int partitionId, int crc) {
+            m_sequence = sequence;
+            m_compressed = compressed;
+            m_partitionId = partitionId;
+            m_crc = crc;
+        }
+
+        @Override
+        public void run() {
+            boolean delivered = false;
+            Container c = null;
+            try {
+                if (!m_hasMoreChunks.get()) {
+                    // closed or failed while this chunk was queued
+                    return;
+                }
+                final ByteBuffer fileInputBuffer = m_compressed.b();
+                final int nextChunkLength = CompressionService.uncompressedLength(fileInputBuffer);
+
+                /*
+                 * Validate the rest of the chunk. This can fail if the data is corrupted
+                 * or the length value was corrupted.
+                 */
+                final int calculatedCRC =
+                        DBBPool.getBufferCRC32C(fileInputBuffer, 0, fileInputBuffer.remaining());
+                if (calculatedCRC != m_crc) {
+                    m_corruptedPartitions.add(m_partitionId & PARTITION_ID_MASK);
+                    if (!m_continueOnCorruptedChunk) {
+                        failReading(new IOException("CRC mismatch in saved table chunk"));
+                    }
+                    return;
+                }
+
+                /*
+                 * Now allocate space to store the chunk using the VoltTable serialization representation.
+                 * The chunk will contain an integer row count preceding it so it can
+                 * be sucked straight in. There is a little funny business to overwrite the
+                 * partition id that is not part of the serialization format
+                 */
+                c = getOutputBuffer(m_partitionId);
+
+                /*
+                 * If the length value is wrong or not all data made it to disk this read will
+                 * not complete correctly. There could be overflow, underflow etc.
+                 * so indicate that all partitions are now corrupt.
+                 */
+                try {
+                    final ByteBuffer buf = c.b();
+                    /*
+                     * Assemble a VoltTable out of the chunk of tuples.
+                     * Put in the header that was cached in the constructor,
+                     * then copy the tuple data.
+                     */
+                    buf.clear();
+                    buf.limit(nextChunkLength  + m_tableHeader.capacity());
+                    final ByteBuffer header = m_tableHeader.duplicate();
+                    header.position(0);
+                    buf.put(header);
+                    //Doesn't move buffer position, does change the limit
+                    CompressionService.decompressBuffer(fileInputBuffer, buf);
+                } catch (IOException | RuntimeException e) {
+                    for (int partitionId : m_partitionIds) {
+                        m_corruptedPartitions.add(partitionId);
+                    }
+                    if (!m_continueOnCorruptedChunk) {
+                        failReading(new IOException("Failed decompression of saved table chunk", e));
+                    }
+                    return;
+                }
+
+                /*
+                 * Skip irrelevant chunks after CRC is calculated. Always calulate the CRC
+                 * in case it is the length value that is corrupted
+                 */
+                if (m_relevantPartitionIds != null) {
+                    if (!m_relevantPartitionIds.contains(m_partitionId & PARTITION_ID_MASK)) {
+                        return;
+                    }
+                }
+                SnapshotRestoreStats.chunkDecompressed(m_tableName, nextChunkLength);
+
+                /*
+                 * VoltTable wants the buffer at the home position 0
+                 */
+                c.b().position(0);
+                delivered = true;
+            } catch (IOException e) {
+                failReading(e);
+            } catch (RuntimeException e) {
+                failReading(new IOException(e));
+            } finally {
+                m_compressedBuffers.offer(m_compressed);
+                if (!delivered) {
+                    if (c != null) {
+                        c.discard();
+                        c = null;
+                    }
+                    releaseReadAhead();
+                }
+                synchronized (TableSaveFile.this) {
+                    // Dropped chunks leave a null so the ones after them aren't held up
+                    m_decompressedChunks.put(m_sequence, c);
+                    while (m_decompressedChunks.containsKey(m_nextChunkToDeliver)) {
+                        final Container next = m_decompressedChunks.remove(m_nextChunkToDeliver++);
+                        if (next != null) {
+                            m_availableChunks.offer(next);
+                        }
+                    }
+                    m_pendingChunks--;
+                    if (m_readerDone && m_pendingChunks == 0) {
+                        m_hasMoreChunks.set(false);
+                    }
+                    TableSaveFile.this.notifyAll();
+                }
+            }
+        }
+    }
 }
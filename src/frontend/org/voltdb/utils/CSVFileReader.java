@@ -62,12 +62,12 @@ class CSVFileReader implements Runnable {
     long m_parsingTime = 0;
     private static final Map<VoltType, String> m_blankStrings = new EnumMap<VoltType, String>(VoltType.class);
     private static final VoltLogger m_log = new VoltLogger("CSVLOADER");
-    private final CSVDataLoader m_loader;
-    private final BulkLoaderErrorHandler m_errHandler;
-    private final VoltType[] m_columnTypes;
-    private final int m_columnCount;
-    private int headerlen;
-    private Integer[] order;
+    final CSVDataLoader m_loader;
+    final BulkLoaderErrorHandler m_errHandler;
+    final VoltType[] m_columnTypes;
+    final int m_columnCount;
+    int headerlen;
+    Integer[] order;
 
     static {
         m_blankStrings.put(VoltType.TINYINT, "0");
@@ -136,7 +136,7 @@ class CSVFileReader implements Runnable {
 
                 String[] lineValues = lineList.toArray(new String[0]);
                 String lineCheckResult;
-                String[] reorderValues = new String[m_columnCount];
+                Object[] reorderValues = new Object[m_columnCount];
                 if ((lineCheckResult = checkparams_trimspace_reorder(lineValues, reorderValues)) != null) {
                     final RowWithMetaData metaData
                             = new RowWithMetaData(m_listReader.getUntokenizedRow(),
@@ -169,6 +169,10 @@ class CSVFileReader implements Runnable {
             }
         }
 
+        closeLoader();
+    }
+
+    void closeLoader() {
         //Now wait for processors to see endOfData and count down. After that drain to finish all callbacks
         try {
             m_log.debug("Waiting for CSVDataLoader to finish.");
@@ -182,47 +186,56 @@ class CSVFileReader implements Runnable {
 
     private boolean checkHeader() {
         try {
-            String[] firstline = m_listReader.getHeader(false);
-            Set<String> firstset = new HashSet<String>();
-            BiMap<Integer, String> colNames = HashBiMap.create(m_loader.getColumnNames());
-            headerlen = firstline.length;
-            // remove duplicate.
-            for (String name : firstline) {
-                if (name != null) {
-                    firstset.add(name.toUpperCase());
-                } else {
-                    return false;
-                }
-            }
-            // whether column num matches.
-            if (headerlen < m_columnCount) {
-                return false;
+            return checkHeader(m_listReader.getHeader(false));
+        } catch (IOException ex) {
+            m_log.error("Failed to read CSV line from file: " + ex);
+        }
+        return true;
+    }
+
+    boolean checkHeader(String[] firstline) {
+        Set<String> firstset = new HashSet<String>();
+        BiMap<Integer, String> colNames = HashBiMap.create(m_loader.getColumnNames());
+        headerlen = firstline.length;
+        // remove duplicate.
+        for (String name : firstline) {
+            if (name != null) {
+                firstset.add(name.toUpperCase());
             } else {
-                // whether column name has according table column.
-                int matchColCount = 0;
-                for (String name : firstset) {
-                    if (colNames.containsValue(name.trim())) {
-                        matchColCount++;
-                    }
-                }
-                if (matchColCount != m_columnCount) {
-                    return false;
+                return false;
+            }
+        }
+        // whether column num matches.
+        if (headerlen < m_columnCount) {
+            return false;
+        } else {
+            // whether column name has according table column.
+            int matchColCount = 0;
+            for (String name : firstset) {
+                if (colNames.containsValue(name.trim())) {
+                    matchColCount++;
                 }
             }
-            // get the mapping from file column num to table column num.
-            order = new Integer[headerlen];
-            for (int fileCol = 0; fileCol < headerlen; fileCol++) {
-                String name = firstline[fileCol];
-                Integer tableCol = colNames.inverse().get(name.trim().toUpperCase());
-                order[fileCol] = tableCol;
+            if (matchColCount != m_columnCount) {
+                return false;
             }
-        } catch (IOException ex) {
-            m_log.error("Failed to read CSV line from file: " + ex);
+        }
+        // get the mapping from file column num to table column num.
+        order = new Integer[headerlen];
+        for (int fileCol = 0; fileCol < headerlen; fileCol++) {
+            String name = firstline[fileCol];
+            Integer tableCol = colNames.inverse().get(name.trim().toUpperCase());
+            order[fileCol] = tableCol;
         }
         return true;
     }
 
-    private String checkparams_trimspace_reorder(String[] lineValues, String[] reorderValues) {
+    /**
+     * Check the values of a line against the table, reorder them by the header and
+     * apply the blank, whitespace and null options. Values are the strings read from
+     * the line, or values already converted to the column type by the parser.
+     */
+    String checkparams_trimspace_reorder(Object[] lineValues, Object[] reorderValues) {
         if (lineValues.length != m_columnCount && !m_config.header) {
             return String.format(COLUMN_COUNT_ERROR, lineValues.length, m_columnCount);
         }
@@ -250,12 +263,14 @@ class CSVFileReader implements Runnable {
                 }
                 //else m_config.blank == null which is already the case
             } // trim white space in this correctedLine. SuperCSV preserves all the whitespace by default
-            else {
+            else if (reorderValues[i] instanceof String) {
+                String value = (String) reorderValues[i];
                 if (m_config.nowhitespace
-                        && (reorderValues[i].charAt(0) == ' ' || reorderValues[i].charAt(reorderValues[i].length() - 1) == ' ')) {
+                        && (value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' ')) {
                     return String.format(WHITESPACE_ERROR, i + 1);
                 } else {
-                    reorderValues[i] = reorderValues[i].trim();
+                    value = value.trim();
+                    reorderValues[i] = value;
                 }
 
                 if(!m_config.customNullString.isEmpty()){
@@ -264,9 +279,9 @@ class CSVFileReader implements Runnable {
                     }
                 }
                 // treat NULL, \N and "\N" as actual null value
-                else if (reorderValues[i].equals("NULL")
-                        || reorderValues[i].equals(Constants.CSV_NULL)
-                        || reorderValues[i].equals(Constants.QUOTED_CSV_NULL)) {
+                else if (value.equals("NULL")
+                        || value.equals(Constants.CSV_NULL)
+                        || value.equals(Constants.QUOTED_CSV_NULL)) {
                     reorderValues[i] = null;
                 }
             }
@@ -117,10 +117,18 @@ public class CSVLoader implements BulkLoaderErrorHandler {
      * Stop when all connections are lost?
      */
     public static final boolean DEFAULT_STOP_ON_DISCONNECT = false;
+    /**
+     * Number of threads parsing the input.
+     */
+    public static final int DEFAULT_PARSERS = 1;
     /**
      * Used for testing only.
      */
     public static boolean testMode = false;
+    /**
+     * Chunk size of the parallel reader, lowered by tests to cut small files into many chunks.
+     */
+    static int parallelChunkSize = CSVParallelFileReader.CHUNK_SIZE;
 
     private class ErrorInfoItem {
         public long lineNumber;
@@ -320,6 +328,10 @@ public class CSVLoader implements BulkLoaderErrorHandler {
         @Option(desc = "First line of csv file is column name.", hasArg = false)
         boolean header = DEFAULT_HEADER;
 
+        @Option(desc = "Number of threads parsing the CSV file, rows are then inserted out of file order. " +
+                "Only used for a file in utf-8, us-ascii or iso-8859-1 without --update (default: 1)")
+        int parsers = DEFAULT_PARSERS;
+
         /**
          * Table name to insert CSV data into.
          */
@@ -359,6 +371,9 @@ public class CSVLoader implements BulkLoaderErrorHandler {
             if (batch < 0) {
                 exitWithMessageAndUsage("batch size number must be >= 0");
             }
+            if (parsers < 1) {
+                exitWithMessageAndUsage("number of parsers must be >= 1");
+            }
             if(!customNullString.isEmpty() && !blank.equals("error")){
                 blank = "empty";
             }
@@ -504,7 +519,12 @@ public class CSVLoader implements BulkLoaderErrorHandler {
 
             CSVFileReader.initializeReader(cfg, csvClient, listReader);
 
-            CSVFileReader csvReader = new CSVFileReader(dataLoader, errHandler);
+            final CSVFileReader csvReader;
+            if (config.parsers > 1 && CSVParallelFileReader.canParse(config)) {
+                csvReader = new CSVParallelFileReader(dataLoader, errHandler, config.parsers, parallelChunkSize);
+            } else {
+                csvReader = new CSVFileReader(dataLoader, errHandler);
+            }
 
             Thread readerThread = new Thread(csvReader);
             readerThread.setName("CSVFileReader");
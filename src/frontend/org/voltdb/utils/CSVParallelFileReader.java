@@ -0,0 +1,787 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.supercsv.exception.SuperCsvException;
+import org.voltcore.logging.VoltLogger;
+import org.voltdb.VoltType;
+
+/**
+ *
+ * Reader of a CSV file that parses it on several threads. The file is memory mapped and
+ * cut into chunks on record boundaries by a cheap scan that only follows quotes, escapes
+ * and line ends. Parser threads then tokenize the chunks straight from the mapped bytes
+ * the way the single thread reader does, and hand the rows to the CSVDataLoader, which
+ * batches them per partition. Integer columns are converted from the bytes without going
+ * through a String.
+ *
+ * Rows are inserted in no particular order across chunks, so this reader is only used
+ * when the order does not matter and the file is in a charset where the separator, quote,
+ * escape and line end characters are single bytes that never appear inside other characters.
+ *
+ */
+class CSVParallelFileReader extends CSVFileReader {
+    /**
+     * Default size of the chunks handed to the parser threads.
+     */
+    static final int CHUNK_SIZE = Integer.getInteger("CSVLOADER_CHUNK_SIZE", 4 * 1024 * 1024);
+    private static final int SCAN_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private static final String STRICT_QUOTES_ERROR =
+            "strictQuotes: quotes needed at line %d column %d. To proceed, " +
+            "either quote the column or remove --strictquotes";
+    private static final String COLUMN_SIZE_ERROR =
+            "oversized column while reading quoted column %d beginning on line %d and ending on line %d. " +
+            "See --columnsizelimit.";
+    private static final String QUOTE_EOF_ERROR =
+            "unexpected end of file while reading quoted column %d beginning on line %d and ending on line %d";
+
+    private static final VoltLogger m_log = new VoltLogger("CSVLOADER");
+    private static final int END = -1;
+
+    // file range of a chunk and the number of lines before it
+    private static class Chunk {
+        final long m_offset;
+        final int m_length;
+        final long m_linesBefore;
+
+        Chunk(long offset, int length, long linesBefore) {
+            m_offset = offset;
+            m_length = length;
+            m_linesBefore = linesBefore;
+        }
+    }
+    private static final Chunk END_OF_FILE = new Chunk(0, -1, 0);
+
+    private final int m_parserCount;
+    private final int m_chunkSize;
+    private final Charset m_charset;
+    private final boolean m_utf8;
+    private final int m_separator;
+    private final int m_quote;
+    private final int m_escape;
+    private final BlockingQueue<Chunk> m_chunks;
+    private FileChannel m_channel;
+    private volatile boolean m_stopped = false;
+
+    /**
+     * @return true if the file of this configuration can be parsed by several threads.
+     */
+    static boolean canParse(CSVLoader.CSVConfig config) {
+        if (config.file.equals("") || config.update || !new File(config.file).isFile()) {
+            return false;
+        }
+        final Charset charset;
+        try {
+            charset = Charset.forName(config.charset);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return (charset.equals(StandardCharsets.UTF_8)
+                || charset.equals(StandardCharsets.US_ASCII)
+                || charset.equals(StandardCharsets.ISO_8859_1))
+                && config.separator < 0x80 && config.quotechar < 0x80 && config.escape < 0x80;
+    }
+
+    public CSVParallelFileReader(CSVDataLoader loader, BulkLoaderErrorHandler errorHandler, int parsers) {
+        this(loader, errorHandler, parsers, CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize The file is cut after the first record that ends at least this many bytes into a chunk.
+     */
+    CSVParallelFileReader(CSVDataLoader loader, BulkLoaderErrorHandler errorHandler, int parsers, int chunkSize) {
+        super(loader, errorHandler);
+        m_parserCount = parsers;
+        m_chunkSize = chunkSize;
+        m_charset = Charset.forName(m_config.charset);
+        m_utf8 = m_charset.equals(StandardCharsets.UTF_8);
+        m_separator = m_config.separator;
+        m_quote = m_config.quotechar;
+        m_escape = m_config.escape;
+        m_chunks = new ArrayBlockingQueue<Chunk>(parsers * 2);
+    }
+
+    @Override
+    public void run() {
+        final List<Thread> threads = new ArrayList<Thread>();
+        final List<Parser> parsers = new ArrayList<Parser>();
+        try (FileChannel channel = FileChannel.open(new File(m_config.file).toPath(), StandardOpenOption.READ)) {
+            m_channel = channel;
+            for (int i = 0; i < m_parserCount; i++) {
+                final Parser parser = new Parser(true);
+                final Thread thread = new Thread(parser);
+                thread.setName("CSVParser-" + i);
+                thread.setDaemon(true);
+                thread.start();
+                parsers.add(parser);
+                threads.add(thread);
+            }
+            try {
+                split(new Scanner(channel));
+            } finally {
+                for (int i = 0; i < m_parserCount; i++) {
+                    m_chunks.put(END_OF_FILE);
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+            }
+        } catch (IOException ex) {
+            m_log.error("Failed to read CSV line from file: " + ex);
+        } catch (InterruptedException e) {
+            m_log.error("CSVLoader interrupted: " + e);
+        }
+
+        // the parsers run side by side, the slowest one is what parsing cost
+        for (Parser parser : parsers) {
+            m_parsingTime = Math.max(m_parsingTime, parser.m_parsingTime);
+        }
+        closeLoader();
+    }
+
+    /*
+     * Sequential view of the file through a moving mapped window, counting the lines passed.
+     */
+    private static class Scanner {
+        final FileChannel m_channel;
+        final long m_size;
+        ByteBuffer m_window;
+        long m_windowStart = 0;
+        long m_lines = 0;
+
+        Scanner(FileChannel channel) throws IOException {
+            m_channel = channel;
+            m_size = channel.size();
+            m_window = map(0);
+        }
+
+        private ByteBuffer map(long position) throws IOException {
+            m_windowStart = position;
+            return m_channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(SCAN_WINDOW_SIZE, m_size - position));
+        }
+
+        int get(long position) throws IOException {
+            if (position >= m_size) {
+                return END;
+            }
+            if (position < m_windowStart || position - m_windowStart >= m_window.limit()) {
+                m_window = map(position);
+            }
+            return m_window.get((int) (position - m_windowStart)) & 0xff;
+        }
+
+        // position after the line end at position, a last line without one ends with the file
+        long skipLineEnd(long position) throws IOException {
+            final int c = get(position);
+            if (c == END) {
+                if (position > 0 && !isLineEnd(get(position - 1))) {
+                    m_lines++;
+                }
+                return position;
+            }
+            m_lines++;
+            if (c == '\r' && get(position + 1) == '\n') {
+                return position + 2;
+            }
+            return position + 1;
+        }
+
+        // position after the line at position
+        long skipLine(long position) throws IOException {
+            while (!isLineEnd(get(position))) {
+                position++;
+            }
+            return skipLineEnd(position);
+        }
+
+        // position of the first line from position that is not empty or only whitespace
+        long skipBlankLines(long position) throws IOException {
+            while (true) {
+                long current = position;
+                int c;
+                while ((c = get(current)) != END && c != '\n' && c != '\r' && c <= ' ') {
+                    current++;
+                }
+                if (c == END) {
+                    return current;
+                }
+                if (c > ' ') {
+                    return position;
+                }
+                position = skipLineEnd(current);
+            }
+        }
+    }
+
+    static boolean isLineEnd(int c) {
+        return c == '\n' || c == '\r' || c == END;
+    }
+
+    // number of UTF-16 chars a byte adds to a decoded string
+    private int charCount(int c) {
+        if (!m_utf8 || c < 0x80) {
+            return 1;
+        }
+        return c < 0xC0 ? 0 : (c < 0xF0 ? 1 : 2);
+    }
+
+    /*
+     * Position after the record starting at position. Follows the states of the supercsv
+     * Tokenizer but only counts the length of the columns, so that records end where the
+     * parsers will find them, including after the lines the Tokenizer rejects.
+     */
+    private long skipRecord(Scanner scanner, long position) throws IOException {
+        boolean inQuote = false;
+        boolean expectQuote = m_config.strictquotes;
+        boolean isEscape = false;
+        boolean sawNewLineInQuote = false;
+        long columnLength = 0;
+        int potentialSpaces = 0;
+        while (true) {
+            final int c = scanner.get(position);
+            if (!inQuote) {
+                if (isLineEnd(c)) {
+                    return scanner.skipLineEnd(position);
+                }
+                if (isEscape) {
+                    isEscape = false;
+                    if (m_config.strictquotes && expectQuote) {
+                        return scanner.skipLine(position);
+                    }
+                    columnLength += potentialSpaces + charCount(c);
+                    potentialSpaces = 0;
+                } else if (c == m_escape && scanner.get(position + 1) != 'N') {
+                    isEscape = true;
+                } else if (c == m_separator) {
+                    expectQuote = true;
+                    columnLength = 0;
+                    potentialSpaces = 0;
+                } else if (c == ' ') {
+                    potentialSpaces++;
+                } else if (c == m_quote) {
+                    expectQuote = false;
+                    inQuote = true;
+                    columnLength += potentialSpaces;
+                    potentialSpaces = 0;
+                } else {
+                    if (m_config.strictquotes && expectQuote) {
+                        return scanner.skipLine(position);
+                    }
+                    columnLength += potentialSpaces + charCount(c);
+                    potentialSpaces = 0;
+                }
+                position++;
+            } else {
+                if (sawNewLineInQuote && columnLength > m_config.columnsizelimit) {
+                    return scanner.skipLine(position);
+                }
+                if (c == END) {
+                    return scanner.skipLineEnd(position);
+                } else if (c == '\n' || c == '\r') {
+                    if (columnLength > m_config.columnsizelimit) {
+                        return scanner.skipLine(position);
+                    }
+                    sawNewLineInQuote = true;
+                    columnLength++;
+                    position = scanner.skipLineEnd(position);
+                } else if (c == m_quote) {
+                    if (scanner.get(position + 1) == m_quote) {
+                        columnLength++;
+                        position += 2;
+                    } else {
+                        inQuote = false;
+                        sawNewLineInQuote = false;
+                        position++;
+                        if (columnLength > m_config.columnsizelimit) {
+                            return scanner.skipLine(position);
+                        }
+                    }
+                } else {
+                    columnLength += charCount(c);
+                    position++;
+                }
+            }
+        }
+    }
+
+    /*
+     * Read the header, skip the lines to skip, then cut the rest of the file into
+     * chunks on record boundaries until the end of the file or the row limit.
+     */
+    private void split(Scanner scanner) throws IOException, InterruptedException {
+        long position = 0;
+        long skip = m_config.skip;
+
+        if (m_config.header) {
+            // the header is the first line that is not blank, whatever the lines to skip
+            final long headerStart = scanner.skipBlankLines(position);
+            final long linesBefore = scanner.m_lines;
+            position = skipRecord(scanner, headerStart);
+            final Parser parser = new Parser(false);
+            parser.start(new Chunk(headerStart, (int) (position - headerStart), linesBefore));
+            final List<Object> names = new ArrayList<Object>();
+            String[] header = null;
+            try {
+                if (parser.readRecord(names)) {
+                    header = names.toArray(new String[0]);
+                }
+            } catch (SuperCsvException e) {
+                m_log.error("Failed to read CSV header from file: " + e.getMessage());
+            }
+            if (header == null || !checkHeader(header)) {
+                m_log.error("In the CSV file " + m_config.file + ", the header "
+                        + parser.rawRecord(0) + " does not match "
+                        + "an existing column in the table " + m_config.table + ".");
+                System.exit(-1);
+            }
+            skip++;
+            m_totalLineCount.set(scanner.m_lines);
+        }
+
+        while (scanner.m_lines < skip && position < scanner.m_size) {
+            position = scanner.skipLine(position);
+        }
+        if (!m_config.header) {
+            m_totalLineCount.set(scanner.m_lines);
+        }
+
+        long rows = 0;
+        final long limit = m_config.limitrows;
+        long chunkStart = position;
+        long chunkLines = scanner.m_lines;
+        while (rows < limit && !m_stopped) {
+            position = scanner.skipBlankLines(position);
+            if (position >= scanner.m_size) {
+                break;
+            }
+            position = skipRecord(scanner, position);
+            rows++;
+            if (position - chunkStart >= m_chunkSize) {
+                m_chunks.put(new Chunk(chunkStart, (int) (position - chunkStart), chunkLines));
+                chunkStart = position;
+                chunkLines = scanner.m_lines;
+            }
+        }
+        if (position > chunkStart) {
+            m_chunks.put(new Chunk(chunkStart, (int) (position - chunkStart), chunkLines));
+        }
+        if (rows >= limit) {
+            // same as the single thread reader running out of rows to read
+            m_config.limitrows = -1;
+        }
+    }
+
+    /*
+     * Untokenized content of a row, only decoded if the row is reported as invalid.
+     */
+    private class RawRecord {
+        final ByteBuffer m_buffer;
+        final int m_start;
+        final int m_end;
+
+        RawRecord(ByteBuffer buffer, int start, int end) {
+            m_buffer = buffer;
+            m_start = start;
+            m_end = end;
+        }
+
+        @Override
+        public String toString() {
+            int end = m_end;
+            while (end > m_start && (m_buffer.get(end - 1) == '\n' || m_buffer.get(end - 1) == '\r')) {
+                end--;
+            }
+            final byte[] bytes = new byte[end - m_start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = m_buffer.get(m_start + i);
+            }
+            return new String(bytes, m_charset).replace("\r\n", "\n").replace('\r', '\n');
+        }
+    }
+
+    /*
+     * Tokenizes the records of chunks with the same rules as the supercsv Tokenizer
+     * used by the single thread reader, reading the mapped bytes of the chunk.
+     */
+    private class Parser implements Runnable {
+        private final boolean m_typed;
+        private ByteBuffer m_buffer;
+        private int m_position;
+        private long m_line;
+        private long m_recordEndLine = 0;
+        long m_parsingTime = 0;
+
+        // bytes of the column being read and whether it was read without quotes or escapes
+        private byte[] m_column = new byte[256];
+        private int m_columnLength;
+        private boolean m_plain;
+
+        Parser(boolean typed) {
+            m_typed = typed;
+        }
+
+        void start(Chunk chunk) throws IOException {
+            m_buffer = m_channel.map(FileChannel.MapMode.READ_ONLY, chunk.m_offset, chunk.m_length);
+            m_position = 0;
+            m_line = chunk.m_linesBefore;
+        }
+
+        @Override
+        public void run() {
+            final List<Object> values = new ArrayList<Object>();
+            try {
+                Chunk chunk;
+                // keep taking chunks once stopped so the splitter is never blocked
+                while ((chunk = m_chunks.take()) != END_OF_FILE) {
+                    if (m_stopped) {
+                        continue;
+                    }
+                    try {
+                        start(chunk);
+                        parseChunk(values);
+                    } catch (IOException ex) {
+                        m_log.error("Failed to read CSV line from file: " + ex);
+                        m_stopped = true;
+                    }
+                    // like the single thread reader, blank lines after the last record are not counted
+                    m_totalLineCount.accumulateAndGet(m_recordEndLine, Math::max);
+                }
+            } catch (InterruptedException e) {
+                m_log.error("CSVLoader interrupted: " + e);
+                m_stopped = true;
+            }
+        }
+
+        private void parseChunk(List<Object> values) throws InterruptedException {
+            while (!m_stopped) {
+                if (m_errHandler.hasReachedErrorLimit()) {
+                    m_stopped = true;
+                    break;
+                }
+                final int start;
+                final long firstLine;
+                boolean read;
+                String error = null;
+                long st = System.nanoTime();
+                if (!skipBlankLines()) {
+                    break;
+                }
+                start = m_position;
+                firstLine = m_line + 1;
+                try {
+                    read = readRecord(values);
+                } catch (SuperCsvException e) {
+                    error = e.getMessage();
+                    read = true;
+                    skipLine();
+                }
+                m_parsingTime += System.nanoTime() - st;
+                if (!read) {
+                    break;
+                }
+                m_recordEndLine = m_line;
+                if (error == null) {
+                    m_totalRowCount.incrementAndGet();
+                }
+
+                final RawRecord rawRecord = new RawRecord(m_buffer, start, m_position);
+                final Object[] reorderValues = new Object[m_columnCount];
+                if (error == null) {
+                    error = checkparams_trimspace_reorder(values.toArray(), reorderValues);
+                }
+                if (error != null) {
+                    if (m_errHandler.handleError(new RowWithMetaData(rawRecord, firstLine), null, error)) {
+                        m_stopped = true;
+                    }
+                    continue;
+                }
+                m_loader.insertRow(new RowWithMetaData(rawRecord, m_line), reorderValues);
+            }
+        }
+
+        String rawRecord(int start) {
+            return new RawRecord(m_buffer, start, m_position).toString();
+        }
+
+        private int get(int position) {
+            if (position >= m_buffer.limit()) {
+                return END;
+            }
+            return m_buffer.get(position) & 0xff;
+        }
+
+        // move past the line end at the current position, a last line without one ends with the chunk
+        private void endLine() {
+            final int c = get(m_position);
+            if (c == END) {
+                if (m_position > 0 && !isLineEnd(get(m_position - 1))) {
+                    m_line++;
+                }
+                return;
+            }
+            if (c == '\r' && get(m_position + 1) == '\n') {
+                m_position++;
+            }
+            m_position++;
+            m_line++;
+        }
+
+        private void skipLine() {
+            while (!isLineEnd(get(m_position))) {
+                m_position++;
+            }
+            endLine();
+        }
+
+        /*
+         * Skip the lines that are empty or hold only whitespace.
+         * @return false if there is no record left in the chunk
+         */
+        private boolean skipBlankLines() {
+            while (true) {
+                int position = m_position;
+                int c;
+                while ((c = get(position)) != END && c != '\n' && c != '\r' && c <= ' ') {
+                    position++;
+                }
+                if (c == END) {
+                    return false;
+                }
+                if (c > ' ') {
+                    return true;
+                }
+                m_position = position;
+                endLine();
+            }
+        }
+
+        private void append(int c) {
+            if (m_columnLength == m_column.length) {
+                m_column = Arrays.copyOf(m_column, m_column.length * 2);
+            }
+            m_column[m_columnLength++] = (byte) c;
+        }
+
+        private void appendSpaces(int spaces) {
+            for (int i = 0; i < spaces; i++) {
+                append(' ');
+            }
+        }
+
+        private void checkColumnSize(int column, long quoteStartLine) {
+            if (m_columnLength > m_config.columnsizelimit && columnChars() > m_config.columnsizelimit) {
+                throw new SuperCsvException(String.format(COLUMN_SIZE_ERROR, column, quoteStartLine, m_line + 1));
+            }
+        }
+
+        // length of the column once decoded, which is at most its number of bytes
+        private long columnChars() {
+            long chars = 0;
+            for (int i = 0; i < m_columnLength; i++) {
+                chars += charCount(m_column[i] & 0xff);
+            }
+            return chars;
+        }
+
+        /**
+         * Read the columns of the record at the current position, an empty column is read as null.
+         * @return false if there is no record left in the chunk
+         * @throws SuperCsvException on the same malformed input the supercsv Tokenizer rejects
+         */
+        boolean readRecord(List<Object> columns) {
+            columns.clear();
+            if (get(m_position) == END) {
+                return false;
+            }
+            m_columnLength = 0;
+            m_plain = true;
+            boolean inQuote = false;
+            boolean expectQuote = m_config.strictquotes;
+            boolean isEscape = false;
+            boolean sawNewLineInQuote = false;
+            long quoteStartLine = -1;
+            int potentialSpaces = 0;
+
+            while (true) {
+                final int c = get(m_position);
+                if (!inQuote) {
+                    if (isLineEnd(c)) {
+                        // an escape at the end of a line escapes nothing
+                        appendSpaces(potentialSpaces);
+                        columns.add(columnValue(columns.size()));
+                        endLine();
+                        return true;
+                    }
+                    if (isEscape) {
+                        isEscape = false;
+                        if (m_config.strictquotes && expectQuote) {
+                            throw new SuperCsvException(String.format(STRICT_QUOTES_ERROR, m_line + 1, columns.size() + 1));
+                        }
+                        appendSpaces(potentialSpaces);
+                        potentialSpaces = 0;
+                        append(c);
+                    } else if (c == m_escape && get(m_position + 1) != 'N') {
+                        isEscape = true;
+                        m_plain = false;
+                    } else if (c == m_separator) {
+                        expectQuote = true;
+                        appendSpaces(potentialSpaces);
+                        columns.add(columnValue(columns.size()));
+                        potentialSpaces = 0;
+                        m_columnLength = 0;
+                        m_plain = true;
+                    } else if (c == ' ') {
+                        potentialSpaces++;
+                    } else if (c == m_quote) {
+                        expectQuote = false;
+                        inQuote = true;
+                        m_plain = false;
+                        quoteStartLine = m_line + 1;
+                        appendSpaces(potentialSpaces);
+                        potentialSpaces = 0;
+                    } else {
+                        if (m_config.strictquotes && expectQuote) {
+                            throw new SuperCsvException(String.format(STRICT_QUOTES_ERROR, m_line + 1, columns.size() + 1));
+                        }
+                        appendSpaces(potentialSpaces);
+                        potentialSpaces = 0;
+                        append(c);
+                    }
+                    m_position++;
+                } else {
+                    if (sawNewLineInQuote && c != END) {
+                        checkColumnSize(columns.size() + 1, quoteStartLine);
+                    }
+                    if (c == END) {
+                        // the Tokenizer ends a last line without line end with one before finding the end of file
+                        final boolean lastLine = m_position > 0 && !isLineEnd(get(m_position - 1));
+                        if (lastLine) {
+                            checkColumnSize(columns.size() + 1, quoteStartLine);
+                        }
+                        throw new SuperCsvException(String.format(QUOTE_EOF_ERROR, columns.size() + 1, quoteStartLine,
+                                lastLine ? m_line + 1 : m_line));
+                    } else if (c == '\n' || c == '\r') {
+                        checkColumnSize(columns.size() + 1, quoteStartLine);
+                        sawNewLineInQuote = true;
+                        append('\n');
+                        endLine();
+                    } else if (c == m_quote) {
+                        if (get(m_position + 1) == m_quote) {
+                            append(c);
+                            m_position += 2;
+                        } else {
+                            inQuote = false;
+                            sawNewLineInQuote = false;
+                            checkColumnSize(columns.size() + 1, quoteStartLine);
+                            m_position++;
+                        }
+                    } else {
+                        append(c);
+                        m_position++;
+                    }
+                }
+            }
+        }
+
+        private Object columnValue(int fileColumn) {
+            if (m_columnLength == 0) {
+                return null;
+            }
+            if (m_typed && m_plain && m_config.customNullString.isEmpty()) {
+                final Integer column = (m_config.header ?
+                        (fileColumn < order.length ? order[fileColumn] : null) :
+                        (fileColumn < m_columnCount ? fileColumn : null));
+                if (column != null) {
+                    final Object value = integerValue(m_columnTypes[column]);
+                    if (value != null) {
+                        return value;
+                    }
+                }
+            }
+            return new String(m_column, 0, m_columnLength, m_charset);
+        }
+
+        /*
+         * Convert a column of plain decimal digits to the integer type of the table column,
+         * anything else is left for the usual conversion of strings to report or accept.
+         */
+        private Object integerValue(VoltType type) {
+            final long max;
+            switch (type) {
+            case TINYINT:
+                max = Byte.MAX_VALUE;
+                break;
+            case SMALLINT:
+                max = Short.MAX_VALUE;
+                break;
+            case INTEGER:
+                max = Integer.MAX_VALUE;
+                break;
+            case BIGINT:
+                max = Long.MAX_VALUE;
+                break;
+            default:
+                return null;
+            }
+            int i = m_column[0] == '-' ? 1 : 0;
+            final int digits = m_columnLength - i;
+            if (digits < 1 || digits > 18) {
+                return null;
+            }
+            long value = 0;
+            for (; i < m_columnLength; i++) {
+                final int digit = m_column[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    return null;
+                }
+                value = value * 10 + digit;
+            }
+            if (m_column[0] == '-') {
+                value = -value;
+            }
+            // the minimum value of each type is its null
+            if (value > max || value < -max) {
+                return null;
+            }
+            switch (type) {
+            case TINYINT:
+                return (byte) value;
+            case SMALLINT:
+                return (short) value;
+            case INTEGER:
+                return (int) value;
+            default:
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,1060 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.utils;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop_voltpatches.util.PureJavaCrc32C;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.DeferredSerialization;
+import org.voltdb.utils.BinaryDeque.OutputContainerFactory;
+
+import com.google_voltpatches.common.base.Preconditions;
+
+/**
+ * A segment that stores its entries in blocks of up to {@link #BLOCK_SIZE} bytes. Each block
+ * is compressed as a whole and carries a CRC32C of its stored bytes, which is much cheaper than
+ * compressing many small entries one by one.
+ *
+ * The segment header is the format magic followed by the entry count and the uncompressed size
+ * of the entries. The magic is negative, so it can never be mistaken for the entry count that
+ * starts a {@link PBDRegularSegment}. Each block has a header of its stored length, uncompressed
+ * length, entry count, flags and CRC, followed by the stored bytes. Uncompressed, a block is
+ * a sequence of entries with the same length and flags prefix as regular segment entries.
+ *
+ * Offered entries collect in an in-memory block that is compressed and written out when it is
+ * full, when the segment is synced or closed, or when the segment runs out of room. Until then
+ * every offered entry is also written through to a pending file next to the segment, so that, as
+ * with a regular segment, an offered entry survives a crash of the process. The pending file holds
+ * the uncompressed entries of the block followed by a trailer with the offset the block goes to,
+ * the segment's entry count and size including the block, and a CRC32C of the entries that is
+ * extended as each entry is written. The block is appended to the segment in space the pending
+ * file does not depend on and the pending file is emptied only after that, so a crash at any point
+ * leaves either the written block or the pending file to recover it from when the segment is
+ * next opened. Entries of that block can be polled before it is written. Readers decompress
+ * a block once into a pooled buffer and serve the following polls from it.
+ */
+public class PBDBlockSegment extends PBDSegment {
+    private static final VoltLogger LOG = new VoltLogger("HOST");
+
+    static final int BLOCK_FORMAT_MAGIC = 0xB10C0001;
+    static final int BLOCK_SEGMENT_HEADER_BYTES = 12;
+    static final int BLOCK_HEADER_BYTES = 20;
+    static final int PENDING_TRAILER_BYTES = 24;
+    static final String PENDING_FILE_SUFFIX = ".pending";
+    // Entries larger than a block get a block of their own
+    public static final int BLOCK_SIZE = Integer.getInteger("PBD_BLOCK_SIZE", 64 * 1024);
+
+    private final Map<String, SegmentReader> m_readCursors = new HashMap<>();
+    private final Map<String, SegmentReader> m_closedCursors = new HashMap<>();
+
+    //ID of this segment
+    private final Long m_index;
+
+    // Include the entries of the pending block
+    private int m_numOfEntries = -1;
+    private int m_size = -1;
+
+    // End of the blocks written to the file, which is where the pending block will go
+    private int m_writeOffset = BLOCK_SEGMENT_HEADER_BYTES;
+
+    // Block being filled, only allocated while the segment is open for write
+    private BBContainer m_pending = null;
+    private int m_pendingEntries = 0;
+    private int m_pendingSize = 0;
+    private boolean m_pendingCompress = false;
+    // Bytes of the pending block already written through to the pending file, and their CRC
+    private int m_pendingWrittenBytes = 0;
+    private final PureJavaCrc32C m_pendingCrc = new PureJavaCrc32C();
+    private final byte[] m_crcScratch = new byte[4096];
+    private final ByteBuffer m_pendingTrailer = ByteBuffer.allocate(PENDING_TRAILER_BYTES);
+    // Only open once an entry has been written through
+    private RandomAccessFile m_pendingRas = null;
+    private FileChannel m_pendingFc = null;
+
+    private BBContainer m_tmpHeaderBuf = null;
+    // Only set while the segment is open for reading and not for writing
+    private SegmentMapping m_mapping = null;
+
+    public PBDBlockSegment(Long index, File file) {
+        super(file);
+        m_index = index;
+        reset();
+    }
+
+    /**
+     * @return true if the file starts with the block segment header
+     */
+    static boolean isBlockSegment(File file) throws IOException {
+        if (file.length() < BLOCK_SEGMENT_HEADER_BYTES) {
+            return false;
+        }
+        try (RandomAccessFile ras = new RandomAccessFile(file, "r")) {
+            return ras.readInt() == BLOCK_FORMAT_MAGIC;
+        }
+    }
+
+    @Override
+    public long segmentId()
+    {
+        return m_index;
+    }
+
+    @Override
+    public File file()
+    {
+        return m_file;
+    }
+
+    @Override
+    public void reset()
+    {
+        m_syncedSinceLastEdit = false;
+        if (m_tmpHeaderBuf != null) {
+            m_tmpHeaderBuf.discard();
+            m_tmpHeaderBuf = null;
+        }
+        if (m_pending != null) {
+            m_pending.discard();
+            m_pending = null;
+        }
+        m_pendingEntries = 0;
+        m_pendingSize = 0;
+        m_pendingCompress = false;
+        m_pendingWrittenBytes = 0;
+        m_pendingCrc.reset();
+    }
+
+    @Override
+    public int getNumEntries() throws IOException
+    {
+        // The header is read when the file is opened, and is behind the pending block after that
+        if (m_closed) {
+            open(false, false);
+            closeReadersAndFile();
+        }
+        return m_numOfEntries;
+    }
+
+    @Override
+    public boolean isBeingPolled()
+    {
+        return !m_readCursors.isEmpty();
+    }
+
+    @Override
+    public boolean isOpenForReading(String cursorId) {
+        return m_readCursors.containsKey(cursorId);
+    }
+
+    @Override
+    public PBDSegmentReader openForRead(String cursorId) throws IOException
+    {
+        Preconditions.checkNotNull(cursorId, "Reader id must be non-null");
+        if (m_readCursors.containsKey(cursorId) || m_closedCursors.containsKey(cursorId)) {
+            throw new IOException("Segment is already open for reading for cursor " + cursorId);
+        }
+
+        if (m_closed) {
+            open(false, false);
+            if (s_mmapReads && m_writeOffset > BLOCK_SEGMENT_HEADER_BYTES) {
+                m_mapping = new SegmentMapping(m_fc);
+            }
+        }
+        SegmentReader reader = new SegmentReader(cursorId);
+        m_readCursors.put(cursorId, reader);
+        return reader;
+    }
+
+    @Override
+    public PBDSegmentReader getReader(String cursorId) {
+        PBDSegmentReader reader = m_closedCursors.get(cursorId);
+        return (reader == null) ? m_readCursors.get(cursorId) : reader;
+    }
+
+    @Override
+    protected void openForWrite(boolean emptyFile) throws IOException {
+        open(true, emptyFile);
+    }
+
+    private void open(boolean forWrite, boolean emptyFile) throws IOException {
+        if (!m_closed) {
+            throw new IOException("Segment is already opened");
+        }
+        if (emptyFile) {
+            pendingFile().delete();
+        } else {
+            recoverPendingBlock();
+        }
+
+        if (!m_file.exists()) {
+            if (!forWrite) {
+                throw new IOException("File " + m_file + " does not exist");
+            }
+            m_syncedSinceLastEdit = false;
+        }
+        assert(m_ras == null);
+        m_ras = new RandomAccessFile( m_file, forWrite ? "rw" : "r");
+        m_fc = m_ras.getChannel();
+        m_tmpHeaderBuf = DBBPool.allocateDirect(BLOCK_HEADER_BYTES);
+
+        try {
+            if (emptyFile) {
+                initNumEntries(0, 0);
+                m_writeOffset = BLOCK_SEGMENT_HEADER_BYTES;
+            } else {
+                readHeader();
+                m_writeOffset = (int) m_fc.size();
+            }
+        } catch (IOException e) {
+            m_ras.close();
+            m_ras = null;
+            m_fc = null;
+            reset();
+            throw e;
+        }
+        if (forWrite) {
+            m_pending = DBBPool.allocateDirectAndPool(BLOCK_SIZE);
+        }
+
+        m_closed = false;
+    }
+
+    private void readHeader() throws IOException {
+        if (m_fc.size() < BLOCK_SEGMENT_HEADER_BYTES) {
+            m_numOfEntries = 0;
+            m_size = 0;
+            return;
+        }
+        m_tmpHeaderBuf.b().clear();
+        m_tmpHeaderBuf.b().limit(BLOCK_SEGMENT_HEADER_BYTES);
+        PBDUtils.readBufferFully(m_fc, m_tmpHeaderBuf.b(), 0);
+        if (m_tmpHeaderBuf.b().getInt() != BLOCK_FORMAT_MAGIC) {
+            throw new IOException("File " + m_file + " is not a block segment");
+        }
+        m_numOfEntries = m_tmpHeaderBuf.b().getInt();
+        m_size = m_tmpHeaderBuf.b().getInt();
+    }
+
+    private File pendingFile() {
+        return new File(m_file.getPath() + PENDING_FILE_SUFFIX);
+    }
+
+    /**
+     * Put the block a writer left in the pending file into the segment, unless the writer got
+     * as far as appending it, and delete the pending file.
+     */
+    private void recoverPendingBlock() throws IOException {
+        final File pendingFile = pendingFile();
+        if (!pendingFile.exists()) {
+            return;
+        }
+        if (m_file.exists() && pendingFile.length() > PENDING_TRAILER_BYTES) {
+            try (RandomAccessFile pendingRas = new RandomAccessFile(pendingFile, "r");
+                    RandomAccessFile segmentRas = new RandomAccessFile(m_file, "rw")) {
+                final int dataLength = (int) pendingRas.length() - PENDING_TRAILER_BYTES;
+                final byte[] data = new byte[dataLength];
+                pendingRas.readFully(data);
+                final int blockOffset = pendingRas.readInt();
+                final int segmentEntries = pendingRas.readInt();
+                final int segmentSize = pendingRas.readInt();
+                final int blockEntries = pendingRas.readInt();
+                final int uncompressedLength = pendingRas.readInt();
+                final int crc = pendingRas.readInt();
+
+                final PureJavaCrc32C actualCrc = new PureJavaCrc32C();
+                actualCrc.update(data, 0, dataLength);
+                if (uncompressedLength != dataLength || blockOffset < BLOCK_SEGMENT_HEADER_BYTES ||
+                        blockOffset > segmentRas.length() || (int) actualCrc.getValue() != crc) {
+                    LOG.warn("Discarding the damaged pending block of " + m_file);
+                } else {
+                    if (!hasBlockAt(segmentRas, blockOffset, blockEntries, uncompressedLength)) {
+                        segmentRas.setLength(blockOffset);
+                        segmentRas.seek(blockOffset);
+                        segmentRas.writeInt(uncompressedLength);
+                        segmentRas.writeInt(uncompressedLength);
+                        segmentRas.writeInt(blockEntries);
+                        segmentRas.writeInt(NO_FLAGS);
+                        segmentRas.writeInt(crc);
+                        segmentRas.write(data);
+                    }
+                    segmentRas.seek(0);
+                    segmentRas.writeInt(BLOCK_FORMAT_MAGIC);
+                    segmentRas.writeInt(segmentEntries);
+                    segmentRas.writeInt(segmentSize);
+                    segmentRas.getChannel().force(true);
+                }
+            }
+        }
+        pendingFile.delete();
+    }
+
+    /**
+     * @return true if the segment has an intact block with the given contents at the offset
+     */
+    private static boolean hasBlockAt(RandomAccessFile segmentRas, int offset, int entries, int uncompressedLength)
+            throws IOException {
+        if (segmentRas.length() < offset + BLOCK_HEADER_BYTES) {
+            return false;
+        }
+        segmentRas.seek(offset);
+        final int storedLength = segmentRas.readInt();
+        if (segmentRas.readInt() != uncompressedLength || segmentRas.readInt() != entries) {
+            return false;
+        }
+        segmentRas.readInt(); // flags
+        final int crc = segmentRas.readInt();
+        if (storedLength < 1 || segmentRas.length() < (long) offset + BLOCK_HEADER_BYTES + storedLength) {
+            return false;
+        }
+        final byte[] stored = new byte[storedLength];
+        segmentRas.readFully(stored);
+        final PureJavaCrc32C actualCrc = new PureJavaCrc32C();
+        actualCrc.update(stored, 0, storedLength);
+        return (int) actualCrc.getValue() == crc;
+    }
+
+    @Override
+    protected void initNumEntries(int count, int size) throws IOException {
+        m_numOfEntries = count;
+        m_size = size;
+        writeHeader(count, size);
+    }
+
+    private void writeHeader(int count, int size) throws IOException {
+        m_tmpHeaderBuf.b().clear();
+        m_tmpHeaderBuf.b().putInt(BLOCK_FORMAT_MAGIC);
+        m_tmpHeaderBuf.b().putInt(count);
+        m_tmpHeaderBuf.b().putInt(size);
+        m_tmpHeaderBuf.b().flip();
+        PBDUtils.writeBuffer(m_fc, m_tmpHeaderBuf.bDR(), 0);
+        m_syncedSinceLastEdit = false;
+    }
+
+    @Override
+    public void closeAndDelete() throws IOException {
+        // Nothing pending is worth writing to a file about to be deleted
+        m_pendingEntries = 0;
+        close();
+        m_file.delete();
+
+        m_numOfEntries = -1;
+        m_size = -1;
+    }
+
+    @Override
+    public boolean isClosed()
+    {
+        return m_closed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        m_closedCursors.clear();
+        closeReadersAndFile();
+    }
+
+    private void closeReadersAndFile() throws IOException {
+        for (SegmentReader reader : m_readCursors.values()) {
+            reader.releaseBlock();
+        }
+        m_readCursors.clear();
+        try {
+            if (m_ras != null) {
+                flushPendingBlock();
+                m_ras.close();
+            }
+        } finally {
+            closePendingFile();
+            if (m_mapping != null) {
+                m_mapping.release();
+                m_mapping = null;
+            }
+            m_ras = null;
+            m_fc = null;
+            m_closed = true;
+            reset();
+        }
+    }
+
+    private void closePendingFile() throws IOException {
+        if (m_pendingRas != null) {
+            m_pendingRas.close();
+            m_pendingRas = null;
+            m_pendingFc = null;
+        }
+        // Keep the entries of a block that could not be written for recovery
+        if (m_pendingEntries == 0) {
+            pendingFile().delete();
+        }
+    }
+
+    @Override
+    public void sync() throws IOException {
+        if (m_closed) throw new IOException("Segment closed");
+        flushPendingBlock();
+        if (!m_syncedSinceLastEdit) {
+            m_fc.force(true);
+        }
+        m_syncedSinceLastEdit = true;
+    }
+
+    @Override
+    public boolean hasAllFinishedReading() throws IOException {
+        if (m_closed) throw new IOException("Segment closed");
+
+        if (m_readCursors.size() == 0) return false;
+
+        for (SegmentReader reader : m_readCursors.values()) {
+            if (reader.m_objectReadIndex < m_numOfEntries) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean offer(DBBPool.BBContainer cont, boolean compress) throws IOException
+    {
+        if (m_closed) throw new IOException("Segment closed");
+        final ByteBuffer buf = cont.b();
+        final int remaining = buf.remaining();
+        if (!reserve(OBJECT_HEADER_BYTES + remaining, compress)) return false;
+
+        try {
+            final ByteBuffer pending = m_pending.b();
+            pending.putInt(remaining);
+            pending.putInt(NO_FLAGS);
+            pending.put(buf);
+            addPendingEntry(remaining);
+        } finally {
+            cont.discard();
+        }
+
+        return true;
+    }
+
+    @Override
+    public int offer(DeferredSerialization ds) throws IOException
+    {
+        if (m_closed) throw new IOException("closed");
+        final int fullSize = ds.getSerializedSize() + OBJECT_HEADER_BYTES;
+        if (!reserve(fullSize, true)) return -1;
+
+        final int written = PBDUtils.writeDeferredSerialization(m_pending.b(), ds);
+        addPendingEntry(written);
+        return written;
+    }
+
+    /**
+     * Make room in the pending block for an entry, writing out the pending block first
+     * if the entry does not fit in it.
+     *
+     * @return false if the segment does not have room for the entry
+     */
+    private boolean reserve(int entryBytes, boolean compress) throws IOException {
+        final ByteBuffer pending = m_pending.b();
+        if (pending.remaining() < entryBytes ||
+                !hasRoomFor(pending.position() + entryBytes, m_pendingCompress || compress)) {
+            flushPendingBlock();
+            if (!hasRoomFor(entryBytes, compress)) {
+                return false;
+            }
+            ensurePendingCapacity(entryBytes);
+        }
+        m_pendingCompress |= compress;
+        return true;
+    }
+
+    private boolean hasRoomFor(int uncompressedBytes, boolean compress) {
+        final long stored = compress ? CompressionService.maxCompressedLength(uncompressedBytes) : uncompressedBytes;
+        return m_writeOffset + BLOCK_HEADER_BYTES + stored <= PBDSegment.CHUNK_SIZE;
+    }
+
+    private void ensurePendingCapacity(int bytes) {
+        if (m_pending.b().remaining() >= bytes) {
+            return;
+        }
+        final ByteBuffer data = m_pending.b().duplicate();
+        data.flip();
+        final BBContainer larger = DBBPool.allocateDirectAndPool(data.remaining() + bytes);
+        larger.b().put(data);
+        m_pending.discard();
+        m_pending = larger;
+    }
+
+    private void addPendingEntry(int size) throws IOException {
+        m_pendingEntries++;
+        m_pendingSize += size;
+        m_numOfEntries++;
+        m_size += size;
+        m_syncedSinceLastEdit = false;
+        if (m_pending.b().position() >= BLOCK_SIZE) {
+            flushPendingBlock();
+        } else {
+            writePendingThrough();
+        }
+    }
+
+    /**
+     * Write the entries added to the pending block since the last call to the pending file,
+     * followed by a trailer covering every entry of the block, in a single write that replaces
+     * the previous trailer. The block is appended to the segment once it is flushed.
+     */
+    private void writePendingThrough() throws IOException {
+        if (m_pendingFc == null) {
+            m_pendingRas = new RandomAccessFile(pendingFile(), "rw");
+            m_pendingFc = m_pendingRas.getChannel();
+        }
+        final ByteBuffer added = m_pending.b().duplicate();
+        added.flip();
+        final int uncompressedLength = added.limit();
+        added.position(m_pendingWrittenBytes);
+
+        final ByteBuffer crcInput = added.duplicate();
+        while (crcInput.hasRemaining()) {
+            final int length = Math.min(crcInput.remaining(), m_crcScratch.length);
+            crcInput.get(m_crcScratch, 0, length);
+            m_pendingCrc.update(m_crcScratch, 0, length);
+        }
+
+        m_pendingTrailer.clear();
+        m_pendingTrailer.putInt(m_writeOffset);
+        m_pendingTrailer.putInt(m_numOfEntries);
+        m_pendingTrailer.putInt(m_size);
+        m_pendingTrailer.putInt(m_pendingEntries);
+        m_pendingTrailer.putInt(uncompressedLength);
+        m_pendingTrailer.putInt((int) m_pendingCrc.getValue());
+        m_pendingTrailer.flip();
+
+        final ByteBuffer[] srcs = new ByteBuffer[] { added, m_pendingTrailer };
+        m_pendingFc.position(m_pendingWrittenBytes);
+        while (m_pendingTrailer.hasRemaining()) {
+            m_pendingFc.write(srcs);
+        }
+        m_pendingWrittenBytes = uncompressedLength;
+    }
+
+    /**
+     * Compress the pending block, if any of its entries allow it, and append it to the file.
+     */
+    private void flushPendingBlock() throws IOException {
+        if (m_pendingEntries == 0) {
+            return;
+        }
+
+        final ByteBuffer payload = m_pending.b();
+        final boolean oversized = payload.limit() > BLOCK_SIZE;
+        payload.flip();
+        final int uncompressedLength = payload.remaining();
+        final int maxStoredLength = m_pendingCompress ?
+                CompressionService.maxCompressedLength(uncompressedLength) : uncompressedLength;
+        final BBContainer block = DBBPool.allocateDirectAndPool(BLOCK_HEADER_BYTES + maxStoredLength);
+        try {
+            final ByteBuffer out = block.b();
+            int storedLength = 0;
+            int flags = NO_FLAGS;
+            if (m_pendingCompress) {
+                out.position(BLOCK_HEADER_BYTES);
+                storedLength = CompressionService.compressBuffer(payload.duplicate(), out);
+                flags = FLAG_COMPRESSED;
+            }
+            if (!m_pendingCompress || storedLength >= uncompressedLength) {
+                // Not worth decompressing on every read
+                out.limit(BLOCK_HEADER_BYTES + uncompressedLength);
+                out.position(BLOCK_HEADER_BYTES);
+                out.put(payload.duplicate());
+                storedLength = uncompressedLength;
+                flags = NO_FLAGS;
+            }
+
+            out.putInt(0, storedLength);
+            out.putInt(4, uncompressedLength);
+            out.putInt(8, m_pendingEntries);
+            out.putInt(12, flags);
+            out.putInt(16, DBBPool.getCRC32C(block.address(), BLOCK_HEADER_BYTES, storedLength));
+            out.limit(BLOCK_HEADER_BYTES + storedLength);
+            out.position(0);
+            // The segment ends at the write offset, the written through entries are in the pending file
+            PBDUtils.writeBuffer(m_fc, out, m_writeOffset);
+
+            final int blockOffset = m_writeOffset;
+            m_writeOffset += BLOCK_HEADER_BYTES + storedLength;
+            if (m_fc.size() > m_writeOffset) {
+                // Left by a recovery of the pending file while this segment was still open
+                m_fc.truncate(m_writeOffset);
+            }
+            for (SegmentReader reader : m_readCursors.values()) {
+                reader.pendingBlockWritten(payload, blockOffset, m_writeOffset);
+            }
+        } finally {
+            block.discard();
+        }
+
+        writeHeader(m_numOfEntries, m_size);
+        if (m_pendingWrittenBytes > 0) {
+            // The block and the header covering it are in the segment, the pending file can go
+            m_pendingFc.truncate(0);
+        }
+
+        m_pendingEntries = 0;
+        m_pendingSize = 0;
+        m_pendingCompress = false;
+        m_pendingWrittenBytes = 0;
+        m_pendingCrc.reset();
+        if (oversized) {
+            // Go back to a regular sized block after an oversized entry
+            m_pending.discard();
+            m_pending = DBBPool.allocateDirectAndPool(BLOCK_SIZE);
+        } else {
+            m_pending.b().clear();
+            m_pending.b().limit(BLOCK_SIZE);
+        }
+    }
+
+    /**
+     * Read the block at the given offset, verify its CRC and decompress it if necessary.
+     * Uncompressed blocks of a mapped segment are not copied.
+     */
+    private DecompressedBlock readBlock(int offset) throws IOException {
+        final ByteBuffer header;
+        final long fileSize;
+        if (m_mapping != null) {
+            fileSize = m_mapping.size();
+            if (offset + BLOCK_HEADER_BYTES > fileSize) {
+                throw new EOFException();
+            }
+            header = m_mapping.slice(offset, BLOCK_HEADER_BYTES);
+        } else {
+            fileSize = m_fc.size();
+            m_tmpHeaderBuf.b().clear();
+            PBDUtils.readBufferFully(m_fc, m_tmpHeaderBuf.b(), offset);
+            header = m_tmpHeaderBuf.b();
+        }
+        final int storedLength = header.getInt();
+        final int uncompressedLength = header.getInt();
+        header.getInt(); // entry count
+        final int flags = header.getInt();
+        final int crc = header.getInt();
+        final boolean compressed = (flags & FLAG_COMPRESSED) != 0;
+        final int dataOffset = offset + BLOCK_HEADER_BYTES;
+
+        if (storedLength < 1 || uncompressedLength < 1 || (long) dataOffset + storedLength > fileSize) {
+            throw new IOException("Read an invalid block header at offset " + offset + " in " + m_file);
+        }
+
+        if (m_mapping != null) {
+            if (DBBPool.getCRC32C(m_mapping.address(), dataOffset, storedLength) != crc) {
+                throw new IOException("CRC mismatch in block at offset " + offset + " in " + m_file);
+            }
+            if (compressed) {
+                return new DecompressedBlock(decompress(m_mapping.slice(dataOffset, storedLength), uncompressedLength, offset),
+                        dataOffset + storedLength, true, -1);
+            }
+            return new DecompressedBlock(m_mapping.container(dataOffset, storedLength),
+                    dataOffset + storedLength, false, dataOffset);
+        }
+
+        BBContainer stored = DBBPool.allocateDirectAndPool(storedLength);
+        try {
+            PBDUtils.readBufferFully(m_fc, stored.b(), dataOffset);
+            if (DBBPool.getCRC32C(stored.address(), 0, storedLength) != crc) {
+                throw new IOException("CRC mismatch in block at offset " + offset + " in " + m_file);
+            }
+
+            final BBContainer data;
+            if (compressed) {
+                data = decompress(stored.b(), uncompressedLength, offset);
+            } else {
+                data = stored;
+                stored = null;
+            }
+            return new DecompressedBlock(data, dataOffset + storedLength, compressed, -1);
+        } finally {
+            if (stored != null) {
+                stored.discard();
+            }
+        }
+    }
+
+    private BBContainer decompress(ByteBuffer stored, int uncompressedLength, int offset) throws IOException {
+        final BBContainer data = DBBPool.allocateDirectAndPool(uncompressedLength);
+        try {
+            if (CompressionService.decompressBuffer(stored, data.b()) != uncompressedLength) {
+                throw new IOException("Block at offset " + offset + " in " + m_file +
+                        " did not decompress to its recorded length");
+            }
+        } catch (IOException e) {
+            data.discard();
+            throw e;
+        }
+        return data;
+    }
+
+    @Override
+    public int size() {
+        return m_size;
+    }
+
+    /**
+     * Appends the truncated entry to the pending block, so it is only valid during truncation.
+     */
+    @Override
+    protected int writeTruncatedEntry(BinaryDeque.TruncatorResponse entry) throws IOException
+    {
+        ensurePendingCapacity(OBJECT_HEADER_BYTES + entry.getTruncatedBuffSize());
+        final int written = entry.writeTruncatedObject(m_pending.b());
+        m_pendingEntries++;
+        m_pendingSize += written;
+        return written;
+    }
+
+    /**
+     * Entries are addressed by block rather than file offset, so the block containing the
+     * truncation point is rewritten with the entries that are kept.
+     */
+    @Override
+    int parseAndTruncate(BinaryDeque.BinaryDequeTruncator truncator) throws IOException {
+        if (!m_closed) throw new IOException(("Segment should not be open before truncation"));
+
+        openForWrite(false);
+
+        final int initialEntryCount = m_numOfEntries;
+        int entriesTruncated = 0;
+        int entriesKept = 0;
+        int sizeInBytes = 0;
+        int blockOffset = BLOCK_SEGMENT_HEADER_BYTES;
+
+        truncation:
+        while (entriesKept < initialEntryCount) {
+            final DecompressedBlock block = readBlock(blockOffset);
+            try {
+                final ByteBuffer data = block.m_data.b();
+                int blockEntriesKept = 0;
+                int blockSizeKept = 0;
+                while (data.hasRemaining()) {
+                    final int entryStart = data.position();
+                    final int length = data.getInt();
+                    data.getInt(); // flags
+                    if (length < 1 || length > data.remaining()) {
+                        throw new IOException("Read an invalid length");
+                    }
+
+                    final BBContainer cont = PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY.getContainer(length);
+                    try {
+                        final ByteBuffer entry = data.slice();
+                        entry.limit(length);
+                        cont.b().limit(length);
+                        cont.b().put(entry);
+                        cont.b().flip();
+                        data.position(data.position() + length);
+
+                        //Handoff the object to the truncator and await a decision
+                        BinaryDeque.TruncatorResponse retval = truncator.parse(cont);
+                        if (retval == null) {
+                            //Nothing to do, leave the object alone and move to the next
+                            sizeInBytes += length;
+                            entriesKept++;
+                            blockEntriesKept++;
+                            blockSizeKept += length;
+                            continue;
+                        }
+
+                        if (retval.status == BinaryDeque.TruncatorResponse.Status.FULL_TRUNCATE && entriesKept == 0) {
+                            /*
+                             * If truncation is occuring at the first object
+                             * Whammo! Delete the file.
+                             */
+                            entriesTruncated = -1;
+                            break truncation;
+                        }
+
+                        // Rewrite this block in place with the entries before the truncation point
+                        m_writeOffset = blockOffset;
+                        ensurePendingCapacity(entryStart);
+                        final ByteBuffer kept = data.duplicate();
+                        kept.position(0);
+                        kept.limit(entryStart);
+                        m_pending.b().put(kept);
+                        m_pendingEntries = blockEntriesKept;
+                        m_pendingSize = blockSizeKept;
+                        m_pendingCompress = block.m_compressed;
+
+                        if (retval.status == BinaryDeque.TruncatorResponse.Status.FULL_TRUNCATE) {
+                            entriesTruncated = initialEntryCount - entriesKept;
+                        } else {
+                            assert retval.status == BinaryDeque.TruncatorResponse.Status.PARTIAL_TRUNCATE;
+                            //Partial object truncation
+                            entriesTruncated = initialEntryCount - (entriesKept + 1);
+                            sizeInBytes += writeTruncatedEntry(retval);
+                            entriesKept++;
+                        }
+
+                        m_numOfEntries = entriesKept;
+                        m_size = sizeInBytes;
+                        flushPendingBlock();
+                        //Don't forget to update the number of entries in the file
+                        initNumEntries(entriesKept, sizeInBytes);
+                        m_fc.truncate(m_writeOffset);
+                        break truncation;
+                    } finally {
+                        cont.discard();
+                    }
+                }
+                blockOffset = block.m_nextOffset;
+            } finally {
+                block.discard();
+            }
+        }
+
+        close();
+
+        return entriesTruncated;
+    }
+
+    /**
+     * The uncompressed contents of one block, and where the next block starts.
+     */
+    private static final class DecompressedBlock {
+        final BBContainer m_data;
+        final int m_nextOffset;
+        final boolean m_compressed;
+        // File offset of the data if it is a slice of the mapped segment, -1 otherwise
+        final int m_mappedOffset;
+
+        DecompressedBlock(BBContainer data, int nextOffset, boolean compressed, int mappedOffset) {
+            m_data = data;
+            m_nextOffset = nextOffset;
+            m_compressed = compressed;
+            m_mappedOffset = mappedOffset;
+        }
+
+        void discard() {
+            m_data.discard();
+        }
+    }
+
+    private class SegmentReader implements PBDSegmentReader {
+        private final String m_cursorId;
+        // Offset of the block containing the next object
+        private int m_readOffset = BLOCK_SEGMENT_HEADER_BYTES;
+        // Position of the next object in the uncompressed block
+        private int m_blockPosition = 0;
+        private DecompressedBlock m_block = null;
+        //Index of the next object to read, not an offset into the file
+        private int m_objectReadIndex = 0;
+        private int m_bytesRead = 0;
+        private int m_discardCount = 0;
+        private boolean m_closed = false;
+
+        public SegmentReader(String cursorId) {
+            assert(cursorId != null);
+            m_cursorId = cursorId;
+        }
+
+        @Override
+        public boolean hasMoreEntries() throws IOException {
+            return m_objectReadIndex < m_numOfEntries;
+        }
+
+        @Override
+        public boolean allReadAndDiscarded() throws IOException {
+            return m_discardCount == m_numOfEntries;
+        }
+
+        @Override
+        public BBContainer poll(OutputContainerFactory factory) throws IOException {
+            if (m_closed) throw new IOException("Reader closed");
+
+            if (!hasMoreEntries()) {
+                return null;
+            }
+
+            final ByteBuffer source = nextObject();
+            final int length = source.getInt();
+            source.getInt(); // flags
+            if (length < 1 || length > source.remaining()) {
+                throw new IOException("Read an invalid length");
+            }
+
+            final DBBPool.BBContainer retcont;
+            if (m_block != null && m_block.m_mappedOffset >= 0) {
+                retcont = m_mapping.container(m_block.m_mappedOffset + source.position(), length);
+            } else {
+                retcont = factory.getContainer(length);
+                final ByteBuffer object = source.slice();
+                object.limit(length);
+                retcont.b().limit(length);
+                retcont.b().put(object);
+                retcont.b().flip();
+            }
+
+            m_blockPosition += OBJECT_HEADER_BYTES + length;
+            m_bytesRead += length;
+            m_objectReadIndex++;
+
+            return new DBBPool.BBContainer(retcont.b()) {
+                private boolean m_discarded = false;
+
+                @Override
+                public void discard() {
+                    checkDoubleFree();
+                    if (m_discarded) {
+                        LOG.error("PBD Container discarded more than once");
+                        return;
+                    }
+
+                    m_discarded = true;
+                    retcont.discard();
+                    m_discardCount++;
+                }
+            };
+        }
+
+        /**
+         * @return a buffer positioned at the next object, from either this reader's
+         *         current block, the next block in the file or the pending block
+         */
+        private ByteBuffer nextObject() throws IOException {
+            if (m_block != null) {
+                if (m_blockPosition < m_block.m_data.b().limit()) {
+                    final ByteBuffer data = m_block.m_data.b();
+                    data.position(m_blockPosition);
+                    return data;
+                }
+                m_readOffset = m_block.m_nextOffset;
+                m_blockPosition = 0;
+                releaseBlock();
+            }
+
+            if (m_readOffset >= m_writeOffset) {
+                if (m_pendingEntries == 0) {
+                    throw new EOFException();
+                }
+                final ByteBuffer data = m_pending.b().duplicate();
+                data.limit(data.position());
+                data.position(m_blockPosition);
+                return data;
+            }
+
+            m_block = readBlock(m_readOffset);
+            final ByteBuffer data = m_block.m_data.b();
+            data.position(m_blockPosition);
+            return data;
+        }
+
+        /**
+         * The pending block this reader may be reading from has been written at blockOffset.
+         */
+        private void pendingBlockWritten(ByteBuffer payload, int blockOffset, int nextOffset) {
+            if (m_closed || m_block != null || m_readOffset != blockOffset) {
+                return;
+            }
+            if (m_blockPosition == payload.limit()) {
+                m_readOffset = nextOffset;
+                m_blockPosition = 0;
+            } else if (m_blockPosition > 0) {
+                // Keep the rest of the block in memory rather than reading it back
+                final BBContainer data = DBBPool.allocateDirectAndPool(payload.limit());
+                data.b().put(payload.duplicate());
+                data.b().flip();
+                m_block = new DecompressedBlock(data, nextOffset, m_pendingCompress, -1);
+            }
+        }
+
+        private void releaseBlock() {
+            if (m_block != null) {
+                m_block.discard();
+                m_block = null;
+            }
+        }
+
+        @Override
+        public int uncompressedBytesToRead() {
+            if (m_closed) throw new RuntimeException("Reader closed");
+
+            return m_size - m_bytesRead;
+        }
+
+        @Override
+        public long readOffset() {
+            return m_readOffset;
+        }
+
+        @Override
+        public int readIndex() {
+            return m_objectReadIndex;
+        }
+
+        /**
+         * Objects are addressed within their block, so this steps back over whole objects of the
+         * current block, counting their uncompressed bytes and headers.
+         */
+        @Override
+        public void rewindReadOffset(int byBytes) {
+            final int target = m_blockPosition - byBytes;
+            if (byBytes < 0 || target < 0) {
+                throw new IllegalArgumentException("Can't rewind " + byBytes + " bytes from position " +
+                        m_blockPosition + " of the current block");
+            }
+            final ByteBuffer data = (m_block != null) ? m_block.m_data.b() : m_pending.b();
+            int position = 0;
+            int rewoundObjects = 0;
+            int rewoundBytes = 0;
+            while (position < m_blockPosition) {
+                final int length = data.getInt(position);
+                if (position >= target) {
+                    rewoundObjects++;
+                    rewoundBytes += length;
+                } else if (position + OBJECT_HEADER_BYTES + length > target) {
+                    throw new IllegalArgumentException("Can't rewind " + byBytes + " bytes to the middle of an object");
+                }
+                position += OBJECT_HEADER_BYTES + length;
+            }
+            m_blockPosition = target;
+            m_objectReadIndex -= rewoundObjects;
+            m_bytesRead -= rewoundBytes;
+        }
+
+        @Override
+        public void close() throws IOException {
+            m_closed = true;
+            releaseBlock();
+            m_readCursors.remove(m_cursorId);
+            m_closedCursors.put(m_cursorId, this);
+            if (m_readCursors.isEmpty()) {
+                closeReadersAndFile();
+            }
+        }
+
+        @Override
+        public boolean isClosed() {
+            return m_closed;
+        }
+    }
+}
@@ -52,6 +52,8 @@ public class PBDRegularSegment extends PBDSegment {
     private int m_size = -1;
 
     private DBBPool.BBContainer m_tmpHeaderBuf = null;
+    // Only set while the segment is open for reading and not for writing
+    private SegmentMapping m_mapping = null;
 
     public PBDRegularSegment(Long index, File file) {
         super(file);
@@ -123,6 +125,10 @@ public class PBDRegularSegment extends PBDSegment {
 
         if (m_closed) {
             open(false, false);
+            // Nothing writes to a segment opened this way, so it can be mapped
+            if (s_mmapReads && m_fc.size() > SEGMENT_HEADER_BYTES) {
+                m_mapping = new SegmentMapping(m_fc);
+            }
         }
         SegmentReader reader = new SegmentReader(cursorId);
         m_readCursors.put(cursorId, reader);
@@ -228,6 +234,10 @@ public class PBDRegularSegment extends PBDSegment {
                 m_ras.close();
             }
         } finally {
+            if (m_mapping != null) {
+                m_mapping.release();
+                m_mapping = null;
+            }
             m_ras = null;
             m_fc = null;
             m_closed = true;
@@ -395,6 +405,10 @@ public class PBDRegularSegment extends PBDSegment {
                 return null;
             }
 
+            if (m_mapping != null) {
+                return wrapContainer(pollMapped(factory));
+            }
+
             final long writePos = m_fc.position();
             m_fc.position(m_readOffset);
 
@@ -452,28 +466,71 @@ public class PBDRegularSegment extends PBDSegment {
                 m_bytesRead += uncompressedLen;
                 m_objectReadIndex++;
 
-                return new DBBPool.BBContainer(retcont.b()) {
-                    private boolean m_discarded = false;
-
-                    @Override
-                    public void discard() {
-                        checkDoubleFree();
-                        if (m_discarded) {
-                            LOG.error("PBD Container discarded more than once");
-                            return;
-                        }
-
-                        m_discarded = true;
-                        retcont.discard();
-                        m_discardCount++;
-                    }
-                };
+                return wrapContainer(retcont);
             } finally {
                 m_readOffset = m_fc.position();
                 m_fc.position(writePos);
             }
         }
 
+        /**
+         * Uncompressed objects are returned as slices of the mapped file, compressed ones
+         * are decompressed straight from the mapped bytes.
+         */
+        private BBContainer pollMapped(OutputContainerFactory factory) throws IOException {
+            if (m_readOffset + OBJECT_HEADER_BYTES > m_mapping.size()) {
+                throw new EOFException();
+            }
+            final ByteBuffer header = m_mapping.slice((int) m_readOffset, OBJECT_HEADER_BYTES);
+            final int length = header.getInt();
+            final int flags = header.getInt();
+            final boolean compressed = (flags & FLAG_COMPRESSED) != 0;
+            final int dataOffset = (int) m_readOffset + OBJECT_HEADER_BYTES;
+
+            if (length < 1) {
+                throw new IOException("Read an invalid length");
+            }
+            if (dataOffset + (long) length > m_mapping.size()) {
+                throw new EOFException();
+            }
+
+            final int uncompressedLen;
+            final DBBPool.BBContainer retcont;
+            if (compressed) {
+                uncompressedLen = CompressionService.uncompressedLength(m_mapping.slice(dataOffset, length));
+                retcont = factory.getContainer(uncompressedLen);
+                retcont.b().limit(uncompressedLen);
+                CompressionService.decompressBuffer(m_mapping.slice(dataOffset, length), retcont.b());
+            } else {
+                uncompressedLen = length;
+                retcont = m_mapping.container(dataOffset, length);
+            }
+
+            m_readOffset = dataOffset + length;
+            m_bytesRead += uncompressedLen;
+            m_objectReadIndex++;
+            return retcont;
+        }
+
+        private BBContainer wrapContainer(final BBContainer retcont) {
+            return new DBBPool.BBContainer(retcont.b()) {
+                private boolean m_discarded = false;
+
+                @Override
+                public void discard() {
+                    checkDoubleFree();
+                    if (m_discarded) {
+                        LOG.error("PBD Container discarded more than once");
+                        return;
+                    }
+
+                    m_discarded = true;
+                    retcont.discard();
+                    m_discardCount++;
+                }
+            };
+        }
+
         @Override
         public int uncompressedBytesToRead() {
             if (m_closed) throw new RuntimeException("Reader closed");
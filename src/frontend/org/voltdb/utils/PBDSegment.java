@@ -23,6 +23,7 @@ import org.voltcore.utils.DeferredSerialization;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 
 public abstract class PBDSegment {
@@ -96,6 +97,60 @@ public abstract class PBDSegment {
         public boolean isClosed();
     }
 
+    /**
+     * A read only mapping of a segment file. The segment holds one reference while it is open
+     * for reading and every container sliced from the mapping holds another, so the file is
+     * only unmapped once nothing can reach the mapped memory. References are only taken and
+     * released while holding the PersistentBinaryDeque lock.
+     */
+    static final class SegmentMapping {
+        private final DBBPool.MBBContainer m_mapping;
+        private int m_refCount = 1;
+
+        SegmentMapping(FileChannel fc) throws IOException {
+            m_mapping = DBBPool.wrapMBB(fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size()));
+        }
+
+        long size() {
+            return m_mapping.b().capacity();
+        }
+
+        long address() {
+            return m_mapping.address();
+        }
+
+        /**
+         * @return a view of the mapped bytes, only valid while this mapping is referenced
+         */
+        ByteBuffer slice(int offset, int length) {
+            final ByteBuffer view = m_mapping.b().duplicate();
+            view.position(offset);
+            view.limit(offset + length);
+            return view.slice();
+        }
+
+        /**
+         * @return a container of the mapped bytes that keeps the file mapped until it is discarded
+         */
+        DBBPool.BBContainer container(int offset, int length) {
+            m_refCount++;
+            return new DBBPool.BBContainer(slice(offset, length)) {
+                @Override
+                public void discard() {
+                    checkDoubleFree();
+                    release();
+                }
+            };
+        }
+
+        void release() {
+            assert(m_refCount > 0);
+            if (--m_refCount == 0) {
+                m_mapping.discard();
+            }
+        }
+    }
+
     private static final String TRUNCATOR_CURSOR = "__truncator__";
     static final int NO_FLAGS = 0;
     static final int FLAG_COMPRESSED = 1;
@@ -105,6 +160,9 @@ public abstract class PBDSegment {
 
     // Has to be able to hold at least one object (compressed or not)
     public static final int CHUNK_SIZE = Integer.getInteger("PBDSEGMENT_CHUNK_SIZE", 1024 * 1024 * 64);
+    // Read segments that are no longer written to through a memory mapping, so that
+    // uncompressed entries can be handed out without copying them. Not final for tests.
+    static boolean s_mmapReads = Boolean.getBoolean("PBD_MMAP_READS");
     static final int OBJECT_HEADER_BYTES = 8;
     static final int SEGMENT_HEADER_BYTES = 8;
     protected final File m_file;
@@ -53,6 +53,10 @@ import com.google_voltpatches.common.base.Throwables;
 public class PersistentBinaryDeque implements BinaryDeque {
     private static final VoltLogger LOG = new VoltLogger("HOST");
 
+    // Write new segments as compressed blocks rather than individually compressed entries.
+    // Off by default, versions that predate block segments can't read them.
+    static boolean s_blockSegments = Boolean.getBoolean("PBD_BLOCK_SEGMENTS");
+
     public static class UnsafeOutputContainerFactory implements OutputContainerFactory {
         @Override
         public BBContainer getContainer(int minimumSize) {
@@ -323,8 +327,8 @@ public class PersistentBinaryDeque implements BinaryDeque {
                             return false;
                         }
                         Long index = Long.valueOf(seqNum);
-                        PBDSegment qs = newSegment( index, pathname );
                         try {
+                            PBDSegment qs = newSegment( index, pathname );
                             m_initializedFromExistingFiles = true;
                             if (deleteEmpty) {
                                 if (qs.getNumEntries() == 0) {
@@ -482,7 +486,15 @@ public class PersistentBinaryDeque implements BinaryDeque {
         assertions();
     }
 
-    private PBDSegment newSegment(long segmentId, File file) {
+    /**
+     * Existing files keep the format they were written in. New files use block segments
+     * only if PBD_BLOCK_SEGMENTS is true.
+     */
+    private PBDSegment newSegment(long segmentId, File file) throws IOException {
+        final boolean blockSegment = file.exists() ? PBDBlockSegment.isBlockSegment(file) : s_blockSegments;
+        if (blockSegment) {
+            return new PBDBlockSegment(segmentId, file);
+        }
         return new PBDRegularSegment(segmentId, file);
     }
 
@@ -615,17 +627,22 @@ public class PersistentBinaryDeque implements BinaryDeque {
 
         //Take the objects that were provided and separate them into deques of objects
         //that will fit in a single write segment
-        int available = PBDSegment.CHUNK_SIZE - 4;
+        //Every pushed object may end up in an uncompressed block of its own
+        final int capacity = s_blockSegments ?
+                PBDSegment.CHUNK_SIZE - PBDBlockSegment.BLOCK_SEGMENT_HEADER_BYTES : PBDSegment.CHUNK_SIZE - 4;
+        final int overhead = s_blockSegments ?
+                PBDSegment.OBJECT_HEADER_BYTES + PBDBlockSegment.BLOCK_HEADER_BYTES : PBDSegment.OBJECT_HEADER_BYTES;
+        int available = capacity;
         for (BBContainer object : objects) {
-            int needed = PBDSegment.OBJECT_HEADER_BYTES + object.b().remaining();
+            int needed = overhead + object.b().remaining();
 
             if (available - needed < 0) {
-                if (needed > PBDSegment.CHUNK_SIZE - 4) {
-                    throw new IOException("Maximum object size is " + (PBDSegment.CHUNK_SIZE - 4));
+                if (needed > capacity) {
+                    throw new IOException("Maximum object size is " + (capacity - overhead));
                 }
                 segments.offer( currentSegment );
                 currentSegment = new ArrayDeque<BBContainer>();
-                available = PBDSegment.CHUNK_SIZE - 4;
+                available = capacity;
             }
             available -= needed;
             currentSegment.add(object);
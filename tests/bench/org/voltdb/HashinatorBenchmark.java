@@ -0,0 +1,73 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Partition lookup for the common partitioning column types with the elastic hashinator.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HashinatorBenchmark {
+
+    @Param({"8", "64"})
+    public int m_partitions;
+
+    private TheHashinator m_hashinator;
+    private long m_nextLong;
+    private String[] m_strings;
+    private int m_nextString;
+
+    @Setup
+    public void setup() {
+        m_hashinator = TheHashinator.getHashinator(ElasticHashinator.class,
+                ElasticHashinator.getConfigureBytes(m_partitions, ElasticHashinator.DEFAULT_TOTAL_TOKENS), false);
+        m_strings = new String[1024];
+        for (int i = 0; i < m_strings.length; i++) {
+            m_strings[i] = "customer-" + i;
+        }
+    }
+
+    @Benchmark
+    public int bigintPartition() {
+        return m_hashinator.getHashedPartitionForParameter(VoltType.BIGINT.getValue(), m_nextLong++);
+    }
+
+    @Benchmark
+    public int stringPartition() {
+        return m_hashinator.getHashedPartitionForParameter(VoltType.STRING.getValue(),
+                m_strings[m_nextString++ & (m_strings.length - 1)]);
+    }
+}
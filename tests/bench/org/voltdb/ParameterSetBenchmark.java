@@ -0,0 +1,82 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.voltdb.types.TimestampType;
+
+/**
+ * Serialization and deserialization of the parameters of a typical procedure call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ParameterSetBenchmark {
+
+    private Object[] m_params;
+    private ByteBuffer m_out;
+    private ByteBuffer m_serialized;
+
+    @Setup
+    public void setup() throws IOException {
+        m_params = new Object[] {
+                42L,
+                7,
+                "a string parameter of moderate length",
+                new BigDecimal("12345.678900000000"),
+                new TimestampType(1500000000000000L),
+                new long[] { 1, 2, 3, 4, 5, 6, 7, 8 },
+                new byte[64],
+                null };
+        ParameterSet params = ParameterSet.fromArrayNoCopy(m_params);
+        m_out = ByteBuffer.allocate(params.getSerializedSize());
+        m_serialized = ByteBuffer.allocate(params.getSerializedSize());
+        params.flattenToBuffer(m_serialized);
+        m_serialized.flip();
+    }
+
+    @Benchmark
+    public ByteBuffer serialize() throws IOException {
+        ParameterSet params = ParameterSet.fromArrayNoCopy(m_params);
+        m_out.clear();
+        params.flattenToBuffer(m_out);
+        return m_out;
+    }
+
+    @Benchmark
+    public ParameterSet deserialize() throws IOException {
+        return ParameterSet.fromByteBuffer(m_serialized.duplicate());
+    }
+}
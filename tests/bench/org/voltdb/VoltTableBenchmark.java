@@ -0,0 +1,93 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Building a result table row by row, flattening it for the wire and reading it back.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VoltTableBenchmark {
+
+    private static final VoltTable.ColumnInfo[] COLUMNS = new VoltTable.ColumnInfo[] {
+            new VoltTable.ColumnInfo("ID", VoltType.BIGINT),
+            new VoltTable.ColumnInfo("COUNT", VoltType.INTEGER),
+            new VoltTable.ColumnInfo("NAME", VoltType.STRING),
+            new VoltTable.ColumnInfo("PRICE", VoltType.FLOAT) };
+
+    @Param({"10", "1000"})
+    public int m_rows;
+
+    private VoltTable m_table;
+    private ByteBuffer m_out;
+    private ByteBuffer m_serialized;
+
+    @Setup
+    public void setup() {
+        m_table = build();
+        m_out = ByteBuffer.allocate(m_table.getSerializedSize());
+        m_serialized = ByteBuffer.allocate(m_table.getSerializedSize());
+        m_table.flattenToBuffer(m_serialized);
+        m_serialized.flip();
+    }
+
+    @Benchmark
+    public VoltTable build() {
+        VoltTable table = new VoltTable(COLUMNS);
+        for (int i = 0; i < m_rows; i++) {
+            table.addRow(i, i % 100, "row name " + (i % 10), i * 1.5);
+        }
+        return table;
+    }
+
+    @Benchmark
+    public ByteBuffer flatten() {
+        m_out.clear();
+        m_table.flattenToBuffer(m_out);
+        return m_out;
+    }
+
+    @Benchmark
+    public long deserializeAndIterate() {
+        VoltTable table = PrivateVoltTableFactory.createVoltTableFromBuffer(m_serialized.duplicate(), true);
+        long sum = 0;
+        while (table.advanceRow()) {
+            sum += table.getLong(0) + table.getString(2).length();
+        }
+        return sum;
+    }
+}
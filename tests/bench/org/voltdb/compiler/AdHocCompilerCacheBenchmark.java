@@ -0,0 +1,98 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.compiler;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.voltdb.ParameterSet;
+import org.voltdb.VoltType;
+import org.voltdb.common.Constants;
+import org.voltdb.planner.BoundPlan;
+import org.voltdb.planner.CorePlan;
+
+/**
+ * Ad hoc plan cache lookups, hits on both cache levels and misses, from several threads
+ * at once as the planner sees them when many clients run ad hoc SQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class AdHocCompilerCacheBenchmark {
+
+    private static final int STATEMENTS = 500;
+
+    private AdHocCompilerCache m_cache;
+    private String[] m_sql;
+    private String[] m_tokens;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int m_next;
+    }
+
+    @Setup
+    public void setup() {
+        byte[] catalogHash = new byte[20];
+        catalogHash[0] = 42;
+        AdHocCompilerCache.clearHashCache();
+        m_cache = AdHocCompilerCache.getCacheForCatalogHash(catalogHash);
+        m_sql = new String[STATEMENTS];
+        m_tokens = new String[STATEMENTS];
+        for (int i = 0; i < STATEMENTS; i++) {
+            m_sql[i] = "SELECT * FROM T" + i + " WHERE ID = 5;";
+            m_tokens[i] = "SELECT * FROM T" + i + " WHERE ID = ?;";
+            byte[] fragment = m_tokens[i].getBytes(Constants.UTF8ENCODING);
+            CorePlan core = new CorePlan(fragment, null, new byte[20], null, false, true,
+                    new VoltType[] { VoltType.BIGINT }, catalogHash);
+            AdHocPlannedStatement plan = new AdHocPlannedStatement(m_sql[i].getBytes(Constants.UTF8ENCODING),
+                    core, ParameterSet.fromArrayNoCopy(5L), null);
+            m_cache.put(m_sql[i], m_tokens[i], plan, new String[] { "5" }, false, false, 1000000);
+        }
+    }
+
+    @Benchmark
+    public AdHocPlannedStatement literalHit(Cursor cursor) {
+        return m_cache.getWithSQL(m_sql[cursor.m_next++ % STATEMENTS]);
+    }
+
+    @Benchmark
+    public List<BoundPlan> parameterizedHit(Cursor cursor) {
+        return m_cache.getWithParsedToken(m_tokens[cursor.m_next++ % STATEMENTS]);
+    }
+
+    @Benchmark
+    public AdHocPlannedStatement miss(Cursor cursor) {
+        return m_cache.getWithSQL("SELECT * FROM MISSING WHERE ID = " + (cursor.m_next++ % STATEMENTS) + ";");
+    }
+}
@@ -0,0 +1,93 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.messaging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Primitive and string round trips through FastSerializer and FastDeserializer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FastSerializerBenchmark {
+
+    private static final int VALUES = 64;
+    private static final String STRING = "a string value written next to the numbers";
+
+    private FastSerializer m_fs;
+    private ByteBuffer m_serialized;
+
+    @Setup
+    public void setup() throws IOException {
+        m_fs = new FastSerializer();
+        write(m_fs);
+        m_serialized = ByteBuffer.allocate(m_fs.size());
+        m_serialized.put(m_fs.getBuffer());
+        m_serialized.flip();
+    }
+
+    @TearDown
+    public void tearDown() {
+        m_fs.discard();
+    }
+
+    private static void write(FastSerializer fs) throws IOException {
+        for (int i = 0; i < VALUES; i++) {
+            fs.writeLong(i);
+            fs.writeInt(i);
+            fs.writeString(STRING);
+        }
+    }
+
+    @Benchmark
+    public int serialize() throws IOException {
+        m_fs.clear();
+        write(m_fs);
+        return m_fs.size();
+    }
+
+    @Benchmark
+    public long deserialize() throws IOException {
+        FastDeserializer fds = new FastDeserializer(m_serialized.duplicate());
+        long sum = 0;
+        for (int i = 0; i < VALUES; i++) {
+            sum += fds.readLong();
+            sum += fds.readInt();
+            sum += fds.readString().length();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,78 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.messaging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.voltcore.messaging.VoltMessage;
+import org.voltdb.StoredProcedureInvocation;
+
+/**
+ * Encoding and decoding the message that carries every single partition procedure call to its site.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class Iv2InitiateTaskMessageBenchmark {
+
+    private final VoltDbMessageFactory m_factory = new VoltDbMessageFactory();
+    private Iv2InitiateTaskMessage m_message;
+    private ByteBuffer m_out;
+    private ByteBuffer m_serialized;
+
+    @Setup
+    public void setup() throws IOException {
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setClientHandle(25);
+        spi.setProcName("Vote");
+        spi.setParams(5551234567L, 3, 20000L);
+
+        m_message = new Iv2InitiateTaskMessage(1, 2, 3, 4, 5, false, true, spi, 6, 7, false);
+        m_out = ByteBuffer.allocate(m_message.getSerializedSize());
+        m_serialized = ByteBuffer.allocate(m_message.getSerializedSize());
+        m_message.flattenToBuffer(m_serialized);
+        m_serialized.flip();
+    }
+
+    @Benchmark
+    public ByteBuffer encode() throws IOException {
+        m_out.clear();
+        m_message.flattenToBuffer(m_out);
+        return m_out;
+    }
+
+    @Benchmark
+    public VoltMessage decode() throws IOException {
+        return m_factory.createMessageFromBuffer(m_serialized.duplicate(), 1);
+    }
+}
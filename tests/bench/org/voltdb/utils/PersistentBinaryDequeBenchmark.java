@@ -0,0 +1,105 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.utils.BinaryDeque.BinaryDequeReader;
+
+/**
+ * Offer and poll of export sized buffers through a PBD on local disk. Each invocation offers one
+ * buffer and polls one back, so the deque stays short and the time is dominated by the segment I/O
+ * and (de)compression rather than by the deque growing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PersistentBinaryDequeBenchmark {
+
+    private static final VoltLogger LOG = new VoltLogger("EXPORT");
+
+    @Param({"64", "65536"})
+    public int m_size;
+
+    @Param({"true", "false"})
+    public boolean m_direct;
+
+    private File m_dir;
+    private PersistentBinaryDeque m_pbd;
+    private BinaryDequeReader m_reader;
+    private ByteBuffer m_payload;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        m_dir = Files.createTempDirectory("pbdbench").toFile();
+        m_pbd = new PersistentBinaryDeque("bench", m_dir, LOG);
+        m_reader = m_pbd.openForRead("bench");
+        // compressible, like most export rows
+        m_payload = m_direct ? ByteBuffer.allocateDirect(m_size) : ByteBuffer.allocate(m_size);
+        for (int i = 0; i < m_size; i++) {
+            m_payload.put((byte)(i % 32));
+        }
+        m_payload.flip();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        m_pbd.closeAndDelete();
+        File files[] = m_dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        m_dir.delete();
+    }
+
+    @Benchmark
+    public int offerPoll() throws IOException {
+        m_pbd.offer(DBBPool.wrapBB(m_payload.duplicate()));
+        BBContainer cont = m_reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+        try {
+            return cont.b().remaining();
+        } finally {
+            cont.discard();
+        }
+    }
+}
@@ -0,0 +1,469 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+#include <string>
+#include <tuple>
+
+#include <boost/optional.hpp>
+
+#include "harness.h"
+
+#include "test_utils/LargeTempTableTopend.hpp"
+#include "test_utils/Tools.hpp"
+#include "test_utils/TupleComparingTest.hpp"
+#include "test_utils/UniqueEngine.hpp"
+
+#include "common/ValuePeeker.hpp"
+#include "common/tabletuple.h"
+#include "execution/ExecutorVector.h"
+#include "storage/AbstractTempTable.hpp"
+#include "storage/LargeTempTableBlock.h"
+#include "storage/table.h"
+#include "storage/tableiterator.h"
+
+using namespace voltdb;
+
+class HashJoinExecutorTest : public TupleComparingTest {
+};
+
+/**
+ * Counts the blocks the block cache had to store to make room,
+ * so a test can tell that the join really spilled.
+ */
+class CountingTopend : public LargeTempTableTopend {
+public:
+    bool storeLargeTempTableBlock(LargeTempTableBlock* block) {
+        ++m_storeCount;
+        return LargeTempTableTopend::storeLargeTempTableBlock(block);
+    }
+
+    int storeCount() const {
+        return m_storeCount;
+    }
+
+private:
+    int m_storeCount = 0;
+};
+
+// Catalog for the following DDL:
+//
+// CREATE TABLE EMPLOYEES (
+//     LAST_NAME VARCHAR(20) NOT NULL,
+//     EMP_ID INTEGER NOT NULL,
+//     MANAGER_ID INTEGER
+// );
+// PARTITION TABLE EMPLOYEES ON LAST_NAME;
+
+const std::string catalogPayload =
+    "add / clusters cluster\n"
+    "set /clusters#cluster localepoch 1199145600\n"
+    "set $PREV securityEnabled false\n"
+    "set $PREV httpdportno -1\n"
+    "set $PREV jsonapi true\n"
+    "set $PREV networkpartition false\n"
+    "set $PREV heartbeatTimeout 90\n"
+    "set $PREV useddlschema false\n"
+    "set $PREV drConsumerEnabled false\n"
+    "set $PREV drProducerEnabled true\n"
+    "set $PREV drRole \"master\"\n"
+    "set $PREV drClusterId 0\n"
+    "set $PREV drProducerPort 5555\n"
+    "set $PREV drMasterHost \"\"\n"
+    "set $PREV drFlushInterval 1000\n"
+    "set $PREV preferredSource 0\n"
+    "add /clusters#cluster databases database\n"
+    "set /clusters#cluster/databases#database schema \"qgRUNDM1MjQ1NDE1NDQ1MjA1NDQxNDI0QwEMWDQ1NEQ1MDRDNEY1OTQ1NDU1MzIwMjgyARIwMTUzNTQ1RjRFNDE0RAEsJDU2NDE1MjQzNDgBCDwyODMyMzAyOTIwNEU0RjU0AQgkNTU0QzRDMkMyMAlYEDVGNDk0ARoIOTRFAXwUNDc0NTUyASpKMgAIRDQxBWwFJF46ABAyOTNCCmrPAAA0AWEQNDk1NjQBcABGEYcENTAF/QA4/t0A/t0Adt0AUkkBCEM0NQXOIVWKRwEZ6kKvAQgxMzAJAlK1ARQwMjkzQgo=\"\n"
+    "set $PREV isActiveActiveDRed false\n"
+    "set $PREV securityprovider \"hash\"\n"
+    "add /clusters#cluster/databases#database groups administrator\n"
+    "set /clusters#cluster/databases#database/groups#administrator admin true\n"
+    "set $PREV defaultproc true\n"
+    "set $PREV defaultprocread true\n"
+    "set $PREV sql true\n"
+    "set $PREV sqlread true\n"
+    "set $PREV allproc true\n"
+    "add /clusters#cluster/databases#database groups user\n"
+    "set /clusters#cluster/databases#database/groups#user admin false\n"
+    "set $PREV defaultproc true\n"
+    "set $PREV defaultprocread true\n"
+    "set $PREV sql true\n"
+    "set $PREV sqlread true\n"
+    "set $PREV allproc true\n"
+    "add /clusters#cluster/databases#database tables EMPLOYEES\n"
+    "set /clusters#cluster/databases#database/tables#EMPLOYEES isreplicated false\n"
+    "set $PREV partitioncolumn /clusters#cluster/databases#database/tables#EMPLOYEES/columns#LAST_NAME\n"
+    "set $PREV estimatedtuplecount 0\n"
+    "set $PREV materializer null\n"
+    "set $PREV signature \"EMPLOYEES|vii\"\n"
+    "set $PREV tuplelimit 2147483647\n"
+    "set $PREV isDRed false\n"
+    "add /clusters#cluster/databases#database/tables#EMPLOYEES columns EMP_ID\n"
+    "set /clusters#cluster/databases#database/tables#EMPLOYEES/columns#EMP_ID index 1\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable false\n"
+    "set $PREV name \"EMP_ID\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV matview null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#EMPLOYEES columns LAST_NAME\n"
+    "set /clusters#cluster/databases#database/tables#EMPLOYEES/columns#LAST_NAME index 0\n"
+    "set $PREV type 9\n"
+    "set $PREV size 20\n"
+    "set $PREV nullable false\n"
+    "set $PREV name \"LAST_NAME\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV matview null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#EMPLOYEES columns MANAGER_ID\n"
+    "set /clusters#cluster/databases#database/tables#EMPLOYEES/columns#MANAGER_ID index 2\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"MANAGER_ID\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV matview null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database snapshotSchedule default\n"
+    "set /clusters#cluster/databases#database/snapshotSchedule#default enabled false\n"
+    "set $PREV frequencyUnit \"h\"\n"
+    "set $PREV frequencyValue 24\n"
+    "set $PREV retain 2\n"
+    "set $PREV prefix \"AUTOSNAP\"\n"
+    "add /clusters#cluster deployment deployment\n"
+    "set /clusters#cluster/deployment#deployment kfactor 0\n"
+    "add /clusters#cluster/deployment#deployment systemsettings systemsettings\n"
+    "set /clusters#cluster/deployment#deployment/systemsettings#systemsettings temptablemaxsize 100\n"
+    "set $PREV snapshotpriority 6\n"
+    "set $PREV elasticduration 50\n"
+    "set $PREV elasticthroughput 2\n"
+    "set $PREV querytimeout 10000\n"
+    "add /clusters#cluster logconfig log\n"
+    "set /clusters#cluster/logconfig#log enabled false\n"
+    "set $PREV synchronous false\n"
+    "set $PREV fsyncInterval 200\n"
+    "set $PREV maxTxns 2147483647\n"
+    "set $PREV logSize 1024\n";
+
+// Plan for the following query, run as a large query:
+//
+// SELECT * FROM EMPLOYEES E <joinType> JOIN EMPLOYEES M ON E.MANAGER_ID = M.EMP_ID;
+static std::string hashJoinPlan(const std::string& joinType) {
+    return std::string(
+        "{\n"
+        "   \"PLAN_NODES_LISTS\":[\n"
+        "      {\n"
+        "         \"STATEMENT_ID\":0,\n"
+        "         \"PLAN_NODES\":[\n"
+        "            {\n"
+        "               \"ID\":1,\n"
+        "               \"PLAN_NODE_TYPE\":\"HASHJOIN\",\n"
+        "               \"CHILDREN_IDS\":[\n"
+        "                  2,\n"
+        "                  3\n"
+        "               ],\n"
+        "               \"OUTPUT_SCHEMA\":[\n"
+        "                  {\n"
+        "                     \"COLUMN_NAME\":\"LAST_NAME\",\n"
+        "                     \"EXPRESSION\":{\n"
+        "                        \"TYPE\":32,\n"
+        "                        \"VALUE_TYPE\":9,\n"
+        "                        \"VALUE_SIZE\":20,\n"
+        "                        \"COLUMN_IDX\":0\n"
+        "                     }\n"
+        "                  },\n"
+        "                  {\n"
+        "                     \"COLUMN_NAME\":\"EMP_ID\",\n"
+        "                     \"EXPRESSION\":{\n"
+        "                        \"TYPE\":32,\n"
+        "                        \"VALUE_TYPE\":5,\n"
+        "                        \"COLUMN_IDX\":1\n"
+        "                     }\n"
+        "                  },\n"
+        "                  {\n"
+        "                     \"COLUMN_NAME\":\"MANAGER_ID\",\n"
+        "                     \"EXPRESSION\":{\n"
+        "                        \"TYPE\":32,\n"
+        "                        \"VALUE_TYPE\":5,\n"
+        "                        \"COLUMN_IDX\":2\n"
+        "                     }\n"
+        "                  },\n"
+        "                  {\n"
+        "                     \"COLUMN_NAME\":\"LAST_NAME\",\n"
+        "                     \"EXPRESSION\":{\n"
+        "                        \"TYPE\":32,\n"
+        "                        \"VALUE_TYPE\":9,\n"
+        "                        \"VALUE_SIZE\":20,\n"
+        "                        \"COLUMN_IDX\":3\n"
+        "                     }\n"
+        "                  },\n"
+        "                  {\n"
+        "                     \"COLUMN_NAME\":\"EMP_ID\",\n"
+        "                     \"EXPRESSION\":{\n"
+        "                        \"TYPE\":32,\n"
+        "                        \"VALUE_TYPE\":5,\n"
+        "                        \"COLUMN_IDX\":4\n"
+        "                     }\n"
+        "                  },\n"
+        "                  {\n"
+        "                     \"COLUMN_NAME\":\"MANAGER_ID\",\n"
+        "                     \"EXPRESSION\":{\n"
+        "                        \"TYPE\":32,\n"
+        "                        \"VALUE_TYPE\":5,\n"
+        "                        \"COLUMN_IDX\":5\n"
+        "                     }\n"
+        "                  }\n"
+        "               ],\n"
+        "               \"JOIN_TYPE\":\"") + joinType +
+        "\",\n"
+        "               \"PRE_JOIN_PREDICATE\":null,\n"
+        "               \"JOIN_PREDICATE\":{\n"
+        "                  \"TYPE\":10,\n"
+        "                  \"VALUE_TYPE\":23,\n"
+        "                  \"LEFT\":{\n"
+        "                     \"TYPE\":32,\n"
+        "                     \"VALUE_TYPE\":5,\n"
+        "                     \"COLUMN_IDX\":2\n"
+        "                  },\n"
+        "                  \"RIGHT\":{\n"
+        "                     \"TYPE\":32,\n"
+        "                     \"VALUE_TYPE\":5,\n"
+        "                     \"COLUMN_IDX\":1,\n"
+        "                     \"TABLE_IDX\":1\n"
+        "                  }\n"
+        "               },\n"
+        "               \"WHERE_PREDICATE\":null,\n"
+        "               \"OUTER_HASH_EXPRESSIONS\":[\n"
+        "                  {\n"
+        "                     \"TYPE\":32,\n"
+        "                     \"VALUE_TYPE\":5,\n"
+        "                     \"COLUMN_IDX\":2\n"
+        "                  }\n"
+        "               ],\n"
+        "               \"INNER_HASH_EXPRESSIONS\":[\n"
+        "                  {\n"
+        "                     \"TYPE\":32,\n"
+        "                     \"VALUE_TYPE\":5,\n"
+        "                     \"COLUMN_IDX\":1,\n"
+        "                     \"TABLE_IDX\":1\n"
+        "                  }\n"
+        "               ]\n"
+        "            },\n"
+        "            {\n"
+        "               \"ID\":2,\n"
+        "               \"PLAN_NODE_TYPE\":\"SEQSCAN\",\n"
+        "               \"INLINE_NODES\":[\n"
+        "                  {\n"
+        "                     \"ID\":4,\n"
+        "                     \"PLAN_NODE_TYPE\":\"PROJECTION\",\n"
+        "                     \"OUTPUT_SCHEMA\":[\n"
+        "                        {\n"
+        "                           \"COLUMN_NAME\":\"LAST_NAME\",\n"
+        "                           \"EXPRESSION\":{\n"
+        "                              \"TYPE\":32,\n"
+        "                              \"VALUE_TYPE\":9,\n"
+        "                              \"VALUE_SIZE\":20,\n"
+        "                              \"COLUMN_IDX\":0\n"
+        "                           }\n"
+        "                        },\n"
+        "                        {\n"
+        "                           \"COLUMN_NAME\":\"EMP_ID\",\n"
+        "                           \"EXPRESSION\":{\n"
+        "                              \"TYPE\":32,\n"
+        "                              \"VALUE_TYPE\":5,\n"
+        "                              \"COLUMN_IDX\":1\n"
+        "                           }\n"
+        "                        },\n"
+        "                        {\n"
+        "                           \"COLUMN_NAME\":\"MANAGER_ID\",\n"
+        "                           \"EXPRESSION\":{\n"
+        "                              \"TYPE\":32,\n"
+        "                              \"VALUE_TYPE\":5,\n"
+        "                              \"COLUMN_IDX\":2\n"
+        "                           }\n"
+        "                        }\n"
+        "                     ]\n"
+        "                  }\n"
+        "               ],\n"
+        "               \"TARGET_TABLE_NAME\":\"EMPLOYEES\",\n"
+        "               \"TARGET_TABLE_ALIAS\":\"E\"\n"
+        "            },\n"
+        "            {\n"
+        "               \"ID\":3,\n"
+        "               \"PLAN_NODE_TYPE\":\"SEQSCAN\",\n"
+        "               \"INLINE_NODES\":[\n"
+        "                  {\n"
+        "                     \"ID\":5,\n"
+        "                     \"PLAN_NODE_TYPE\":\"PROJECTION\",\n"
+        "                     \"OUTPUT_SCHEMA\":[\n"
+        "                        {\n"
+        "                           \"COLUMN_NAME\":\"LAST_NAME\",\n"
+        "                           \"EXPRESSION\":{\n"
+        "                              \"TYPE\":32,\n"
+        "                              \"VALUE_TYPE\":9,\n"
+        "                              \"VALUE_SIZE\":20,\n"
+        "                              \"COLUMN_IDX\":0\n"
+        "                           }\n"
+        "                        },\n"
+        "                        {\n"
+        "                           \"COLUMN_NAME\":\"EMP_ID\",\n"
+        "                           \"EXPRESSION\":{\n"
+        "                              \"TYPE\":32,\n"
+        "                              \"VALUE_TYPE\":5,\n"
+        "                              \"COLUMN_IDX\":1\n"
+        "                           }\n"
+        "                        },\n"
+        "                        {\n"
+        "                           \"COLUMN_NAME\":\"MANAGER_ID\",\n"
+        "                           \"EXPRESSION\":{\n"
+        "                              \"TYPE\":32,\n"
+        "                              \"VALUE_TYPE\":5,\n"
+        "                              \"COLUMN_IDX\":2\n"
+        "                           }\n"
+        "                        }\n"
+        "                     ]\n"
+        "                  }\n"
+        "               ],\n"
+        "               \"TARGET_TABLE_NAME\":\"EMPLOYEES\",\n"
+        "               \"TARGET_TABLE_ALIAS\":\"M\"\n"
+        "            }\n"
+        "         ]\n"
+        "      }\n"
+        "   ],\n"
+        "   \"EXECUTE_LISTS\":[\n"
+        "      {\n"
+        "         \"EXECUTE_LIST\":[\n"
+        "            2,\n"
+        "            3,\n"
+        "            1\n"
+        "         ]\n"
+        "      }\n"
+        "   ],\n"
+        "   \"IS_LARGE_QUERY\":true\n"
+        "}\n";}
+
+// Large enough that the inputs, the partitions and the output
+// can not all fit in the block cache at once.
+static const int NUM_EMPLOYEES = 300000;
+
+// Every employee but the first reports to the one with half their id.
+static void initEmployees(VoltDBEngine* engine) {
+    Table* employeesTable = engine->getTableByName("EMPLOYEES");
+    typedef std::tuple<std::string, int, boost::optional<int>> InRow;
+    StandAloneTupleStorage storage{employeesTable->schema()};
+    TableTuple tupleToInsert = storage.tuple();
+    for (int i = 0; i < NUM_EMPLOYEES; ++i) {
+        boost::optional<int> managerId;
+        if (i > 0) {
+            managerId = i / 2;
+        }
+        Tools::initTuple(&tupleToInsert, InRow{"E" + std::to_string(i % 100), i, managerId});
+        employeesTable->insertTuple(tupleToInsert);
+    }
+}
+
+// Only six blocks of cache leave room for three partitions per side.
+static UniqueEngine buildSpillingEngine() {
+    std::unique_ptr<Topend> topend{new CountingTopend()};
+    return UniqueEngineBuilder()
+        .setTopend(std::move(topend))
+        .setTempTableMemoryLimit(6 * LargeTempTableBlock::BLOCK_SIZE_IN_BYTES)
+        .build();
+}
+
+static CountingTopend* countingTopend() {
+    return dynamic_cast<CountingTopend*>(ExecutorContext::getExecutorContext()->getPhysicalTopend());
+}
+
+TEST_F(HashJoinExecutorTest, innerJoinSpills) {
+    UniqueEngine engine = buildSpillingEngine();
+    ASSERT_TRUE(engine->loadCatalog(0, catalogPayload));
+    initEmployees(engine.get());
+
+    auto ev = ExecutorVector::fromJsonPlan(engine.get(), hashJoinPlan("INNER"), 0);
+    ASSERT_NE(NULL, ev.get());
+
+    UniqueTempTableResult result = engine->executePlanFragment(ev.get(), NULL);
+    ASSERT_NE(NULL, result.get());
+
+    int64_t rowCount = 0;
+    int64_t empIdSum = 0;
+    TableTuple iterTuple{result->schema()};
+    TableIterator iter = result->iterator();
+    while (iter.next(iterTuple)) {
+        int managerId = ValuePeeker::peekInteger(iterTuple.getNValue(2));
+        ASSERT_EQ(managerId, ValuePeeker::peekInteger(iterTuple.getNValue(4)));
+        empIdSum += ValuePeeker::peekInteger(iterTuple.getNValue(1));
+        ++rowCount;
+    }
+
+    ASSERT_EQ(NUM_EMPLOYEES - 1, rowCount);
+    ASSERT_EQ(static_cast<int64_t>(NUM_EMPLOYEES - 1) * NUM_EMPLOYEES / 2, empIdSum);
+    ASSERT_TRUE(countingTopend()->storeCount() > 0);
+}
+
+TEST_F(HashJoinExecutorTest, leftJoinSpills) {
+    UniqueEngine engine = buildSpillingEngine();
+    ASSERT_TRUE(engine->loadCatalog(0, catalogPayload));
+    initEmployees(engine.get());
+
+    auto ev = ExecutorVector::fromJsonPlan(engine.get(), hashJoinPlan("LEFT"), 0);
+    ASSERT_NE(NULL, ev.get());
+
+    UniqueTempTableResult result = engine->executePlanFragment(ev.get(), NULL);
+    ASSERT_NE(NULL, result.get());
+
+    int64_t rowCount = 0;
+    int nullPaddedCount = 0;
+    TableTuple iterTuple{result->schema()};
+    TableIterator iter = result->iterator();
+    while (iter.next(iterTuple)) {
+        if (iterTuple.getNValue(4).isNull()) {
+            ASSERT_EQ(0, ValuePeeker::peekInteger(iterTuple.getNValue(1)));
+            ++nullPaddedCount;
+        }
+        else {
+            ASSERT_EQ(ValuePeeker::peekInteger(iterTuple.getNValue(2)),
+                      ValuePeeker::peekInteger(iterTuple.getNValue(4)));
+        }
+        ++rowCount;
+    }
+
+    ASSERT_EQ(NUM_EMPLOYEES, rowCount);
+    ASSERT_EQ(1, nullPaddedCount);
+    ASSERT_TRUE(countingTopend()->storeCount() > 0);
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
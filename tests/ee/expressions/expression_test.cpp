@@ -64,6 +64,8 @@
 #include "common/types.h"
 #include "common/ValuePeeker.hpp"
 #include "common/PlannerDomValue.h"
+#include "common/executorcontext.hpp"
+#include "common/Pool.hpp"
 
 
 using namespace std;
@@ -291,8 +293,7 @@ AE * makeTree(AE *tree, queue<AE*> &q) {
 /* boilerplate to turn the queue into a real AbstractExpression tree;
    return the generated AE tree by reference to allow deletion (the queue
    is emptied by the tree building process) */
-AbstractExpression * convertToExpression(queue<AE*> &e) {
-    AE *tree = makeTree(NULL, e);
+AbstractExpression * convertToExpression(AE *tree) {
     Json::Value json = tree->serializeValue();
     Json::FastWriter writer;
     std::string jsonText = writer.write(json);
@@ -304,6 +305,10 @@ AbstractExpression * convertToExpression(queue<AE*> &e) {
     return exp;
 }
 
+AbstractExpression * convertToExpression(queue<AE*> &e) {
+    return convertToExpression(makeTree(NULL, e));
+}
+
 
 class ExpressionTest : public Test {
     public:
@@ -499,6 +504,242 @@ TEST_F(ExpressionTest, Timestamp) {
 
 }
 
+/*
+ * Tuples with a nullable BIGINT column A and a nullable INTEGER column B,
+ * more of them than fit in one selection.
+ */
+class EvalSelectionTest : public Test {
+public:
+    EvalSelectionTest()
+        : m_pool()
+        , m_executorContext(0,
+                            0,
+                            (UndoQuantum *)0,
+                            (Topend *)0,
+                            &m_pool,
+                            (VoltDBEngine *)0,
+                            "localhost",
+                            0,
+                            (AbstractDRTupleStream *)0,
+                            (AbstractDRTupleStream *)0,
+                            0)
+    {
+        vector<voltdb::ValueType> types;
+        types.push_back(voltdb::VALUE_TYPE_BIGINT);
+        types.push_back(voltdb::VALUE_TYPE_INTEGER);
+
+        vector<int32_t> columnSizes;
+        columnSizes.push_back(8);
+        columnSizes.push_back(4);
+
+        vector<bool> allowNull;
+        allowNull.push_back(true);
+        allowNull.push_back(true);
+
+        m_schema = TupleSchema::createTupleSchemaForTest(types, columnSizes, allowNull);
+
+        const int tupleLength = m_schema->tupleLength() + TUPLE_HEADER_SIZE;
+        m_tupleStorage.reset(new char[TUPLE_COUNT * tupleLength]);
+        for (int i = 0; i < TUPLE_COUNT; ++i) {
+            TableTuple tuple(m_tupleStorage.get() + i * tupleLength, m_schema);
+            tuple.setNValue(0, isNullA(i) ? NValue::getNullValue(VALUE_TYPE_BIGINT) :
+                            ValueFactory::getBigIntValue(a(i)));
+            tuple.setNValue(1, isNullB(i) ? NValue::getNullValue(VALUE_TYPE_INTEGER) :
+                            ValueFactory::getIntegerValue(b(i)));
+            m_tuples.push_back(tuple);
+        }
+    }
+
+    ~EvalSelectionTest()
+    {
+        TupleSchema::freeTupleSchema(m_schema);
+    }
+
+    static const int TUPLE_COUNT = 2 * AbstractExpression::MAX_SELECTION_SIZE + 100;
+
+    static bool isNullA(int i) { return i % 11 == 0; }
+    static int64_t a(int i) { return i % 7; }
+    static bool isNullB(int i) { return i % 13 == 0; }
+    static int32_t b(int i) { return i % 5; }
+
+    static AE* columnA() {
+        return new TV(EXPRESSION_TYPE_VALUE_TUPLE, VALUE_TYPE_BIGINT, 8, 0, "T", "A", "A");
+    }
+
+    static AE* columnB() {
+        return new TV(EXPRESSION_TYPE_VALUE_TUPLE, VALUE_TYPE_INTEGER, 4, 1, "T", "B", "B");
+    }
+
+    static AE* constant(int64_t value) {
+        return new CV(EXPRESSION_TYPE_VALUE_CONSTANT, VALUE_TYPE_BIGINT, 8, value);
+    }
+
+    static AE* parameter(int index) {
+        return new PV(EXPRESSION_TYPE_VALUE_PARAMETER, VALUE_TYPE_BIGINT, 8, index);
+    }
+
+    static AE* op(ExpressionType type, AE* left, AE* right) {
+        return join(new AE(type, VALUE_TYPE_BOOLEAN, 1), left, right);
+    }
+
+    void setParameter(int index, const NValue& value) {
+        m_executorContext.getParameterContainer()[index] = value;
+    }
+
+    /*
+     * Filter the tuples in selections of at most MAX_SELECTION_SIZE, the way a seqscan
+     * does, starting from every tuple or from every other one.  Checks that exactly the
+     * tuples for which eval is true are kept, in order, and returns how many were kept.
+     */
+    int select(AE* tree, bool everyOther = false) {
+        boost::scoped_ptr<AbstractExpression> predicate(convertToExpression(tree));
+        int selection[AbstractExpression::MAX_SELECTION_SIZE];
+        int total = 0;
+        for (int start = 0; start < TUPLE_COUNT; start += AbstractExpression::MAX_SELECTION_SIZE) {
+            const int remaining = TUPLE_COUNT - start;
+            const int batchSize = remaining < AbstractExpression::MAX_SELECTION_SIZE ?
+                                  remaining : AbstractExpression::MAX_SELECTION_SIZE;
+            int count = 0;
+            for (int i = 0; i < batchSize; i += (everyOther ? 2 : 1)) {
+                selection[count++] = i;
+            }
+            const int selected = predicate->evalSelection(&m_tuples[start], selection, count);
+            int next = 0;
+            for (int i = 0; i < batchSize; i += (everyOther ? 2 : 1)) {
+                if (predicate->eval(&m_tuples[start + i], NULL).isTrue()) {
+                    EXPECT_TRUE(next < selected && selection[next] == i);
+                    ++next;
+                }
+            }
+            EXPECT_EQ(next, selected);
+            total += selected;
+        }
+        return total;
+    }
+
+private:
+    Pool m_pool;
+    ExecutorContext m_executorContext;
+    TupleSchema* m_schema;
+    boost::scoped_array<char> m_tupleStorage;
+    vector<TableTuple> m_tuples;
+};
+
+/*
+ * A column compared to a constant on either side, which skips the per tuple dispatch
+ */
+TEST_F(EvalSelectionTest, ColumnAndConstant) {
+    int equal = 0;
+    int less = 0;
+    for (int i = 0; i < TUPLE_COUNT; ++i) {
+        if (!isNullA(i) && a(i) == 3) {
+            ++equal;
+        }
+        if (!isNullB(i) && b(i) < 2) {
+            ++less;
+        }
+    }
+    ASSERT_EQ(equal, select(op(EXPRESSION_TYPE_COMPARE_EQUAL, columnA(), constant(3))));
+    ASSERT_EQ(equal, select(op(EXPRESSION_TYPE_COMPARE_EQUAL, constant(3), columnA())));
+    ASSERT_EQ(less, select(op(EXPRESSION_TYPE_COMPARE_LESSTHAN, columnB(), constant(2))));
+    ASSERT_EQ(less, select(op(EXPRESSION_TYPE_COMPARE_GREATERTHAN, constant(2), columnB())));
+}
+
+/*
+ * A parameter is read once per selection, a NULL parameter selects nothing
+ */
+TEST_F(EvalSelectionTest, Parameter) {
+    int greater = 0;
+    for (int i = 0; i < TUPLE_COUNT; ++i) {
+        if (!isNullA(i) && a(i) > 4) {
+            ++greater;
+        }
+    }
+    setParameter(0, ValueFactory::getBigIntValue(4));
+    ASSERT_EQ(greater, select(op(EXPRESSION_TYPE_COMPARE_GREATERTHAN, columnA(), parameter(0))));
+
+    setParameter(0, NValue::getNullValue(VALUE_TYPE_BIGINT));
+    ASSERT_EQ(0, select(op(EXPRESSION_TYPE_COMPARE_GREATERTHAN, columnA(), parameter(0))));
+    ASSERT_EQ(0, select(op(EXPRESSION_TYPE_COMPARE_EQUAL, parameter(0), columnA())));
+}
+
+/*
+ * AND narrows the selection, OR merges what either side keeps back into order
+ */
+TEST_F(EvalSelectionTest, AndOr) {
+    int both = 0;
+    int either = 0;
+    int eitherEveryOther = 0;
+    for (int i = 0; i < TUPLE_COUNT; ++i) {
+        const bool left = !isNullA(i) && a(i) == 3;
+        const bool right = !isNullB(i) && b(i) == 2;
+        if (left && right) {
+            ++both;
+        }
+        if (left || right) {
+            ++either;
+            if (i % AbstractExpression::MAX_SELECTION_SIZE % 2 == 0) {
+                ++eitherEveryOther;
+            }
+        }
+    }
+    ASSERT_EQ(both, select(op(EXPRESSION_TYPE_CONJUNCTION_AND,
+                              op(EXPRESSION_TYPE_COMPARE_EQUAL, columnA(), constant(3)),
+                              op(EXPRESSION_TYPE_COMPARE_EQUAL, columnB(), constant(2)))));
+    ASSERT_EQ(either, select(op(EXPRESSION_TYPE_CONJUNCTION_OR,
+                                op(EXPRESSION_TYPE_COMPARE_EQUAL, columnA(), constant(3)),
+                                op(EXPRESSION_TYPE_COMPARE_EQUAL, columnB(), constant(2)))));
+    ASSERT_EQ(eitherEveryOther, select(op(EXPRESSION_TYPE_CONJUNCTION_OR,
+                                          op(EXPRESSION_TYPE_COMPARE_EQUAL, columnA(), constant(3)),
+                                          op(EXPRESSION_TYPE_COMPARE_EQUAL, columnB(), constant(2))),
+                                       true));
+}
+
+/*
+ * NULL is neither true nor false: it is dropped by AND, and OR keeps a tuple only
+ * if the other side is true
+ */
+TEST_F(EvalSelectionTest, Nulls) {
+    int leftOnly = 0;
+    int sameValue = 0;
+    for (int i = 0; i < TUPLE_COUNT; ++i) {
+        if (!isNullA(i) && a(i) == 3) {
+            ++leftOnly;
+        }
+        if (!isNullA(i) && !isNullB(i) && a(i) == b(i)) {
+            ++sameValue;
+        }
+    }
+    setParameter(0, NValue::getNullValue(VALUE_TYPE_BIGINT));
+    ASSERT_EQ(leftOnly, select(op(EXPRESSION_TYPE_CONJUNCTION_OR,
+                                  op(EXPRESSION_TYPE_COMPARE_EQUAL, columnA(), constant(3)),
+                                  op(EXPRESSION_TYPE_COMPARE_EQUAL, columnB(), parameter(0)))));
+    ASSERT_EQ(leftOnly, select(op(EXPRESSION_TYPE_CONJUNCTION_OR,
+                                  op(EXPRESSION_TYPE_COMPARE_EQUAL, columnB(), parameter(0)),
+                                  op(EXPRESSION_TYPE_COMPARE_EQUAL, columnA(), constant(3)))));
+    ASSERT_EQ(0, select(op(EXPRESSION_TYPE_CONJUNCTION_AND,
+                           op(EXPRESSION_TYPE_COMPARE_EQUAL, columnA(), constant(3)),
+                           op(EXPRESSION_TYPE_COMPARE_EQUAL, columnB(), parameter(0)))));
+    // two columns go through eval for each tuple
+    ASSERT_EQ(sameValue, select(op(EXPRESSION_TYPE_COMPARE_EQUAL, columnA(), columnB())));
+}
+
+/*
+ * Every tuple kept, over full selections of MAX_SELECTION_SIZE and a partial last one
+ */
+TEST_F(EvalSelectionTest, SeveralSelections) {
+    int notNull = 0;
+    for (int i = 0; i < TUPLE_COUNT; ++i) {
+        if (!isNullA(i) || !isNullB(i)) {
+            ++notNull;
+        }
+    }
+    ASSERT_TRUE(TUPLE_COUNT > AbstractExpression::MAX_SELECTION_SIZE);
+    ASSERT_EQ(notNull, select(op(EXPRESSION_TYPE_CONJUNCTION_OR,
+                                 op(EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO, columnA(), constant(0)),
+                                 op(EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO, columnB(), constant(0)))));
+}
+
 int main() {
      return TestSuite::globalInstance()->runAll();
 }
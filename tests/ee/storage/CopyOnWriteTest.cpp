@@ -35,6 +35,7 @@
 #include "expressions/expressions.h"
 #include "indexes/tableindex.h"
 #include "indexes/tableindexfactory.h"
+#include "storage/CopyOnWriteContext.h"
 #include "storage/CopyOnWriteIterator.h"
 #include "storage/DRTupleStream.h"
 #include "storage/ElasticContext.h"
@@ -990,6 +991,35 @@ public:
         }
     }
 
+    // Stream a whole incremental snapshot, returning the partition id of its first chunk
+    // and collecting the row counts of its chunks of deletes
+    int32_t streamIncrementalSnapshot(TableStreamType streamType, std::vector<int32_t> *deleteChunkRows = NULL) {
+        char config[4];
+        ::memset(config, 0, 4);
+        ReferenceSerializeInputBE predicateInput(config, 4);
+
+        m_table->activateStream(streamType, 0, m_tableId, predicateInput);
+
+        int32_t firstPartitionId = -1;
+        while (true) {
+            TupleOutputStreamProcessor outputStreams(m_serializationBuffer, sizeof(m_serializationBuffer));
+            TupleOutputStream &outputStream = outputStreams.at(0);
+            std::vector<int> retPositions;
+            m_table->streamMore(outputStreams, streamType, retPositions);
+            if (outputStream.position() == 0) {
+                break;
+            }
+            int32_t partitionId = ntohl(*reinterpret_cast<const int32_t*>(m_serializationBuffer));
+            if (firstPartitionId == -1) {
+                firstPartitionId = partitionId;
+            }
+            if (deleteChunkRows != NULL && (partitionId & CopyOnWriteContext::INCREMENTAL_DELETES_FLAG) != 0) {
+                deleteChunkRows->push_back(ntohl(*reinterpret_cast<const int32_t*>(&m_serializationBuffer[4])));
+            }
+        }
+        return firstPartitionId;
+    }
+
     void streamSnapshot(int numMutationsDuring, int numMutationsAfter, T_ValueSet &COWTuples, int &totalInserted) {
         char config[4];
         ::memset(config, 0, 4);
@@ -1232,6 +1262,63 @@ TEST_F(CopyOnWriteTest, TestTupleInsertionBetweenSnapshotActivateFinish) {
     ASSERT_EQ(tupleCount, m_table->visibleTupleCount());
 }
 
+TEST_F(CopyOnWriteTest, IncrementalDeletesBounded) {
+    // Small blocks, so that the captured deletes can outgrow the table
+    initTable(1, 64 * 1024);
+    addRandomUniqueTuples(m_table, 1000);
+
+    int32_t partitionId = streamIncrementalSnapshot(TABLE_STREAM_SNAPSHOT_INCREMENTAL_BASE);
+    ASSERT_TRUE((partitionId & CopyOnWriteContext::INCREMENTAL_FULL_FLAG) != 0);
+
+    // Captured deletes count towards the table's memory
+    int64_t memoryBefore = m_table->allocatedTupleMemory();
+    for (int ii = 0; ii < 10; ii++) {
+        doRandomDelete(m_table);
+    }
+    int64_t memoryWithDeletes = m_table->allocatedTupleMemory();
+    ASSERT_TRUE(memoryWithDeletes > memoryBefore);
+
+    // Deletes within bounds are streamed ahead of the dirty blocks
+    partitionId = streamIncrementalSnapshot(TABLE_STREAM_SNAPSHOT_INCREMENTAL);
+    ASSERT_TRUE((partitionId & CopyOnWriteContext::INCREMENTAL_DELETES_FLAG) != 0);
+
+    // Once they outgrow the table, the deletes are dropped and the next
+    // incremental snapshot writes the table in full
+    PersistentTable::setIncrementalDeleteFloorForTest(0);
+    for (int ii = 0; ii < 10; ii++) {
+        doRandomDelete(m_table);
+    }
+    PersistentTable::setIncrementalDeleteFloorForTest(64 * 1024 * 1024);
+    ASSERT_TRUE(m_table->allocatedTupleMemory() < memoryWithDeletes);
+
+    partitionId = streamIncrementalSnapshot(TABLE_STREAM_SNAPSHOT_INCREMENTAL);
+    ASSERT_TRUE((partitionId & CopyOnWriteContext::INCREMENTAL_FULL_FLAG) != 0);
+}
+
+TEST_F(CopyOnWriteTest, IncrementalDeletesFillingChunkExactly) {
+    initTable(1, 0);
+    addRandomUniqueTuples(m_table, 20000);
+    streamIncrementalSnapshot(TABLE_STREAM_SNAPSHOT_INCREMENTAL_BASE);
+
+    // Find out how many deleted rows fit in one chunk
+    for (int ii = 0; ii < 5000; ii++) {
+        doRandomDelete(m_table);
+    }
+    std::vector<int32_t> deleteChunkRows;
+    streamIncrementalSnapshot(TABLE_STREAM_SNAPSHOT_INCREMENTAL, &deleteChunkRows);
+    ASSERT_TRUE(deleteChunkRows.size() > 1);
+    int32_t rowsPerChunk = deleteChunkRows[0];
+
+    // Deletes that end on a yield must not be followed by an empty chunk of deletes
+    for (int ii = 0; ii < rowsPerChunk; ii++) {
+        doRandomDelete(m_table);
+    }
+    deleteChunkRows.clear();
+    streamIncrementalSnapshot(TABLE_STREAM_SNAPSHOT_INCREMENTAL, &deleteChunkRows);
+    ASSERT_EQ(1U, deleteChunkRows.size());
+    ASSERT_EQ(rowsPerChunk, deleteChunkRows[0]);
+}
+
 TEST_F(CopyOnWriteTest, BigTest) {
     initTable(1, 0);
     int tupleCount = TUPLE_COUNT;
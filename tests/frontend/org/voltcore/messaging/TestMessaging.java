@@ -30,7 +30,12 @@ import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.voltcore.network.VoltNetworkPool.IOStatsIntf;
+import org.voltcore.utils.Pair;
 import org.voltcore.utils.PortGenerator;
+import org.voltdb.messaging.CompleteTransactionMessage;
+import org.voltdb.messaging.FragmentTaskMessage;
+import org.voltdb.messaging.VoltDbMessageFactory;
 
 import junit.framework.TestCase;
 
@@ -173,6 +178,134 @@ public class TestMessaging extends TestCase {
         msg2.shutdown();
     }
 
+    public void testCoalescedMessages() throws Exception {
+        // Coalescing is off by default
+        final int coalesceMaxBytes = ForeignHost.s_coalesceMaxBytes;
+        ForeignHost.s_coalesceMaxBytes = 16 * 1024;
+        try {
+            List<HostMessenger.Config> configs = getConfigs(2);
+            HostMessenger msg1 = new HostMessenger(configs.get(0), null, null);
+            msg1.start();
+            HostMessenger msg2 = new HostMessenger(configs.get(1), null, null);
+            msg2.start();
+
+            msg1.waitForGroupJoin(2);
+            msg2.waitForGroupJoin(2);
+
+            Mailbox mb1 = msg1.createMailbox();
+            Mailbox mb2 = msg2.createMailbox();
+            long siteId2 = mb2.getHSId();
+
+            // a burst of small messages, the sender is free to coalesce them
+            final int count = 2000;
+            MsgTest.initWithSize(16);
+            for (int i = 0; i < count; i++) {
+                MsgTest mt = new MsgTest();
+                mt.setValues();
+                mb1.send(siteId2, mt);
+            }
+            int received = 0;
+            long now = System.currentTimeMillis();
+            while (received < count) {
+                assertTrue((System.currentTimeMillis() - now) < 10000);
+                MsgTest mt2 = (MsgTest) mb2.recv();
+                if (mt2 != null) {
+                    assertTrue(mt2.verify());
+                    received++;
+                }
+            }
+
+            long coalescedMessages = 0;
+            long coalescedFrames = 0;
+            for (Pair<String, long[]> stats : msg1.getIOStats(false).values()) {
+                if (!"GLOBAL".equals(stats.getFirst())) {
+                    coalescedMessages += stats.getSecond()[IOStatsIntf.COALESCED_MESSAGES];
+                    coalescedFrames += stats.getSecond()[IOStatsIntf.COALESCED_FRAMES];
+                }
+            }
+            assertTrue(coalescedMessages >= count);
+            assertTrue(coalescedFrames > 0 && coalescedFrames <= coalescedMessages);
+
+            msg1.shutdown();
+            msg2.shutdown();
+        } finally {
+            ForeignHost.s_coalesceMaxBytes = coalesceMaxBytes;
+        }
+    }
+
+    public void testCoalescedVoltDbMessages() throws Exception {
+        // Coalescing is off by default
+        final int coalesceMaxBytes = ForeignHost.s_coalesceMaxBytes;
+        ForeignHost.s_coalesceMaxBytes = 16 * 1024;
+        try {
+            List<HostMessenger.Config> configs = HostMessenger.Config.generate(m_portGenerator, 2);
+            for (HostMessenger.Config config: configs) {
+                config.factory = new VoltDbMessageFactory();
+            }
+            HostMessenger msg1 = new HostMessenger(configs.get(0), null, null);
+            msg1.start();
+            HostMessenger msg2 = new HostMessenger(configs.get(1), null, null);
+            msg2.start();
+
+            msg1.waitForGroupJoin(2);
+            msg2.waitForGroupJoin(2);
+
+            Mailbox mb1 = msg1.createMailbox();
+            Mailbox mb2 = msg2.createMailbox();
+            long siteId2 = mb2.getHSId();
+
+            // Real messages flatten into and read from buffers of exactly their size.
+            // Every tenth fragment task is too large to share a frame.
+            final int count = 1000;
+            for (int i = 0; i < count; i++) {
+                if (i % 2 == 0) {
+                    mb1.send(siteId2, new CompleteTransactionMessage(1, 2, i, false, i, false, true, false, false, false));
+                } else {
+                    FragmentTaskMessage ft = new FragmentTaskMessage(1, 2, i, i, false, false, false, false);
+                    ft.addFragment(new byte[20], i, ByteBuffer.allocate(i % 10 == 1 ? 64 * 1024 : 16));
+                    mb1.send(siteId2, ft);
+                }
+            }
+            int received = 0;
+            long now = System.currentTimeMillis();
+            while (received < count) {
+                assertTrue((System.currentTimeMillis() - now) < 10000);
+                VoltMessage message = mb2.recv();
+                if (message == null) {
+                    continue;
+                }
+                // Coalescing keeps the order messages were sent in
+                if (received % 2 == 0) {
+                    CompleteTransactionMessage ctm = (CompleteTransactionMessage) message;
+                    assertEquals(received, ctm.getTxnId());
+                    assertEquals(received, ctm.getHash());
+                } else {
+                    FragmentTaskMessage ft = (FragmentTaskMessage) message;
+                    assertEquals(received, ft.getTxnId());
+                    assertEquals(1, ft.getFragmentCount());
+                    assertEquals(received % 10 == 1 ? 64 * 1024 : 16, ft.getParameterDataForFragment(0).remaining());
+                }
+                received++;
+            }
+
+            long coalescedMessages = 0;
+            long coalescedFrames = 0;
+            for (Pair<String, long[]> stats : msg1.getIOStats(false).values()) {
+                if (!"GLOBAL".equals(stats.getFirst())) {
+                    coalescedMessages += stats.getSecond()[IOStatsIntf.COALESCED_MESSAGES];
+                    coalescedFrames += stats.getSecond()[IOStatsIntf.COALESCED_FRAMES];
+                }
+            }
+            assertTrue(coalescedMessages >= count);
+            assertTrue(coalescedFrames > 0 && coalescedFrames <= coalescedMessages);
+
+            msg1.shutdown();
+            msg2.shutdown();
+        } finally {
+            ForeignHost.s_coalesceMaxBytes = coalesceMaxBytes;
+        }
+    }
+
     public void testMultiMailbox() throws Exception {
         List<HostMessenger.Config> configs = getConfigs(3);
         HostMessenger msg1 = new HostMessenger(configs.get(0), null, null);
@@ -50,6 +50,7 @@
 
 package org.voltcore.network;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -203,11 +204,53 @@ public class TestNIOWriteStream extends TestCase {
         @Override
         public long write(ByteBuffer[] srcs, int offset, int length)
                 throws IOException {
-            // TODO Auto-generated method stub
-            return 0;
+            // Behave like a channel that only gets to the first buffer
+            return write(srcs[offset]);
         }
     }
 
+    /**
+     * Mock channel that gathers from every buffer it is handed until it has
+     * accepted its budget of bytes, recording what it accepted.
+     */
+    private static class GatheringChannel implements GatheringByteChannel {
+        final ByteArrayOutputStream m_written = new ByteArrayOutputStream();
+        int m_budget = Integer.MAX_VALUE;
+        int m_writes = 0;
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return (int)write(new ByteBuffer[] { src }, 0, 1);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) throws IOException {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            m_writes++;
+            int accepted = 0;
+            for (int ii = offset; ii < offset + length && m_budget > 0; ii++) {
+                while (srcs[ii].hasRemaining() && m_budget > 0) {
+                    m_written.write(srcs[ii].get());
+                    accepted++;
+                    m_budget--;
+                }
+            }
+            return accepted;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {}
+    }
+
 
     public void testSink() throws IOException {
         MockChannel channel = new MockChannel(MockChannel.SINK, 0);
@@ -300,6 +343,68 @@ public class TestNIOWriteStream extends TestCase {
         wstream.shutdown();
     }
 
+    private static ByteBuffer sequence(int from, int count) {
+        ByteBuffer buf = ByteBuffer.allocate(count);
+        for (int ii = 0; ii < count; ii++) {
+            buf.put((byte)(from + ii));
+        }
+        buf.flip();
+        return buf;
+    }
+
+    public void testGatheringWrite() throws IOException {
+        GatheringChannel channel = new GatheringChannel();
+        MockPort port = new MockPort();
+        VoltNIOWriteStream wstream = new VoltNIOWriteStream(port);
+
+        // Spans three of the 4 byte pool buffers, all handed to a single write
+        wstream.enqueue(sequence(0, 10));
+        wstream.serializeQueuedWrites(pool);
+        assertEquals(10, wstream.drainTo(channel));
+        assertTrue(wstream.isEmpty());
+        assertEquals(1, channel.m_writes);
+
+        long[] stats = wstream.getBytesAndMessagesWritten(false);
+        assertEquals(10, stats[0]);
+        assertEquals(3, stats[1]);
+        assertEquals(1, stats[2]);
+        assertEquals(1, stats[3]);
+        wstream.shutdown();
+    }
+
+    public void testGatheringPartialWrite() throws IOException {
+        GatheringChannel channel = new GatheringChannel();
+        MockPort port = new MockPort();
+        VoltNIOWriteStream wstream = new VoltNIOWriteStream(port);
+
+        // Stop half way through the second buffer
+        channel.m_budget = 6;
+        wstream.enqueue(sequence(0, 10));
+        wstream.serializeQueuedWrites(pool);
+        assertEquals(6, wstream.drainTo(channel));
+        assertFalse(wstream.isEmpty());
+        assertEquals(1, wstream.getBytesAndMessagesWritten(false)[1]);
+
+        // Buffers the channel didn't get to can still be appended to
+        channel.m_budget = 0;
+        wstream.enqueue(sequence(10, 1));
+        wstream.serializeQueuedWrites(pool);
+        assertEquals(0, wstream.drainTo(channel));
+
+        channel.m_budget = Integer.MAX_VALUE;
+        wstream.enqueue(sequence(11, 5));
+        wstream.serializeQueuedWrites(pool);
+        assertEquals(10, wstream.drainTo(channel));
+        assertTrue(wstream.isEmpty());
+
+        byte[] written = channel.m_written.toByteArray();
+        assertEquals(16, written.length);
+        for (int ii = 0; ii < written.length; ii++) {
+            assertEquals(ii, written[ii]);
+        }
+        wstream.shutdown();
+    }
+
     public void testClosed() throws IOException {
         MockChannel channel = new MockChannel(MockChannel.FULL, 0);
         MockPort port = new MockPort();
@@ -0,0 +1,109 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.network;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.voltcore.utils.DBBPool.BBContainer;
+
+import junit.framework.TestCase;
+
+public class TestNetworkDBBPool extends TestCase {
+
+    public void testReuseAndStats() {
+        NetworkDBBPool pool = new NetworkDBBPool(4, 16);
+        BBContainer c = pool.acquire();
+        ByteBuffer first = c.b();
+        assertEquals(16, first.capacity());
+        c.discard();
+
+        // Served from the owner's magazine
+        c = pool.acquire();
+        assertSame(first, c.b());
+        c.discard();
+
+        long[] stats = pool.getStats(false);
+        assertEquals(2, stats[0]);
+        assertEquals(1, stats[1]);
+        assertEquals(1, stats[2]);
+        assertEquals(0, stats[3]);
+
+        // Interval stats only report what happened since the last read
+        pool.getStats(true);
+        pool.acquire().discard();
+        stats = pool.getStats(true);
+        assertEquals(1, stats[0]);
+        assertEquals(1, stats[1]);
+        assertEquals(0, stats[2]);
+        pool.clear();
+    }
+
+    public void testLimit() {
+        NetworkDBBPool pool = new NetworkDBBPool(2, 16);
+        List<BBContainer> containers = new ArrayList<>();
+        for (int ii = 0; ii < 6; ii++) {
+            containers.add(pool.acquire());
+        }
+        for (BBContainer c : containers) {
+            c.discard();
+        }
+        // Two fit in the magazine, two in the depot and the rest are freed
+        assertEquals(2, pool.getStats(false)[3]);
+
+        containers.clear();
+        for (int ii = 0; ii < 4; ii++) {
+            containers.add(pool.acquire());
+        }
+        long[] stats = pool.getStats(false);
+        assertEquals(10, stats[0]);
+        assertEquals(4, stats[1]);
+        assertEquals(6, stats[2]);
+        for (BBContainer c : containers) {
+            c.discard();
+        }
+        pool.clear();
+    }
+
+    public void testDiscardFromOtherThread() throws Exception {
+        final NetworkDBBPool pool = new NetworkDBBPool(4, 16);
+        final BBContainer c = pool.acquire();
+        final ByteBuffer buf = c.b();
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                c.discard();
+            }
+        };
+        t.start();
+        t.join();
+
+        // Returned through the depot
+        BBContainer again = pool.acquire();
+        assertSame(buf, again.b());
+        again.discard();
+        pool.clear();
+    }
+}
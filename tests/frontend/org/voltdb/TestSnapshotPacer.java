@@ -0,0 +1,91 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestSnapshotPacer {
+    private static final long TARGET_WAIT = TimeUnit.MILLISECONDS.toNanos(5);
+
+    @Test
+    public void testBacksOffWhenTransactionsWait() {
+        SnapshotPacer pacer = new SnapshotPacer(2, TARGET_WAIT, 0, 4);
+        pacer.reset(0);
+        assertEquals(10, pacer.getDelayMillis());
+
+        // Transactions waiting longer than the target double the delay up to the bound
+        long now = 0;
+        for (int i = 0; i < 10; i++) {
+            pacer.nextDelay(10, TARGET_WAIT * 2, false, now);
+        }
+        assertEquals(20, pacer.getDelayMillis());
+        assertEquals(1, pacer.blocksPerTask());
+
+        // Work scheduled in quick succession is spread out by the delay
+        now = 1000;
+        assertEquals(0, pacer.nextDelay(1, TARGET_WAIT * 2, false, now));
+        assertEquals(20, pacer.nextDelay(1, TARGET_WAIT * 2, false, now));
+        assertEquals(40, pacer.nextDelay(1, TARGET_WAIT * 2, false, now));
+    }
+
+    @Test
+    public void testSpeedsUpWhenSiteIsIdle() {
+        SnapshotPacer pacer = new SnapshotPacer(2, TARGET_WAIT, 0, 4);
+        pacer.reset(0);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, pacer.nextDelay(0, 0, true, 1000 + i));
+        }
+        assertEquals(0, pacer.getDelayMillis());
+        // Once there is no delay each unit of work serializes more blocks
+        assertEquals(1, pacer.blocksPerTask());
+        for (int i = 0; i < 10; i++) {
+            pacer.nextDelay(0, 0, true, 2000 + i);
+        }
+        assertEquals(4, pacer.blocksPerTask());
+
+        // And backs off to a single block as soon as transactions wait
+        pacer.nextDelay(5, TARGET_WAIT * 2, false, 3000);
+        assertEquals(1, pacer.blocksPerTask());
+        assertTrue(pacer.getDelayMillis() > 0);
+    }
+
+    @Test
+    public void testRateCap() {
+        // One megabyte a second
+        SnapshotPacer pacer = new SnapshotPacer(1, TARGET_WAIT, 1024 * 1024, 4);
+        pacer.reset(0);
+        pacer.workDone(512 * 1024, 0);
+        assertEquals(500, pacer.nextDelay(0, 0, true, 0));
+        pacer.workDone(512 * 1024, 500);
+        assertEquals(500, pacer.nextDelay(0, 0, true, 500));
+        // A new window starts after a second
+        pacer.workDone(0, 1000);
+        assertEquals(0, pacer.nextDelay(0, 0, true, 1000));
+    }
+}
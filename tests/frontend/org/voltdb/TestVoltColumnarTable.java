@@ -0,0 +1,185 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.voltdb.client.ClientResponse;
+import org.voltdb.types.GeographyPointValue;
+import org.voltdb.types.TimestampType;
+import org.voltdb.types.VoltDecimalHelper;
+
+public class TestVoltColumnarTable extends TestCase {
+
+    private static final String[] NAMES = { "alpha", "beta", "gamma" };
+
+    private static VoltTable makeTable(int rows) {
+        VoltTable table = new VoltTable(
+                new VoltTable.ColumnInfo("TINY", VoltType.TINYINT),
+                new VoltTable.ColumnInfo("SMALL", VoltType.SMALLINT),
+                new VoltTable.ColumnInfo("INT", VoltType.INTEGER),
+                new VoltTable.ColumnInfo("BIG", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("TS", VoltType.TIMESTAMP),
+                new VoltTable.ColumnInfo("DBL", VoltType.FLOAT),
+                new VoltTable.ColumnInfo("DEC", VoltType.DECIMAL),
+                new VoltTable.ColumnInfo("STR", VoltType.STRING),
+                new VoltTable.ColumnInfo("BIN", VoltType.VARBINARY));
+        for (int i = 0; i < rows; i++) {
+            if (i % 7 == 3) {
+                table.addRow(null, null, null, null, null, null, null, null, null);
+                continue;
+            }
+            table.addRow((byte) (i % 100), (short) i, i * 3, i * 1000000007L,
+                    new TimestampType(i * 1000L), i / 4.0,
+                    new BigDecimal(i).setScale(VoltDecimalHelper.kDefaultScale),
+                    NAMES[i % NAMES.length], new byte[] { (byte) i, 1, 2 });
+        }
+        return table;
+    }
+
+    private static void verify(VoltColumnarTable columnar, int rows) {
+        assertEquals(rows, columnar.getRowCount());
+        assertEquals(9, columnar.getColumnCount());
+        assertEquals(6, columnar.getColumnIndex("dec"));
+        assertEquals(VoltType.TIMESTAMP, columnar.getColumnType(4));
+
+        long[] small = columnar.getLongColumn(1);
+        long[] big = columnar.getLongColumn(3);
+        long[] ts = columnar.getLongColumn(4);
+        double[] dbl = columnar.getDoubleColumn(5);
+        BigDecimal[] dec = columnar.getDecimalColumn(6);
+        String[] str = columnar.getStringColumn(7);
+        byte[][] bin = columnar.getVarbinaryColumn(8);
+        for (int i = 0; i < rows; i++) {
+            if (i % 7 == 3) {
+                for (int c = 0; c < 9; c++) {
+                    assertTrue(columnar.isNull(c, i));
+                }
+                assertEquals(VoltType.NULL_SMALLINT, small[i]);
+                assertEquals(VoltType.NULL_BIGINT, big[i]);
+                assertNull(dec[i]);
+                assertNull(str[i]);
+                assertNull(bin[i]);
+                continue;
+            }
+            assertFalse(columnar.isNull(0, i));
+            assertEquals(i, small[i]);
+            assertEquals(i * 1000000007L, big[i]);
+            assertEquals(i * 1000L, ts[i]);
+            assertEquals(i / 4.0, dbl[i]);
+            assertEquals(new BigDecimal(i).setScale(VoltDecimalHelper.kDefaultScale), dec[i]);
+            assertEquals(NAMES[i % NAMES.length], str[i]);
+            assertTrue(Arrays.equals(new byte[] { (byte) i, 1, 2 }, bin[i]));
+        }
+        if (rows > NAMES.length) {
+            // each distinct string is sent once
+            assertEquals(NAMES.length, columnar.getStringDictionary(7).length);
+        }
+    }
+
+    public void testRoundTrip() {
+        VoltTable table = makeTable(100);
+        VoltColumnarTable columnar = VoltColumnarTable.fromVoltTable(table);
+        verify(columnar, 100);
+
+        ByteBuffer buf = ByteBuffer.allocate(columnar.getSerializedSize());
+        columnar.flattenToBuffer(buf);
+        buf.flip();
+        VoltColumnarTable copy = new VoltColumnarTable(buf);
+        verify(copy, 100);
+        assertTrue(table.hasSameContents(copy.toVoltTable()));
+    }
+
+    public void testEmptyAndNoNulls() {
+        VoltColumnarTable empty = VoltColumnarTable.fromVoltTable(makeTable(0));
+        assertEquals(0, empty.getRowCount());
+        assertEquals(0, empty.getLongColumn(3).length);
+        assertEquals(0, empty.getStringDictionary(7).length);
+
+        VoltColumnarTable few = VoltColumnarTable.fromVoltTable(makeTable(3));
+        assertFalse(few.hasNulls(3));
+        verify(few, 3);
+    }
+
+    public void testWrongAccessorAndUnsupportedType() {
+        VoltColumnarTable columnar = VoltColumnarTable.fromVoltTable(makeTable(5));
+        try {
+            columnar.getDoubleColumn(3);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+
+        VoltTable points = new VoltTable(new VoltTable.ColumnInfo("PT", VoltType.GEOGRAPHY_POINT));
+        points.addRow(new GeographyPointValue(1, 2));
+        assertFalse(VoltColumnarTable.isEncodable(points));
+        assertNull(VoltColumnarTable.fromVoltTable(points));
+    }
+
+    public void testClientResponse() throws Exception {
+        int rows = ClientResponseImpl.COLUMNAR_MIN_ROWS + 10;
+        VoltTable large = makeTable(rows);
+        VoltTable small = makeTable(5);
+        ClientResponseImpl response = new ClientResponseImpl(ClientResponse.SUCCESS,
+                new VoltTable[] { large, small }, null);
+        response.setColumnarEncoding(true);
+
+        ByteBuffer buf = ByteBuffer.allocate(response.getSerializedSize());
+        response.flattenToBuffer(buf);
+        assertFalse(buf.hasRemaining());
+        buf.flip();
+
+        ClientResponseImpl copy = new ClientResponseImpl();
+        copy.initFromBuffer(buf);
+        assertTrue(copy.getColumnarEncoding());
+        VoltColumnarTable[] columnar = copy.getColumnarResults();
+        assertEquals(2, columnar.length);
+        verify(columnar[0], rows);
+        verify(columnar[1], 5);
+        VoltTable[] results = copy.getResults();
+        assertTrue(large.hasSameContents(results[0]));
+        assertTrue(small.hasSameContents(results[1]));
+
+        // forwarding a decoded response re-sends the columnar bytes
+        buf = ByteBuffer.allocate(copy.getSerializedSize());
+        copy.flattenToBuffer(buf);
+        buf.flip();
+        ClientResponseImpl forwarded = new ClientResponseImpl();
+        forwarded.initFromBuffer(buf);
+        assertTrue(large.hasSameContents(forwarded.getResults()[0]));
+
+        // without the flag the wire format is unchanged
+        ClientResponseImpl rowMajor = new ClientResponseImpl(ClientResponse.SUCCESS,
+                new VoltTable[] { large }, null);
+        buf = ByteBuffer.allocate(rowMajor.getSerializedSize());
+        rowMajor.flattenToBuffer(buf);
+        buf.flip();
+        copy = new ClientResponseImpl();
+        copy.initFromBuffer(buf);
+        assertFalse(copy.getColumnarEncoding());
+        assertTrue(large.hasSameContents(copy.getResults()[0]));
+    }
+}
@@ -63,6 +63,7 @@ import java.util.concurrent.LinkedBlockingQueue;
 
 import org.mockito.Mockito;
 import org.voltdb.ClientResponseImpl;
+import org.voltdb.VoltColumnarTable;
 import org.voltdb.VoltTable;
 import org.voltdb.client.VoltBulkLoader.BulkLoaderFailureCallBack;
 import org.voltdb.client.VoltBulkLoader.BulkLoaderSuccessCallback;
@@ -118,6 +119,18 @@ public class MockVoltClient implements Client {
                 return result;
             }
 
+            @Override
+            public VoltColumnarTable[] getColumnarResults() {
+                if (result == null) {
+                    return null;
+                }
+                VoltColumnarTable[] columnar = new VoltColumnarTable[result.length];
+                for (int i = 0; i < result.length; i++) {
+                    columnar[i] = VoltColumnarTable.fromVoltTable(result[i]);
+                }
+                return columnar;
+            }
+
             @Override
             public byte getStatus() {
                 return ClientResponse.SUCCESS;
@@ -356,6 +369,18 @@ public class MockVoltClient implements Client {
         return false;
     }
 
+    @Override
+    public ClientResponse callProcedureColumnar(String procName, Object... parameters)
+        throws IOException, NoConnectionsException, ProcCallException {
+        return callProcedure(procName, parameters);
+    }
+
+    @Override
+    public boolean callProcedureColumnar(ProcedureCallback callback, String procName, Object... parameters)
+            throws IOException, NoConnectionsException {
+        return callProcedure(callback, procName, parameters);
+    }
+
     @Override
     public ClientResponseWithPartitionKey[] callAllPartitionProcedure(String procedureName, Object... params)  throws IOException, NoConnectionsException, ProcCallException{
         // TODO Auto-generated method stub
@@ -36,6 +36,7 @@ import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Test;
 import org.voltcore.network.Connection;
@@ -800,6 +801,232 @@ public class TestDistributer extends TestCase {
         volt.shutdown();
     }
 
+    /**
+     * Sub-second query timeouts fire on time even though the timer wheel only ticks once a second.
+     */
+    @Test
+    public void testSubSecondQueryTimeout() throws Exception {
+        // TODO: write a mock server that can grock ssl
+        if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicLong timedOutAt = new AtomicLong();
+
+        // create a fake server and connect to it.
+        MockVolt volt = new MockVolt(20000);
+        volt.start();
+
+        Distributer dist = new Distributer(false,
+                ClientConfig.DEFAULT_PROCEDURE_TIMOUT_NANOS,
+                30000 /* thirty second connection timeout */,
+                false, false, null /* subject */, null);
+        dist.createConnection("localhost", "", "", 20000, ClientAuthScheme.HASH_SHA1);
+        assertTrue(volt.handler != null);
+
+        // leave the call unanswered so only the client can time it out
+        volt.handler.sendResponses.set(false);
+
+        final long start = System.nanoTime();
+        ProcedureInvocation invocation = new ProcedureInvocation(46, "@Ping");
+        dist.queue(invocation, new ProcedureCallback() {
+            @Override
+            public void clientCallback(ClientResponse clientResponse) throws Exception {
+                assertEquals(ClientResponse.CONNECTION_TIMEOUT, clientResponse.getStatus());
+                timedOutAt.set(System.nanoTime());
+                latch.countDown();
+            }
+        }, true, start, TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(timedOutAt.get() - start);
+        assertTrue("Timed out after " + elapsedMs + " ms", elapsedMs >= 100 && elapsedMs < 900);
+
+        // clean up
+        dist.shutdown();
+        volt.shutdown();
+    }
+
+    // Counts responses by status and remembers any call that was answered more than once.
+    private static class CountingCallback implements ProcedureCallback {
+        private final AtomicBoolean m_invoked = new AtomicBoolean(false);
+        private final AtomicInteger m_success;
+        private final AtomicInteger m_failed;
+        private final AtomicInteger m_duplicates;
+        private final CountDownLatch m_done;
+
+        CountingCallback(AtomicInteger success, AtomicInteger failed, AtomicInteger duplicates, CountDownLatch done) {
+            m_success = success;
+            m_failed = failed;
+            m_duplicates = duplicates;
+            m_done = done;
+        }
+
+        @Override
+        public void clientCallback(ClientResponse clientResponse) {
+            if (!m_invoked.compareAndSet(false, true)) {
+                m_duplicates.incrementAndGet();
+                return;
+            }
+            if (clientResponse.getStatus() == ClientResponse.SUCCESS) {
+                m_success.incrementAndGet();
+            } else {
+                m_failed.incrementAndGet();
+            }
+            m_done.countDown();
+        }
+    }
+
+    private static void awaitConnectionCount(Distributer dist, int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (dist.getConnectedHostList().size() != count) {
+            assertTrue("Expected " + count + " connections", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Connections come and go while other threads keep queueing calls. Every call must be
+     * answered exactly once, either by the server or with a failure when its connection is lost.
+     */
+    @Test
+    public void testConnectionChurnWithCallsInFlight() throws Exception {
+        // TODO: write a mock server that can grock ssl
+        if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
+
+        final int callers = 4;
+        final int callsPerCaller = 2000;
+        final CountDownLatch done = new CountDownLatch(callers * callsPerCaller);
+        final AtomicInteger success = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger duplicates = new AtomicInteger();
+        final AtomicInteger notQueued = new AtomicInteger();
+
+        MockVolt volt0 = new MockVolt(20000);
+        volt0.start();
+        final Distributer dist = new Distributer(false,
+                ClientConfig.DEFAULT_PROCEDURE_TIMOUT_NANOS,
+                30000 /* thirty second connection timeout */,
+                false, false, null /* subject */, null);
+        try {
+            dist.createConnection("localhost", "", "", 20000, ClientAuthScheme.HASH_SHA1);
+            assertTrue(volt0.handler != null);
+
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < callers; t++) {
+                final int caller = t;
+                Thread thread = new Thread() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < callsPerCaller; i++) {
+                            ProcedureInvocation invocation = new ProcedureInvocation(caller * callsPerCaller + i, "@Ping");
+                            try {
+                                dist.queue(invocation, new CountingCallback(success, failed, duplicates, done),
+                                        true, System.nanoTime(), 0);
+                            } catch (NoConnectionsException e) {
+                                // the first connection is never removed
+                                notQueued.incrementAndGet();
+                                done.countDown();
+                            }
+                        }
+                    }
+                };
+                threads.add(thread);
+                thread.start();
+            }
+
+            // add and remove a second connection while the callers are running
+            for (int round = 0; round < 5; round++) {
+                MockVolt volt1 = new MockVolt(20001 + round);
+                volt1.start();
+                try {
+                    dist.createConnection("localhost", "", "", 20001 + round, ClientAuthScheme.HASH_SHA1);
+                    awaitConnectionCount(dist, 2);
+                    Thread.sleep(20);
+                } finally {
+                    volt1.shutdown();
+                }
+                awaitConnectionCount(dist, 1);
+            }
+
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertTrue(done.await(60, TimeUnit.SECONDS));
+            dist.drain();
+            assertEquals(0, duplicates.get());
+            assertEquals(0, notQueued.get());
+            assertEquals(callers * callsPerCaller, success.get() + failed.get());
+        } finally {
+            dist.shutdown();
+            volt0.shutdown();
+        }
+    }
+
+    /**
+     * Timeouts keep firing while the connection snapshot is being replaced, both the
+     * sub-second ones timed out individually and the ones left to the timer wheel.
+     */
+    @Test
+    public void testTimeoutsDuringConnectionChange() throws Exception {
+        // TODO: write a mock server that can grock ssl
+        if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
+
+        final int calls = 200;
+        final CountDownLatch done = new CountDownLatch(calls);
+        final AtomicInteger success = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger duplicates = new AtomicInteger();
+
+        MockVolt volt0 = new MockVolt(20000);
+        volt0.start();
+        Distributer dist = new Distributer(false,
+                ClientConfig.DEFAULT_PROCEDURE_TIMOUT_NANOS,
+                30000 /* thirty second connection timeout */,
+                false, false, null /* subject */, null);
+        try {
+            dist.createConnection("localhost", "", "", 20000, ClientAuthScheme.HASH_SHA1);
+            assertTrue(volt0.handler != null);
+            // leave every call unanswered so only the client can finish it
+            volt0.handler.sendResponses.set(false);
+
+            final long start = System.nanoTime();
+            int round = 0;
+            for (int i = 0; i < calls; i++) {
+                // alternate between timeouts shorter and longer than the wheel precision
+                final long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(i % 2 == 0 ? 50 + i : 1000 + i * 5);
+                dist.queue(new ProcedureInvocation(i, "@Ping"),
+                        new CountingCallback(success, failed, duplicates, done),
+                        true, System.nanoTime(), timeoutNanos);
+                if (i % 40 == 39) {
+                    // replace the connection snapshot twice while the timeouts are pending
+                    MockVolt volt1 = new MockVolt(20001 + round);
+                    volt1.start();
+                    try {
+                        dist.createConnection("localhost", "", "", 20001 + round, ClientAuthScheme.HASH_SHA1);
+                        volt1.handler.sendResponses.set(false);
+                        awaitConnectionCount(dist, 2);
+                    } finally {
+                        volt1.shutdown();
+                    }
+                    awaitConnectionCount(dist, 1);
+                    round++;
+                }
+            }
+
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            dist.drain();
+            final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertEquals(0, duplicates.get());
+            assertEquals(0, success.get());
+            assertEquals(calls, failed.get());
+            // the longest timeout is a little over two seconds, allow for the wheel precision
+            assertTrue("Timeouts took " + elapsedMs + " ms", elapsedMs < 10000);
+        } finally {
+            dist.shutdown();
+            volt0.shutdown();
+        }
+    }
+
     /**
      * Test that a connection actually times out when it should timeout,
      * rather than sooner. Also check pings aren't sent super duper early.
@@ -225,4 +225,33 @@ public class TestProcedureInvocation extends TestCase{
 
         verifySpi(spi);
     }
+
+    public void testColumnarResultsExtension() throws Exception {
+        ProcedureInvocation columnar = new ProcedureInvocation(10, BatchTimeoutOverrideType.NO_TIMEOUT,
+                false, true, "invocation1", byteparam);
+        ByteBuffer buf = ByteBuffer.allocate(columnar.getSerializedSize());
+        columnar.flattenToBuffer(buf);
+        assertFalse(buf.hasRemaining());
+        buf.flip();
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.initFromBuffer(buf);
+        assertTrue(spi.getColumnarResults());
+        assertFalse(spi.getAllPartition());
+        assertEquals(byteparam, spi.getParams().toArray()[0]);
+
+        // and back through the server side serialization
+        buf = ByteBuffer.allocate(spi.getSerializedSize());
+        spi.flattenToBuffer(buf);
+        buf.flip();
+        StoredProcedureInvocation copy = new StoredProcedureInvocation();
+        copy.initFromBuffer(buf);
+        assertTrue(copy.getColumnarResults());
+
+        buf = ByteBuffer.allocate(pi.getSerializedSize());
+        pi.flattenToBuffer(buf);
+        buf.flip();
+        spi = new StoredProcedureInvocation();
+        spi.initFromBuffer(buf);
+        assertFalse(spi.getColumnarResults());
+    }
 }
@@ -0,0 +1,165 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestTimerWheel {
+
+    private static final long TICK = TimeUnit.MILLISECONDS.toNanos(10);
+
+    static class Deadline extends TimerWheel.Timeout {
+        final long deadline;
+        Deadline(long deadline) {
+            this.deadline = deadline;
+        }
+    }
+
+    @Test
+    public void testFiresOnTheTickAfterTheDeadline() {
+        TimerWheel wheel = new TimerWheel(TICK, 0);
+        Deadline d = new Deadline(25 * TICK);
+        wheel.schedule(d, 0, d.deadline);
+        assertEquals(1, wheel.size());
+
+        assertTrue(wheel.advance(25 * TICK - 1).isEmpty());
+        List<TimerWheel.Timeout> expired = wheel.advance(25 * TICK);
+        assertEquals(1, expired.size());
+        assertTrue(expired.get(0) == d);
+        assertEquals(0, wheel.size());
+        assertTrue(wheel.advance(100 * TICK).isEmpty());
+    }
+
+    @Test
+    public void testNeverFiresEarly() {
+        TimerWheel wheel = new TimerWheel(TICK, 0);
+        // a deadline in the middle of a tick rounds up to the next one
+        Deadline d = new Deadline(3 * TICK + 1);
+        wheel.schedule(d, 0, d.deadline);
+        assertTrue(wheel.advance(3 * TICK + 1).isEmpty());
+        assertEquals(1, wheel.advance(4 * TICK).size());
+
+        // scheduled from the middle of a tick
+        d = new Deadline(4 * TICK + TICK / 2 + TICK);
+        wheel.schedule(d, 4 * TICK + TICK / 2, TICK);
+        assertTrue(wheel.advance(5 * TICK).isEmpty());
+        assertEquals(1, wheel.advance(6 * TICK).size());
+    }
+
+    @Test
+    public void testCancel() {
+        TimerWheel wheel = new TimerWheel(TICK, 0);
+        Deadline a = new Deadline(10 * TICK);
+        Deadline b = new Deadline(10 * TICK);
+        wheel.schedule(a, 0, a.deadline);
+        wheel.schedule(b, 0, b.deadline);
+        assertTrue(wheel.cancel(a));
+        assertFalse(wheel.cancel(a));
+        List<TimerWheel.Timeout> expired = wheel.advance(10 * TICK);
+        assertEquals(1, expired.size());
+        assertTrue(expired.get(0) == b);
+        assertFalse(wheel.cancel(b));
+    }
+
+    @Test
+    public void testReschedule() {
+        TimerWheel wheel = new TimerWheel(TICK, 0);
+        Deadline d = new Deadline(0);
+        wheel.schedule(d, 0, 5 * TICK);
+        wheel.schedule(d, 0, 5000 * TICK);
+        assertEquals(1, wheel.size());
+        assertTrue(wheel.advance(4999 * TICK).isEmpty());
+        assertEquals(1, wheel.advance(5000 * TICK).size());
+    }
+
+    @Test
+    public void testPastDeadlineFiresOnNextTick() {
+        TimerWheel wheel = new TimerWheel(TICK, 0);
+        wheel.advance(100 * TICK);
+        wheel.schedule(new Deadline(0), 50 * TICK, 0);
+        assertTrue(wheel.advance(100 * TICK).isEmpty());
+        assertEquals(1, wheel.advance(101 * TICK).size());
+    }
+
+    @Test
+    public void testInfiniteTimeoutNeverFires() {
+        TimerWheel wheel = new TimerWheel(TICK, 0);
+        wheel.schedule(new Deadline(Long.MAX_VALUE), 0, Long.MAX_VALUE);
+        // turn the wheel past the top level cascade so the timeout gets re-parked
+        long now = 0;
+        for (int i = 0; i < 200; i++) {
+            now += (1L << (TimerWheel.WHEEL_BITS * (TimerWheel.LEVELS - 1))) * TICK;
+            assertTrue(wheel.advance(now).isEmpty());
+        }
+        assertEquals(1, wheel.size());
+    }
+
+    /*
+     * Randomly schedule and cancel timeouts across all levels of the wheel, turning it by
+     * random amounts, and check each one fires exactly once within a tick of its deadline.
+     */
+    @Test
+    public void testRandomDeadlines() {
+        Random r = new Random(42);
+        long start = r.nextLong();
+        TimerWheel wheel = new TimerWheel(TICK, start);
+        List<Deadline> live = new ArrayList<>();
+        long now = start;
+        int fired = 0;
+        for (int round = 0; round < 2000; round++) {
+            for (int i = 0; i < 20; i++) {
+                // spread delays over several levels
+                long delay = (long)(Math.pow(TimerWheel.WHEEL_SIZE, r.nextDouble() * 4) * TICK) + r.nextInt((int)TICK);
+                Deadline d = new Deadline(now + delay);
+                wheel.schedule(d, now, delay);
+                live.add(d);
+            }
+            if (!live.isEmpty() && r.nextBoolean()) {
+                assertTrue(wheel.cancel(live.remove(r.nextInt(live.size()))));
+            }
+            now += (long)r.nextInt(50) * TICK + r.nextInt((int)TICK);
+            for (TimerWheel.Timeout t : wheel.advance(now)) {
+                Deadline d = (Deadline)t;
+                assertTrue(live.remove(d));
+                assertTrue(now - d.deadline >= 0);
+                assertTrue(now - d.deadline < 51 * TICK);
+                fired++;
+            }
+            for (Deadline d : live) {
+                assertTrue(d.deadline - now > -TICK);
+            }
+        }
+        assertEquals(live.size(), wheel.size());
+        assertTrue(fired > 0);
+    }
+}
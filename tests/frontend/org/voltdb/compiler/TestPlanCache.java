@@ -0,0 +1,160 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class TestPlanCache extends TestCase {
+
+    private static final PlanCache.Weigher<String> LENGTH_WEIGHER = new PlanCache.Weigher<String>() {
+        @Override
+        public long weigh(String value) {
+            return value.length();
+        }
+    };
+
+    public void testPutIfAbsent() {
+        PlanCache<String> cache = new PlanCache<>(100, 10000, LENGTH_WEIGHER);
+        assertNull(cache.get("a"));
+        assertNull(cache.putIfAbsent("a", "first", 0));
+        assertEquals("first", cache.putIfAbsent("a", "second", 0));
+        assertEquals("first", cache.get("a"));
+        assertEquals(1, cache.size());
+        assertEquals(5, cache.weight());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getInsertions());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weight());
+        assertNull(cache.get("a"));
+    }
+
+    public void testEntryBound() {
+        final int maxEntries = 1000;
+        PlanCache<String> cache = new PlanCache<>(maxEntries, Long.MAX_VALUE, LENGTH_WEIGHER);
+        for (int i = 0; i < 10 * maxEntries; i++) {
+            cache.putIfAbsent("key" + i, "value" + i, 0);
+            assertTrue(cache.size() <= maxEntries);
+        }
+        assertEquals(10 * maxEntries, cache.getInsertions());
+        assertEquals(cache.getInsertions() - cache.size(), cache.getEvictions());
+    }
+
+    public void testWeightBound() {
+        final long maxWeight = 2000;
+        PlanCache<String> cache = new PlanCache<>(1000, maxWeight, LENGTH_WEIGHER);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append('x');
+        }
+        String value = sb.toString();
+        for (int i = 0; i < 100; i++) {
+            cache.putIfAbsent("key" + i, value, 0);
+            assertTrue(cache.weight() <= maxWeight);
+        }
+        assertEquals(cache.size() * value.length(), cache.weight());
+
+        // a value that could never fit is not cached
+        sb.setLength(0);
+        for (int i = 0; i < maxWeight + 1; i++) {
+            sb.append('y');
+        }
+        long evictionsBefore = cache.getEvictions();
+        assertNull(cache.putIfAbsent("huge", sb.toString(), 0));
+        assertNull(cache.get("huge"));
+        assertEquals(evictionsBefore + 1, cache.getEvictions());
+    }
+
+    public void testFrequentEntriesSurviveScan() {
+        final int maxEntries = 100;
+        PlanCache<String> cache = new PlanCache<>(maxEntries, Long.MAX_VALUE, LENGTH_WEIGHER);
+        List<String> hot = new ArrayList<>();
+        for (int i = 0; i < maxEntries / 2; i++) {
+            hot.add("hot" + i);
+            cache.putIfAbsent("hot" + i, "hot", 0);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (String key : hot) {
+                assertNotNull(cache.get(key));
+            }
+        }
+        // A long run of keys used only once would flush an LRU cache.
+        for (int i = 0; i < 3 * maxEntries; i++) {
+            cache.putIfAbsent("cold" + i, "cold", 0);
+        }
+        for (String key : hot) {
+            assertNotNull(key, cache.get(key));
+        }
+    }
+
+    public void testCostlyEntriesAreAdmitted() {
+        final int maxEntries = 100;
+        PlanCache<String> cache = new PlanCache<>(maxEntries, Long.MAX_VALUE, LENGTH_WEIGHER);
+        for (int i = 0; i < maxEntries; i++) {
+            cache.putIfAbsent("cheap" + i, "cheap", 0);
+        }
+        // Seen as often as the cheap entries, but a second to plan.
+        cache.putIfAbsent("costly", "costly", 1000000000L);
+        cache.putIfAbsent("filler", "filler", 0);
+        assertEquals("costly", cache.get("costly"));
+    }
+
+    public void testConcurrentAccess() throws Exception {
+        final PlanCache<String> cache = new PlanCache<>(500, Long.MAX_VALUE, LENGTH_WEIGHER);
+        final AtomicInteger failures = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final int seed = t;
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 20000; i++) {
+                        String key = "key" + ((i * 31 + seed) % 2000);
+                        String value = cache.get(key);
+                        if (value == null) {
+                            cache.putIfAbsent(key, key, i);
+                        }
+                        else if (!value.equals(key)) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, failures.get());
+        assertTrue(cache.size() <= 500);
+        assertEquals(8 * 20000, cache.getHits() + cache.getMisses());
+    }
+}
@@ -278,6 +278,59 @@ public class TestExportDataSource extends TestCase {
         }
     }
 
+    public void testOutOfOrderAcks() throws Exception {
+        System.out.println("Running testOutOfOrderAcks");
+        VoltDB.replaceVoltDBInstanceForTest(m_mockVoltDB);
+        Table table = m_mockVoltDB.getCatalogContext().database.getTables().get("TableName");
+        ExportDataSource s = new ExportDataSource(null, "database",
+                table.getTypeName(),
+                m_part,
+                table.getSignature(),
+                table.getColumns(),
+                table.getPartitioncolumn(),
+                TEST_DIR.getAbsolutePath());
+        try {
+            final CountDownLatch cdl = new CountDownLatch(1);
+            Runnable cdlWaiter = new Runnable() {
+
+                @Override
+                public void run() {
+                    cdl.countDown();
+                }
+            };
+            s.setOnMastership(cdlWaiter, false);
+            s.acceptMastership();
+            cdl.await();
+
+            for (long uso = 23; uso <= 63; uso += 20) {
+                ByteBuffer foo = ByteBuffer.allocateDirect(20 + StreamBlock.HEADER_SIZE);
+                foo.duplicate().put(new byte[28]);
+                s.pushExportBuffer(uso, foo, false);
+            }
+            assertEquals(60, s.sizeInBytes());
+
+            AckingContainer first = (AckingContainer)s.poll().get();
+            AckingContainer second = (AckingContainer)s.poll().get();
+            AckingContainer third = (AckingContainer)s.poll().get();
+            assertEquals(42, first.m_uso);
+            assertEquals(62, second.m_uso);
+            assertEquals(82, third.m_uso);
+
+            //Acking a later block must not release the block polled before it
+            second.discard();
+            assertEquals(60, s.sizeInBytes());
+
+            //Once the earlier block is acked both are released
+            first.discard();
+            assertEquals(20, s.sizeInBytes());
+
+            third.discard();
+            assertEquals(0, s.sizeInBytes());
+        } finally {
+            s.close();
+        }
+    }
+
     public void testReplicatedPoll() throws Exception {
         System.out.println("Running testReplicatedPoll");
         VoltDB.replaceVoltDBInstanceForTest(m_mockVoltDB);
@@ -385,4 +385,85 @@ public class TestExportDecoderBase extends TestCase
         }
     }
 
+    public void testExportRowBatch() throws IOException {
+        VoltTable table = new VoltTable(
+                new VoltTable.ColumnInfo("VOLT_TRANSACTION_ID", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("VOLT_EXPORT_TIMESTAMP", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("VOLT_EXPORT_SEQUENCE_NUMBER", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("VOLT_PARTITION_ID", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("VOLT_OP", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("VOLT_SITE_ID", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("smallint", VoltType.SMALLINT),
+                new VoltTable.ColumnInfo("string", VoltType.STRING),
+                new VoltTable.ColumnInfo("decimal", VoltType.DECIMAL),
+                new VoltTable.ColumnInfo("geog", VoltType.GEOGRAPHY)
+        );
+        long l = System.currentTimeMillis();
+        table.addRow(l, l, l, 3, l, l, (short) 2, "xx", new BigDecimal(88), GEOG);
+        table.addRow(l, l, l, 3, l, l, null, null, new BigDecimal(89), null);
+        table.addRow(l, l, l, 3, l, l, (short) 4, "yyy", null, GEOG);
+
+        // Each row of a block is prefixed with its length
+        ByteBuffer block = ByteBuffer.allocate(8192).order(ByteOrder.LITTLE_ENDIAN);
+        while (table.advanceRow()) {
+            byte[] rowBytes = ExportEncoder.encodeRow(table, "mytable", 6, 1L);
+            block.putInt(rowBytes.length);
+            block.put(rowBytes);
+        }
+        block.flip();
+
+        ExportRowBatch batch = ExportRowBatch.wrap(block, null, 3);
+        assertNotNull(batch);
+        assertEquals(0, block.position());
+        assertEquals(3, batch.getRowCount());
+        assertEquals(10, batch.getColumnCount());
+        assertEquals("mytable", batch.getTableName());
+        assertEquals(1L, batch.getGeneration());
+        assertEquals(6, batch.getPartitionColumnIndex());
+
+        // Values read in place match the row by row decoding
+        ExportRow previous = null;
+        ByteBuffer bb = block.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            byte[] rowBytes = new byte[bb.getInt()];
+            bb.get(rowBytes);
+            ExportRow rowdata = ExportRow.decodeRow(previous, 3, 0L, rowBytes);
+            ExportRow batchRow = batch.getRow(row);
+            assertEquals(rowdata.names, batchRow.names);
+            assertEquals(rowdata.types, batchRow.types);
+            assertEquals(rowdata.partitionValue, batch.getPartitionValue(row));
+            for (int i = 0; i < batch.getColumnCount(); i++) {
+                assertEquals(rowdata.values[i] == null, batch.isNull(row, i));
+                if (rowdata.values[i] instanceof BigDecimal) {
+                    assertEquals(0, ((BigDecimal) rowdata.values[i]).compareTo((BigDecimal) batch.getObject(row, i)));
+                } else if (rowdata.values[i] != null) {
+                    assertEquals(rowdata.values[i].toString(), batch.getObject(row, i).toString());
+                }
+            }
+            previous = rowdata;
+        }
+
+        // Typed accessors, read out of row order
+        assertEquals("yyy", batch.getString(2, 7));
+        assertEquals(2L, batch.getLong(0, 6));
+        assertEquals(l, batch.getLong(1, 0));
+        assertNull(batch.getString(1, 7));
+        assertEquals(0, batch.getDecimal(1, 8).compareTo(new BigDecimal(89)));
+        assertEquals(GEOG.toString(), batch.getGeography(2, 9).toString());
+
+        // A null partition column falls back to the partition id
+        assertEquals(3, batch.getPartitionValue(1));
+
+        try {
+            batch.getString(0, 6);
+            fail("Read a SMALLINT as a STRING");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        // Blocks that can't be read in place are left to the row by row path
+        assertNull(ExportRowBatch.wrap(ByteBuffer.allocate(0), null, 3));
+        block.limit(block.limit() - 1);
+        assertNull(ExportRowBatch.wrap(block, null, 3));
+    }
+
 }
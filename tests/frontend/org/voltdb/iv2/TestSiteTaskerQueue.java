@@ -0,0 +1,166 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.voltdb.StarvationTracker;
+
+import junit.framework.TestCase;
+
+public class TestSiteTaskerQueue extends TestCase
+{
+    private static class NumberedTask extends SiteTasker.SiteTaskerRunnable {
+        final int m_number;
+
+        NumberedTask(int number) {
+            m_number = number;
+        }
+
+        @Override
+        void run() {
+        }
+    }
+
+    private static SiteTaskerQueue getSiteTaskerQueue(boolean useRingBuffer) {
+        SiteTaskerQueue queue = new SiteTaskerQueue(0, useRingBuffer);
+        queue.setStarvationTracker(new StarvationTracker(0));
+        queue.setupQueueDepthTracker(0);
+        return queue;
+    }
+
+    private static void checkOrder(List<SiteTasker> batch, int first, int count) {
+        assertEquals(count, batch.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(first + i, ((NumberedTask) batch.get(i)).m_number);
+        }
+    }
+
+    private void doTestDrainTo(boolean useRingBuffer) throws Exception {
+        SiteTaskerQueue queue = getSiteTaskerQueue(useRingBuffer);
+        // enough tasks to span several ring buffer chunks
+        final int taskCount = 5000;
+        for (int i = 0; i < taskCount; i++) {
+            queue.offer(new NumberedTask(i));
+        }
+        assertEquals(taskCount, queue.size());
+
+        List<SiteTasker> batch = new ArrayList<>();
+        assertEquals(0, ((NumberedTask) queue.take()).m_number);
+        assertEquals(1, ((NumberedTask) queue.poll()).m_number);
+        int next = 2;
+        while (next < taskCount) {
+            int count = queue.drainTo(batch, 64);
+            checkOrder(batch, next, Math.min(64, taskCount - next));
+            next += count;
+            batch.clear();
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    public void testDrainTo() throws Exception {
+        doTestDrainTo(false);
+    }
+
+    public void testDrainToRingBuffer() throws Exception {
+        doTestDrainTo(true);
+    }
+
+    private void doTestBlockingDrainTo(boolean useRingBuffer) throws Exception {
+        final SiteTaskerQueue queue = getSiteTaskerQueue(useRingBuffer);
+        final int rounds = 1000;
+        final CountDownLatch done = new CountDownLatch(1);
+        final List<SiteTasker> received = new ArrayList<>();
+        Thread consumer = new Thread() {
+            @Override
+            public void run() {
+                List<SiteTasker> batch = new ArrayList<>();
+                try {
+                    while (received.size() < rounds) {
+                        queue.drainTo(batch, 16);
+                        received.addAll(batch);
+                        batch.clear();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                done.countDown();
+            }
+        };
+        consumer.start();
+        for (int i = 0; i < rounds; i++) {
+            queue.offer(new NumberedTask(i));
+            if (i % 100 == 0) {
+                // give the consumer a chance to park on an empty queue
+                Thread.sleep(1);
+            }
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        consumer.join();
+        checkOrder(received, 0, rounds);
+    }
+
+    public void testBlockingDrainTo() throws Exception {
+        doTestBlockingDrainTo(false);
+    }
+
+    public void testBlockingDrainToRingBuffer() throws Exception {
+        doTestBlockingDrainTo(true);
+    }
+
+    public void testDrainedTasksCountUntilStarted() throws Exception {
+        SiteTaskerQueue queue = getSiteTaskerQueue(false);
+        for (int i = 0; i < 10; i++) {
+            queue.offer(new NumberedTask(i));
+        }
+        Thread.sleep(5);
+        ArrayDeque<SiteTasker> batch = new ArrayDeque<>();
+        assertEquals(4, queue.drainTo(batch, 4));
+        // drained but not started
+        assertEquals(10, queue.getQueueDepth());
+        long batchWait = queue.getHeadWaitTime();
+        assertTrue(batchWait >= TimeUnit.MILLISECONDS.toNanos(5));
+
+        int remaining = 10;
+        while (batch.poll() != null) {
+            queue.batchTaskStarted(batch);
+            assertEquals(--remaining, queue.getQueueDepth());
+        }
+        assertEquals(6, queue.getQueueDepth());
+        assertTrue(queue.getHeadWaitTime() > 0);
+
+        // abandoning a batch stops counting the rest
+        queue.drainTo(batch, 16);
+        assertEquals(6, queue.getQueueDepth());
+        batch.clear();
+        queue.batchTaskStarted(batch);
+        assertEquals(0, queue.getQueueDepth());
+        assertEquals(0, queue.getHeadWaitTime());
+    }
+}
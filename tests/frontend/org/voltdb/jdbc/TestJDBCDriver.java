@@ -33,6 +33,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.sql.BatchUpdateException;
 import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.DriverManager;
@@ -40,6 +41,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.Arrays;
@@ -587,6 +589,70 @@ public class TestJDBCDriver {
         }
     }
 
+    @Test
+    public void testPartitionedInsertBatch() throws Exception {
+        Properties props = new Properties();
+        props.setProperty(JDBC4Connection.PIPELINED_BATCH, "true");
+        myconn = JDBCTestCommons.getJdbcConnection("jdbc:voltdb://localhost:21212", props);
+        PreparedStatement ps = myconn.prepareStatement("INSERT INTO BLAST_IT VALUES (?, ?)");
+        for (int i = 0; i < 100; i++) {
+            ps.setInt(1, i);
+            ps.setInt(2, i * 2);
+            ps.addBatch();
+        }
+        int[] counts = ps.executeBatch();
+        assertEquals(100, counts.length);
+        for (int count : counts) {
+            assertEquals(1, count);
+        }
+        assertEquals(100, ps.getUpdateCount());
+
+        // rows 100 to 149 and a duplicate of row 7, only the partition of row 7 fails
+        for (int i = 100; i < 150; i++) {
+            ps.setInt(1, i);
+            ps.setInt(2, i * 2);
+            ps.addBatch();
+        }
+        ps.setInt(1, 7);
+        ps.setInt(2, 0);
+        ps.addBatch();
+        try {
+            ps.executeBatch();
+            fail("duplicate key inserted");
+        } catch (BatchUpdateException e) {
+            counts = e.getUpdateCounts();
+            assertEquals(51, counts.length);
+            assertEquals(Statement.EXECUTE_FAILED, counts[50]);
+            int inserted = 0;
+            for (int count : counts) {
+                if (count == 1) {
+                    inserted++;
+                }
+            }
+            ResultSet rs = myconn.createStatement().executeQuery("SELECT COUNT(*) FROM BLAST_IT");
+            rs.next();
+            assertEquals(100 + inserted, rs.getLong(1));
+        }
+        myconn.close();
+        myconn = null;
+    }
+
+    @Test
+    public void testSerialBatch() throws Exception {
+        // batches run one at a time unless pipelining is asked for
+        Statement stmt = conn.createStatement();
+        stmt.addBatch("INSERT INTO ROBBIE_MUSTOE VALUES (1, 1)");
+        stmt.addBatch("INSERT INTO ROBBIE_MUSTOE VALUES (1, 2)");
+        stmt.addBatch("INSERT INTO ROBBIE_MUSTOE VALUES (2, 2)");
+        try {
+            stmt.executeBatch();
+            fail("duplicate key inserted");
+        } catch (BatchUpdateException e) {
+            // the batch stops at the first failure
+            assertTrue(Arrays.equals(new int[] { 1, Statement.EXECUTE_FAILED }, e.getUpdateCounts()));
+        }
+    }
+
     // Check that the null type is handled the same way as specifying the correct type
     // this is for spring framework compatibility
     @Test
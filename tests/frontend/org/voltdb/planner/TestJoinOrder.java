@@ -26,6 +26,7 @@ package org.voltdb.planner;
 import java.util.HashSet;
 import java.util.List;
 
+import org.voltdb.plannodes.AbstractJoinPlanNode;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.NestLoopPlanNode;
@@ -45,7 +46,7 @@ public class TestJoinOrder extends PlannerTestCase {
                         || ((SeqScanPlanNode)n.getChild(1)).getTargetTableName().endsWith(Integer.toString(ii + 1)));
                 break;
             } else {
-                NestLoopPlanNode node = (NestLoopPlanNode)n;
+                AbstractJoinPlanNode node = (AbstractJoinPlanNode)n;
                 assertTrue(((SeqScanPlanNode)n.getChild(1)).getTargetTableName().endsWith(Integer.toString(ii)));
                 n = node.getChild(0);
             }
@@ -61,7 +62,7 @@ public class TestJoinOrder extends PlannerTestCase {
                         || ((SeqScanPlanNode)n.getChild(1)).getTargetTableName().endsWith(Integer.toString(ii - 1)));
                 break;
             } else {
-                NestLoopPlanNode node = (NestLoopPlanNode)n;
+                AbstractJoinPlanNode node = (AbstractJoinPlanNode)n;
                 assertTrue(((SeqScanPlanNode)n.getChild(1)).getTargetTableName().endsWith(Integer.toString(ii)));
                 n = node.getChild(0);
             }
@@ -234,7 +235,7 @@ public class TestJoinOrder extends PlannerTestCase {
         assertEquals(JoinType.FULL, ((NestLoopPlanNode) n).getJoinType());
         assertTrue(((SeqScanPlanNode)n.getChild(1)).getTargetTableName().equals("T3"));
         n = n.getChild(0);
-        assertEquals(PlanNodeType.NESTLOOP, n.getPlanNodeType());
+        assertEquals(PlanNodeType.HASHJOIN, n.getPlanNodeType());
         assertTrue(((SeqScanPlanNode)n.getChild(0)).getTargetTableName().equals("T1"));
         assertTrue(((SeqScanPlanNode)n.getChild(1)).getTargetTableName().equals("T2"));
 
@@ -273,14 +274,14 @@ public class TestJoinOrder extends PlannerTestCase {
         AbstractPlanNode n = pn.getChild(0).getChild(0);
         String joinOrder[] = {"T2", "T1", "T3", "T4", "T5", "T7", "T6"};
         for (int i = 6; i > 0; i--) {
-            assertTrue(n instanceof NestLoopPlanNode);
+            assertTrue(n instanceof AbstractJoinPlanNode);
             assertTrue(n.getChild(1) instanceof SeqScanPlanNode);
             SeqScanPlanNode s = (SeqScanPlanNode) n.getChild(1);
             if (i == 1) {
                 assertTrue(n.getChild(0) instanceof SeqScanPlanNode);
                 assertTrue(joinOrder[i-1].equals(((SeqScanPlanNode) n.getChild(0)).getTargetTableName()));
             } else {
-                assertTrue(n.getChild(0) instanceof NestLoopPlanNode);
+                assertTrue(n.getChild(0) instanceof AbstractJoinPlanNode);
                 n = n.getChild(0);
             }
             assertTrue(joinOrder[i].equals(s.getTargetTableName()));
@@ -347,7 +348,7 @@ public class TestJoinOrder extends PlannerTestCase {
                         || ((SeqScanPlanNode)n.getChild(1)).getTargetTableName().endsWith(Integer.toString(ii - 1)));
                 break;
             } else {
-                NestLoopPlanNode node = (NestLoopPlanNode)n;
+                AbstractJoinPlanNode node = (AbstractJoinPlanNode)n;
                 if (mySets.contains(Integer.valueOf(ii))) {
                     assertTrue(((SeqScanPlanNode)n.getChild(0)).getTargetTableName().endsWith(Integer.toString(ii)));
                     n = node.getChild(1);
@@ -28,12 +28,12 @@ import java.util.List;
 import org.apache.commons.lang3.StringUtils;
 import org.voltdb.expressions.AbstractExpression;
 import org.voltdb.expressions.TupleValueExpression;
+import org.voltdb.plannodes.AbstractJoinPlanNode;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AbstractScanPlanNode;
 import org.voltdb.plannodes.AggregatePlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
-import org.voltdb.plannodes.NestLoopPlanNode;
 import org.voltdb.plannodes.NodeSchema;
 import org.voltdb.plannodes.OrderByPlanNode;
 import org.voltdb.plannodes.SchemaColumn;
@@ -48,22 +48,26 @@ public class TestPlansJoin extends PlannerTestCase {
     private static class JoinOp {
         private final String m_string;
         private final ExpressionType m_operator;
-        private JoinOp(String string, ExpressionType operator) {
+        private final PlanNodeType m_joinNodeType;
+        private JoinOp(String string, ExpressionType operator, PlanNodeType joinNodeType) {
             m_string = string;
             m_operator = operator;
+            m_joinNodeType = joinNodeType;
         }
 
+        // Only equality joins can be hash joins
         static JoinOp NOT_DISTINCT =
                 new JoinOp(" IS NOT DISTINCT FROM ",
-                        ExpressionType.COMPARE_NOTDISTINCT);
+                        ExpressionType.COMPARE_NOTDISTINCT, PlanNodeType.NESTLOOP);
         static JoinOp EQUAL =
-                new JoinOp("=", ExpressionType.COMPARE_EQUAL);
+                new JoinOp("=", ExpressionType.COMPARE_EQUAL, PlanNodeType.HASHJOIN);
 
         static JoinOp[] JOIN_OPS = new JoinOp[] {EQUAL, NOT_DISTINCT};
 
         @Override
         public String toString() { return m_string; }
         ExpressionType toOperator() { return m_operator; }
+        PlanNodeType joinNodeType() { return m_joinNodeType; }
     }
 
     public void testBasicInnerJoin() {
@@ -76,13 +80,13 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 JOIN R2 USING(C)";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         followAssertedLeftChain(pn,
                 PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
+                PlanNodeType.HASHJOIN);
         assertEquals(4, pn.getOutputSchema().size());
 
         for (JoinOp joinOp : JoinOp.JOIN_OPS) {
@@ -107,7 +111,7 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 5,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
 
         query = "SELECT R1.A, R1.C, D FROM R1 JOIN R2 ON R1.C" +
@@ -115,21 +119,21 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 3,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
 
         query = "SELECT R1.A, C, R1.D FROM R1 JOIN R2 USING(C)";
         pn = compileToTopDownTree(query, 3,
                 PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
 
         query = "SELECT R1.A, R2.C, R1.D FROM R1 JOIN R2 ON R1.C" +
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 3, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         selectColumns = pn.getOutputSchema();
         assertEquals("R1", selectColumns.getColumn(0).getTableName());
@@ -139,7 +143,7 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT R1.A, C, R1.D FROM R1 JOIN R2 USING(C)";
         pn = compileToTopDownTree(query, 3, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         selectColumns = pn.getOutputSchema();
         assertEquals("R1", selectColumns.getColumn(0).getTableName());
@@ -189,8 +193,8 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.C JOIN R3 ON R3.C" +
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 7, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -200,8 +204,8 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -209,8 +213,8 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT C FROM R1 INNER JOIN R2 USING (C) INNER JOIN R3 USING(C)";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -219,14 +223,14 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R3_NOC.A";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 null, // weakened. soon, replace with: NESTLOOPINDEX, SEQSCAN?
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
+                PlanNodeType.HASHJOIN);
         if (joinOp == JoinOp.EQUAL) { // weaken test for now
-            node = followAssertedLeftChain(node, PlanNodeType.NESTLOOP,
+            node = followAssertedLeftChain(node, PlanNodeType.HASHJOIN,
                     PlanNodeType.NESTLOOPINDEX,
                     PlanNodeType.SEQSCAN);
         }
@@ -258,7 +262,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         SeqScanPlanNode seqScan;
         AbstractExpression predicate;
         boolean theOpIsOnTheLeft;
@@ -266,11 +270,11 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1, R2 WHERE R1.A" +
                 joinOp + "R2.A AND R1.C > 0";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -286,12 +290,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1, R2 WHERE R1.A" +
                 joinOp + "R2.A AND R1.C > R2.C";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         theOpIsOnTheLeft = (predicate != null) &&
@@ -313,12 +317,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 JOIN R2 ON R1.A" +
                 joinOp + "R2.A WHERE R1.C > 0";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -338,12 +342,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 JOIN R2 ON R1.A" +
                 joinOp + "R2.A WHERE R1.C > R2.C";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         theOpIsOnTheLeft = (predicate != null) &&
@@ -366,14 +370,14 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.A AND R1.C" +
                 joinOp + "R3.C AND R1.A > 0";
         pn = compileToTopDownTree(query, 7, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -385,7 +389,7 @@ public class TestPlansJoin extends PlannerTestCase {
         assertEquals("R3", seqScan.getTargetTableName());
         assertNull(seqScan.getPredicate());
 
-        nlj = (NestLoopPlanNode) nlj.getChild(0);
+        nlj = (AbstractJoinPlanNode) nlj.getChild(0);
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -406,12 +410,12 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.A AND R1.C" +
                 joinOp + "R2.C WHERE R1.A > 0";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.CONJUNCTION_AND,
@@ -434,13 +438,13 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT A, C FROM R1 JOIN R2 USING (A, C)";
         pn = compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.CONJUNCTION_AND,
@@ -453,13 +457,13 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT A, C FROM R1 JOIN R2 USING (A, C) WHERE A > 0";
         pn = compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.CONJUNCTION_AND,
@@ -481,14 +485,14 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.A JOIN R3 ON R1.C" +
                 joinOp + "R3.C WHERE R1.A > 0";
         pn = compileToTopDownTree(query, 7, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -500,7 +504,7 @@ public class TestPlansJoin extends PlannerTestCase {
         assertEquals("R3", seqScan.getTargetTableName());
         assertNull(seqScan.getPredicate());
 
-        nlj = (NestLoopPlanNode) nlj.getChild(0);
+        nlj = (AbstractJoinPlanNode) nlj.getChild(0);
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -523,7 +527,7 @@ public class TestPlansJoin extends PlannerTestCase {
         List<AbstractPlanNode> lpn;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         AbstractExpression predicate;
         SeqScanPlanNode seqScan;
         SchemaColumn sc0;
@@ -531,7 +535,7 @@ public class TestPlansJoin extends PlannerTestCase {
 
         query = "SELECT max(A) FROM R1 JOIN R2 USING(A)";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         selectColumns = pn.getOutputSchema();
         for (SchemaColumn sc : selectColumns) {
@@ -541,12 +545,12 @@ public class TestPlansJoin extends PlannerTestCase {
             assertNotSame(-1, tve.getColumnIndex());
         }
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
+                PlanNodeType.HASHJOIN);
         assertNotNull(AggregatePlanNode.getInlineAggregationNode(node));
 
         query = "SELECT distinct(A) FROM R1 JOIN R2 USING(A)";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         selectColumns = pn.getOutputSchema();
         for (SchemaColumn sc : selectColumns) {
@@ -560,7 +564,7 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
                 PlanNodeType.ORDERBY,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         selectColumns = pn.getOutputSchema();
@@ -578,12 +582,12 @@ public class TestPlansJoin extends PlannerTestCase {
         assertProjectingCoordinator(lpn);
         pn = lpn.get(1);
         assertTopDownTree(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(lpn.get(1), PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.COMPARE_EQUAL,
@@ -604,8 +608,8 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM P1 LABEL LEFT JOIN R2 USING(A) WHERE A > 0";
         lpn = compileToFragments(query);
         node = followAssertedLeftChain(lpn.get(1), PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertTrue(JoinType.LEFT == nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -630,12 +634,12 @@ public class TestPlansJoin extends PlannerTestCase {
 
         pn = lpn.get(1);
         assertTopDownTree(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(lpn.get(1), PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -664,7 +668,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         SeqScanPlanNode seqScan;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
@@ -678,7 +682,7 @@ public class TestPlansJoin extends PlannerTestCase {
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,PlanNodeType.SEND,
                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getPreJoinPredicate();
         theConstantIsOnTheLeft = (predicate != null) &&
                 (predicate.getLeft() != null) &&
@@ -712,7 +716,7 @@ public class TestPlansJoin extends PlannerTestCase {
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,PlanNodeType.SEND,
                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getPreJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.COMPARE_EQUAL,
                 ExpressionType.VALUE_TUPLE, ExpressionType.VALUE_CONSTANT);
@@ -732,11 +736,11 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.A" +
                 joinOp + "R2.A AND R2.C = 1 ";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
                 ExpressionType.VALUE_TUPLE, ExpressionType.VALUE_TUPLE);
@@ -748,11 +752,11 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 5,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
                 ExpressionType.VALUE_TUPLE, ExpressionType.VALUE_TUPLE);
@@ -779,7 +783,7 @@ public class TestPlansJoin extends PlannerTestCase {
         node = followAssertedLeftChain(pn, true,
                 PlanNodeType.SEND,
                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getPreJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.COMPARE_EQUAL,
                 ExpressionType.VALUE_TUPLE, ExpressionType.VALUE_CONSTANT);
@@ -811,7 +815,7 @@ public class TestPlansJoin extends PlannerTestCase {
         node = followAssertedLeftChain(pn, true,
                 PlanNodeType.SEND,
                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getPreJoinPredicate();
         theConstantIsOnTheLeft = (predicate != null) &&
                 (predicate.getLeft() != null) &&
@@ -850,7 +854,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String pattern;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         AbstractExpression predicate;
 
         query = "SELECT * FROM R1, R2";
@@ -859,7 +863,7 @@ public class TestPlansJoin extends PlannerTestCase {
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,PlanNodeType.SEND,
                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getJoinPredicate());
 
         for (JoinOp joinOp : JoinOp.JOIN_OPS) {
@@ -876,17 +880,17 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         AbstractExpression predicate;
 
         query = "SELECT * FROM R1 JOIN R2 ON ABS(R1.A) " +
                 joinOp + " ABS(R2.A) ";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
                 ExpressionType.FUNCTION,
@@ -897,11 +901,11 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1, R2 WHERE ABS(R1.A) " +
                 joinOp + " ABS(R2.A) ";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
                 ExpressionType.FUNCTION,
@@ -954,7 +958,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         NestLoopIndexPlanNode nlij;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
@@ -1045,14 +1049,14 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R1.A WHERE R3.C > 0 AND R2.C >= 5";
         pn = compileToTopDownTree(query, 7, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.NESTLOOPINDEX,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -1154,7 +1158,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         NestLoopIndexPlanNode nlij;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
@@ -1163,13 +1167,13 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT A, C FROM R2 JOIN R1 USING(A, C)";
         pn = compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.CONJUNCTION_AND,
                 ExpressionType.COMPARE_EQUAL,
@@ -1224,7 +1228,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         NestLoopIndexPlanNode nlij;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
@@ -1234,13 +1238,13 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.CONJUNCTION_AND,
                 joinOp.toOperator(),
@@ -1347,7 +1351,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         SeqScanPlanNode seqScan;
         AbstractExpression predicate;
 
@@ -1355,12 +1359,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -1377,12 +1381,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C AND R1.A = 5";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         predicate = nlj.getPreJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.COMPARE_EQUAL,
@@ -1411,7 +1415,7 @@ public class TestPlansJoin extends PlannerTestCase {
         List<AbstractPlanNode> lpn;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         SeqScanPlanNode seqScan;
         AbstractExpression predicate;
 
@@ -1421,13 +1425,13 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -1464,7 +1468,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         AbstractExpression predicate;
         SeqScanPlanNode seqScan;
         IndexScanPlanNode indexScan;
@@ -1473,12 +1477,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -1497,12 +1501,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C AND R1.A > 0 AND R2.A < 0";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getPreJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.COMPARE_GREATERTHAN,
                 ExpressionType.VALUE_TUPLE, ExpressionType.VALUE_CONSTANT);
@@ -1525,12 +1529,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C AND (R1.A > 0 OR R2.A < 0)";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         boolean theOrIsOnTheLeft = (predicate != null) &&
@@ -1572,12 +1576,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C WHERE R1.A > 0 AND R2.A IS NULL AND (R1.C > R2.C OR R2.C IS NULL)";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -1608,12 +1612,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R3 LEFT JOIN R2 ON R3.A" +
                 joinOp + "R2.A WHERE R3.A > 3 AND R3.C < 0";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.INDEXSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -1633,13 +1637,26 @@ public class TestPlansJoin extends PlannerTestCase {
         // NLJ is simplified to be INNER
         query = "SELECT * FROM R2 LEFT JOIN R3 ON R3.C" +
                 joinOp + "R2.C WHERE R3.A > 3";
-        pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.SEQSCAN,
-                PlanNodeType.INDEXSCAN);
-        node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+        if (joinOp == JoinOp.EQUAL) {
+            pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
+                    PlanNodeType.HASHJOIN,
+                    PlanNodeType.SEQSCAN,
+                    PlanNodeType.INDEXSCAN);
+            node = followAssertedLeftChain(pn, PlanNodeType.SEND,
+                    PlanNodeType.HASHJOIN);
+        }
+        else {
+            // The nested loop is cheaper when the filtered R3 drives the rescans of R2
+            pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
+                    PlanNodeType.PROJECTION,
+                    PlanNodeType.NESTLOOP,
+                    PlanNodeType.INDEXSCAN,
+                    PlanNodeType.SEQSCAN);
+            node = followAssertedLeftChain(pn, PlanNodeType.SEND,
+                    PlanNodeType.PROJECTION,
+                    PlanNodeType.NESTLOOP);
+        }
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.INNER, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -1647,11 +1664,11 @@ public class TestPlansJoin extends PlannerTestCase {
                 ExpressionType.VALUE_TUPLE, ExpressionType.VALUE_TUPLE);
         assertNull(nlj.getWherePredicate());
 
-        seqScan = (SeqScanPlanNode) nlj.getChild(0);
+        seqScan = (SeqScanPlanNode) nlj.getChild(joinOp == JoinOp.EQUAL ? 0 : 1);
         assertEquals("R2", seqScan.getTargetTableName());
         assertNull(seqScan.getPredicate());
 
-        indexScan = (IndexScanPlanNode) nlj.getChild(1);
+        indexScan = (IndexScanPlanNode) nlj.getChild(joinOp == JoinOp.EQUAL ? 1 : 0);
         assertEquals(IndexLookupType.GT, indexScan.getLookupType());
         assertNull(indexScan.getEndExpression());
         assertNull(indexScan.getPredicate());
@@ -1690,7 +1707,7 @@ public class TestPlansJoin extends PlannerTestCase {
         assertProjectingCoordinator(lpn);
         pn = lpn.get(1);
         assertTopDownTree(pn, PlanNodeType.SEND,
-        PlanNodeType.NESTLOOP,
+        joinOp.joinNodeType(),
         PlanNodeType.SEQSCAN,
         PlanNodeType.SEQSCAN);
 
@@ -1710,7 +1727,7 @@ public class TestPlansJoin extends PlannerTestCase {
         lpn = compileToFragments(query);
         assertEquals(2, lpn.size());
         assertTopDownTree(lpn.get(1), PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
 
@@ -1734,7 +1751,7 @@ public class TestPlansJoin extends PlannerTestCase {
         AbstractPlanNode pn;
         AbstractPlanNode node;
         NestLoopIndexPlanNode nlij;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         SeqScanPlanNode seqScan;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
@@ -1742,12 +1759,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R3 LEFT JOIN R2 ON R3.A" +
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -1766,13 +1783,13 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -1823,7 +1840,7 @@ public class TestPlansJoin extends PlannerTestCase {
         AbstractPlanNode pn;
         AbstractPlanNode node;
         NestLoopIndexPlanNode nlij;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
         SeqScanPlanNode seqScan;
@@ -1866,12 +1883,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R2 LEFT JOIN R3 ON R3.C" +
                 joinOp + "R2.A AND R3.A > 0 AND R3.C != 0 AND R2.A < 6";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.INDEXSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         predicate = nlj.getPreJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.COMPARE_LESSTHAN,
@@ -1949,7 +1966,7 @@ public class TestPlansJoin extends PlannerTestCase {
         assertEquals(2, lpn.size());
         pn = lpn.get(1);
         assertTopDownTree(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
 
@@ -1970,7 +1987,7 @@ public class TestPlansJoin extends PlannerTestCase {
         assertEquals(2, lpn.size());
         pn = lpn.get(1);
         assertTopDownTree(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
 
@@ -1996,7 +2013,7 @@ public class TestPlansJoin extends PlannerTestCase {
         List<AbstractPlanNode> lpn;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         NestLoopIndexPlanNode nlij;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
@@ -2020,7 +2037,7 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = lpn.get(0);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -2108,7 +2125,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         SeqScanPlanNode seqScan;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
@@ -2119,53 +2136,64 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 5,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C WHERE R2.C > 0";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                  PlanNodeType.PROJECTION,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 RIGHT JOIN R2 ON R1.C" +
                 joinOp + "R2.C WHERE R1.C > 0";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 LEFT JOIN R3 ON R1.C" +
                 joinOp + "R3.C WHERE R3.A > 0";
-        pn = compileToTopDownTree(query, 5,
-                true,
-                PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.SEQSCAN,
-                PlanNodeType.INDEXSCAN);
+        if (joinOp == JoinOp.EQUAL) {
+            pn = compileToTopDownTree(query, 5,
+                    true,
+                    PlanNodeType.SEND,
+                    PlanNodeType.HASHJOIN,
+                    PlanNodeType.SEQSCAN,
+                    PlanNodeType.INDEXSCAN);
+        }
+        else {
+            // The nested loop is cheaper when the filtered R3 drives the rescans of R1
+            pn = compileToTopDownTree(query, 5,
+                    true,
+                    PlanNodeType.SEND,
+                    PlanNodeType.NESTLOOP,
+                    PlanNodeType.INDEXSCAN,
+                    PlanNodeType.SEQSCAN);
+        }
         node = followAssertedLeftChain(pn,
                     true,
                     PlanNodeType.SEND,
-                    PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                    joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 LEFT JOIN R3 ON R1.C" +
@@ -2185,13 +2213,13 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.C WHERE ABS(R2.C) < 10";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                  PlanNodeType.PROJECTION,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 RIGHT JOIN R2 ON R1.C" +
@@ -2199,14 +2227,14 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 5,
                     true,
                     PlanNodeType.SEND,
-                    PlanNodeType.NESTLOOP,
+                    joinOp.joinNodeType(),
                     PlanNodeType.SEQSCAN,
                     PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,
                     true,
                     PlanNodeType.SEND,
-                    PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                    joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
@@ -2214,27 +2242,27 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 5,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.LEFT);
 
         query = "SELECT * FROM R1 RIGHT JOIN R2 ON R1.C" +
                 joinOp + "R2.C WHERE ABS(R2.C) < 10";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                  PlanNodeType.PROJECTION,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.LEFT);
 
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
@@ -2249,42 +2277,42 @@ public class TestPlansJoin extends PlannerTestCase {
                  true,
                  PlanNodeType.SEND,
                  PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C WHERE ABS(R2.C) <  10 OR R2.C IS NOT NULL";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                  PlanNodeType.PROJECTION,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C WHERE ABS(R1.C) <  10 AND R1.C > 3";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.LEFT);
 
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C WHERE ABS(R1.C) <  10 OR R2.C IS NOT NULL";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.LEFT);
 
         // Test with seqscan with different filers.
@@ -2293,15 +2321,15 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 4,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         //* enable for debug */ System.out.println(pn.toExplainPlanString());
         node = followAssertedLeftChain(pn,
                     true,
                     PlanNodeType.SEND,
-                    PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                    joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -2313,13 +2341,13 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R1.A WHERE R2.A IS NULL";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                  PlanNodeType.PROJECTION,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.LEFT);
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -2435,11 +2463,11 @@ public class TestPlansJoin extends PlannerTestCase {
         assertProjectingCoordinator(lpn);
 
         assertTopDownTree(lpn.get(1), PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.NESTLOOPINDEX,
                 PlanNodeType.NESTLOOPINDEX,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
@@ -2456,11 +2484,11 @@ public class TestPlansJoin extends PlannerTestCase {
         assertProjectingCoordinator(lpn);
 
         assertTopDownTree(lpn.get(1), PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.NESTLOOPINDEX,
                 PlanNodeType.NESTLOOPINDEX,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
@@ -2497,14 +2525,14 @@ public class TestPlansJoin extends PlannerTestCase {
         compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
                 PlanNodeType.ORDERBY,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
 
         query = "SELECT lr.a a, rr.a FROM r1 lr JOIN r1 rr using (a) ORDER BY a;";
         compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.ORDERBY,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
 
@@ -2517,8 +2545,8 @@ public class TestPlansJoin extends PlannerTestCase {
                 " INNER JOIN R3 USING(C);";
         compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -2535,7 +2563,7 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT R1.C FROM R1 INNER JOIN R2 USING (C), R3";
         compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.NESTLOOP,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
@@ -2544,7 +2572,7 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT R2.C FROM R1 INNER JOIN R2 USING (C), R3";
         compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.NESTLOOP,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
@@ -2553,7 +2581,7 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT R3.C, R1.C FROM R1 INNER JOIN R2 USING(C), R3;";
         compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.NESTLOOP,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
@@ -2713,7 +2741,7 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R3.A";
         compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 null,
                 PlanNodeType.SEQSCAN);
 
@@ -2727,7 +2755,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         OrderByPlanNode orderBy;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         AggregatePlanNode aggr;
         NodeSchema selectColumns;
         SchemaColumn col;
@@ -2750,7 +2778,7 @@ public class TestPlansJoin extends PlannerTestCase {
         assertEquals(ExpressionType.VALUE_TUPLE, s.get(0).getExpressionType());
 
         // WHERE
-        nlj = (NestLoopPlanNode) orderBy.getChild(0);
+        nlj = (AbstractJoinPlanNode) orderBy.getChild(0);
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.COMPARE_EQUAL,
@@ -2794,8 +2822,8 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT C FROM R1 JOIN R2 USING (C) JOIN R3 USING (C)";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -2810,7 +2838,7 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT C FROM R1 LEFT JOIN R2 USING (C)";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         selectColumns = pn.getOutputSchema();
@@ -2824,7 +2852,7 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT C FROM R1 RIGHT JOIN R2 USING (C)";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         selectColumns = pn.getOutputSchema();
@@ -2845,12 +2873,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R2 JOIN R1 USING (C) WHERE R1.A > 0";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN);
         sn = (AbstractScanPlanNode) node;
         assertEquals("R1", sn.getTargetTableName());
@@ -2859,12 +2887,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 JOIN R2 USING (C) WHERE R1.A > 0 AND R2.A = 3";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN);
         sn = (AbstractScanPlanNode) node;
         assertEquals("R2", sn.getTargetTableName());
@@ -2873,12 +2901,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 JOIN R2 USING (C) WHERE R1.A > 0 AND R1.A < 3 AND R2.A = 3";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN);
         sn = (AbstractScanPlanNode) node;
         assertEquals("R2", sn.getTargetTableName());
@@ -2887,12 +2915,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 JOIN R2 USING (C) WHERE R1.A = 0 AND R1.D < 3 AND R2.A = 3";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN);
         sn = (AbstractScanPlanNode) node;
         assertEquals("R1", sn.getTargetTableName());
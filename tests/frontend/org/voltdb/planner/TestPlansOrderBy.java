@@ -287,8 +287,9 @@ public class TestPlansOrderBy extends PlannerTestCase {
                 "ORDER BY T.T_D0 DESC, T.T_D1 DESC LIMIT ?");
 
         // filter on indexed column on one table, prefix join constraint,
-        // ORDER BY looking for 1 recovered spoiler -> no ORDER BY node
-        validateOptimalPlan("SELECT * FROM T, Tmanykeys WHERE Tmanykeys.T_D0 = T.T_D2 AND Tmanykeys.T_D0 = ?  " +
+        // ORDER BY looking for 1 recovered spoiler -> the ordered index scan would
+        // rescan T for every filtered row, so an NLIJ on T followed by an ORDER BY node wins
+        validateIndexedBruteForcePlan("SELECT * FROM T, Tmanykeys WHERE Tmanykeys.T_D0 = T.T_D2 AND Tmanykeys.T_D0 = ?  " +
                 "ORDER BY Tmanykeys.T_D1 LIMIT ?");
         // This query requires additional recognition of transitive equality to eliminate the ORDER BY.
         // See ENG-4728.
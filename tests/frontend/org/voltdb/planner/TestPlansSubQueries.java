@@ -41,6 +41,7 @@ import org.voltdb.planner.parseinfo.StmtTableScan;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AggregatePlanNode;
 import org.voltdb.plannodes.HashAggregatePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.MergeReceivePlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
@@ -392,7 +393,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
 
         pn = planNodes.get(1);
         assertTrue(pn instanceof SendPlanNode);
-        checkJoinNode(pn, PlanNodeType.NESTLOOP, nljCount);
+        checkScanJoinNodes(pn, nljCount);
         checkJoinNode(pn, PlanNodeType.NESTLOOPINDEX, nlijCount);
     }
 
@@ -736,10 +737,11 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(0).getChild(0);
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        pn = nlpn.getChild(1);
-        checkSeqScan(pn, "R1");
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        // The hash join builds on the subquery result
         pn = nlpn.getChild(0);
+        checkSeqScan(pn, "R1");
+        pn = nlpn.getChild(1);
         checkSeqScan(pn, "T1", "C", "SD");
         assertNotNull(pn.getInlinePlanNode(PlanNodeType.PROJECTION));
         pn = pn.getChild(0);
@@ -1237,7 +1239,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         }
         assertTrue(nlpn instanceof NestLoopPlanNode);
         assertEquals(JoinType.INNER, ((NestLoopPlanNode) nlpn).getJoinType());
-        pn = nlpn.getChild(0);
+        // The unique match on P2 drives a single scan of T1
+        pn = nlpn.getChild(1);
         checkSeqScan(pn, "T1");
         assertNotNull(pn.getInlinePlanNode(PlanNodeType.PROJECTION));
         pn = pn.getChild(0);
@@ -1245,7 +1248,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         assertNotNull(pn.getInlinePlanNode(PlanNodeType.PROJECTION));
         assertNotNull(pn.getInlinePlanNode(PlanNodeType.PARTIALAGGREGATE));
 
-        pn = nlpn.getChild(1);
+        pn = nlpn.getChild(0);
         checkPrimaryKeyIndexScan(pn, "P2");
 
 
@@ -1262,7 +1265,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         }
         assertTrue(nlpn instanceof NestLoopPlanNode);
         assertEquals(JoinType.INNER, ((NestLoopPlanNode) nlpn).getJoinType());
-        pn = nlpn.getChild(0);
+        pn = nlpn.getChild(1);
         checkSeqScan(pn, "T1");
         assertNotNull(pn.getInlinePlanNode(PlanNodeType.PROJECTION));
         pn = pn.getChild(0);
@@ -1270,7 +1273,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         assertNotNull(pn.getInlinePlanNode(PlanNodeType.PROJECTION));
         assertNotNull(pn.getInlinePlanNode(PlanNodeType.PARTIALAGGREGATE));
 
-        pn = nlpn.getChild(1);
+        pn = nlpn.getChild(0);
         checkPrimaryKeyIndexScan(pn, "P2");
 
 
@@ -1288,7 +1291,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         }
         assertTrue(nlpn instanceof NestLoopPlanNode);
         assertEquals(JoinType.INNER, ((NestLoopPlanNode) nlpn).getJoinType());
-        pn = nlpn.getChild(0);
+        pn = nlpn.getChild(1);
         checkSeqScan(pn, "T1");
         assertNotNull(pn.getInlinePlanNode(PlanNodeType.PROJECTION));
         pn = pn.getChild(0);
@@ -1296,7 +1299,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         assertNotNull(pn.getInlinePlanNode(PlanNodeType.PROJECTION));
         assertNotNull(pn.getInlinePlanNode(PlanNodeType.PARTIALAGGREGATE));
 
-        pn = nlpn.getChild(1);
+        pn = nlpn.getChild(0);
         checkPrimaryKeyIndexScan(pn, "P2");
 
     }
@@ -1414,15 +1417,23 @@ public class TestPlansSubQueries extends PlannerTestCase {
         }
     }
 
+    // Nested loop and hash joins both scan their inner child, so count them together
+    private void checkScanJoinNodes(AbstractPlanNode root, int num) {
+        if (num > 0) {
+            assertEquals(num, root.findAllNodesOfType(PlanNodeType.NESTLOOP).size() +
+                    root.findAllNodesOfType(PlanNodeType.HASHJOIN).size());
+        }
+    }
+
     private void checkPushedDownJoins(int nestLoopCount, int nestLoopIndexCount, String joinQuery) {
         List<AbstractPlanNode> planNodes = compileToFragments(joinQuery);
         assertEquals(2, planNodes.size());
         //* enable to debug */ System.out.println(planNodes.get(0).toExplainPlanString());
-        checkJoinNode(planNodes.get(0), PlanNodeType.NESTLOOP, 0);
+        checkScanJoinNodes(planNodes.get(0), 0);
         checkJoinNode(planNodes.get(0), PlanNodeType.NESTLOOPINDEX, 0);
         // Join on distributed node
         //* enable to debug */ System.out.println(planNodes.get(1).toExplainPlanString());
-        checkJoinNode(planNodes.get(1), PlanNodeType.NESTLOOP, nestLoopCount);
+        checkScanJoinNodes(planNodes.get(1), nestLoopCount);
         checkJoinNode(planNodes.get(1), PlanNodeType.NESTLOOPINDEX, nestLoopIndexCount);
     }
 
@@ -1675,8 +1686,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(1).getChild(0);
         // this join can be pushed down.
         //* enable to debug */ System.out.println(pn.toExplainPlanString());
-        assertTrue(pn.toExplainPlanString().contains("LOOP INNER JOIN"));
-        pn = pn.getChild(0);
+        assertTrue(pn.toExplainPlanString().contains("HASH INNER JOIN"));
+        pn = pn.getChild(1);
         // This is a trivial subquery result scan.
         assertTrue(pn instanceof SeqScanPlanNode);
         pn = pn.getChild(0);
@@ -1747,7 +1758,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
 
         assertTrue(planNodes.get(1).toExplainPlanString().contains("AGGREGATION"));
         assertTrue(planNodes.get(1).toExplainPlanString().contains("INDEX INNER JOIN"));
-        assertTrue(planNodes.get(1).toExplainPlanString().contains("LOOP INNER JOIN"));
+        assertTrue(planNodes.get(1).toExplainPlanString().contains("HASH INNER JOIN"));
 
         // Distinct without GROUP BY
         String sql1, sql2;
@@ -1778,7 +1789,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
 
         assertTrue(planNodes.get(1).toExplainPlanString().contains("AGGREGATION"));
         assertTrue(planNodes.get(1).toExplainPlanString().contains("INDEX INNER JOIN"));
-        assertTrue(planNodes.get(1).toExplainPlanString().contains("LOOP INNER JOIN"));
+        assertTrue(planNodes.get(1).toExplainPlanString().contains("HASH INNER JOIN"));
 
         failToCompile(
                 "SELECT * FROM (SELECT DISTINCT A FROM P1 GROUP BY A, C) T1, P2 " +
@@ -1876,7 +1887,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
             nlpn = nlpn.getChild(0);
         }
 
-        assertTrue(nlpn instanceof NestLoopPlanNode);
+        assertTrue(nlpn instanceof HashJoinPlanNode);
         assertEquals(2, nlpn.getChildCount());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "T1",  "A");
@@ -1900,7 +1911,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         if (nlpn instanceof ProjectionPlanNode) {
             nlpn = nlpn.getChild(0);
         }
-        assertTrue(nlpn instanceof NestLoopPlanNode);
+        assertTrue(nlpn instanceof HashJoinPlanNode);
         assertEquals(2, nlpn.getChildCount());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "T1",  "A");
@@ -1931,8 +1942,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(0).getChild(0);
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.LEFT, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.LEFT, ((HashJoinPlanNode) nlpn).getJoinType());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "R1", "A", "C");
         pn = nlpn.getChild(1);
@@ -2000,8 +2011,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(1);
         assertTrue(pn instanceof SendPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.LEFT, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.LEFT, ((HashJoinPlanNode) nlpn).getJoinType());
 
         pn = nlpn.getChild(0);
         checkPrimaryKeyIndexScan(pn, "P1");
@@ -2076,8 +2087,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(1);
         assertTrue(pn instanceof SendPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.INNER, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.INNER, ((HashJoinPlanNode) nlpn).getJoinType());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "R1", "A", "C");
         pn = nlpn.getChild(1);
@@ -2100,8 +2111,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(1);
         assertTrue(pn instanceof SendPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.INNER, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.INNER, ((HashJoinPlanNode) nlpn).getJoinType());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "T1", "A");
         pn = pn.getChild(0);
@@ -2123,7 +2134,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = pn.getChild(0);
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
+        assertTrue(nlpn instanceof HashJoinPlanNode);
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "T1", "A1");
         pn = nlpn.getChild(1);
@@ -0,0 +1,105 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.plannodes;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.expressions.TupleValueExpression;
+import org.voltdb.types.JoinType;
+
+public class TestHashJoinPlanNode extends TestCase
+{
+    static final String TABLE1 = "table1";
+    static final String[] T1COLS = { "t1col0", "t1col1", "t1col2", "t1col3",
+                                     "t1col4" };
+
+    static final String TABLE2 = "table2";
+    static final String[] T2COLS = { "t2col0", "t2col1", "t2col2", "t2col3" };
+
+    private static TupleValueExpression tve(String table, String column) {
+        return new TupleValueExpression(table, table, column, column, -1);
+    }
+
+    private static HashJoinPlanNode makeJoin() {
+        HashJoinPlanNode dut = new HashJoinPlanNode();
+
+        MockPlanNode outer_child = new MockPlanNode(TABLE1, T1COLS);
+        MockPlanNode inner_child = new MockPlanNode(TABLE2, T2COLS);
+
+        dut.addAndLinkChild(outer_child);
+        dut.addAndLinkChild(inner_child);
+        return dut;
+    }
+
+    public void testResolveHashKeys()
+    {
+        HashJoinPlanNode dut = makeJoin();
+        dut.addHashKey(tve(TABLE1, "t1col3"), tve(TABLE2, "t2col1"));
+        dut.addHashKey(tve(TABLE1, "t1col0"), tve(TABLE2, "t2col2"));
+
+        dut.generateOutputSchema(null);
+        dut.resolveColumnIndexes();
+        dut.resolveSortDirection();
+        assertEquals(T1COLS.length + T2COLS.length, dut.getOutputSchema().size());
+
+        // Outer keys are evaluated against the outer child's tuples,
+        // inner keys against the inner child's.
+        List<AbstractExpression> outerKeys = dut.getOuterHashExpressions();
+        List<AbstractExpression> innerKeys = dut.getInnerHashExpressions();
+        assertEquals(2, outerKeys.size());
+        assertEquals(2, innerKeys.size());
+        assertEquals(3, ((TupleValueExpression) outerKeys.get(0)).getColumnIndex());
+        assertEquals(0, ((TupleValueExpression) outerKeys.get(0)).getTableIndex());
+        assertEquals(0, ((TupleValueExpression) outerKeys.get(1)).getColumnIndex());
+        assertEquals(1, ((TupleValueExpression) innerKeys.get(0)).getColumnIndex());
+        assertEquals(1, ((TupleValueExpression) innerKeys.get(0)).getTableIndex());
+        assertEquals(2, ((TupleValueExpression) innerKeys.get(1)).getColumnIndex());
+        assertFalse(dut.isOutputOrdered(null, null));
+    }
+
+    public void testValidate() throws Exception
+    {
+        HashJoinPlanNode dut = makeJoin();
+        dut.generateOutputSchema(null);
+        try {
+            dut.validate();
+            fail("a hash join without hash keys should not validate");
+        }
+        catch (Exception ex) {
+            assertTrue(ex.getMessage().contains("hash keys"));
+        }
+
+        dut.addHashKey(tve(TABLE1, "t1col1"), tve(TABLE2, "t2col0"));
+        dut.setJoinType(JoinType.FULL);
+        try {
+            dut.validate();
+            fail("a FULL hash join should not validate");
+        }
+        catch (Exception ex) {
+            assertTrue(ex.getMessage().contains("FULL"));
+        }
+    }
+}
@@ -491,7 +491,7 @@ public class TestStatisticsSuite extends StatisticsTestSuiteBase {
         // Based on doc, not code
         // HOST_ID, SITE_ID, and PARTITION_ID all differ.  Fixed to match
         // reality so tests would pass, but, ugh.
-        ColumnInfo[] expectedSchema = new ColumnInfo[9];
+        ColumnInfo[] expectedSchema = new ColumnInfo[17];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -501,6 +501,14 @@ public class TestStatisticsSuite extends StatisticsTestSuiteBase {
         expectedSchema[6] = new ColumnInfo("MESSAGES_READ", VoltType.BIGINT);
         expectedSchema[7] = new ColumnInfo("BYTES_WRITTEN", VoltType.BIGINT);
         expectedSchema[8] = new ColumnInfo("MESSAGES_WRITTEN", VoltType.BIGINT);
+        expectedSchema[9] = new ColumnInfo("WRITE_CALLS", VoltType.BIGINT);
+        expectedSchema[10] = new ColumnInfo("WRITE_DRAINS", VoltType.BIGINT);
+        expectedSchema[11] = new ColumnInfo("POOL_ACQUIRED", VoltType.BIGINT);
+        expectedSchema[12] = new ColumnInfo("POOL_HITS", VoltType.BIGINT);
+        expectedSchema[13] = new ColumnInfo("POOL_MISSES", VoltType.BIGINT);
+        expectedSchema[14] = new ColumnInfo("POOL_OVERFLOWS", VoltType.BIGINT);
+        expectedSchema[15] = new ColumnInfo("COALESCED_MESSAGES", VoltType.BIGINT);
+        expectedSchema[16] = new ColumnInfo("COALESCED_FRAMES", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -25,6 +25,7 @@ package org.voltdb.rejoin;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -251,6 +252,98 @@ public class TestStreamSnapshotDataTarget {
         closeStream(dut2);
     }
 
+    @Test
+    public void testSendWindow() throws IOException, InterruptedException, ExecutionException
+    {
+        StreamSnapshotDataTarget dut = makeDataTarget(1000, false, true);
+
+        // the schema block and SEND_WINDOW data blocks, one more than the window
+        for (int i = 0; i < StreamSnapshotDataTarget.SEND_WINDOW; i++) {
+            dut.write(makeTuples(), 0);
+        }
+        for (int i = 0; i < StreamSnapshotDataTarget.SEND_WINDOW; i++) {
+            while (m_mb.noSentMessages()) {
+                Thread.yield();
+            }
+            m_mb.pollMessage();
+        }
+
+        // the last block waits for an ack
+        Thread.sleep(500);
+        assertTrue(m_mb.noSentMessages());
+
+        ack(false, dut.m_targetId, 0);
+        while (m_mb.noSentMessages()) {
+            Thread.yield();
+        }
+        verifyData((RejoinDataMessage) m_mb.pollMessage(),
+                   dut.m_targetId,
+                   StreamSnapshotMessageType.DATA,
+                   0,
+                   StreamSnapshotDataTarget.SEND_WINDOW);
+
+        for (int i = 1; i <= StreamSnapshotDataTarget.SEND_WINDOW; i++) {
+            ack(false, dut.m_targetId, i);
+        }
+        while (dut.m_outstandingWorkCount.get() != 0) {
+            Thread.yield();
+        }
+
+        closeStream(dut);
+    }
+
+    @Test
+    public void testFullSendWindowDoesNotBlockOtherTargets() throws IOException, InterruptedException, ExecutionException
+    {
+        StreamSnapshotDataTarget dut1 = makeDataTarget(1000, false, true);
+        StreamSnapshotDataTarget dut2 = makeDataTarget(1001, false, true);
+
+        // fill the window of the first target, its last block waits for an ack
+        for (int i = 0; i < StreamSnapshotDataTarget.SEND_WINDOW; i++) {
+            dut1.write(makeTuples(), 0);
+        }
+        for (int i = 0; i < StreamSnapshotDataTarget.SEND_WINDOW; i++) {
+            while (m_mb.noSentMessages()) {
+                Thread.yield();
+            }
+            m_mb.pollMessage();
+        }
+
+        // the schema and data blocks of the second target are still sent
+        dut2.write(makeTuples(), 0);
+        for (int i = 0; i < 2; i++) {
+            while (m_mb.noSentMessages()) {
+                Thread.yield();
+            }
+            assertEquals(dut2.m_targetId, ((RejoinDataMessage) m_mb.pollMessage()).getTargetId());
+        }
+        ack(false, dut2.m_targetId, 0);
+        ack(false, dut2.m_targetId, 1);
+        while (dut2.m_outstandingWorkCount.get() != 0) {
+            Thread.yield();
+        }
+
+        // an ack of the first target releases its last block
+        ack(false, dut1.m_targetId, 0);
+        while (m_mb.noSentMessages()) {
+            Thread.yield();
+        }
+        verifyData((RejoinDataMessage) m_mb.pollMessage(),
+                   dut1.m_targetId,
+                   StreamSnapshotMessageType.DATA,
+                   0,
+                   StreamSnapshotDataTarget.SEND_WINDOW);
+        for (int i = 1; i <= StreamSnapshotDataTarget.SEND_WINDOW; i++) {
+            ack(false, dut1.m_targetId, i);
+        }
+        while (dut1.m_outstandingWorkCount.get() != 0) {
+            Thread.yield();
+        }
+
+        closeStream(dut1);
+        closeStream(dut2);
+    }
+
     @Test
     public void testSendHashinatorConfig() throws IOException, ExecutionException, InterruptedException
     {
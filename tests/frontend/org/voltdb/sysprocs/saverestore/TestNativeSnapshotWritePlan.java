@@ -0,0 +1,87 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.sysprocs.saverestore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.voltdb.utils.VoltFile;
+
+import junit.framework.TestCase;
+
+public class TestNativeSnapshotWritePlan extends TestCase
+{
+    private static final int HOST_ID = 3;
+
+    private String m_path;
+    private File m_dir;
+
+    @Override
+    public void setUp() throws IOException
+    {
+        m_path = Files.createTempDirectory("incremental").toString();
+        m_dir = new VoltFile(m_path);
+        m_dir.mkdirs();
+    }
+
+    @Override
+    public void tearDown() throws IOException
+    {
+        NativeSnapshotWritePlan.setLastIncrementalNonce(m_path, HOST_ID, null);
+        FileUtils.deleteDirectory(m_dir);
+    }
+
+    public void testChainFile() throws IOException
+    {
+        assertNull(NativeSnapshotWritePlan.readIncrementalChain(m_path, HOST_ID));
+
+        NativeSnapshotWritePlan.writeIncrementalChain(m_path, HOST_ID, "base");
+        assertEquals("base", NativeSnapshotWritePlan.readIncrementalChain(m_path, HOST_ID));
+        assertNull(NativeSnapshotWritePlan.readIncrementalChain(m_path, HOST_ID + 1));
+
+        NativeSnapshotWritePlan.writeIncrementalChain(m_path, HOST_ID, "delta1");
+        assertEquals("delta1", NativeSnapshotWritePlan.readIncrementalChain(m_path, HOST_ID));
+        assertEquals(1, m_dir.list().length);
+
+        NativeSnapshotWritePlan.writeIncrementalChain(m_path, HOST_ID, null);
+        assertNull(NativeSnapshotWritePlan.readIncrementalChain(m_path, HOST_ID));
+        assertEquals(0, m_dir.list().length);
+    }
+
+    public void testLastNonceSurvivesRestart() throws IOException
+    {
+        NativeSnapshotWritePlan.setLastIncrementalNonce(m_path, HOST_ID, null);
+        assertNull(NativeSnapshotWritePlan.getLastIncrementalNonce(m_path, HOST_ID));
+
+        NativeSnapshotWritePlan.setLastIncrementalNonce(m_path, HOST_ID, "base");
+        assertEquals("base", NativeSnapshotWritePlan.getLastIncrementalNonce(m_path, HOST_ID));
+
+        // A chain file left by a previous run of the host is picked up once nothing is in memory
+        NativeSnapshotWritePlan.setLastIncrementalNonce(m_path, HOST_ID, null);
+        NativeSnapshotWritePlan.writeIncrementalChain(m_path, HOST_ID, "delta1");
+        assertEquals("delta1", NativeSnapshotWritePlan.getLastIncrementalNonce(m_path, HOST_ID));
+    }
+}
@@ -305,4 +305,73 @@ public class TestTableSaveFile extends TestCase {
             savefile.close();
         }
     }
+
+    public void testConcurrentFiles() throws Exception {
+        System.out.println("Running testConcurrentFiles");
+        Pair<VoltTable, File> first = generateTestTable(50000);
+        Pair<VoltTable, File> second = generateTestTable(30000);
+
+        RestoreReadPool pool = new RestoreReadPool();
+        TableSaveFile files[] = new TableSaveFile[] {
+                new TableSaveFile(new FileInputStream(first.getSecond()), 2, null, false, pool),
+                new TableSaveFile(new FileInputStream(second.getSecond()), 2, null, false, pool) };
+        int rows[] = new int[files.length];
+        int expectedPartitionIds[] = new int[files.length];
+        try {
+            for (TableSaveFile file : files) {
+                file.startReading();
+            }
+            boolean more = true;
+            while (more) {
+                more = false;
+                for (int i = 0; i < files.length; i++) {
+                    BBContainer c = files[i].pollChunk();
+                    if (c == null && files[i].hasMoreChunks()) {
+                        c = files[i].getNextChunk();
+                    }
+                    if (c == null) {
+                        continue;
+                    }
+                    more = true;
+                    try {
+                        // chunks of a file are decompressed in parallel but still come out in order
+                        assertEquals(expectedPartitionIds[i]++, ((TableSaveFile.Container)c).partitionId);
+                        rows[i] += PrivateVoltTableFactory.createVoltTableFromBuffer(c.b(), false).getRowCount();
+                    } finally {
+                        c.discard();
+                    }
+                }
+            }
+            assertEquals(first.getFirst().getRowCount(), rows[0]);
+            assertEquals(second.getFirst().getRowCount(), rows[1]);
+        } finally {
+            for (TableSaveFile file : files) {
+                file.close();
+            }
+            pool.shutdown();
+        }
+    }
+
+    public void testCloseReturnsReadAhead() throws Exception {
+        System.out.println("Running testCloseReturnsReadAhead");
+        Pair<VoltTable, File> table = generateTestTable(50000);
+
+        RestoreReadPool pool = new RestoreReadPool();
+        final int permits = pool.availableReadAhead();
+        try {
+            TableSaveFile savefile = new TableSaveFile(new FileInputStream(table.getSecond()), 3, null, false, pool);
+            try {
+                // Stop after one chunk and leave the rest of the read ahead unconsumed
+                BBContainer c = savefile.getNextChunk();
+                assertNotNull(c);
+                c.discard();
+            } finally {
+                savefile.close();
+            }
+            // A restore that gave up part way must not leave the pool short
+            assertEquals(permits, pool.availableReadAhead());
+        } finally {
+            pool.shutdown();
+        }
+    }
 }
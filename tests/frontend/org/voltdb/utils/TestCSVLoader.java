@@ -40,6 +40,7 @@ import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
@@ -290,6 +291,142 @@ public class TestCSVLoader {
         test_Interface(myOptions, myData, invalidLineCnt, validLineCnt );
     }
 
+    @Test
+    public void testParallelParsers() throws Exception
+    {
+        String []myOptions = {
+                "-f" + path_csv,
+                "--reportdir=" + reportDir,
+                "--maxerrors=50",
+                "--user=",
+                "--password=",
+                "--port=",
+                "--skip=1",
+                "--header",
+                "--parsers=4",
+                "BlAh"
+        };
+        String currentTime = new TimestampType().toString();
+        String []myData = {
+                "clm_bigint,clm_integer,clm_tinyint,clm_smallint,clm_string,clm_decimal,clm_float,clm_timestamp,clm_point,clm_geography",
+                "skipped line",
+                "11111111,1,1,1,first,1.10,1.11,"+currentTime+",POINT(1 1),\"POLYGON((0 0, 1 0, 0 1, 0 0))\"",
+                "222222,2,-2,2,\"multi\nline\",3.30,NULL,"+currentTime+",POINT(2 2),\"POLYGON((0 0, 2 0, 0 2, 0 0))\"",
+                "333333, 3 ,3,3, third ,NULL, 3.33,"+currentTime+",POINT(3 3),\"POLYGON((0 0, 3 0, 0 3, 0 0))\"",
+                "",
+                "\"444444\",4,NULL,4,\\,,4.40 ,4.44,"+currentTime+",POINT(4 4),\"POLYGON((0 0, 4 0, 0 4, 0 0))\"",
+                "-5555555,5,5,\\N,abcde,5.50,5.55,"+currentTime+",POINT(5 5),\"POLYGON((0 0, 5 0, 0 5, 0 0))\"",
+                //invalid lines below
+                "6,6",
+                "7,7,128,7,seventh,7.70,7.77,"+currentTime+",POINT(7 7),\"POLYGON((0 0, 7 0, 0 7, 0 0))\"",
+                "8,8,8,99999,eighth,8.80,8.88,"+currentTime+",POINT(8 8),\"POLYGON((0 0, 8 0, 0 8, 0 0))\"",
+                "9,9,9,9,\"unterminated,9.90,9.99"
+        };
+        int invalidLineCnt = 4;
+        int validLineCnt = 5;
+        test_Interface(myOptions, myData, invalidLineCnt, validLineCnt );
+    }
+
+    private static String[] parallelParserOptions()
+    {
+        return new String[] {
+                "-f" + path_csv,
+                "--reportdir=" + reportDir,
+                "--maxerrors=50",
+                "--user=",
+                "--password=",
+                "--port=",
+                "--skip=0",
+                "--parsers=4",
+                "BlAh"
+        };
+    }
+
+    @Test
+    public void testParallelParsersManyChunks() throws Exception
+    {
+        // a few records per chunk, cut on every record boundary the chunk size lands near
+        CSVLoader.parallelChunkSize = 64;
+        try {
+            List<String> myData = new ArrayList<String>();
+            int invalidLineCnt = 0;
+            for (int i = 0; i < 1000; i++) {
+                if (i % 100 == 99) {
+                    myData.add(i + "," + i);
+                    invalidLineCnt++;
+                } else {
+                    myData.add(i + ",1,1," + i + ",row " + i + ",,,,,");
+                }
+            }
+            test_Interface(parallelParserOptions(), myData.toArray(new String[0]),
+                    invalidLineCnt, myData.size() - invalidLineCnt);
+        } finally {
+            CSVLoader.parallelChunkSize = CSVParallelFileReader.CHUNK_SIZE;
+        }
+    }
+
+    @Test
+    public void testParallelParsersQuotedLinesAcrossChunks() throws Exception
+    {
+        // the chunk size is reached inside the quoted column of every record
+        CSVLoader.parallelChunkSize = 16;
+        try {
+            String value = "line one\nline two\nline three";
+            String[] myData = new String[200];
+            for (int i = 0; i < myData.length; i++) {
+                myData[i] = i + ",1,1,1,\"" + value + "\",,,,,";
+            }
+            test_Interface(parallelParserOptions(), myData, 0, myData.length);
+
+            VoltTable strings = client.callProcedure("@AdHoc", "SELECT clm_string FROM BLAH;").getResults()[0];
+            assertEquals(myData.length, strings.getRowCount());
+            while (strings.advanceRow()) {
+                assertEquals(value, strings.getString(0));
+            }
+        } finally {
+            CSVLoader.parallelChunkSize = CSVParallelFileReader.CHUNK_SIZE;
+        }
+    }
+
+    @Test
+    public void testParallelParsersLineNumbersAcrossChunks() throws Exception
+    {
+        CSVLoader.parallelChunkSize = 32;
+        try {
+            // records over two lines with a short invalid record every ten records
+            List<String> myData = new ArrayList<String>();
+            List<Long> invalidLines = new ArrayList<Long>();
+            long line = 1;
+            for (int i = 0; i < 100; i++) {
+                if (i % 10 == 9) {
+                    myData.add(i + "," + i);
+                    invalidLines.add(line);
+                    line++;
+                } else {
+                    myData.add(i + ",1,1,1,\"first\nsecond\",,,,,");
+                    line += 2;
+                }
+            }
+            test_Interface(parallelParserOptions(), myData.toArray(new String[0]),
+                    invalidLines.size(), myData.size() - invalidLines.size());
+
+            List<Long> reportedLines = new ArrayList<Long>();
+            String prefix = "Invalid input on line ";
+            BufferedReader log = new BufferedReader(new FileReader(CSVLoader.pathLogfile));
+            String logLine;
+            while ((logLine = log.readLine()) != null) {
+                if (logLine.startsWith(prefix)) {
+                    reportedLines.add(Long.parseLong(logLine.substring(prefix.length(), logLine.indexOf('.'))));
+                }
+            }
+            log.close();
+            Collections.sort(reportedLines);
+            assertEquals(invalidLines, reportedLines);
+        } finally {
+            CSVLoader.parallelChunkSize = CSVParallelFileReader.CHUNK_SIZE;
+        }
+    }
+
     //Test -p option where we use just one processor and one line at a time processing of callProcedure.
     @Test
     public void testProcedureOption() throws Exception {
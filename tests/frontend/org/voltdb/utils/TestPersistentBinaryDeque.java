@@ -31,7 +31,11 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
@@ -66,6 +70,7 @@ public class TestPersistentBinaryDeque {
     }
 
     private PersistentBinaryDeque m_pbd;
+    private final boolean m_blockSegments = PersistentBinaryDeque.s_blockSegments;
 
     public static ByteBuffer getFilledBuffer(long fillValue) {
         ByteBuffer buf = ByteBuffer.allocateDirect(1024 * 1024 * 2);
@@ -1054,6 +1059,360 @@ public class TestPersistentBinaryDeque {
         assert(files[0].getName().equals("pbd_nonce.1.pbd"));
     }
 
+    @Test
+    public void testSmallObjectsShareBlocks() throws Exception {
+        System.out.println("Running testSmallObjectsShareBlocks");
+        useBlockSegments();
+        BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+        final int total = 1000;
+
+        // Objects can be polled before the block holding them is written
+        for (int i = 0; i < total; i++) {
+            m_pbd.offer(DBBPool.wrapBB(getFilledSmallBuffer(i)));
+            if (i % 3 == 0) {
+                BBContainer retval = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+                retval.discard();
+            }
+        }
+        m_pbd.sync();
+
+        // 1000 objects of 1KB compress into a handful of blocks
+        File files[] = TEST_DIR.listFiles();
+        assertEquals(1, files.length);
+        assertTrue(files[0].length() < total * 1024 / 4);
+
+        m_pbd.close();
+        m_pbd = new PersistentBinaryDeque(TEST_NONCE, TEST_DIR, logger);
+        reader = m_pbd.openForRead(CURSOR_ID);
+        assertEquals(total, reader.getNumObjects());
+        for (int i = 0; i < total; i++) {
+            BBContainer retval = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            try {
+                assertEquals(getFilledSmallBuffer(i), retval.b());
+            } finally {
+                retval.discard();
+            }
+        }
+        assertNull(reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY));
+    }
+
+    @Test
+    public void testReadRegularSegments() throws Exception {
+        System.out.println("Running testReadRegularSegments");
+        useBlockSegments();
+        m_pbd.closeAndDelete();
+
+        // A segment written before block segments existed
+        PBDSegment regular = new PBDRegularSegment(0L, new File(TEST_DIR, TEST_NONCE + ".0.pbd"));
+        regular.openForWrite(true);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(regular.offer(DBBPool.wrapBB(getFilledSmallBuffer(i)), true));
+        }
+        regular.close();
+
+        m_pbd = new PersistentBinaryDeque(TEST_NONCE, TEST_DIR, logger);
+        for (int i = 10; i < 20; i++) {
+            m_pbd.offer(DBBPool.wrapBB(getFilledSmallBuffer(i)));
+        }
+        assertTrue(PBDBlockSegment.isBlockSegment(new File(TEST_DIR, TEST_NONCE + ".1.pbd")));
+        assertFalse(PBDBlockSegment.isBlockSegment(new File(TEST_DIR, TEST_NONCE + ".0.pbd")));
+
+        BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+        assertEquals(20, reader.getNumObjects());
+        for (int i = 0; i < 20; i++) {
+            BBContainer retval = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            try {
+                assertEquals(getFilledSmallBuffer(i), retval.b());
+            } finally {
+                retval.discard();
+            }
+        }
+        assertNull(reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY));
+    }
+
+    @Test
+    public void testCorruptBlockDetected() throws Exception {
+        System.out.println("Running testCorruptBlockDetected");
+        useBlockSegments();
+        for (int i = 0; i < 10; i++) {
+            m_pbd.offer(DBBPool.wrapBB(getFilledSmallBuffer(i)));
+        }
+        m_pbd.close();
+
+        // Flip a byte in the stored data of the first block
+        final int offset = PBDBlockSegment.BLOCK_SEGMENT_HEADER_BYTES + PBDBlockSegment.BLOCK_HEADER_BYTES + 4;
+        try (RandomAccessFile ras = new RandomAccessFile(new File(TEST_DIR, TEST_NONCE + ".0.pbd"), "rw")) {
+            ras.seek(offset);
+            final int b = ras.read();
+            ras.seek(offset);
+            ras.write(~b);
+        }
+
+        m_pbd = new PersistentBinaryDeque(TEST_NONCE, TEST_DIR, logger);
+        BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+        try {
+            reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("CRC"));
+        }
+    }
+
+    @Test
+    public void testTruncatorWithinBlock() throws Exception {
+        System.out.println("Running testTruncatorWithinBlock");
+        useBlockSegments();
+        for (int i = 0; i < 200; i++) {
+            m_pbd.offer(DBBPool.wrapBB(getFilledSmallBuffer(i)));
+        }
+        m_pbd.close();
+        m_pbd = new PersistentBinaryDeque(TEST_NONCE, TEST_DIR, logger);
+
+        // Several objects share each block, so this cuts a block in the middle
+        m_pbd.parseAndTruncate(new BinaryDequeTruncator() {
+            @Override
+            public TruncatorResponse parse(BBContainer bbc) {
+                ByteBuffer b = bbc.b();
+                if (b.getLong(0) == 150) {
+                    b.limit(16);
+                    return new PersistentBinaryDeque.ByteBufferTruncatorResponse(b.slice());
+                }
+                return null;
+            }
+        });
+
+        BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+        assertEquals(151, reader.getNumObjects());
+        assertEquals(150 * 1024 + 16, reader.sizeInBytes());
+        for (int i = 0; i < 150; i++) {
+            BBContainer retval = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            try {
+                assertEquals(getFilledSmallBuffer(i), retval.b());
+            } finally {
+                retval.discard();
+            }
+        }
+        BBContainer retval = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+        try {
+            assertEquals(16, retval.b().remaining());
+            assertEquals(150, retval.b().getLong(0));
+        } finally {
+            retval.discard();
+        }
+        assertNull(reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY));
+    }
+
+    @Test
+    public void testMappedReads() throws Exception {
+        System.out.println("Running testMappedReads");
+        useBlockSegments();
+        final boolean mmapReads = PBDSegment.s_mmapReads;
+        PBDSegment.s_mmapReads = true;
+        try {
+            for (int i = 0; i < 100; i++) {
+                m_pbd.offer(DBBPool.wrapBB(getFilledSmallBuffer(i)), false);
+            }
+            m_pbd.close();
+            m_pbd = new PersistentBinaryDeque(TEST_NONCE, TEST_DIR, logger);
+            BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+
+            List<BBContainer> polled = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                BBContainer retval = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+                // Uncompressed objects are slices of the mapped file rather than copies
+                assertTrue(retval.b().isReadOnly());
+                polled.add(retval);
+            }
+            assertNull(reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY));
+
+            // The file stays mapped until every object sliced from it is discarded
+            m_pbd.close();
+            for (int i = 0; i < 100; i++) {
+                assertEquals(getFilledSmallBuffer(i), polled.get(i).b());
+                polled.get(i).discard();
+            }
+        } finally {
+            PBDSegment.s_mmapReads = mmapReads;
+        }
+    }
+
+    @Test
+    public void testRewindBlockReader() throws Exception {
+        System.out.println("Running testRewindBlockReader");
+        m_pbd.closeAndDelete();
+
+        PBDSegment segment = new PBDBlockSegment(0L, new File(TEST_DIR, TEST_NONCE + ".0.pbd"));
+        segment.openForWrite(true);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(segment.offer(DBBPool.wrapBB(getFilledSmallBuffer(i)), true));
+        }
+
+        // Objects of the block still being filled
+        PBDSegment.PBDSegmentReader reader = segment.openForRead(CURSOR_ID);
+        for (int i = 0; i < 5; i++) {
+            reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY).discard();
+        }
+        reader.rewindReadOffset(2 * (PBDSegment.OBJECT_HEADER_BYTES + 1024));
+        assertEquals(3, reader.readIndex());
+        assertEquals(7 * 1024, reader.uncompressedBytesToRead());
+        BBContainer retval = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+        try {
+            assertEquals(getFilledSmallBuffer(3), retval.b());
+        } finally {
+            retval.discard();
+        }
+        reader.close();
+        segment.close();
+
+        // Objects of a block read back from the file
+        reader = segment.openForRead("rewind");
+        for (int i = 0; i < 8; i++) {
+            reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY).discard();
+        }
+        reader.rewindReadOffset(PBDSegment.OBJECT_HEADER_BYTES + 1024);
+        assertEquals(7, reader.readIndex());
+        retval = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+        try {
+            assertEquals(getFilledSmallBuffer(7), retval.b());
+        } finally {
+            retval.discard();
+        }
+
+        // A rewind must land on the start of an object
+        try {
+            reader.rewindReadOffset(PBDSegment.OBJECT_HEADER_BYTES);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        reader.close();
+        segment.close();
+    }
+
+    @Test
+    public void testBlockSegmentWritesThrough() throws Exception {
+        System.out.println("Running testBlockSegmentWritesThrough");
+        m_pbd.closeAndDelete();
+
+        final File file = new File(TEST_DIR, TEST_NONCE + ".0.pbd");
+        PBDSegment segment = new PBDBlockSegment(0L, file);
+        segment.openForWrite(true);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(segment.offer(DBBPool.wrapBB(getFilledSmallBuffer(i)), true));
+        }
+
+        // Without a sync or close, as after a crash, the pending file holds every offered object
+        final File pendingFile = new File(file.getPath() + PBDBlockSegment.PENDING_FILE_SUFFIX);
+        assertTrue(pendingFile.exists());
+        PBDSegment recovered = new PBDBlockSegment(0L, file);
+        PBDSegment.PBDSegmentReader reader = recovered.openForRead(CURSOR_ID);
+        assertEquals(10, recovered.getNumEntries());
+        for (int i = 0; i < 10; i++) {
+            BBContainer retval = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            try {
+                assertEquals(getFilledSmallBuffer(i), retval.b());
+            } finally {
+                retval.discard();
+            }
+        }
+        assertFalse(reader.hasMoreEntries());
+        reader.close();
+
+        // Closing compresses the block and drops the uncompressed version written through
+        segment.close();
+        assertTrue(file.length() < 10 * 1024);
+        assertFalse(pendingFile.exists());
+        reader = segment.openForRead(CURSOR_ID);
+        assertEquals(10, segment.getNumEntries());
+        for (int i = 0; i < 10; i++) {
+            BBContainer retval = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            try {
+                assertEquals(getFilledSmallBuffer(i), retval.b());
+            } finally {
+                retval.discard();
+            }
+        }
+        reader.close();
+    }
+
+    @Test
+    public void testBlockSegmentRecoversTornBlock() throws Exception {
+        System.out.println("Running testBlockSegmentRecoversTornBlock");
+        m_pbd.closeAndDelete();
+
+        final File file = new File(TEST_DIR, TEST_NONCE + ".0.pbd");
+        PBDSegment segment = new PBDBlockSegment(0L, file);
+        segment.openForWrite(true);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(segment.offer(DBBPool.wrapBB(getFilledSmallBuffer(i)), true));
+        }
+
+        // As if the process died while appending the compressed block
+        try (RandomAccessFile ras = new RandomAccessFile(file, "rw")) {
+            ras.seek(PBDBlockSegment.BLOCK_SEGMENT_HEADER_BYTES);
+            ras.write(new byte[100]);
+        }
+
+        PBDSegment recovered = new PBDBlockSegment(0L, file);
+        assertEquals(10, recovered.getNumEntries());
+        PBDSegment.PBDSegmentReader reader = recovered.openForRead(CURSOR_ID);
+        for (int i = 0; i < 10; i++) {
+            BBContainer retval = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            try {
+                assertEquals(getFilledSmallBuffer(i), retval.b());
+            } finally {
+                retval.discard();
+            }
+        }
+        assertFalse(reader.hasMoreEntries());
+        reader.close();
+        segment.close();
+    }
+
+    @Test
+    public void testBlockSegmentRecoveryKeepsAppendedBlock() throws Exception {
+        System.out.println("Running testBlockSegmentRecoveryKeepsAppendedBlock");
+        m_pbd.closeAndDelete();
+
+        final File file = new File(TEST_DIR, TEST_NONCE + ".0.pbd");
+        final File pendingFile = new File(file.getPath() + PBDBlockSegment.PENDING_FILE_SUFFIX);
+        PBDSegment segment = new PBDBlockSegment(0L, file);
+        segment.openForWrite(true);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(segment.offer(DBBPool.wrapBB(getFilledSmallBuffer(i)), true));
+        }
+
+        // As if the process died after appending the block but before emptying the pending file
+        final byte[] pending = Files.readAllBytes(pendingFile.toPath());
+        segment.close();
+        final long length = file.length();
+        Files.write(pendingFile.toPath(), pending);
+
+        PBDSegment recovered = new PBDBlockSegment(0L, file);
+        assertEquals(10, recovered.getNumEntries());
+        assertEquals(length, file.length());
+        assertFalse(pendingFile.exists());
+        PBDSegment.PBDSegmentReader reader = recovered.openForRead(CURSOR_ID);
+        for (int i = 0; i < 10; i++) {
+            BBContainer retval = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            try {
+                assertEquals(getFilledSmallBuffer(i), retval.b());
+            } finally {
+                retval.discard();
+            }
+        }
+        assertFalse(reader.hasMoreEntries());
+        reader.close();
+    }
+
+    /*
+     * Replace the deque with one writing block segments, which are off by default.
+     */
+    private void useBlockSegments() throws IOException {
+        m_pbd.closeAndDelete();
+        PersistentBinaryDeque.s_blockSegments = true;
+        m_pbd = new PersistentBinaryDeque(TEST_NONCE, TEST_DIR, logger);
+    }
+
     @Before
     public void setUp() throws Exception {
         setupTestDir();
@@ -1079,6 +1438,7 @@ public class TestPersistentBinaryDeque {
             tearDownTestDir();
         } finally {
             m_pbd = null;
+            PersistentBinaryDeque.s_blockSegments = m_blockSegments;
         }
         System.gc();
         System.runFinalization();
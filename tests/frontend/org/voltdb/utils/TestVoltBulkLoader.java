@@ -1132,6 +1132,15 @@ public class TestVoltBulkLoader extends TestCase {
             bulkLoader.close();
             assertEquals(rowCnt, bulkLoader.getCompletedRowCount());
             assertTrue(testCallback.failureRowListMatches(expectedFailList));
+
+            long batchCnt = 0;
+            for (long bucketCnt : bulkLoader.getBatchFillHistogram()) {
+                batchCnt += bucketCnt;
+            }
+            if (rowCnt > 0) {
+                assertTrue(batchCnt > 0 || expectedFailList.size() == rowCnt);
+                assertTrue(bulkLoader.getRowsPerSecond() > 0);
+            }
         }
         finally {
             if (client1 != null) client1.close();